@@ -127,6 +127,12 @@ public class UserController {
         return ApiResponse.<UserResponse>builder().result(result).build();
     }
 
+    @PostMapping("/internal/batch")
+    ApiResponse<List<UserResponse>> getUsersByIdsInternal(@RequestBody List<Integer> userIds) {
+        var result = userService.getUsersByIds(userIds);
+        return ApiResponse.<List<UserResponse>>builder().result(result).build();
+    }
+
     @GetMapping("/me")
     ApiResponse<UserResponse> getMe(@RequestHeader(value = "Authorization", required = false) String authHeader) {
         var result = userService.getMe();
@@ -38,6 +38,7 @@ public enum ErrorCode {
     EMPTY_EMPLOYMENT_TYPE(1025, "Employment type is required", HttpStatus.BAD_REQUEST),
     EMPTY_PAY_TYPE(1026, "Pay type is required", HttpStatus.BAD_REQUEST),
     EMPTY_OLD_PASSWORD(1027, "Old password is required", HttpStatus.BAD_REQUEST),
+    TOO_MANY_USER_IDS(1028, "Too many user ids in one request", HttpStatus.BAD_REQUEST),
     ;
 
     ErrorCode(int code, String message, HttpStatusCode statusCode) {
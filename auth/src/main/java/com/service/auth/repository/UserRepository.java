@@ -3,9 +3,11 @@ package com.service.auth.repository;
 import com.service.auth.entity.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,4 +18,8 @@ public interface UserRepository extends JpaRepository<User, Integer> {
     List<User> findByRoleName(String roleName);
     Page<User> findByRoleName(String roleName, Pageable pageable);
     Optional<User> findByPhoneNumberAndRoleName(String phoneNumber, String roleName);
+
+    // Lấy nhiều user một lần, kèm role để map sang UserResponse không phát sinh thêm query
+    @EntityGraph(attributePaths = "role")
+    List<User> findAllByUserIdIn(Collection<Integer> userIds);
 }
\ No newline at end of file
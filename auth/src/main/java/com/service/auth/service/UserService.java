@@ -30,8 +30,10 @@ import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
 
 import java.math.BigDecimal;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -55,6 +57,8 @@ public class UserService {
     RoleRepository roleRepository;
     ProfileClient profileClient;
 
+    private static final int MAX_BULK_USER_IDS = 200;
+
     @PreAuthorize("hasRole('ADMIN')")
     @Transactional
     public ApiResponse<ManagerProfileResponse> createManagerProfile(ManagerProfileCreationRequest request) {
@@ -511,6 +515,32 @@ public class UserService {
         return userMapper.toUserResponse(user);
     }
 
+    /**
+     * Lấy thông tin nhiều user trong một query (dùng cho các service khác khi hiển thị danh sách).
+     * Id trùng hoặc null bị bỏ qua; id không tồn tại không có trong kết quả.
+     */
+    @Transactional(readOnly = true)
+    public List<UserResponse> getUsersByIds(List<Integer> userIds) {
+        if (userIds == null || userIds.isEmpty()) {
+            return List.of();
+        }
+        Set<Integer> ids = new LinkedHashSet<>();
+        for (Integer id : userIds) {
+            if (id != null) {
+                ids.add(id);
+            }
+        }
+        if (ids.size() > MAX_BULK_USER_IDS) {
+            throw new AppException(ErrorCode.TOO_MANY_USER_IDS);
+        }
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return userRepository.findAllByUserIdIn(ids).stream()
+                .map(userMapper::toUserResponse)
+                .toList();
+    }
+
     @Transactional(readOnly = true)
     public UserResponse getCustomerById(Integer userId) {
         var user = userRepository.findById(userId)
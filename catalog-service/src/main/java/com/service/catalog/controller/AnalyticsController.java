@@ -3,15 +3,20 @@ package com.service.catalog.controller;
 import com.service.catalog.dto.ApiResponse;
 import com.service.catalog.dto.response.InventoryMetricsResponse;
 import com.service.catalog.dto.response.MaterialCostMetricsResponse;
+import com.service.catalog.service.AnalyticsResponseCache;
 import com.service.catalog.service.AnalyticsService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/analytics/metrics")
@@ -20,6 +25,7 @@ import java.time.LocalDate;
 public class AnalyticsController {
 
     private final AnalyticsService analyticsService;
+    private final AnalyticsResponseCache responseCache;
 
     /**
      * GET /api/analytics/metrics/inventory
@@ -29,24 +35,11 @@ public class AnalyticsController {
     @GetMapping("/inventory")
     public ResponseEntity<ApiResponse<InventoryMetricsResponse>> getInventoryMetrics(
             @RequestParam Integer branchId,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
-        try {
-            InventoryMetricsResponse metrics = analyticsService.getInventoryMetrics(branchId, date);
-            ApiResponse<InventoryMetricsResponse> response = ApiResponse.<InventoryMetricsResponse>builder()
-                    .code(200)
-                    .message("Inventory metrics retrieved successfully")
-                    .result(metrics)
-                    .build();
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            log.error("Error retrieving inventory metrics", e);
-            ApiResponse<InventoryMetricsResponse> response = ApiResponse.<InventoryMetricsResponse>builder()
-                    .code(500)
-                    .message("Failed to retrieve inventory metrics: " + e.getMessage())
-                    .result(null)
-                    .build();
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
-        }
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        // Số liệu tồn kho là tồn kho hiện tại (date chỉ được ghi lại trong response) nên khóa không giới hạn ngày
+        return cached(new AnalyticsResponseCache.Key("/inventory", branchId, null, null, "date=" + date),
+                ifNoneMatch, "inventory metrics", () -> analyticsService.getInventoryMetrics(branchId, date));
     }
 
     /**
@@ -58,25 +51,43 @@ public class AnalyticsController {
     public ResponseEntity<ApiResponse<MaterialCostMetricsResponse>> getMaterialCostMetrics(
             @RequestParam Integer branchId,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return cached(new AnalyticsResponseCache.Key("/material-cost", branchId, startDate, endDate, null),
+                ifNoneMatch, "material cost metrics", () -> analyticsService.getMaterialCostMetrics(
+                        branchId, startDate, endDate));
+    }
+
+    /**
+     * Trả response từ AnalyticsResponseCache kèm ETag; 304 (không body) khi If-None-Match khớp.
+     * Lỗi vẫn trả 500 như trước và không được cache.
+     */
+    private <T> ResponseEntity<ApiResponse<T>> cached(AnalyticsResponseCache.Key key, String ifNoneMatch,
+            String what, Supplier<T> loader) {
         try {
-            MaterialCostMetricsResponse metrics = analyticsService.getMaterialCostMetrics(
-                    branchId, startDate, endDate);
-            ApiResponse<MaterialCostMetricsResponse> response = ApiResponse.<MaterialCostMetricsResponse>builder()
+            AnalyticsResponseCache.Cached<T> cached = responseCache.get(key, () -> ApiResponse.<T>builder()
                     .code(200)
-                    .message("Material cost metrics retrieved successfully")
-                    .result(metrics)
-                    .build();
-            return ResponseEntity.ok(response);
+                    .message(StringUtils.capitalize(what) + " retrieved successfully")
+                    .result(loader.get())
+                    .build());
+            if (AnalyticsResponseCache.matches(ifNoneMatch, cached.etag())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(cached.etag())
+                        .cacheControl(CacheControl.noCache())
+                        .build();
+            }
+            return ResponseEntity.ok()
+                    .eTag(cached.etag())
+                    .cacheControl(CacheControl.noCache())
+                    .body(cached.body());
         } catch (Exception e) {
-            log.error("Error retrieving material cost metrics", e);
-            ApiResponse<MaterialCostMetricsResponse> response = ApiResponse.<MaterialCostMetricsResponse>builder()
+            log.error("Error retrieving {}", what, e);
+            ApiResponse<T> response = ApiResponse.<T>builder()
                     .code(500)
-                    .message("Failed to retrieve material cost metrics: " + e.getMessage())
+                    .message("Failed to retrieve " + what + ": " + e.getMessage())
                     .result(null)
                     .build();
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
         }
     }
 }
-
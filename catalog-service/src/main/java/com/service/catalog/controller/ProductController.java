@@ -64,6 +64,18 @@ public class ProductController {
         ProductDetailResponse result = productService.getProductDetailById(productDetailId);
         return ApiResponse.<ProductDetailResponse>builder().result(result).build();
     }
+
+    @GetMapping("/by-ids")
+    ApiResponse<List<ProductResponse>> getProductsByIds(@RequestParam List<Integer> ids) {
+        List<ProductResponse> result = productService.getProductsByIds(ids);
+        return ApiResponse.<List<ProductResponse>>builder().result(result).build();
+    }
+
+    @GetMapping("/details")
+    ApiResponse<List<ProductDetailResponse>> getProductDetailsByIds(@RequestParam List<Integer> ids) {
+        List<ProductDetailResponse> result = productService.getProductDetailsByIds(ids);
+        return ApiResponse.<List<ProductDetailResponse>>builder().result(result).build();
+    }
     
     @GetMapping("/search")
     ApiResponse<ProductPageResponse> searchProducts(
@@ -691,6 +691,41 @@ public class StockController {
         }
     }
 
+    /**
+     * POST /api/stocks/hold-ids
+     * Lấy holdId cho nhiều orderId trong một request. Body: {"orderIds": [1, 2, 3]}
+     * Kết quả chỉ chứa các order còn reservation (orderId -> holdId).
+     */
+    @PostMapping("/hold-ids")
+    public ResponseEntity<ApiResponse<Map<Integer, String>>> getHoldIdsByOrderIds(@RequestBody Map<String, List<Integer>> request) {
+        List<Integer> orderIds = request != null ? request.get("orderIds") : null;
+        if (orderIds == null) {
+            return ResponseEntity.badRequest()
+                .body(ApiResponse.<Map<Integer, String>>builder()
+                    .code(400)
+                    .message("orderIds is required")
+                    .build());
+        }
+        log.info("Getting hold IDs for {} orders", orderIds.size());
+        
+        try {
+            Map<Integer, String> holdIds = stockReservationService.getHoldIdsByOrderIds(orderIds);
+            return ResponseEntity.ok(ApiResponse.<Map<Integer, String>>builder()
+                .code(200)
+                .message("Hold IDs retrieved successfully")
+                .result(holdIds)
+                .build());
+            
+        } catch (Exception e) {
+            log.error("Error getting hold IDs for orders {}: ", orderIds, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ApiResponse.<Map<Integer, String>>builder()
+                    .code(500)
+                    .message("Internal server error: " + e.getMessage())
+                    .build());
+        }
+    }
+
     /**
      * GET /api/stocks/hold-id/{orderId}
      * Lấy holdId từ orderId
@@ -1,5 +1,6 @@
 package com.service.catalog.entity;
 
+import com.service.catalog.service.AnalyticsCacheEntityListener;
 import jakarta.persistence.*;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
@@ -14,6 +15,7 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @FieldDefaults(level = AccessLevel.PRIVATE)
 @Entity
+@EntityListeners(AnalyticsCacheEntityListener.class)
 @Table(name = "inventory_transactions")
 public class InventoryTransaction {
 
@@ -0,0 +1,21 @@
+package com.service.catalog.events;
+
+import java.time.Instant;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductUpdatedEvent {
+    private Integer productId;
+    // Product detail ids before and after the change, so consumers can drop removed sizes too
+    private List<Integer> productDetailIds;
+    private Boolean active;
+    private Instant updatedAt;
+}
@@ -0,0 +1,47 @@
+package com.service.catalog.messaging;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.service.catalog.events.ProductUpdatedEvent;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductEventProducer {
+
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+
+    @Value("${app.kafka.topics.product-updated:catalog.product.updated}")
+    private String productUpdatedTopic;
+
+    public void publishProductUpdated(ProductUpdatedEvent event) {
+        try {
+            kafkaTemplate.send(productUpdatedTopic, String.valueOf(event.getProductId()), event);
+            log.info("[ProductEventProducer] Published product updated event for product {} (details {})",
+                    event.getProductId(), event.getProductDetailIds());
+        } catch (Exception ex) {
+            log.error("[ProductEventProducer] Failed to publish product updated event {}", event, ex);
+        }
+    }
+
+    // Chỉ bắn sự kiện sau khi commit để bên nhận không đọc lại dữ liệu cũ
+    public void publishProductUpdatedAfterCommit(ProductUpdatedEvent event) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publishProductUpdated(event);
+                }
+            });
+        } else {
+            publishProductUpdated(event);
+        }
+    }
+}
@@ -2,10 +2,17 @@ package com.service.catalog.repository;
 
 import com.service.catalog.entity.ProductDetail;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface ProductDetailRepository extends JpaRepository<ProductDetail, Integer> {
     
     boolean existsBySizeSizeId(Integer sizeId);
+
+    @Query("SELECT pd FROM ProductDetail pd JOIN FETCH pd.product WHERE pd.size.sizeId = :sizeId")
+    List<ProductDetail> findBySizeIdWithProduct(@Param("sizeId") Integer sizeId);
 }
@@ -2,6 +2,7 @@ package com.service.catalog.repository;
 
 import com.service.catalog.entity.Product;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.domain.Page;
@@ -36,4 +37,7 @@ public interface ProductRepository extends JpaRepository<Product, Integer> {
     List<Product> findAllByActiveTrue();
     
     boolean existsBySku(String sku);
+
+    @Query("SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.productDetails WHERE p.productId IN :productIds")
+    List<Product> findAllWithDetailsByIdIn(@Param("productIds") Collection<Integer> productIds);
 }
\ No newline at end of file
@@ -8,6 +8,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -39,6 +40,12 @@ public interface StockReservationRepository extends JpaRepository<StockReservati
      */
     List<StockReservation> findByOrderId(Integer orderId);
     
+    /**
+     * Lấy cặp [orderId, reservationGroupId] cho nhiều order trong một query
+     */
+    @Query("SELECT DISTINCT sr.orderId, sr.reservationGroupId FROM StockReservation sr WHERE sr.orderId IN :orderIds")
+    List<Object[]> findHoldIdsByOrderIds(@Param("orderIds") Collection<Integer> orderIds);
+    
     /**
      * Tìm reservations hết hạn
      */
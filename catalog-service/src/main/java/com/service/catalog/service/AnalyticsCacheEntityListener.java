@@ -0,0 +1,41 @@
+package com.service.catalog.service;
+
+import com.service.catalog.entity.InventoryTransaction;
+import com.service.catalog.entity.Stock;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * JPA entity listener cho Stock và InventoryTransaction: mọi thay đổi tồn kho / giao dịch kho của chi nhánh
+ * làm các response analytics liên quan trong AnalyticsResponseCache hết hiệu lực (sau khi commit).
+ * Bean được Hibernate lấy qua SpringBeanContainer nên có thể inject như bean thường.
+ */
+@Component
+public class AnalyticsCacheEntityListener {
+
+    private final AnalyticsResponseCache responseCache;
+
+    public AnalyticsCacheEntityListener(AnalyticsResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity) {
+        if (entity instanceof Stock stock) {
+            // Tồn kho hiện tại: chỉ ảnh hưởng các response của hôm nay / không giới hạn ngày
+            LocalDate today = LocalDate.now();
+            responseCache.invalidateAfterCommit(stock.getBranchId(), today, today);
+        } else if (entity instanceof InventoryTransaction transaction) {
+            LocalDate date = transaction.getCreateAt() != null
+                    ? transaction.getCreateAt().toLocalDate()
+                    : LocalDate.now();
+            responseCache.invalidateAfterCommit(transaction.getBranchId(), date, date);
+        }
+    }
+}
@@ -11,10 +11,12 @@ import com.service.catalog.entity.Category;
 import com.service.catalog.entity.Product;
 import com.service.catalog.entity.ProductDetail;
 import com.service.catalog.entity.Size;
+import com.service.catalog.events.ProductUpdatedEvent;
 import com.service.catalog.exception.AppException;
 import com.service.catalog.exception.ErrorCode;
 import com.service.catalog.mapper.ProductDetailMapper;
 import com.service.catalog.mapper.ProductMapper;
+import com.service.catalog.messaging.ProductEventProducer;
 import com.service.catalog.repository.CategoryRepository;
 import com.service.catalog.repository.ProductRepository;
 import com.service.catalog.repository.ProductDetailRepository;
@@ -29,8 +31,13 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
@@ -43,6 +50,7 @@ public class ProductService {
     ProductMapper productMapper;
     ProductDetailRepository productDetailRepository;
     ProductDetailMapper productDetailMapper;
+    ProductEventProducer productEventProducer;
     
     @PreAuthorize("hasRole('ADMIN')")
     @Transactional
@@ -143,6 +151,8 @@ public class ProductService {
     public ProductResponse updateProduct(Integer productId, ProductUpdateRequest request) {
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new AppException(ErrorCode.PRODUCT_NOT_FOUND));
+        // Giữ lại id các size cũ để bên tiêu thụ sự kiện xoá được cả size đã bị gỡ
+        Set<Integer> affectedDetailIds = collectDetailIds(product);
 
         if (request.getName() != null) product.setName(request.getName());
         if (request.getSku() != null) {
@@ -246,6 +256,8 @@ public class ProductService {
         }
 
         Product saved = productRepository.save(product);
+        affectedDetailIds.addAll(collectDetailIds(saved));
+        publishProductUpdatedAfterCommit(saved, affectedDetailIds);
         return productMapper.toProductResponse(saved);
     }
 
@@ -254,6 +266,34 @@ public class ProductService {
                 .orElseThrow(() -> new AppException(ErrorCode.PRODUCT_DETAIL_NOT_FOUND));
         return productDetailMapper.toProductDetailResponse(productDetail);
     }
+
+    /**
+     * Lấy nhiều product (kèm danh sách size) trong một query, dùng cho giỏ hàng bên order-service.
+     * Id không tồn tại sẽ bị bỏ qua.
+     */
+    public List<ProductResponse> getProductsByIds(Collection<Integer> productIds) {
+        if (productIds == null || productIds.isEmpty()) {
+            return List.of();
+        }
+        return productRepository.findAllWithDetailsByIdIn(new LinkedHashSet<>(productIds))
+                .stream()
+                .map(productMapper::toProductResponse)
+                .toList();
+    }
+
+    /**
+     * Lấy nhiều product detail trong một lần gọi (dùng cho order-service khi tạo đơn).
+     * Id không tồn tại sẽ bị bỏ qua, bên gọi tự kiểm tra thiếu.
+     */
+    public List<ProductDetailResponse> getProductDetailsByIds(Collection<Integer> productDetailIds) {
+        if (productDetailIds == null || productDetailIds.isEmpty()) {
+            return List.of();
+        }
+        return productDetailRepository.findAllById(new LinkedHashSet<>(productDetailIds))
+                .stream()
+                .map(productDetailMapper::toProductDetailResponse)
+                .toList();
+    }
     
     public ProductPageResponse searchProducts(ProductSearchRequest request) {
         return searchProducts(request, false);
@@ -321,5 +361,26 @@ public class ProductService {
         product.setActive(false);
         product.setUpdateAt(LocalDateTime.now());
         productRepository.save(product);
+        publishProductUpdatedAfterCommit(product, collectDetailIds(product));
+    }
+
+    private Set<Integer> collectDetailIds(Product product) {
+        Set<Integer> ids = new LinkedHashSet<>();
+        for (ProductDetail detail : product.getProductDetails()) {
+            if (detail.getPdId() != null) {
+                ids.add(detail.getPdId());
+            }
+        }
+        return ids;
+    }
+
+    // Chỉ bắn sự kiện sau khi commit để bên nhận không đọc lại giá cũ
+    private void publishProductUpdatedAfterCommit(Product product, Set<Integer> detailIds) {
+        productEventProducer.publishProductUpdatedAfterCommit(ProductUpdatedEvent.builder()
+                .productId(product.getProductId())
+                .productDetailIds(new ArrayList<>(detailIds))
+                .active(product.getActive())
+                .updatedAt(Instant.now())
+                .build());
     }
-}
\ No newline at end of file
+}
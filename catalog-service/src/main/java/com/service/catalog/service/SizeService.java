@@ -3,10 +3,13 @@ package com.service.catalog.service;
 import com.service.catalog.dto.request.size.SizeCreationRequest;
 import com.service.catalog.dto.request.size.SizeUpdateRequest;
 import com.service.catalog.dto.response.SizeResponse;
+import com.service.catalog.entity.ProductDetail;
 import com.service.catalog.entity.Size;
+import com.service.catalog.events.ProductUpdatedEvent;
 import com.service.catalog.exception.AppException;
 import com.service.catalog.exception.ErrorCode;
 import com.service.catalog.mapper.SizeMapper;
+import com.service.catalog.messaging.ProductEventProducer;
 import com.service.catalog.repository.SizeRepository;
 import com.service.catalog.repository.ProductDetailRepository;
 
@@ -16,8 +19,12 @@ import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -31,6 +38,7 @@ public class SizeService {
     SizeRepository sizeRepository;
     ProductDetailRepository productDetailRepository;
     SizeMapper sizeMapper;
+    ProductEventProducer productEventProducer;
 
     @PreAuthorize("hasRole('ADMIN')")
     @Transactional
@@ -76,9 +84,29 @@ public class SizeService {
         size.setDescription(request.getDescription());
         size.setUpdateAt(LocalDateTime.now());
         sizeRepository.save(size);
+        publishSizeChangedAfterCommit(sizeId);
         return toSizeResponse(size);
     }
 
+    /**
+     * Order-service cache product detail kèm tên size: báo product updated cho mọi product đang dùng size này
+     * để các instance xoá snapshot thay vì giữ tên cũ tới hết TTL.
+     */
+    private void publishSizeChangedAfterCommit(Integer sizeId) {
+        Map<Integer, List<ProductDetail>> detailsByProduct = new LinkedHashMap<>();
+        for (ProductDetail detail : productDetailRepository.findBySizeIdWithProduct(sizeId)) {
+            detailsByProduct.computeIfAbsent(detail.getProduct().getProductId(), k -> new ArrayList<>()).add(detail);
+        }
+        Instant now = Instant.now();
+        detailsByProduct.forEach((productId, details) -> productEventProducer.publishProductUpdatedAfterCommit(
+                ProductUpdatedEvent.builder()
+                        .productId(productId)
+                        .productDetailIds(details.stream().map(ProductDetail::getPdId).toList())
+                        .active(details.get(0).getProduct().getActive())
+                        .updatedAt(now)
+                        .build()));
+    }
+
     /**
      * Helper method to convert Size entity to SizeResponse with default active = true
      */
@@ -396,6 +396,32 @@ public class StockReservationService {
         return holdId;
     }
 
+    /**
+     * Lấy holdId cho nhiều order cùng lúc (dùng cho job auto-cancel bên order-service).
+     * Order không có reservation sẽ không có mặt trong kết quả.
+     */
+    public Map<Integer, String> getHoldIdsByOrderIds(Collection<Integer> orderIds) {
+        Map<Integer, String> holdIds = new HashMap<>();
+        if (orderIds == null || orderIds.isEmpty()) {
+            return holdIds;
+        }
+        
+        List<Integer> distinctIds = orderIds.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        for (Object[] row : stockReservationRepository.findHoldIdsByOrderIds(distinctIds)) {
+            Integer orderId = (Integer) row[0];
+            String holdId = (String) row[1];
+            if (holdId != null) {
+                // Giống getHoldIdByOrderId: mỗi order chỉ cần một reservation group
+                holdIds.putIfAbsent(orderId, holdId);
+            }
+        }
+        log.info("Found hold IDs for {}/{} orders", holdIds.size(), distinctIds.size());
+        return holdIds;
+    }
+
     /**
      * Cập nhật orderId cho reservations theo holdId
      */
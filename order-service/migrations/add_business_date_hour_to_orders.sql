@@ -0,0 +1,15 @@
+-- Migration: Add business_date / business_hour columns to orders table
+-- Date: 2026-10-16
+-- Description: Persist the order's business date and hour (create_at shifted to Vietnam time, UTC+7,
+-- same offset as BusinessTime.UTC_OFFSET_HOURS) so analytics queries filter and group on
+-- indexed columns instead of DATE(DATE_ADD(create_at, INTERVAL 7 HOUR)), which cannot use any index.
+-- New orders are filled in by order-service on insert (Order.onCreate).
+-- Existing orders are backfilled by order-service at startup (BusinessDateBackfill, idempotent, in batches),
+-- so this script is only needed when ddl-auto does not create the columns and indexes itself.
+
+ALTER TABLE orders
+  ADD COLUMN business_date DATE DEFAULT NULL AFTER create_at,
+  ADD COLUMN business_hour TINYINT DEFAULT NULL AFTER business_date;
+
+CREATE INDEX idx_orders_branch_business_date ON orders (branch_id, business_date, status, business_hour);
+CREATE INDEX idx_orders_business_date ON orders (business_date, branch_id);
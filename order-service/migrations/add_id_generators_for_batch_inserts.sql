@@ -0,0 +1,22 @@
+-- Migration: Add id_generators table for batched order_details / order_tables inserts
+-- Date: 2026-10-16
+-- Description: OrderItem and OrderTable switch from IDENTITY to a pooled table generator so Hibernate
+-- can batch their INSERTs. Seed each generator above the current MAX(id) (plus a margin larger than
+-- allocationSize = 50) so generated ids never collide with existing AUTO_INCREMENT rows.
+-- Run this BEFORE deploying the new order-service version. order-service also applies the same idempotent
+-- seed at startup (IdGeneratorSeeder) and refuses to start if it cannot, so a missed or late migration
+-- (e.g. ddl-auto=update creating id_generators first) cannot hand out colliding ids.
+
+CREATE TABLE IF NOT EXISTS id_generators (
+  gen_name VARCHAR(64) NOT NULL,
+  next_val BIGINT NOT NULL,
+  PRIMARY KEY (gen_name)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+INSERT INTO id_generators (gen_name, next_val)
+SELECT 'order_details', COALESCE(MAX(id), 0) + 100 FROM order_details
+ON DUPLICATE KEY UPDATE next_val = GREATEST(next_val, VALUES(next_val));
+
+INSERT INTO id_generators (gen_name, next_val)
+SELECT 'order_tables', COALESCE(MAX(id), 0) + 100 FROM order_tables
+ON DUPLICATE KEY UPDATE next_val = GREATEST(next_val, VALUES(next_val));
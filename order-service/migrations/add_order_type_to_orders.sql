@@ -0,0 +1,23 @@
+-- Migration: Add order_type column and listing indexes to orders table
+-- Date: 2026-10-16
+-- Description: Persist the derived order type (pos, dine-in, takeaway, online) so GET /orders can
+-- filter and paginate in the database using composite indexes instead of loading every order
+
+ALTER TABLE orders
+  ADD COLUMN order_type VARCHAR(20) DEFAULT NULL AFTER staff_id;
+
+-- Backfill existing orders with the same rules as Order.resolveOrderType()
+UPDATE orders
+SET order_type = CASE
+  WHEN staff_id IS NOT NULL THEN 'pos'
+  WHEN table_id IS NOT NULL THEN 'dine-in'
+  WHEN LOWER(TRIM(delivery_address)) = 'take-away' THEN 'takeaway'
+  WHEN delivery_address IS NOT NULL AND TRIM(delivery_address) <> '' THEN 'online'
+  ELSE 'takeaway'
+END
+WHERE order_type IS NULL;
+
+CREATE INDEX idx_orders_branch_create_status ON orders (branch_id, create_at, status);
+CREATE INDEX idx_orders_branch_order_date ON orders (branch_id, order_date, order_id);
+CREATE INDEX idx_orders_branch_type_order_date ON orders (branch_id, order_type, order_date);
+CREATE INDEX idx_orders_order_date ON orders (order_date, order_id);
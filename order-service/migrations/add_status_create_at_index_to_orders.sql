@@ -0,0 +1,6 @@
+-- Migration: Add (status, create_at) index to orders table
+-- Date: 2026-10-16
+-- Description: AutoCancellationScheduler now filters open orders by status and create_at cutoff
+-- in the database instead of loading every PENDING/PREPARING/CREATED order into memory
+
+CREATE INDEX idx_orders_status_create_at ON orders (status, create_at);
@@ -0,0 +1,22 @@
+-- Migration: Create email_job queue table
+-- Date: 2026-10-16
+-- Description: Persistent queue for order / reservation confirmation emails, sent asynchronously by
+-- EmailDispatcher. UNIQUE (type, entity_id) prevents sending the same confirmation twice.
+
+CREATE TABLE IF NOT EXISTS email_job (
+  id BIGINT AUTO_INCREMENT PRIMARY KEY,
+  type VARCHAR(50) NOT NULL,
+  entity_id INT NOT NULL,
+  recipient VARCHAR(255) NOT NULL,
+  subject VARCHAR(255) NOT NULL,
+  body_html MEDIUMTEXT NOT NULL,
+  status VARCHAR(20) NOT NULL DEFAULT 'NEW',
+  attempts INT NOT NULL DEFAULT 0,
+  last_error VARCHAR(500) DEFAULT NULL,
+  next_attempt_at DATETIME(6) DEFAULT NULL,
+  created_at DATETIME(6) NOT NULL,
+  sent_at DATETIME(6) DEFAULT NULL,
+  UNIQUE KEY ux_email_job_type_entity (type, entity_id),
+  KEY idx_email_job_status_next_attempt (status, next_attempt_at),
+  KEY idx_email_job_created (created_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
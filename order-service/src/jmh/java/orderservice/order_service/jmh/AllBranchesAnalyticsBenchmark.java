@@ -0,0 +1,228 @@
+package orderservice.order_service.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dashboard review "tất cả chi nhánh" trong một ngày trên MySQL thật, ở 50 và 200 chi nhánh:
+ * - per-branch: findAll() chi nhánh rồi mỗi chi nhánh một query review + một query rollup doanh số
+ * - grouped: một query GROUP BY (branch_id, rating), một query review mới nhất, một query rollup cả ngày
+ *   (AnalyticsService.getAllBranchesReviewMetrics)
+ *
+ * ·statements / ·operations là số query mỗi dashboard: grouped giữ nguyên khi số chi nhánh tăng.
+ * ./mvnw -Pjmh test-compile exec:exec -Djmh.args="AllBranchesAnalyticsBenchmark -jvmArgsAppend
+ *   -Dbenchmark.jdbc.url=jdbc:mysql://localhost:3306/bench_db -Dbenchmark.jdbc.password=..."
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AllBranchesAnalyticsBenchmark {
+
+    private static final LocalDate DAY = LocalDate.of(2026, 10, 16);
+    private static final int REVIEWS_PER_BRANCH = 20;
+
+    @Param({"per-branch", "grouped"})
+    String mode;
+
+    @Param({"50", "200"})
+    int branches;
+
+    Connection connection;
+    long statements;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = BenchmarkDatabase.open();
+        try (Statement st = connection.createStatement()) {
+            dropTables(st);
+            st.execute("CREATE TABLE bench_branches (branch_id INT PRIMARY KEY, name VARCHAR(100) NOT NULL)");
+            st.execute("CREATE TABLE bench_reviews (review_id INT PRIMARY KEY AUTO_INCREMENT, branch_id INT, "
+                    + "customer_id INT, rating TINYINT NOT NULL, comment TEXT, create_at DATETIME NOT NULL, "
+                    + "is_deleted BOOLEAN NOT NULL DEFAULT FALSE, KEY idx_br_create (create_at), KEY idx_br_branch (branch_id))");
+            st.execute("CREATE TABLE bench_order_sales_rollup (id BIGINT PRIMARY KEY AUTO_INCREMENT, "
+                    + "branch_id INT NOT NULL, business_date DATE NOT NULL, business_hour INT NOT NULL, "
+                    + "status VARCHAR(50) NOT NULL, order_count BIGINT NOT NULL, total_amount DECIMAL(14,2) NOT NULL, "
+                    + "KEY idx_bosr_date (business_date, branch_id))");
+        }
+        seed();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        if (connection == null) {
+            return;
+        }
+        try (Statement st = connection.createStatement()) {
+            dropTables(st);
+        }
+        connection.close();
+    }
+
+    private static void dropTables(Statement st) throws SQLException {
+        st.execute("DROP TABLE IF EXISTS bench_branches, bench_reviews, bench_order_sales_rollup");
+    }
+
+    private void seed() throws SQLException {
+        connection.setAutoCommit(false);
+        try (PreparedStatement branch = connection.prepareStatement(
+                "INSERT INTO bench_branches (branch_id, name) VALUES (?, ?)");
+             PreparedStatement review = connection.prepareStatement(
+                "INSERT INTO bench_reviews (branch_id, customer_id, rating, comment, create_at) VALUES (?, ?, ?, 'ok', ?)");
+             PreparedStatement rollup = connection.prepareStatement(
+                "INSERT INTO bench_order_sales_rollup (branch_id, business_date, business_hour, status, order_count, total_amount) "
+                        + "VALUES (?, ?, ?, 'COMPLETED', 12, 1200000)")) {
+            for (int b = 1; b <= branches; b++) {
+                branch.setInt(1, b);
+                branch.setString(2, "Branch " + b);
+                branch.addBatch();
+                for (int r = 0; r < REVIEWS_PER_BRANCH; r++) {
+                    review.setInt(1, b);
+                    review.setInt(2, b * 1000 + r);
+                    review.setInt(3, 1 + (b + r) % 5);
+                    review.setTimestamp(4, Timestamp.valueOf(DAY.atTime(7 + r % 15, r % 60)));
+                    review.addBatch();
+                }
+                for (int hour = 7; hour < 22; hour++) {
+                    rollup.setInt(1, b);
+                    rollup.setDate(2, Date.valueOf(DAY));
+                    rollup.setInt(3, hour);
+                    rollup.addBatch();
+                }
+            }
+            branch.executeBatch();
+            review.executeBatch();
+            rollup.executeBatch();
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+    }
+
+    @Benchmark
+    public long dashboard(StatementCounters counters) throws SQLException {
+        statements = 0;
+        long reviews = "grouped".equals(mode) ? dashboardGrouped() : dashboardPerBranch();
+        counters.statements += statements;
+        counters.operations++;
+        return reviews;
+    }
+
+    private List<Integer> branchIds() throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        try (PreparedStatement ps = connection.prepareStatement("SELECT branch_id, name FROM bench_branches");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                ids.add(rs.getInt(1));
+            }
+        }
+        statements++;
+        return ids;
+    }
+
+    /**
+     * Luồng cũ: mỗi chi nhánh tải toàn bộ review trong ngày và rollup doanh số của ngày.
+     */
+    private long dashboardPerBranch() throws SQLException {
+        long reviews = 0;
+        for (Integer branchId : branchIds()) {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "SELECT review_id, branch_id, customer_id, rating, comment, create_at FROM bench_reviews "
+                            + "WHERE branch_id = ? AND DATE(create_at) = ? AND is_deleted = false")) {
+                ps.setInt(1, branchId);
+                ps.setDate(2, Date.valueOf(DAY));
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        reviews++;
+                    }
+                }
+                statements++;
+            }
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "SELECT business_hour, status, order_count, total_amount FROM bench_order_sales_rollup "
+                            + "WHERE branch_id = ? AND business_date = ?")) {
+                ps.setInt(1, branchId);
+                ps.setDate(2, Date.valueOf(DAY));
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        // đọc hết kết quả như Hibernate
+                    }
+                }
+                statements++;
+            }
+        }
+        return reviews;
+    }
+
+    /**
+     * Luồng mới: đếm review theo (chi nhánh, số sao), 10 review mới nhất, rollup doanh số cả ngày.
+     */
+    private long dashboardGrouped() throws SQLException {
+        branchIds();
+        Timestamp from = Timestamp.valueOf(DAY.atStartOfDay());
+        Timestamp to = Timestamp.valueOf(DAY.plusDays(1).atStartOfDay());
+        long reviews = 0;
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT branch_id, rating, COUNT(*) FROM bench_reviews "
+                        + "WHERE create_at >= ? AND create_at < ? AND is_deleted = false AND branch_id IS NOT NULL "
+                        + "GROUP BY branch_id, rating")) {
+            ps.setTimestamp(1, from);
+            ps.setTimestamp(2, to);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    reviews += rs.getLong(3);
+                }
+            }
+            statements++;
+        }
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT review_id, branch_id, customer_id, rating, comment, create_at FROM bench_reviews "
+                        + "WHERE create_at >= ? AND create_at < ? AND is_deleted = false AND branch_id IS NOT NULL "
+                        + "ORDER BY create_at DESC LIMIT 10")) {
+            ps.setTimestamp(1, from);
+            ps.setTimestamp(2, to);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    // đọc hết kết quả như Hibernate
+                }
+            }
+            statements++;
+        }
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT branch_id, business_hour, status, order_count, total_amount FROM bench_order_sales_rollup "
+                        + "WHERE business_date = ?")) {
+            ps.setDate(1, Date.valueOf(DAY));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    // đọc hết kết quả như Hibernate
+                }
+            }
+            statements++;
+        }
+        return reviews;
+    }
+}
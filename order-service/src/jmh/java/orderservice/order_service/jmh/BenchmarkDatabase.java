@@ -0,0 +1,29 @@
+package orderservice.order_service.jmh;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+/**
+ * Kết nối MySQL cho các benchmark có truy vấn DB thật. Đọc từ system property của fork JMH, ví dụ:
+ * -Djmh.args="OrderPersistenceBatchBenchmark -jvmArgsAppend -Dbenchmark.jdbc.url=jdbc:mysql://localhost:3306/bench_db
+ *   -Dbenchmark.jdbc.user=root -Dbenchmark.jdbc.password=..."
+ * Các benchmark chỉ tạo / xoá bảng bench_* trong schema đó.
+ */
+final class BenchmarkDatabase {
+
+    private BenchmarkDatabase() {
+    }
+
+    static Connection open() throws SQLException {
+        String url = System.getProperty("benchmark.jdbc.url");
+        if (url == null || url.isBlank()) {
+            throw new IllegalStateException("Set -Dbenchmark.jdbc.url (via -jvmArgsAppend) to run database benchmarks");
+        }
+        // Giống cấu hình datasource: gom batch INSERT/UPDATE thành một round-trip
+        String separator = url.contains("?") ? "&" : "?";
+        return DriverManager.getConnection(url + separator + "rewriteBatchedStatements=true",
+                System.getProperty("benchmark.jdbc.user", "root"),
+                System.getProperty("benchmark.jdbc.password", ""));
+    }
+}
@@ -0,0 +1,90 @@
+package orderservice.order_service.jmh;
+
+import orderservice.order_service.entity.Branch;
+import orderservice.order_service.repository.BranchClosureRepository;
+import orderservice.order_service.repository.BranchRepository;
+import orderservice.order_service.service.BranchClosureService;
+import orderservice.order_service.service.BranchLocationIndex;
+import orderservice.order_service.service.GeocodingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chọn chi nhánh gần nhất trên tập chi nhánh giả. BranchSelectionService chỉ geocode địa chỉ khách
+ * (qua mạng / GeocodeCache) rồi giao cho BranchLocationIndex, nên benchmark đo phần CPU đó:
+ * tra lưới theo bán kính, lọc giờ mở cửa, Haversine cho từng ứng viên, chọn gần nhất / top-k.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BranchSelectionBenchmark {
+
+    private static final int ORIGINS = 1024;
+    private static final double RADIUS_KM = 5.0;
+
+    @Param({"50", "500", "5000"})
+    int branchCount;
+
+    BranchLocationIndex index;
+    GeocodingService.Coordinates[] origins;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        GeocodingService.Coordinates origin(GeocodingService.Coordinates[] origins) {
+            return origins[next++ & (ORIGINS - 1)];
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<Branch> branches = SyntheticBranches.branches(branchCount, random);
+        BranchRepository branchRepository = SyntheticBranches.stub(BranchRepository.class,
+                method -> "findAll".equals(method) ? branches : null);
+        BranchClosureRepository branchClosureRepository = SyntheticBranches.stub(BranchClosureRepository.class,
+                method -> "findByDateOverlap".equals(method) ? List.of() : null);
+        // isBranchOperatingOnDate chỉ đọc openDays của branch; calculateDistance không geocode
+        BranchClosureService branchClosureService = new BranchClosureService(null, null, null, null, null);
+        index = new BranchLocationIndex(branchRepository, branchClosureRepository, branchClosureService,
+                new GeocodingService(null, null));
+        index.refresh();
+
+        origins = new GeocodingService.Coordinates[ORIGINS];
+        for (int i = 0; i < ORIGINS; i++) {
+            origins[i] = SyntheticBranches.randomPoint(random);
+        }
+    }
+
+    @Benchmark
+    public BranchLocationIndex.Candidate findNearestWithinRadius(Cursor cursor) {
+        return index.findNearest(cursor.origin(origins), RADIUS_KM);
+    }
+
+    @Benchmark
+    public BranchLocationIndex.Candidate findNearestUnbounded(Cursor cursor) {
+        return index.findNearest(cursor.origin(origins), null);
+    }
+
+    @Benchmark
+    public List<BranchLocationIndex.Candidate> findTop5WithinRadius(Cursor cursor) {
+        return index.findTopK(cursor.origin(origins), 5, RADIUS_KM);
+    }
+}
@@ -0,0 +1,55 @@
+package orderservice.order_service.jmh;
+
+import orderservice.order_service.service.GeocodingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GeocodingService.calculateDistance (Haversine), gọi một lần cho mỗi chi nhánh ứng viên khi chọn chi nhánh.
+ * Các cặp điểm xoay vòng để JIT không gập phép tính thành hằng số.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DistanceBenchmark {
+
+    private static final int POINTS = 1024;
+
+    GeocodingService geocodingService;
+    GeocodingService.Coordinates[] origins;
+    GeocodingService.Coordinates[] targets;
+    int index;
+
+    @Setup
+    public void setUp() {
+        // Không geocode nên không cần cache / client
+        geocodingService = new GeocodingService(null, null);
+        Random random = new Random(42);
+        origins = new GeocodingService.Coordinates[POINTS];
+        targets = new GeocodingService.Coordinates[POINTS];
+        for (int i = 0; i < POINTS; i++) {
+            origins[i] = SyntheticBranches.randomPoint(random);
+            targets[i] = SyntheticBranches.randomPoint(random);
+        }
+    }
+
+    @Benchmark
+    public double calculateDistance() {
+        int i = index++ & (POINTS - 1);
+        return geocodingService.calculateDistance(origins[i], targets[i]);
+    }
+}
@@ -0,0 +1,283 @@
+package orderservice.order_service.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ghi một đơn hàng (1 order + N order_details + M order_tables + đổi trạng thái M bàn) trên MySQL thật:
+ * - per-row: mỗi dòng một câu lệnh, id AUTO_INCREMENT (luồng save() từng dòng với IDENTITY trước đây)
+ * - batched: id dòng con lấy theo block từ bảng generator (như @TableGenerator allocationSize = 50),
+ *   INSERT/UPDATE gom batch với rewriteBatchedStatements (saveAll() / findAllById)
+ *
+ * Thời gian là latency mỗi đơn (kể cả commit); ·statements / ·operations là số round-trip mỗi đơn.
+ * ./mvnw -Pjmh test-compile exec:exec -Djmh.args="OrderPersistenceBatchBenchmark -jvmArgsAppend
+ *   -Dbenchmark.jdbc.url=jdbc:mysql://localhost:3306/bench_db -Dbenchmark.jdbc.password=..."
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OrderPersistenceBatchBenchmark {
+
+    private static final int ALLOCATION_SIZE = 50;
+    private static final int CAFE_TABLES = 100;
+
+    @Param({"per-row", "batched"})
+    String mode;
+
+    @Param({"5"})
+    int itemsPerOrder;
+
+    @Param({"2"})
+    int tablesPerOrder;
+
+    Connection connection;
+    int seq;
+    long statements;
+    long nextItemId;
+    long itemIdLimit;
+    long nextTableId;
+    long tableIdLimit;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = BenchmarkDatabase.open();
+        try (Statement st = connection.createStatement()) {
+            dropTables(st);
+            st.execute("CREATE TABLE bench_orders (order_id INT PRIMARY KEY AUTO_INCREMENT, "
+                    + "branch_id INT NOT NULL, status VARCHAR(20) NOT NULL, total_amount DECIMAL(12,2) NOT NULL, "
+                    + "create_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP)");
+            st.execute("CREATE TABLE bench_order_details (id INT PRIMARY KEY AUTO_INCREMENT, order_id INT NOT NULL, "
+                    + "product_id INT NOT NULL, product_detail_id INT NOT NULL, quantity DECIMAL(10,2) NOT NULL, "
+                    + "unit_price DECIMAL(10,2) NOT NULL, total_price DECIMAL(12,2) NOT NULL, KEY idx_bod_order (order_id))");
+            st.execute("CREATE TABLE bench_order_tables (id INT PRIMARY KEY AUTO_INCREMENT, order_id INT NOT NULL, "
+                    + "table_id INT NOT NULL, KEY idx_bot_order (order_id))");
+            st.execute("CREATE TABLE bench_cafe_tables (table_id INT PRIMARY KEY, status VARCHAR(20) NOT NULL)");
+            st.execute("CREATE TABLE bench_id_generators (gen_name VARCHAR(64) PRIMARY KEY, next_val BIGINT NOT NULL)");
+            st.execute("INSERT INTO bench_id_generators VALUES ('order_details', 1), ('order_tables', 1)");
+            StringBuilder tables = new StringBuilder("INSERT INTO bench_cafe_tables VALUES ");
+            for (int i = 1; i <= CAFE_TABLES; i++) {
+                tables.append(i > 1 ? "," : "").append("(").append(i).append(", 'AVAILABLE')");
+            }
+            st.execute(tables.toString());
+        }
+        connection.setAutoCommit(false);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        if (connection == null) {
+            return;
+        }
+        connection.setAutoCommit(true);
+        try (Statement st = connection.createStatement()) {
+            dropTables(st);
+        }
+        connection.close();
+    }
+
+    private static void dropTables(Statement st) throws SQLException {
+        st.execute("DROP TABLE IF EXISTS bench_order_details, bench_order_tables, bench_orders, "
+                + "bench_cafe_tables, bench_id_generators");
+    }
+
+    @Benchmark
+    public long persistOrder(StatementCounters counters) throws SQLException {
+        statements = 0;
+        long orderId = "batched".equals(mode) ? persistBatched(seq++) : persistPerRow(seq++);
+        connection.commit();
+        counters.statements += statements;
+        counters.operations++;
+        return orderId;
+    }
+
+    private long insertOrder(int seq) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO bench_orders (branch_id, status, total_amount) VALUES (?, 'PENDING', ?)",
+                Statement.RETURN_GENERATED_KEYS)) {
+            ps.setInt(1, 1 + seq % 5);
+            ps.setBigDecimal(2, BigDecimal.valueOf(100_000));
+            ps.executeUpdate();
+            statements++;
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                keys.next();
+                return keys.getLong(1);
+            }
+        }
+    }
+
+    private List<Integer> tableIds(int seq) {
+        List<Integer> ids = new ArrayList<>();
+        for (int t = 0; t < tablesPerOrder; t++) {
+            ids.add(1 + (seq * tablesPerOrder + t) % CAFE_TABLES);
+        }
+        return ids;
+    }
+
+    /**
+     * Luồng cũ: save() từng order_tables, findById + save() từng bàn, save() từng order_details.
+     */
+    private long persistPerRow(int seq) throws SQLException {
+        long orderId = insertOrder(seq);
+
+        for (Integer tableId : tableIds(seq)) {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "INSERT INTO bench_order_tables (order_id, table_id) VALUES (?, ?)", Statement.RETURN_GENERATED_KEYS)) {
+                ps.setLong(1, orderId);
+                ps.setInt(2, tableId);
+                ps.executeUpdate();
+                statements++;
+            }
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "SELECT table_id, status FROM bench_cafe_tables WHERE table_id = ?")) {
+                ps.setInt(1, tableId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                }
+                statements++;
+            }
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "UPDATE bench_cafe_tables SET status = 'OCCUPIED' WHERE table_id = ?")) {
+                ps.setInt(1, tableId);
+                ps.executeUpdate();
+                statements++;
+            }
+        }
+
+        for (int i = 0; i < itemsPerOrder; i++) {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "INSERT INTO bench_order_details (order_id, product_id, product_detail_id, quantity, unit_price, total_price) "
+                            + "VALUES (?, ?, ?, 1, 20000, 20000)", Statement.RETURN_GENERATED_KEYS)) {
+                ps.setLong(1, orderId);
+                ps.setInt(2, 1 + i);
+                ps.setInt(3, 10 + i);
+                ps.executeUpdate();
+                statements++;
+            }
+        }
+        return orderId;
+    }
+
+    /**
+     * Luồng mới: saveAll() order_tables, findAllById + saveAll() bàn, saveAll() order_details,
+     * id của dòng con lấy theo block ALLOCATION_SIZE.
+     */
+    private long persistBatched(int seq) throws SQLException {
+        long orderId = insertOrder(seq);
+        List<Integer> tableIds = tableIds(seq);
+
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO bench_order_tables (id, order_id, table_id) VALUES (?, ?, ?)")) {
+            for (Integer tableId : tableIds) {
+                ps.setLong(1, nextTableId());
+                ps.setLong(2, orderId);
+                ps.setInt(3, tableId);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            statements++;
+        }
+
+        String placeholders = String.join(",", Collections.nCopies(tableIds.size(), "?"));
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT table_id, status FROM bench_cafe_tables WHERE table_id IN (" + placeholders + ")")) {
+            for (int i = 0; i < tableIds.size(); i++) {
+                ps.setInt(i + 1, tableIds.get(i));
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    // đọc hết kết quả như Hibernate
+                }
+            }
+            statements++;
+        }
+        try (PreparedStatement ps = connection.prepareStatement(
+                "UPDATE bench_cafe_tables SET status = 'OCCUPIED' WHERE table_id = ?")) {
+            for (Integer tableId : tableIds) {
+                ps.setInt(1, tableId);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            statements++;
+        }
+
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO bench_order_details (id, order_id, product_id, product_detail_id, quantity, unit_price, total_price) "
+                        + "VALUES (?, ?, ?, ?, 1, 20000, 20000)")) {
+            for (int i = 0; i < itemsPerOrder; i++) {
+                ps.setLong(1, nextItemId());
+                ps.setLong(2, orderId);
+                ps.setInt(3, 1 + i);
+                ps.setInt(4, 10 + i);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            statements++;
+        }
+        return orderId;
+    }
+
+    private long nextItemId() throws SQLException {
+        if (nextItemId >= itemIdLimit) {
+            nextItemId = allocateBlock("order_details");
+            itemIdLimit = nextItemId + ALLOCATION_SIZE;
+        }
+        return nextItemId++;
+    }
+
+    private long nextTableId() throws SQLException {
+        if (nextTableId >= tableIdLimit) {
+            nextTableId = allocateBlock("order_tables");
+            tableIdLimit = nextTableId + ALLOCATION_SIZE;
+        }
+        return nextTableId++;
+    }
+
+    /**
+     * Giống TableGenerator: SELECT ... FOR UPDATE rồi UPDATE next_val, cứ ALLOCATION_SIZE id mới gọi một lần.
+     */
+    private long allocateBlock(String name) throws SQLException {
+        long start;
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT next_val FROM bench_id_generators WHERE gen_name = ? FOR UPDATE")) {
+            ps.setString(1, name);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                start = rs.getLong(1);
+            }
+            statements++;
+        }
+        try (PreparedStatement ps = connection.prepareStatement(
+                "UPDATE bench_id_generators SET next_val = ? WHERE gen_name = ?")) {
+            ps.setLong(1, start + ALLOCATION_SIZE);
+            ps.setString(2, name);
+            ps.executeUpdate();
+            statements++;
+        }
+        return start;
+    }
+}
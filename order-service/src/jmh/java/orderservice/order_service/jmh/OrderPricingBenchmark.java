@@ -0,0 +1,72 @@
+package orderservice.order_service.jmh;
+
+import orderservice.order_service.util.OrderPricing;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chuỗi tính tiền của createOrder / POS: cộng thành tiền từng dòng, tính giảm giá
+ * (như DiscountService.calculateDiscountAmount, kèm trần max_discount_amount) rồi VAT và tổng.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OrderPricingBenchmark {
+
+    @Param({"1", "5", "20"})
+    int itemCount;
+
+    @Param({"NONE", "PERCENT", "FIXED"})
+    String discountType;
+
+    BigDecimal[] prices;
+    BigDecimal[] quantities;
+    BigDecimal discountValue;
+    BigDecimal maxDiscountAmount;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        prices = new BigDecimal[itemCount];
+        quantities = new BigDecimal[itemCount];
+        for (int i = 0; i < itemCount; i++) {
+            // Giá VND dạng DECIMAL(10,2) như product_details.price
+            prices[i] = BigDecimal.valueOf(25_000 + random.nextInt(60) * 1_000L, 0).setScale(2);
+            quantities[i] = BigDecimal.valueOf(1 + random.nextInt(4));
+        }
+        discountValue = "PERCENT".equals(discountType) ? new BigDecimal("15.00") : new BigDecimal("20000.00");
+        maxDiscountAmount = new BigDecimal("50000.00");
+    }
+
+    @Benchmark
+    public OrderPricing.Totals createOrderPricing() {
+        BigDecimal subtotal = BigDecimal.ZERO;
+        for (int i = 0; i < prices.length; i++) {
+            subtotal = subtotal.add(OrderPricing.lineTotal(prices[i], quantities[i]));
+        }
+        BigDecimal discount = BigDecimal.ZERO;
+        if (!"NONE".equals(discountType)) {
+            discount = OrderPricing.discountAmount("PERCENT".equals(discountType), discountValue, subtotal);
+            if (discount.compareTo(maxDiscountAmount) > 0) {
+                discount = maxDiscountAmount;
+            }
+        }
+        return OrderPricing.totals(subtotal, discount);
+    }
+}
@@ -0,0 +1,25 @@
+package orderservice.order_service.jmh;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Số round-trip tới DB, báo cáo cạnh thời gian trong kết quả JMH (·statements, ·operations).
+ * statements / operations = số câu lệnh cho mỗi lần gọi benchmark.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.EVENTS)
+public class StatementCounters {
+
+    public long statements;
+    public long operations;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        statements = 0;
+        operations = 0;
+    }
+}
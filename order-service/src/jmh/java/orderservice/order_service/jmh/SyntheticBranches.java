@@ -0,0 +1,74 @@
+package orderservice.order_service.jmh;
+
+import orderservice.order_service.entity.Branch;
+import orderservice.order_service.service.GeocodingService;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+/**
+ * Dữ liệu giả cho benchmark: chi nhánh rải ngẫu nhiên (seed cố định) trong khung nội thành TP.HCM
+ * và stub repository bằng java.lang.reflect.Proxy, để dựng service thật mà không cần Spring / DB.
+ */
+final class SyntheticBranches {
+
+    static final double MIN_LAT = 10.65;
+    static final double MAX_LAT = 10.95;
+    static final double MIN_LNG = 106.55;
+    static final double MAX_LNG = 106.85;
+
+    private SyntheticBranches() {
+    }
+
+    static GeocodingService.Coordinates randomPoint(Random random) {
+        return new GeocodingService.Coordinates(
+                MIN_LAT + random.nextDouble() * (MAX_LAT - MIN_LAT),
+                MIN_LNG + random.nextDouble() * (MAX_LNG - MIN_LNG));
+    }
+
+    /**
+     * count chi nhánh có tọa độ, không giới hạn giờ / ngày mở cửa (kết quả không phụ thuộc lúc chạy).
+     */
+    static List<Branch> branches(int count, Random random) {
+        List<Branch> branches = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            GeocodingService.Coordinates point = randomPoint(random);
+            branches.add(Branch.builder()
+                    .branchId(i)
+                    .name("Branch " + i)
+                    .latitude(BigDecimal.valueOf(point.getLatitude()).setScale(8, RoundingMode.HALF_UP))
+                    .longitude(BigDecimal.valueOf(point.getLongitude()).setScale(8, RoundingMode.HALF_UP))
+                    .build());
+        }
+        return branches;
+    }
+
+    /**
+     * Stub của một repository interface: method được gọi trả về answers.apply(tên method),
+     * null nghĩa là benchmark không được gọi tới method đó.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T stub(Class<T> type, Function<String, Object> answers) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "toString":
+                    return type.getSimpleName() + "Stub";
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    Object answer = answers.apply(method.getName());
+                    if (answer == null) {
+                        throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName());
+                    }
+                    return answer;
+            }
+        });
+    }
+}
@@ -0,0 +1,50 @@
+package orderservice.order_service.jmh;
+
+import orderservice.order_service.util.VietnameseNormalizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * VietnameseNormalizer.normalizeVietnameseAddress, chạy cho mỗi địa chỉ trước khi tra GeocodeCache.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VietnameseNormalizerBenchmark {
+
+    // Tham số là khoá thay vì chính địa chỉ vì -p của JMH tách giá trị theo dấu phẩy
+    private static final Map<String, String> ADDRESSES = Map.of(
+            "SHORT", "Quận 1, TP.HCM",
+            "FULL", "123 Nguyễn Thị Minh Khai, Phường Bến Thành, Quận 1, Thành phố Hồ Chí Minh, Việt Nam",
+            "ASCII", "123 Nguyen Thi Minh Khai, Phuong Ben Thanh, Quan 1, Ho Chi Minh City, Viet Nam");
+
+    @Param({"SHORT", "FULL", "ASCII"})
+    String address;
+
+    String input;
+
+    @Setup
+    public void setUp() {
+        input = ADDRESSES.get(address);
+    }
+
+    @Benchmark
+    public String normalizeVietnameseAddress() {
+        return VietnameseNormalizer.normalizeVietnameseAddress(input);
+    }
+}
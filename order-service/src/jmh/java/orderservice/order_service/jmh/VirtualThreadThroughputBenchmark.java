@@ -0,0 +1,154 @@
+package orderservice.order_service.jmh;
+
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Một lô requests "tạo đơn" chạy song song: mỗi request gọi nối tiếp 3 service phía sau (catalog / profile / auth
+ * như Feign) qua một stub HTTP có độ trễ cố định, rồi giữ một kết nối DB (Semaphore cỡ Hikari pool) vài ms.
+ * - platform: thread pool cố định cỡ Tomcat mặc định (200 thread)
+ * - virtual: mỗi request một virtual thread (spring.threads.virtual.enabled=true)
+ * - virtual-sync: như virtual nhưng lời gọi HTTP nằm trong synchronized (pinning trên Java 21)
+ *
+ * Khác các benchmark còn lại, đây là phép đo I/O: thời gian mỗi lô phụ thuộc chủ yếu vào downstreamLatencyMs.
+ * ./mvnw -Pjmh test-compile exec:exec -Djmh.args="VirtualThreadThroughputBenchmark"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VirtualThreadThroughputBenchmark {
+
+    private static final int PLATFORM_THREADS = 200;
+    private static final String[] DOWNSTREAMS = {"/catalog", "/profile", "/auth"};
+
+    @Param({"platform", "virtual", "virtual-sync"})
+    String mode;
+
+    @Param({"1000"})
+    int requests;
+
+    @Param({"30"})
+    int downstreamLatencyMs;
+
+    @Param({"20"})
+    int dbPoolSize;
+
+    @Param({"3"})
+    int dbHoldMs;
+
+    HttpServer server;
+    ExecutorService serverExecutor;
+    ExecutorService executor;
+    String baseUrl;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 4096);
+        byte[] body = "{\"code\":1000,\"result\":{}}".getBytes(StandardCharsets.UTF_8);
+        for (String path : DOWNSTREAMS) {
+            server.createContext(path, exchange -> {
+                try {
+                    Thread.sleep(downstreamLatencyMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            });
+        }
+        // Stub không được là nút cổ chai của phép đo
+        serverExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(serverExecutor);
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+        executor = "platform".equals(mode)
+                ? Executors.newFixedThreadPool(PLATFORM_THREADS)
+                : Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public int serveBatch() throws Exception {
+        Semaphore dbPool = new Semaphore(dbPoolSize, true);
+        boolean pinning = "virtual-sync".equals(mode);
+        List<Future<?>> futures = new ArrayList<>(requests);
+        for (int i = 0; i < requests; i++) {
+            futures.add(executor.submit(() -> {
+                handleRequest(dbPool, pinning);
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.MINUTES);
+        }
+        return futures.size();
+    }
+
+    private void handleRequest(Semaphore dbPool, boolean pinning) throws Exception {
+        for (String path : DOWNSTREAMS) {
+            if (pinning) {
+                // Lock riêng của request, không tranh chấp: chậm đi chỉ vì carrier thread bị ghim
+                Object lock = new Object();
+                synchronized (lock) {
+                    call(path);
+                }
+            } else {
+                call(path);
+            }
+        }
+        dbPool.acquire();
+        try {
+            Thread.sleep(dbHoldMs);
+        } finally {
+            dbPool.release();
+        }
+    }
+
+    private void call(String path) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) URI.create(baseUrl + path).toURL().openConnection();
+        connection.setConnectTimeout(5000);
+        connection.setReadTimeout(10000);
+        try (InputStream in = connection.getInputStream()) {
+            in.readAllBytes();
+        }
+    }
+}
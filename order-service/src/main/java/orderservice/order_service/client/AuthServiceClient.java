@@ -7,6 +7,8 @@ import orderservice.order_service.dto.response.UserResponse;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 
 import java.util.List;
@@ -19,6 +21,13 @@ public interface AuthServiceClient {
     ApiResponse<UserResponse> getUserById(@PathVariable("userId") Integer userId,
             @RequestHeader(value = "Authorization", required = false) String token);
 
+    /**
+     * Lấy thông tin nhiều user trong một lần gọi (tối đa 200 id). Id không tồn tại không có trong kết quả.
+     */
+    @PostMapping("/users/internal/batch")
+    ApiResponse<List<UserResponse>> getUsersByIds(@RequestBody List<Integer> userIds,
+            @RequestHeader(value = "Authorization", required = false) String token);
+
     /**
      * Get staff business roles (roles ending with "_STAFF")
      * Used for permission validation
@@ -10,6 +10,7 @@ import orderservice.order_service.configuration.AuthenticationRequestInterceptor
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 
 import java.util.List;
 import java.util.Map;
@@ -27,6 +28,12 @@ public interface CatalogServiceClient {
     @GetMapping("/products/detail/{productDetailId}")
     ApiResponse<ProductDetailResponse> getProductDetailById(@PathVariable("productDetailId") Integer productDetailId);
 
+    @GetMapping("/products/by-ids")
+    ApiResponse<List<ProductResponse>> getProductsByIds(@RequestParam("ids") List<Integer> ids);
+
+    @GetMapping("/products/details")
+    ApiResponse<List<ProductDetailResponse>> getProductDetailsByIds(@RequestParam("ids") List<Integer> ids);
+
     @PutMapping("/stocks/update-order-id")
     ApiResponse<Map<String, Object>> updateReservationOrderId(@RequestBody Map<String, Object> request);
 
@@ -36,6 +43,9 @@ public interface CatalogServiceClient {
     @GetMapping("/stocks/hold-id/{orderId}")
     ApiResponse<Map<String, Object>> getHoldIdByOrderId(@PathVariable("orderId") Integer orderId);
 
+    @PostMapping("/stocks/hold-ids")
+    ApiResponse<Map<Integer, String>> getHoldIdsByOrderIds(@RequestBody Map<String, List<Integer>> request);
+
     @PostMapping("/stocks/release")
     ApiResponse<Map<String, Object>> releaseReservation(@RequestBody Map<String, Object> request);
 
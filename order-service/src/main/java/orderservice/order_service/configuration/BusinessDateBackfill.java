@@ -0,0 +1,65 @@
+package orderservice.order_service.configuration;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import orderservice.order_service.util.BusinessTime;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Điền business_date / business_hour cho các đơn cũ còn NULL, trước khi web server nhận request và trước khi
+ * SalesRollupService backfill rollup (các query rollup lọc theo business_date).
+ *
+ * Với ddl-auto=update, Hibernate tạo hai cột này (NULL) lúc khởi động, trước khi ai chạy migration
+ * add_business_date_hour_to_orders.sql, nên không thể trông vào UPDATE trong migration.
+ * Idempotent (chỉ cập nhật dòng còn NULL) và chạy theo từng lô để không giữ lock lâu trên bảng orders;
+ * lỗi thì để lần khởi động sau chạy tiếp, SalesRollupService kiểm tra countMissing() trước khi backfill.
+ */
+@Component
+// Sau khi Hibernate khởi tạo (ddl-auto có thể đang thêm cột business_date / business_hour)
+@DependsOn("entityManagerFactory")
+@Slf4j
+public class BusinessDateBackfill {
+
+    private static final String MISSING = "business_date IS NULL AND create_at IS NOT NULL";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${analytics.rollup.business-date-backfill-batch-size:5000}")
+    private int batchSize;
+
+    public BusinessDateBackfill(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    void backfill() {
+        String sql = "UPDATE orders SET "
+                + "business_date = DATE(DATE_ADD(create_at, INTERVAL " + BusinessTime.UTC_OFFSET_HOURS + " HOUR)), "
+                + "business_hour = HOUR(DATE_ADD(create_at, INTERVAL " + BusinessTime.UTC_OFFSET_HOURS + " HOUR)) "
+                + "WHERE " + MISSING + " LIMIT " + Math.max(1, batchSize);
+        try {
+            long total = 0;
+            int updated;
+            do {
+                updated = jdbcTemplate.update(sql);
+                total += updated;
+            } while (updated > 0);
+            if (total > 0) {
+                log.info("[BusinessDateBackfill] Filled business_date / business_hour for {} orders", total);
+            }
+        } catch (Exception e) {
+            log.error("[BusinessDateBackfill] Failed to backfill business_date / business_hour", e);
+        }
+    }
+
+    /**
+     * Số đơn chưa có business_date (0 = backfill đã xong).
+     */
+    public long countMissing() {
+        Long missing = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders WHERE " + MISSING, Long.class);
+        return missing != null ? missing : 0;
+    }
+}
@@ -0,0 +1,58 @@
+package orderservice.order_service.configuration;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Đảm bảo bảng id_generators có dòng cho mỗi @TableGenerator (OrderItem, OrderTable) và next_val nằm trên MAX(id)
+ * hiện có, trước khi Hibernate cấp id đầu tiên.
+ *
+ * Nếu thiếu dòng, Hibernate tự chèn với giá trị khởi đầu 1 và cấp id trùng với các dòng AUTO_INCREMENT cũ
+ * (vd. khi ddl-auto=update tạo bảng trước khi chạy migration add_id_generators_for_batch_inserts.sql).
+ * Chạy lúc khởi động, trước khi web server nhận request; idempotent (chỉ tăng next_val, không bao giờ giảm)
+ * nên an toàn khi nhiều instance cùng khởi động. Không seed được thì dừng khởi động thay vì cấp id sai.
+ */
+@Component
+// Sau khi Hibernate khởi tạo (ddl-auto có thể đang tạo order_details / order_tables)
+@DependsOn("entityManagerFactory")
+@Slf4j
+public class IdGeneratorSeeder {
+
+    // gen_name -> bảng dùng generator đó; khớp pkColumnValue của @TableGenerator
+    private static final Map<String, String> GENERATORS = Map.of(
+            "order_details", "order_details",
+            "order_tables", "order_tables");
+
+    // Lớn hơn allocationSize (50): block đầu tiên của pooled optimizer bắt đầu từ next_val - 49
+    private static final int MARGIN = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public IdGeneratorSeeder(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    void seed() {
+        try {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS id_generators ("
+                    + "gen_name VARCHAR(64) NOT NULL, next_val BIGINT NOT NULL, PRIMARY KEY (gen_name)"
+                    + ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci");
+            GENERATORS.forEach((genName, table) -> {
+                jdbcTemplate.update("INSERT INTO id_generators (gen_name, next_val) "
+                        + "SELECT ?, COALESCE(MAX(id), 0) + " + MARGIN + " FROM " + table + " "
+                        + "ON DUPLICATE KEY UPDATE next_val = GREATEST(next_val, VALUES(next_val))", genName);
+                Long nextVal = jdbcTemplate.queryForObject(
+                        "SELECT next_val FROM id_generators WHERE gen_name = ?", Long.class, genName);
+                log.info("[IdGeneratorSeeder] Generator {} starts at next_val {}", genName, nextVal);
+            });
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot seed id_generators; refusing to start with colliding ids", e);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package orderservice.order_service.configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Chẩn đoán pinning khi chạy virtual thread (spring.threads.virtual.enabled=true).
+ *
+ * Trên Java 21, virtual thread bị "ghim" vào carrier thread khi block bên trong synchronized (hoặc native frame);
+ * đủ nhiều chỗ như vậy thì throughput tụt về mức số carrier (= số CPU). Component này nghe sự kiện JFR
+ * jdk.VirtualThreadPinned (dài hơn threshold-ms), đếm vào timer virtual-threads.pinned theo vị trí code
+ * và log stack trace của mỗi vị trí tối đa một lần mỗi log-interval-seconds.
+ *
+ * Vì vậy các chỗ có thể block lâu trong vùng khoá (query DB / gọi HTTP khi dựng lại cache, chỉ mục, lease)
+ * dùng ReentrantLock hoặc ConcurrentHashMap thay cho synchronized: virtual thread chờ khoá được nhả khỏi carrier.
+ */
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+@Slf4j
+public class VirtualThreadPinningMonitor {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final String APP_PACKAGE = "orderservice.";
+    private static final int LOGGED_FRAMES = 12;
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Long> lastLoggedAt = new ConcurrentHashMap<>();
+
+    @Value("${virtual-threads.pinning.threshold-ms:20}")
+    private long thresholdMs;
+
+    @Value("${virtual-threads.pinning.log-interval-seconds:300}")
+    private long logIntervalSeconds;
+
+    private RecordingStream stream;
+
+    public VirtualThreadPinningMonitor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    private void start() {
+        try {
+            stream = new RecordingStream();
+            stream.enable(PINNED_EVENT).withThreshold(Duration.ofMillis(thresholdMs)).withStackTrace();
+            stream.onEvent(PINNED_EVENT, this::onPinned);
+            stream.startAsync();
+            log.info("[VirtualThreadPinningMonitor] Virtual threads enabled, reporting pinning longer than {} ms", thresholdMs);
+        } catch (Exception e) {
+            // JFR không có trong runtime (một số image tối giản): chỉ mất chẩn đoán, không ảnh hưởng request
+            log.warn("[VirtualThreadPinningMonitor] Cannot start JFR pinning stream: {}", e.getMessage());
+            stream = null;
+        }
+    }
+
+    @PreDestroy
+    private void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    private void onPinned(RecordedEvent event) {
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        List<RecordedFrame> frames = stackTrace != null ? stackTrace.getFrames() : List.of();
+        String site = pinnedSite(frames);
+        Timer.builder("virtual-threads.pinned")
+                .description("Thời gian virtual thread bị ghim vào carrier thread")
+                .tag("site", site)
+                .register(meterRegistry)
+                .record(event.getDuration());
+
+        long now = System.currentTimeMillis();
+        Long previous = lastLoggedAt.get(site);
+        if (previous != null && now - previous < logIntervalSeconds * 1000L) {
+            return;
+        }
+        lastLoggedAt.put(site, now);
+        log.warn("[VirtualThreadPinningMonitor] Virtual thread pinned for {} ms at {}:\n{}",
+                event.getDuration().toMillis(), site, frames.stream()
+                        .limit(LOGGED_FRAMES)
+                        .map(frame -> "    at " + describe(frame))
+                        .collect(Collectors.joining("\n")));
+    }
+
+    /**
+     * Frame đầu tiên thuộc code của service (nơi cần sửa), nếu không có thì frame trên cùng.
+     */
+    private static String pinnedSite(List<RecordedFrame> frames) {
+        return frames.stream()
+                .filter(RecordedFrame::isJavaFrame)
+                .filter(frame -> frame.getMethod().getType().getName().startsWith(APP_PACKAGE))
+                .findFirst()
+                .or(() -> frames.stream().findFirst())
+                .map(VirtualThreadPinningMonitor::describe)
+                .orElse("unknown");
+    }
+
+    private static String describe(RecordedFrame frame) {
+        String type = frame.getMethod().getType().getName();
+        return type.substring(type.lastIndexOf('.') + 1) + "." + frame.getMethod().getName()
+                + (frame.getLineNumber() > 0 ? ":" + frame.getLineNumber() : "");
+    }
+}
@@ -5,14 +5,19 @@ import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
 import orderservice.order_service.dto.ApiResponse;
 import orderservice.order_service.dto.response.*;
+import orderservice.order_service.service.AnalyticsResponseCache;
 import orderservice.order_service.service.AnalyticsService;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/analytics/metrics")
@@ -22,98 +27,43 @@ import java.time.LocalDate;
 public class AnalyticsController {
 
     AnalyticsService analyticsService;
+    AnalyticsResponseCache responseCache;
 
     // Analytics endpoints - require ADMIN or MANAGER role
     @GetMapping("/revenue")
     public ResponseEntity<ApiResponse<RevenueMetricsResponse>> getRevenueMetrics(
             @RequestParam Integer branchId,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
-        try {
-            RevenueMetricsResponse metrics = analyticsService.getRevenueMetrics(branchId, date);
-            ApiResponse<RevenueMetricsResponse> response = ApiResponse.<RevenueMetricsResponse>builder()
-                    .code(200)
-                    .message("Revenue metrics retrieved successfully")
-                    .result(metrics)
-                    .build();
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            log.error("Error retrieving revenue metrics", e);
-            ApiResponse<RevenueMetricsResponse> response = ApiResponse.<RevenueMetricsResponse>builder()
-                    .code(500)
-                    .message("Failed to retrieve revenue metrics: " + e.getMessage())
-                    .result(null)
-                    .build();
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
-        }
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return cached(new AnalyticsResponseCache.Key("/revenue", branchId, date, date, null),
+                ifNoneMatch, "revenue metrics", () -> analyticsService.getRevenueMetrics(branchId, date));
     }
 
     @GetMapping("/customers")
     public ResponseEntity<ApiResponse<CustomerMetricsResponse>> getCustomerMetrics(
             @RequestParam Integer branchId,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
-        try {
-            CustomerMetricsResponse metrics = analyticsService.getCustomerMetrics(branchId, date);
-            ApiResponse<CustomerMetricsResponse> response = ApiResponse.<CustomerMetricsResponse>builder()
-                    .code(200)
-                    .message("Customer metrics retrieved successfully")
-                    .result(metrics)
-                    .build();
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            log.error("Error retrieving customer metrics", e);
-            ApiResponse<CustomerMetricsResponse> response = ApiResponse.<CustomerMetricsResponse>builder()
-                    .code(500)
-                    .message("Failed to retrieve customer metrics: " + e.getMessage())
-                    .result(null)
-                    .build();
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
-        }
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return cached(new AnalyticsResponseCache.Key("/customers", branchId, date, date, null),
+                ifNoneMatch, "customer metrics", () -> analyticsService.getCustomerMetrics(branchId, date));
     }
 
     @GetMapping("/products")
     public ResponseEntity<ApiResponse<ProductMetricsResponse>> getProductMetrics(
             @RequestParam Integer branchId,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
-        try {
-            ProductMetricsResponse metrics = analyticsService.getProductMetrics(branchId, date);
-            ApiResponse<ProductMetricsResponse> response = ApiResponse.<ProductMetricsResponse>builder()
-                    .code(200)
-                    .message("Product metrics retrieved successfully")
-                    .result(metrics)
-                    .build();
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            log.error("Error retrieving product metrics", e);
-            ApiResponse<ProductMetricsResponse> response = ApiResponse.<ProductMetricsResponse>builder()
-                    .code(500)
-                    .message("Failed to retrieve product metrics: " + e.getMessage())
-                    .result(null)
-                    .build();
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
-        }
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return cached(new AnalyticsResponseCache.Key("/products", branchId, date, date, null),
+                ifNoneMatch, "product metrics", () -> analyticsService.getProductMetrics(branchId, date));
     }
 
     @GetMapping("/reviews")
     public ResponseEntity<ApiResponse<ReviewMetricsResponse>> getReviewMetrics(
             @RequestParam Integer branchId,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
-        try {
-            ReviewMetricsResponse metrics = analyticsService.getReviewMetrics(branchId, date);
-            ApiResponse<ReviewMetricsResponse> response = ApiResponse.<ReviewMetricsResponse>builder()
-                    .code(200)
-                    .message("Review metrics retrieved successfully")
-                    .result(metrics)
-                    .build();
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            log.error("Error retrieving review metrics", e);
-            ApiResponse<ReviewMetricsResponse> response = ApiResponse.<ReviewMetricsResponse>builder()
-                    .code(500)
-                    .message("Failed to retrieve review metrics: " + e.getMessage())
-                    .result(null)
-                    .build();
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
-        }
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return cached(new AnalyticsResponseCache.Key("/reviews", branchId, date, date, null),
+                ifNoneMatch, "review metrics", () -> analyticsService.getReviewMetrics(branchId, date));
     }
 
     /**
@@ -124,48 +74,21 @@ public class AnalyticsController {
     @GetMapping("/daily-stats")
     public ResponseEntity<ApiResponse<BranchDailyStatsResponse>> getBranchDailyStats(
             @RequestParam Integer branchId,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
-        try {
-            BranchDailyStatsResponse stats = analyticsService.getBranchDailyStats(branchId, date);
-            ApiResponse<BranchDailyStatsResponse> response = ApiResponse.<BranchDailyStatsResponse>builder()
-                    .code(200)
-                    .message("Daily stats retrieved successfully")
-                    .result(stats)
-                    .build();
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            log.error("Error retrieving daily stats", e);
-            ApiResponse<BranchDailyStatsResponse> response = ApiResponse.<BranchDailyStatsResponse>builder()
-                    .code(500)
-                    .message("Failed to retrieve daily stats: " + e.getMessage())
-                    .result(null)
-                    .build();
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
-        }
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return cached(new AnalyticsResponseCache.Key("/daily-stats", branchId, date, date, null),
+                ifNoneMatch, "daily stats", () -> analyticsService.getBranchDailyStats(branchId, date));
     }
 
     // ========== All Branches Statistics Endpoints (for Admin) ==========
 
     @GetMapping("/revenue/all")
     public ResponseEntity<ApiResponse<AllBranchesRevenueMetricsResponse>> getAllBranchesRevenueMetrics(
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
-        try {
-            AllBranchesRevenueMetricsResponse metrics = analyticsService.getAllBranchesRevenueMetrics(date);
-            ApiResponse<AllBranchesRevenueMetricsResponse> response = ApiResponse.<AllBranchesRevenueMetricsResponse>builder()
-                    .code(200)
-                    .message("All branches revenue metrics retrieved successfully")
-                    .result(metrics)
-                    .build();
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            log.error("Error retrieving all branches revenue metrics", e);
-            ApiResponse<AllBranchesRevenueMetricsResponse> response = ApiResponse.<AllBranchesRevenueMetricsResponse>builder()
-                    .code(500)
-                    .message("Failed to retrieve all branches revenue metrics: " + e.getMessage())
-                    .result(null)
-                    .build();
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
-        }
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return cached(new AnalyticsResponseCache.Key("/revenue/all", null, date, date, null),
+                ifNoneMatch, "all branches revenue metrics",
+                () -> analyticsService.getAllBranchesRevenueMetrics(date));
     }
 
     /**
@@ -175,46 +98,19 @@ public class AnalyticsController {
      */
     @GetMapping("/weekly-revenue")
     public ResponseEntity<ApiResponse<BranchWeeklyRevenueResponse>> getBranchWeeklyRevenue(
-            @RequestParam Integer branchId) {
-        try {
-            BranchWeeklyRevenueResponse revenue = analyticsService.getBranchWeeklyRevenue(branchId);
-            ApiResponse<BranchWeeklyRevenueResponse> response = ApiResponse.<BranchWeeklyRevenueResponse>builder()
-                    .code(200)
-                    .message("Weekly revenue retrieved successfully")
-                    .result(revenue)
-                    .build();
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            log.error("Error retrieving weekly revenue", e);
-            ApiResponse<BranchWeeklyRevenueResponse> response = ApiResponse.<BranchWeeklyRevenueResponse>builder()
-                    .code(500)
-                    .message("Failed to retrieve weekly revenue: " + e.getMessage())
-                    .result(null)
-                    .build();
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
-        }
+            @RequestParam Integer branchId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return cached(new AnalyticsResponseCache.Key("/weekly-revenue", branchId, null, null, null),
+                ifNoneMatch, "weekly revenue", () -> analyticsService.getBranchWeeklyRevenue(branchId));
     }
 
     @GetMapping("/customers/all")
     public ResponseEntity<ApiResponse<AllBranchesCustomerMetricsResponse>> getAllBranchesCustomerMetrics(
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
-        try {
-            AllBranchesCustomerMetricsResponse metrics = analyticsService.getAllBranchesCustomerMetrics(date);
-            ApiResponse<AllBranchesCustomerMetricsResponse> response = ApiResponse.<AllBranchesCustomerMetricsResponse>builder()
-                    .code(200)
-                    .message("All branches customer metrics retrieved successfully")
-                    .result(metrics)
-                    .build();
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            log.error("Error retrieving all branches customer metrics", e);
-            ApiResponse<AllBranchesCustomerMetricsResponse> response = ApiResponse.<AllBranchesCustomerMetricsResponse>builder()
-                    .code(500)
-                    .message("Failed to retrieve all branches customer metrics: " + e.getMessage())
-                    .result(null)
-                    .build();
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
-        }
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return cached(new AnalyticsResponseCache.Key("/customers/all", null, date, date, null),
+                ifNoneMatch, "all branches customer metrics",
+                () -> analyticsService.getAllBranchesCustomerMetrics(date));
     }
 
     /**
@@ -234,69 +130,62 @@ public class AnalyticsController {
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
             @RequestParam(required = false, defaultValue = "10") Integer limit,
-            @RequestParam(required = false, defaultValue = "quantity") String sortBy) {
-        try {
-            TopSellingProductsResponse response = analyticsService.getTopSellingProducts(
-                    branchId, startDate, endDate, limit, sortBy);
-            ApiResponse<TopSellingProductsResponse> apiResponse = ApiResponse.<TopSellingProductsResponse>builder()
-                    .code(200)
-                    .message("Top selling products retrieved successfully")
-                    .result(response)
-                    .build();
-            return ResponseEntity.ok(apiResponse);
-        } catch (Exception e) {
-            log.error("Error retrieving top selling products", e);
-            ApiResponse<TopSellingProductsResponse> response = ApiResponse.<TopSellingProductsResponse>builder()
-                    .code(500)
-                    .message("Failed to retrieve top selling products: " + e.getMessage())
-                    .result(null)
-                    .build();
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
-        }
+            @RequestParam(required = false, defaultValue = "quantity") String sortBy,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return cached(new AnalyticsResponseCache.Key("/top-selling-products", branchId, startDate, endDate,
+                "limit=" + limit + "&sortBy=" + sortBy),
+                ifNoneMatch, "top selling products", () -> analyticsService.getTopSellingProducts(
+                        branchId, startDate, endDate, limit, sortBy));
     }
 
     @GetMapping("/products/all")
     public ResponseEntity<ApiResponse<AllBranchesProductMetricsResponse>> getAllBranchesProductMetrics(
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
-        try {
-            AllBranchesProductMetricsResponse metrics = analyticsService.getAllBranchesProductMetrics(date);
-            ApiResponse<AllBranchesProductMetricsResponse> response = ApiResponse.<AllBranchesProductMetricsResponse>builder()
-                    .code(200)
-                    .message("All branches product metrics retrieved successfully")
-                    .result(metrics)
-                    .build();
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            log.error("Error retrieving all branches product metrics", e);
-            ApiResponse<AllBranchesProductMetricsResponse> response = ApiResponse.<AllBranchesProductMetricsResponse>builder()
-                    .code(500)
-                    .message("Failed to retrieve all branches product metrics: " + e.getMessage())
-                    .result(null)
-                    .build();
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
-        }
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return cached(new AnalyticsResponseCache.Key("/products/all", null, date, date, null),
+                ifNoneMatch, "all branches product metrics",
+                () -> analyticsService.getAllBranchesProductMetrics(date));
     }
 
     @GetMapping("/reviews/all")
     public ResponseEntity<ApiResponse<AllBranchesReviewMetricsResponse>> getAllBranchesReviewMetrics(
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return cached(new AnalyticsResponseCache.Key("/reviews/all", null, date, date, null),
+                ifNoneMatch, "all branches review metrics",
+                () -> analyticsService.getAllBranchesReviewMetrics(date));
+    }
+
+    /**
+     * Trả response từ AnalyticsResponseCache kèm ETag; 304 (không body) khi If-None-Match khớp.
+     * Lỗi vẫn trả 500 như trước và không được cache.
+     */
+    private <T> ResponseEntity<ApiResponse<T>> cached(AnalyticsResponseCache.Key key, String ifNoneMatch,
+            String what, Supplier<T> loader) {
         try {
-            AllBranchesReviewMetricsResponse metrics = analyticsService.getAllBranchesReviewMetrics(date);
-            ApiResponse<AllBranchesReviewMetricsResponse> response = ApiResponse.<AllBranchesReviewMetricsResponse>builder()
+            AnalyticsResponseCache.Cached<T> cached = responseCache.get(key, () -> ApiResponse.<T>builder()
                     .code(200)
-                    .message("All branches review metrics retrieved successfully")
-                    .result(metrics)
-                    .build();
-            return ResponseEntity.ok(response);
+                    .message(StringUtils.capitalize(what) + " retrieved successfully")
+                    .result(loader.get())
+                    .build());
+            if (AnalyticsResponseCache.matches(ifNoneMatch, cached.etag())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(cached.etag())
+                        .cacheControl(CacheControl.noCache())
+                        .build();
+            }
+            return ResponseEntity.ok()
+                    .eTag(cached.etag())
+                    .cacheControl(CacheControl.noCache())
+                    .body(cached.body());
         } catch (Exception e) {
-            log.error("Error retrieving all branches review metrics", e);
-            ApiResponse<AllBranchesReviewMetricsResponse> response = ApiResponse.<AllBranchesReviewMetricsResponse>builder()
+            log.error("Error retrieving {}", what, e);
+            ApiResponse<T> response = ApiResponse.<T>builder()
                     .code(500)
-                    .message("Failed to retrieve all branches review metrics: " + e.getMessage())
+                    .message("Failed to retrieve " + what + ": " + e.getMessage())
                     .result(null)
                     .build();
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
         }
     }
 }
-
@@ -0,0 +1,42 @@
+package orderservice.order_service.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import orderservice.order_service.dto.ApiResponse;
+import orderservice.order_service.service.SalesRollupService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+
+/**
+ * Quản trị bảng rollup doanh số (backfill / tính lại theo khoảng ngày).
+ * Tách khỏi /analytics/metrics vì nhóm endpoint đó được mở public cho AI service.
+ */
+@RestController
+@RequestMapping("/analytics/rollups")
+@RequiredArgsConstructor
+@Slf4j
+public class AnalyticsRollupController {
+
+    private final SalesRollupService salesRollupService;
+
+    /**
+     * POST /api/analytics/rollups/rebuild?from=2025-01-01&to=2025-01-31
+     */
+    @PostMapping("/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<Integer>> rebuild(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        log.info("API rebuild sales rollups from {} to {}", from, to);
+        int buckets = salesRollupService.rebuild(from, to);
+        return ResponseEntity.ok(ApiResponse.<Integer>builder()
+                .code(200)
+                .message("Sales rollups rebuilt successfully")
+                .result(buckets)
+                .build());
+    }
+}
@@ -8,6 +8,7 @@ import orderservice.order_service.dto.request.UpdateBranchClosureRequest;
 import orderservice.order_service.dto.request.UpdateBranchClosureGroupRequest;
 import orderservice.order_service.dto.request.DeleteBranchClosureGroupRequest;
 import orderservice.order_service.dto.response.ApiResponse;
+import orderservice.order_service.dto.response.BranchCalendarResponse;
 import orderservice.order_service.dto.response.BranchClosureResponse;
 import orderservice.order_service.service.BranchClosureService;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -94,6 +95,20 @@ public class BranchClosureController {
                 .build());
     }
 
+    @GetMapping("/calendar")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER') or hasRole('STAFF')")
+    public ResponseEntity<ApiResponse<BranchCalendarResponse>> getCalendar(
+            @RequestParam(required = false) Integer branchId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        BranchCalendarResponse result = branchClosureService.getCalendar(branchId, from, to);
+        return ResponseEntity.ok(ApiResponse.<BranchCalendarResponse>builder()
+                .code(2000)
+                .message("Lấy lịch mở cửa chi nhánh thành công")
+                .result(result)
+                .build());
+    }
+
     @PutMapping("/group")
     @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER')")
     public ResponseEntity<ApiResponse<List<BranchClosureResponse>>> updateClosureGroup(
@@ -23,7 +23,7 @@ public class EmailController {
     @PostMapping("/send-order-confirmation")
     public ResponseEntity<ApiResponse<String>> sendOrderConfirmation(@RequestBody OrderConfirmationRequest request) {
         try {
-            log.info("Sending order confirmation email to: {}", request.getEmail());
+            log.info("Queueing order confirmation email to: {}", request.getEmail());
 
             // Convert request to service parameters
             List<EmailService.OrderItemInfo> orderItems = request.getOrderItems().stream()
@@ -33,7 +33,7 @@ public class EmailController {
                             item.getTotalPrice()))
                     .toList();
 
-            emailService.sendOrderConfirmationEmail(
+            boolean queued = emailService.sendOrderConfirmationEmail(
                     request.getEmail(),
                     request.getCustomerName(),
                     request.getOrderId(),
@@ -45,15 +45,15 @@ public class EmailController {
 
             ApiResponse<String> response = ApiResponse.<String>builder()
                     .code(200)
-                    .message("Order confirmation email sent successfully")
-                    .result("Email sent")
+                    .message("Order confirmation email queued successfully")
+                    .result(queued ? "Email queued" : "Email already queued")
                     .build();
             return ResponseEntity.ok(response);
         } catch (Exception e) {
-            log.error("Failed to send order confirmation email", e);
+            log.error("Failed to queue order confirmation email", e);
             ApiResponse<String> response = ApiResponse.<String>builder()
                     .code(500)
-                    .message("Failed to send email: " + e.getMessage())
+                    .message("Failed to queue email: " + e.getMessage())
                     .result(null)
                     .build();
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
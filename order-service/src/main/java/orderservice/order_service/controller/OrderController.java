@@ -5,20 +5,33 @@ import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
 import orderservice.order_service.client.CatalogServiceClient;
+import orderservice.order_service.client.ProfileServiceClient;
 import orderservice.order_service.dto.ApiResponse;
 import orderservice.order_service.dto.request.CreateOrderRequest;
 import orderservice.order_service.dto.request.CreateGuestOrderRequest;
 import orderservice.order_service.dto.response.OrderResponse;
 import orderservice.order_service.dto.response.OrderListResponse;
+import orderservice.order_service.dto.response.OrderSummaryPageResponse;
 import orderservice.order_service.dto.response.ProductResponse;
+import orderservice.order_service.service.OrderExportService;
+import orderservice.order_service.service.OrderLiveFeed;
 import orderservice.order_service.service.OrderService;
+import orderservice.order_service.util.SecurityUtils;
+import orderservice.order_service.util.StaffPermissionValidator;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
+import java.util.Objects;
 
 @RestController
 @RequestMapping("/api/orders")
@@ -28,7 +41,10 @@ import java.util.List;
 public class OrderController {
 
     OrderService orderService;
+    OrderExportService orderExportService;
+    OrderLiveFeed orderLiveFeed;
     CatalogServiceClient catalogServiceClient;
+    ProfileServiceClient profileServiceClient;
 
     @PostMapping
     public ResponseEntity<ApiResponse<OrderResponse>> createOrder(
@@ -118,6 +134,102 @@ public class OrderController {
         }
     }
 
+    /**
+     * Danh sách đơn tóm tắt của khách hàng (trang "Đơn hàng của tôi"), mới nhất trước.
+     * Phân trang bằng cursor: truyền lại nextCursor của trang trước, nextCursor = null khi đã hết.
+     * Chỉ chính khách hàng đó hoặc ADMIN được xem.
+     */
+    @GetMapping("/customer/{customerId}/summaries")
+    @PreAuthorize("hasRole('CUSTOMER') or hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<OrderSummaryPageResponse>> getOrderSummariesByCustomer(
+            @PathVariable Integer customerId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false, defaultValue = "20") Integer limit) {
+        try {
+            if (!"ADMIN".equalsIgnoreCase(SecurityUtils.getCurrentUserRole())
+                    && !Objects.equals(SecurityUtils.getCurrentUserId(), customerId)) {
+                throw new orderservice.order_service.exception.AppException(
+                        orderservice.order_service.exception.ErrorCode.ACCESS_DENIED);
+            }
+            OrderSummaryPageResponse result = orderService.getOrderSummariesByCustomer(customerId, cursor, limit);
+            ApiResponse<OrderSummaryPageResponse> response = ApiResponse.<OrderSummaryPageResponse>builder()
+                    .code(200)
+                    .message("Orders retrieved successfully")
+                    .result(result)
+                    .build();
+            return ResponseEntity.ok(response);
+        } catch (orderservice.order_service.exception.AppException e) {
+            ApiResponse<OrderSummaryPageResponse> response = ApiResponse.<OrderSummaryPageResponse>builder()
+                    .code(e.getErrorCode().getCode())
+                    .message(e.getMessage())
+                    .result(null)
+                    .build();
+            return ResponseEntity.status(e.getErrorCode().getHttpStatus()).body(response);
+        } catch (Exception e) {
+            log.error("Failed to retrieve order summaries", e);
+            ApiResponse<OrderSummaryPageResponse> response = ApiResponse.<OrderSummaryPageResponse>builder()
+                    .code(500)
+                    .message("Failed to retrieve orders: " + e.getMessage())
+                    .result(null)
+                    .build();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    /**
+     * Danh sách đơn tóm tắt của chi nhánh, mới nhất trước.
+     * Phân trang bằng cursor: truyền lại nextCursor của trang trước, nextCursor = null khi đã hết.
+     * ADMIN xem mọi chi nhánh; MANAGER / STAFF chỉ chi nhánh của mình.
+     */
+    @GetMapping("/branch/{branchId}/summaries")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER') or hasRole('STAFF')")
+    public ResponseEntity<ApiResponse<OrderSummaryPageResponse>> getOrderSummariesByBranch(
+            @PathVariable Integer branchId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false, defaultValue = "20") Integer limit) {
+        try {
+            StaffPermissionValidator.requireBranchAccess(branchId, profileServiceClient);
+            OrderSummaryPageResponse result = orderService.getOrderSummariesByBranch(branchId, cursor, limit);
+            ApiResponse<OrderSummaryPageResponse> response = ApiResponse.<OrderSummaryPageResponse>builder()
+                    .code(200)
+                    .message("Orders retrieved successfully")
+                    .result(result)
+                    .build();
+            return ResponseEntity.ok(response);
+        } catch (orderservice.order_service.exception.AppException e) {
+            ApiResponse<OrderSummaryPageResponse> response = ApiResponse.<OrderSummaryPageResponse>builder()
+                    .code(e.getErrorCode().getCode())
+                    .message(e.getMessage())
+                    .result(null)
+                    .build();
+            return ResponseEntity.status(e.getErrorCode().getHttpStatus()).body(response);
+        } catch (Exception e) {
+            log.error("Failed to retrieve order summaries", e);
+            ApiResponse<OrderSummaryPageResponse> response = ApiResponse.<OrderSummaryPageResponse>builder()
+                    .code(500)
+                    .message("Failed to retrieve orders: " + e.getMessage())
+                    .result(null)
+                    .build();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    /**
+     * SSE delta đơn hàng của chi nhánh (tạo / đổi trạng thái / xoá) thay cho poll danh sách.
+     * Kết nối lại với header Last-Event-ID (EventSource tự gửi) hoặc tham số resumeToken để nhận các delta bị lỡ.
+     * ADMIN xem mọi chi nhánh; MANAGER / STAFF chỉ chi nhánh của mình.
+     */
+    @GetMapping(value = "/branch/{branchId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER') or hasRole('STAFF')")
+    public SseEmitter streamBranchOrders(
+            @PathVariable Integer branchId,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+            @RequestParam(required = false) String resumeToken) {
+        // MANAGER / STAFF chỉ theo dõi được chi nhánh của mình
+        StaffPermissionValidator.requireBranchAccess(branchId, profileServiceClient);
+        return orderLiveFeed.subscribe(branchId, resumeToken != null ? resumeToken : lastEventId);
+    }
+
     @GetMapping
     public ResponseEntity<ApiResponse<OrderListResponse>> getOrders(
             @RequestParam(required = false) String branchId,
@@ -127,16 +239,24 @@ public class OrderController {
             @RequestParam(required = false) String dateFrom,
             @RequestParam(required = false) String dateTo,
             @RequestParam(required = false, defaultValue = "0") Integer page,
-            @RequestParam(required = false, defaultValue = "50") Integer limit) {
+            @RequestParam(required = false, defaultValue = "50") Integer limit,
+            @RequestParam(required = false) String cursor) {
         try {
             OrderListResponse result = orderService.getOrders(
-                    branchId, status, type, staffId, dateFrom, dateTo, page, limit);
+                    branchId, status, type, staffId, dateFrom, dateTo, page, limit, cursor);
             ApiResponse<OrderListResponse> response = ApiResponse.<OrderListResponse>builder()
                     .code(200)
                     .message("Orders retrieved successfully")
                     .result(result)
                     .build();
             return ResponseEntity.ok(response);
+        } catch (orderservice.order_service.exception.AppException e) {
+            ApiResponse<OrderListResponse> response = ApiResponse.<OrderListResponse>builder()
+                    .code(e.getErrorCode().getCode())
+                    .message(e.getMessage())
+                    .result(null)
+                    .build();
+            return ResponseEntity.status(e.getErrorCode().getHttpStatus()).body(response);
         } catch (Exception e) {
             log.error("Failed to retrieve orders", e);
             ApiResponse<OrderListResponse> response = ApiResponse.<OrderListResponse>builder()
@@ -148,6 +268,27 @@ public class OrderController {
         }
     }
 
+    /**
+     * Export đơn hàng theo ngày kinh doanh [dateFrom, dateTo] (yyyy-MM-dd), format=csv|ndjson.
+     * Response được stream trực tiếp từ DB, không tải toàn bộ đơn vào bộ nhớ.
+     */
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER')")
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @RequestParam(required = false) Integer branchId,
+            @RequestParam(required = false) String dateFrom,
+            @RequestParam(required = false) String dateTo,
+            @RequestParam(required = false, defaultValue = "csv") String format) {
+        // Lỗi tham số phải được ném trước khi bắt đầu ghi body
+        OrderExportService.ExportRequest request = orderExportService.prepare(branchId, dateFrom, dateTo, format);
+        StreamingResponseBody body = out -> orderExportService.export(request, out);
+        return ResponseEntity.ok()
+                .contentType(request.format().getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(request.filename()).build().toString())
+                .body(body);
+    }
+
     @GetMapping("/{orderId}")
     public ResponseEntity<ApiResponse<OrderResponse>> getOrderById(@PathVariable Integer orderId) {
         try {
@@ -131,6 +131,44 @@ public class TableManagementController {
         }
     }
 
+    // Suggest a table combination for a large party
+    @GetMapping("/branch/{branchId}/suggest")
+    @PreAuthorize("hasRole('MANAGER') or hasRole('ADMIN') or hasRole('STAFF')")
+    public ResponseEntity<ApiResponse<List<TableResponse>>> suggestTables(
+            @PathVariable Integer branchId,
+            @RequestParam Integer partySize,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime reservedAt,
+            @RequestParam(required = false) Integer maxTables) {
+        // Validate staff business role if user is STAFF (MANAGER/ADMIN bypass)
+        String userRole = orderservice.order_service.util.SecurityUtils.getCurrentUserRole();
+        if (userRole != null && "STAFF".equals(userRole)) {
+            StaffPermissionValidator.requireTableManagementAccess(profileServiceClient, authServiceClient);
+            // Validate that staff is in an active shift
+            StaffPermissionValidator.requireActiveShift(profileServiceClient);
+        }
+
+        try {
+            List<TableResponse> tables = tableManagementService.suggestTablesForReservation(branchId, partySize,
+                    reservedAt, maxTables);
+            ApiResponse<List<TableResponse>> response = ApiResponse.<List<TableResponse>>builder()
+                    .code(200)
+                    .message(tables.isEmpty() ? "No table combination fits this party"
+                            : "Table combination suggested successfully")
+                    .result(tables)
+                    .build();
+            return ResponseEntity.ok(response);
+        } catch (AppException e) {
+            throw e;
+        } catch (Exception e) {
+            ApiResponse<List<TableResponse>> response = ApiResponse.<List<TableResponse>>builder()
+                    .code(500)
+                    .message("Failed to suggest tables: " + e.getMessage())
+                    .result(null)
+                    .build();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
     // Assign tables to reservation
     @PostMapping("/assign")
     @PreAuthorize("hasRole('MANAGER') or hasRole('ADMIN') or hasRole('STAFF')")
@@ -0,0 +1,25 @@
+package orderservice.order_service.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.AccessLevel;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class BranchCalendarResponse {
+
+    Integer branchId; // null = chỉ xét lịch nghỉ toàn hệ thống
+    LocalDate from;
+    LocalDate to;
+    List<LocalDate> closedDates; // ngày có lịch nghỉ (toàn hệ thống hoặc của chi nhánh)
+    List<LocalDate> openDates;   // ngày không nghỉ và nằm trong openDays của chi nhánh
+}
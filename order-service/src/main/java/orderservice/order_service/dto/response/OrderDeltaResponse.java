@@ -0,0 +1,22 @@
+package orderservice.order_service.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class OrderDeltaResponse {
+    /**
+     * Resume token của delta này (cũng là id của SSE event), gửi lại qua Last-Event-ID / resumeToken khi kết nối lại.
+     */
+    String token;
+    // CREATED | UPDATED | DELETED
+    String type;
+    Integer orderId;
+    Integer branchId;
+    // Trạng thái mới của đơn, null khi type = DELETED
+    OrderSummaryResponse order;
+}
@@ -16,5 +16,10 @@ public class OrderListResponse {
     Integer page;
     Integer limit;
     Integer totalPages;
+    /**
+     * Cursor cho trang kế tiếp (truyền lại qua tham số cursor), null khi đã hết dữ liệu.
+     * Khi phân trang bằng cursor thì total / page / totalPages không được tính.
+     */
+    String nextCursor;
 }
 
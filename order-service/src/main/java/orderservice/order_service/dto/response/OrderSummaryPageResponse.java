@@ -0,0 +1,20 @@
+package orderservice.order_service.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class OrderSummaryPageResponse {
+    List<OrderSummaryResponse> orders;
+    Integer limit;
+    /**
+     * Cursor cho trang kế tiếp (truyền lại qua tham số cursor), null khi đã hết dữ liệu.
+     */
+    String nextCursor;
+}
@@ -0,0 +1,42 @@
+package orderservice.order_service.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class OrderSummaryResponse {
+    Integer orderId;
+    Integer customerId;
+    String customerName;
+    Integer branchId;
+    String status;
+    String paymentStatus;
+    String paymentMethod;
+    String type;
+    BigDecimal totalAmount;
+    Integer itemCount;
+    BigDecimal totalQuantity;
+    FirstItem firstItem;
+    LocalDateTime orderDate;
+
+    /**
+     * Sản phẩm đầu tiên của đơn, để xem trước trong danh sách
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class FirstItem {
+        Integer productId;
+        String productName;
+        BigDecimal quantity;
+    }
+}
@@ -0,0 +1,62 @@
+package orderservice.order_service.entity;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Bảng tổng hợp số đơn / chi tiêu của từng khách hàng theo chi nhánh và ngày (giờ Việt Nam).
+ * customer_id = 0 là khách vãng lai (walk-in), mỗi đơn được tính như một khách.
+ */
+@Entity
+@Table(name = "customer_daily_rollup",
+        uniqueConstraints = @UniqueConstraint(name = "uk_customer_daily_rollup_bucket",
+                columnNames = {"branch_id", "business_date", "customer_id"}),
+        indexes = {
+                @Index(name = "idx_customer_daily_rollup_date", columnList = "business_date, branch_id"),
+                @Index(name = "idx_customer_daily_rollup_customer", columnList = "customer_id, business_date")
+        })
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class CustomerDailyRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    Long id;
+
+    @Column(name = "branch_id", nullable = false)
+    Integer branchId;
+
+    @Column(name = "business_date", nullable = false)
+    LocalDate businessDate;
+
+    @Column(name = "customer_id", nullable = false)
+    Integer customerId;
+
+    @Column(name = "customer_name", length = 50)
+    String customerName;
+
+    @Column(name = "order_count", nullable = false)
+    Long orderCount;
+
+    @Column(name = "completed_paid_count", nullable = false)
+    Long completedPaidCount;
+
+    @Column(name = "total_amount", nullable = false, precision = 14, scale = 2)
+    BigDecimal totalAmount;
+
+    @Column(name = "update_at", nullable = false)
+    LocalDateTime updateAt;
+}
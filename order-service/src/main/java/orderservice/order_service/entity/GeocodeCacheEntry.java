@@ -0,0 +1,50 @@
+package orderservice.order_service.entity;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+
+/**
+ * Kết quả geocoding đã lưu theo địa chỉ chuẩn hóa (không dấu, chữ thường, gộp khoảng trắng).
+ * resolved = false là kết quả âm: OpenCage trả về nhưng không có tọa độ cho địa chỉ này.
+ */
+@Entity
+@Table(name = "geocode_cache",
+        uniqueConstraints = @UniqueConstraint(name = "uk_geocode_cache_address_key", columnNames = "address_key"),
+        indexes = @Index(name = "idx_geocode_cache_expires_at", columnList = "expires_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class GeocodeCacheEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    Long id;
+
+    @Column(name = "address_key", nullable = false, length = 500)
+    String addressKey;
+
+    @Column(name = "latitude")
+    Double latitude;
+
+    @Column(name = "longitude")
+    Double longitude;
+
+    @Column(name = "resolved", nullable = false)
+    Boolean resolved;
+
+    @Column(name = "expires_at", nullable = false)
+    LocalDateTime expiresAt;
+
+    @Column(name = "update_at", nullable = false)
+    LocalDateTime updateAt;
+}
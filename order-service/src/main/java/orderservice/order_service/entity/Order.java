@@ -3,13 +3,23 @@ package orderservice.order_service.entity;
 import jakarta.persistence.*;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
+import orderservice.order_service.util.BusinessTime;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_branch_create_status", columnList = "branch_id, create_at, status"),
+        @Index(name = "idx_orders_branch_order_date", columnList = "branch_id, order_date, order_id"),
+        @Index(name = "idx_orders_branch_type_order_date", columnList = "branch_id, order_type, order_date"),
+        @Index(name = "idx_orders_order_date", columnList = "order_date, order_id"),
+        @Index(name = "idx_orders_status_create_at", columnList = "status, create_at"),
+        @Index(name = "idx_orders_branch_business_date", columnList = "branch_id, business_date, status, business_hour"),
+        @Index(name = "idx_orders_business_date", columnList = "business_date, branch_id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -75,6 +85,13 @@ public class Order {
     @Column(columnDefinition = "TEXT")
     String notes;
 
+    /**
+     * Loại đơn (pos, dine-in, takeaway, online), suy ra từ staffId / tableId / deliveryAddress
+     * và lưu lại để lọc danh sách đơn bằng index thay vì tính trong bộ nhớ.
+     */
+    @Column(name = "order_type", length = 20)
+    String orderType;
+
     @Column(name = "order_date", nullable = false)
     LocalDateTime orderDate;
 
@@ -84,6 +101,16 @@ public class Order {
     @Column(name = "update_at", nullable = false)
     LocalDateTime updateAt;
 
+    /**
+     * Ngày / giờ kinh doanh (create_at quy đổi sang giờ chi nhánh, xem BusinessTime), tính một lần lúc tạo đơn
+     * để các query analytics lọc / group bằng index.
+     */
+    @Column(name = "business_date")
+    LocalDate businessDate;
+
+    @Column(name = "business_hour")
+    Integer businessHour;
+
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     List<OrderItem> orderItems;
 
@@ -94,10 +121,45 @@ public class Order {
         if (orderDate == null) {
             orderDate = LocalDateTime.now();
         }
+        orderType = resolveOrderType();
+        assignBusinessTime();
     }
 
     @PreUpdate
     protected void onUpdate() {
         updateAt = LocalDateTime.now();
+        orderType = resolveOrderType();
+        // Đơn cũ chưa được BusinessDateBackfill điền
+        if (businessDate == null || businessHour == null) {
+            assignBusinessTime();
+        }
+    }
+
+    private void assignBusinessTime() {
+        if (createAt != null) {
+            businessDate = BusinessTime.businessDate(createAt);
+            businessHour = BusinessTime.businessHour(createAt);
+        }
+    }
+
+    public String resolveOrderType() {
+        // POS orders: have staffId (created by staff at POS)
+        if (staffId != null) {
+            return "pos";
+        }
+        // Dine-in orders: have tableId (regardless of deliveryAddress)
+        if (tableId != null) {
+            return "dine-in";
+        }
+        // Takeaway orders: have deliveryAddress = "take-away"
+        if (deliveryAddress != null && "take-away".equalsIgnoreCase(deliveryAddress.trim())) {
+            return "takeaway";
+        }
+        // Online orders: have deliveryAddress (not "take-away") and no tableId/staffId
+        if (deliveryAddress != null && !deliveryAddress.trim().isEmpty()) {
+            return "online";
+        }
+        // Fallback: takeaway
+        return "takeaway";
     }
 }
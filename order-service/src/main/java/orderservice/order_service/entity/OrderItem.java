@@ -16,8 +16,11 @@ import java.time.LocalDateTime;
 @FieldDefaults(level = AccessLevel.PRIVATE)
 public class OrderItem {
 
+    // Lấy id theo block từ bảng id_generators (không dùng IDENTITY) để Hibernate gom INSERT thành batch
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "order_details_id")
+    @TableGenerator(name = "order_details_id", table = "id_generators", pkColumnName = "gen_name",
+            valueColumnName = "next_val", pkColumnValue = "order_details", allocationSize = 50)
     @Column(name = "id")
     Integer orderItemId;
 
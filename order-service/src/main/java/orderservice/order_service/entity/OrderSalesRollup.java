@@ -0,0 +1,63 @@
+package orderservice.order_service.entity;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Bảng tổng hợp doanh số theo chi nhánh / ngày / giờ (giờ Việt Nam) / trạng thái / thanh toán.
+ * Được cập nhật tăng dần trong cùng transaction với thay đổi của đơn hàng (xem SalesRollupService).
+ * payment_status / payment_method lưu '' thay cho NULL để unique key hoạt động với ON DUPLICATE KEY.
+ */
+@Entity
+@Table(name = "order_sales_rollup",
+        uniqueConstraints = @UniqueConstraint(name = "uk_order_sales_rollup_bucket",
+                columnNames = {"branch_id", "business_date", "business_hour", "status", "payment_status", "payment_method"}),
+        indexes = @Index(name = "idx_order_sales_rollup_date", columnList = "business_date, branch_id"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class OrderSalesRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    Long id;
+
+    @Column(name = "branch_id", nullable = false)
+    Integer branchId;
+
+    @Column(name = "business_date", nullable = false)
+    LocalDate businessDate;
+
+    @Column(name = "business_hour", nullable = false)
+    Integer businessHour;
+
+    @Column(name = "status", nullable = false, length = 50)
+    String status;
+
+    @Column(name = "payment_status", nullable = false, length = 50)
+    String paymentStatus;
+
+    @Column(name = "payment_method", nullable = false, length = 50)
+    String paymentMethod;
+
+    @Column(name = "order_count", nullable = false)
+    Long orderCount;
+
+    @Column(name = "total_amount", nullable = false, precision = 14, scale = 2)
+    BigDecimal totalAmount;
+
+    @Column(name = "update_at", nullable = false)
+    LocalDateTime updateAt;
+}
@@ -0,0 +1,79 @@
+package orderservice.order_service.entity;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Một dòng tóm tắt cho mỗi đơn (read model cho danh sách "Đơn hàng của tôi" / đơn theo chi nhánh):
+ * các trường hiển thị của đơn, số dòng sản phẩm và sản phẩm đầu tiên để xem trước.
+ * Được ghi lại trong cùng transaction với thay đổi của đơn hàng (xem OrderSummaryService),
+ * nên trang danh sách không phải đọc order_details. Chỉ lưu product_id của sản phẩm đầu tiên; tên sản phẩm
+ * được tra lúc đọc (một lần cho cả trang, qua CartCatalogCache) để việc ghi đơn không phải gọi catalog-service.
+ */
+@Entity
+@Table(name = "order_summaries",
+        indexes = {
+                @Index(name = "idx_order_summaries_customer", columnList = "customer_id, order_date, order_id"),
+                @Index(name = "idx_order_summaries_branch", columnList = "branch_id, order_date, order_id")
+        })
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class OrderSummary {
+
+    @Id
+    @Column(name = "order_id")
+    Integer orderId;
+
+    @Column(name = "customer_id")
+    Integer customerId;
+
+    @Column(name = "customer_name", length = 50)
+    String customerName;
+
+    @Column(name = "branch_id", nullable = false)
+    Integer branchId;
+
+    @Column(name = "status", length = 50)
+    String status;
+
+    @Column(name = "payment_status", length = 50)
+    String paymentStatus;
+
+    @Column(name = "payment_method", length = 50)
+    String paymentMethod;
+
+    @Column(name = "order_type", length = 20)
+    String orderType;
+
+    @Column(name = "total_amount", nullable = false, precision = 12, scale = 2)
+    BigDecimal totalAmount;
+
+    @Column(name = "item_count", nullable = false)
+    Integer itemCount;
+
+    @Column(name = "total_quantity", nullable = false, precision = 12, scale = 2)
+    BigDecimal totalQuantity;
+
+    @Column(name = "first_item_product_id")
+    Integer firstItemProductId;
+
+    @Column(name = "first_item_quantity", precision = 12, scale = 2)
+    BigDecimal firstItemQuantity;
+
+    @Column(name = "order_date", nullable = false)
+    LocalDateTime orderDate;
+
+    @Column(name = "update_at", nullable = false)
+    LocalDateTime updateAt;
+}
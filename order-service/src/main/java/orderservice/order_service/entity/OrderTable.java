@@ -15,8 +15,11 @@ import java.time.LocalDateTime;
 @FieldDefaults(level = AccessLevel.PRIVATE)
 public class OrderTable {
 
+    // Lấy id theo block từ bảng id_generators (không dùng IDENTITY) để Hibernate gom INSERT thành batch
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "order_tables_id")
+    @TableGenerator(name = "order_tables_id", table = "id_generators", pkColumnName = "gen_name",
+            valueColumnName = "next_val", pkColumnValue = "order_tables", allocationSize = 50)
     Integer id;
 
     @Column(name = "order_id", nullable = false)
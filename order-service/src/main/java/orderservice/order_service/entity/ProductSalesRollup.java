@@ -0,0 +1,59 @@
+package orderservice.order_service.entity;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Bảng tổng hợp số lượng / doanh thu sản phẩm theo chi nhánh / ngày (giờ Việt Nam) / trạng thái đơn.
+ * order_count = số đơn có chứa sản phẩm (mỗi đơn tính một lần dù có nhiều dòng cùng sản phẩm).
+ */
+@Entity
+@Table(name = "product_sales_rollup",
+        uniqueConstraints = @UniqueConstraint(name = "uk_product_sales_rollup_bucket",
+                columnNames = {"branch_id", "business_date", "product_id", "status"}),
+        indexes = @Index(name = "idx_product_sales_rollup_date", columnList = "business_date, branch_id"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ProductSalesRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    Long id;
+
+    @Column(name = "branch_id", nullable = false)
+    Integer branchId;
+
+    @Column(name = "business_date", nullable = false)
+    LocalDate businessDate;
+
+    @Column(name = "product_id", nullable = false)
+    Integer productId;
+
+    @Column(name = "status", nullable = false, length = 50)
+    String status;
+
+    @Column(name = "quantity", nullable = false, precision = 14, scale = 2)
+    BigDecimal quantity;
+
+    @Column(name = "revenue", nullable = false, precision = 14, scale = 2)
+    BigDecimal revenue;
+
+    @Column(name = "order_count", nullable = false)
+    Long orderCount;
+
+    @Column(name = "update_at", nullable = false)
+    LocalDateTime updateAt;
+}
@@ -0,0 +1,23 @@
+package orderservice.order_service.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Sự kiện nội bộ khi dữ liệu mà các API /analytics/metrics đọc bị thay đổi (rollup doanh số, review),
+ * để AnalyticsResponseCache bỏ các response bị ảnh hưởng sau khi transaction commit.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnalyticsDataChangedEvent {
+    // null: tất cả chi nhánh
+    private Integer branchId;
+    // null: không giới hạn
+    private LocalDate fromDate;
+    private LocalDate toDate;
+    private String reason;
+}
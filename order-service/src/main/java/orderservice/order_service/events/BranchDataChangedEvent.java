@@ -0,0 +1,18 @@
+package orderservice.order_service.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Sự kiện nội bộ (Spring ApplicationEvent) khi chi nhánh hoặc lịch nghỉ thay đổi,
+ * để BranchLocationIndex và BranchClosureCalendar dựng lại sau khi transaction commit.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BranchDataChangedEvent {
+    // null: thay đổi áp dụng cho tất cả chi nhánh (ví dụ lịch nghỉ toàn hệ thống)
+    private Integer branchId;
+    private String reason;
+}
@@ -0,0 +1,32 @@
+package orderservice.order_service.events;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Sự kiện Kafka (topic order.cache.invalidated, gửi qua outbox) báo các instance khác dựng lại chỉ mục
+ * trong bộ nhớ sau khi dữ liệu nguồn của một chi nhánh thay đổi trên instance origin.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class CacheInvalidationEvent {
+    public static final String TABLE_AVAILABILITY = "TABLE_AVAILABILITY";
+    public static final String BRANCH_DATA = "BRANCH_DATA";
+
+    // TABLE_AVAILABILITY | BRANCH_DATA
+    private String cache;
+    // null: tất cả chi nhánh
+    private Integer branchId;
+    private String reason;
+    // app.kafka.instance-id của instance đã ghi thay đổi (instance đó tự dựng lại, bỏ qua sự kiện)
+    private String origin;
+    private Instant occurredAt;
+}
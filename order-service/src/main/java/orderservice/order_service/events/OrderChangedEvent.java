@@ -0,0 +1,27 @@
+package orderservice.order_service.events;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import orderservice.order_service.dto.response.OrderSummaryResponse;
+
+/**
+ * Sự kiện Kafka (topic order.changed, gửi qua outbox) khi một đơn được tạo / đổi trạng thái / xoá,
+ * để OrderLiveFeed của mọi instance đẩy delta tới các màn hình đang theo dõi chi nhánh.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class OrderChangedEvent {
+    public static final String CREATED = "CREATED";
+    public static final String UPDATED = "UPDATED";
+    public static final String DELETED = "DELETED";
+
+    private String type;
+    private Integer branchId;
+    private Integer orderId;
+    // null khi type = DELETED
+    private OrderSummaryResponse order;
+}
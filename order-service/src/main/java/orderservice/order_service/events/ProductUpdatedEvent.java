@@ -0,0 +1,22 @@
+package orderservice.order_service.events;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ProductUpdatedEvent {
+    private Integer productId;
+    private List<Integer> productDetailIds;
+    private Boolean active;
+    private Instant updatedAt;
+}
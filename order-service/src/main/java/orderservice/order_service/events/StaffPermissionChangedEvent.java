@@ -0,0 +1,19 @@
+package orderservice.order_service.events;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class StaffPermissionChangedEvent {
+    private Integer userId;
+    // SHIFT_CHECKED_IN, SHIFT_CHECKED_OUT, SHIFT_NO_SHOW, ROLES_CHANGED, PROFILE_DELETED
+    private String reason;
+    private Instant occurredAt;
+}
@@ -0,0 +1,18 @@
+package orderservice.order_service.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Sự kiện nội bộ (Spring ApplicationEvent) khi bàn hoặc lịch đặt bàn của một chi nhánh thay đổi,
+ * để TableAvailabilityIndex dựng lại chi nhánh đó sau khi transaction commit.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TableAvailabilityChangedEvent {
+    // null: dựng lại tất cả chi nhánh
+    private Integer branchId;
+    private String reason;
+}
@@ -97,6 +97,7 @@ public enum ErrorCode {
     BRANCH_NOT_OPERATING_ON_DAY(4104, "Chi nhánh {branchName} không hoạt động vào ngày này. Vui lòng chọn ngày khác", HttpStatus.BAD_REQUEST),
     POS_ORDER_OUTSIDE_BUSINESS_HOURS(4105, "Chi nhánh {branchName} hiện đang ngoài giờ làm việc ({openHours} - {endHours}). Giờ hiện tại: {currentTime}", HttpStatus.BAD_REQUEST),
     DELIVERY_DISTANCE_TOO_FAR(4106, "Địa chỉ giao hàng quá xa chi nhánh {branchName} ({distance} km, tối đa {maxDistance} km). Vui lòng chọn chi nhánh khác hoặc đổi địa chỉ giao hàng", HttpStatus.BAD_REQUEST),
+    BRANCH_CALENDAR_RANGE_TOO_LARGE(4107, "Date range must not exceed 366 days", HttpStatus.BAD_REQUEST),
     ;
 
     ErrorCode(int code, String message, HttpStatusCode statusCode) {
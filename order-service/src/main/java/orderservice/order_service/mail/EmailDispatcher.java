@@ -0,0 +1,239 @@
+package orderservice.order_service.mail;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Worker gửi email_job qua SMTP.
+ *
+ * Mỗi vòng nhận một lô dòng đến hạn (FOR UPDATE SKIP LOCKED) và chuyển sang SENDING kèm lease trong một
+ * transaction ngắn, rồi chia lô cho các worker: mỗi worker gửi phần của mình bằng một lần
+ * JavaMailSender.send(MimeMessage...), tức là một kết nối SMTP cho cả nhóm thư thay vì một kết nối mỗi thư.
+ * Kết quả được ghi lại trong transaction thứ hai. Gửi lỗi thì thử lại với backoff tăng dần,
+ * quá max-attempts thì đánh dấu FAILED. Instance chết giữa chừng: dòng SENDING được nhận lại khi hết lease.
+ */
+@Component
+@Slf4j
+public class EmailDispatcher {
+
+    private static final int MAX_BATCHES_PER_RUN = 20;
+
+    private final EmailJobRepository repo;
+    private final JavaMailSender mailSender;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService workers;
+    private final int workerCount;
+
+    private final AtomicLong pendingCount = new AtomicLong();
+
+    @Value("${spring.mail.username}")
+    private String fromEmail;
+
+    @Value("${email.queue.batch-size:50}")
+    private int batchSize;
+
+    @Value("${email.queue.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${email.queue.lease-seconds:300}")
+    private long leaseSeconds;
+
+    public EmailDispatcher(EmailJobRepository repo,
+            JavaMailSender mailSender,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${email.queue.workers:4}") int workerCount) {
+        this.repo = repo;
+        this.mailSender = mailSender;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.workerCount = Math.max(1, workerCount);
+        this.workers = Executors.newFixedThreadPool(this.workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "email-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("email.queue.pending", pendingCount, AtomicLong::get)
+                .description("Số email chưa gửi")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    private void shutdown() {
+        workers.shutdown();
+    }
+
+    @Scheduled(fixedDelayString = "${email.queue.poll-interval-ms:1000}")
+    public void dispatch() {
+        try {
+            for (int i = 0; i < MAX_BATCHES_PER_RUN; i++) {
+                int claimed = dispatchBatch();
+                if (claimed < batchSize) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.error("EmailDispatcher run failed", e);
+        } finally {
+            try {
+                pendingCount.set(repo.countByStatus("NEW"));
+            } catch (Exception e) {
+                log.debug("EmailDispatcher: failed to refresh pending gauge: {}", e.getMessage());
+            }
+        }
+    }
+
+    private int dispatchBatch() throws Exception {
+        Instant now = Instant.now();
+        List<EmailJob> batch = transactionTemplate.execute(status -> claim(now));
+        if (batch == null || batch.isEmpty()) {
+            return 0;
+        }
+
+        // Chia đều lô cho các worker, mỗi worker một kết nối SMTP
+        int chunkCount = Math.min(workerCount, batch.size());
+        List<List<EmailJob>> chunks = new ArrayList<>(chunkCount);
+        for (int i = 0; i < chunkCount; i++) {
+            chunks.add(new ArrayList<>());
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            chunks.get(i % chunkCount).add(batch.get(i));
+        }
+        List<Future<Map<Long, String>>> results = new ArrayList<>(chunkCount);
+        for (List<EmailJob> chunk : chunks) {
+            results.add(workers.submit(() -> sendChunk(mailSender, fromEmail, chunk)));
+        }
+
+        Map<Long, String> failures = new HashMap<>();
+        for (Future<Map<Long, String>> result : results) {
+            failures.putAll(result.get());
+        }
+        List<Long> sent = new ArrayList<>(batch.size());
+        for (EmailJob job : batch) {
+            if (!failures.containsKey(job.getId())) {
+                sent.add(job.getId());
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!sent.isEmpty()) {
+                repo.markSent(sent, Instant.now());
+            }
+            for (EmailJob job : batch) {
+                String error = failures.get(job.getId());
+                if (error != null) {
+                    markFailedAttempt(job, error, now);
+                }
+            }
+        });
+
+        meterRegistry.counter("email.sent").increment(sent.size());
+        if (!failures.isEmpty()) {
+            meterRegistry.counter("email.send.failures").increment(failures.size());
+            log.warn("EmailDispatcher: {} of {} emails failed to send, will retry", failures.size(), batch.size());
+        } else {
+            log.debug("EmailDispatcher: sent {} emails", sent.size());
+        }
+        return batch.size();
+    }
+
+    private List<EmailJob> claim(Instant now) {
+        List<EmailJob> batch = repo.claimBatch(now, batchSize);
+        Instant leaseUntil = now.plusSeconds(leaseSeconds);
+        for (EmailJob job : batch) {
+            job.setStatus("SENDING");
+            job.setAttempts((job.getAttempts() == null ? 0 : job.getAttempts()) + 1);
+            job.setNextAttemptAt(leaseUntil);
+        }
+        // Entity được quản lý trong transaction, thay đổi được flush khi commit
+        return batch;
+    }
+
+    private void markFailedAttempt(EmailJob job, String error, Instant now) {
+        String message = error.length() > 500 ? error.substring(0, 500) : error;
+        if (job.getAttempts() >= maxAttempts) {
+            repo.markAttemptFailed(job.getId(), "FAILED", null, message);
+            log.error("Email job {} ({} #{}) failed after {} attempts: {}",
+                    job.getId(), job.getType(), job.getEntityId(), job.getAttempts(), message);
+        } else {
+            // Backoff 2^attempts * 15 giây, tối đa 1 giờ
+            long backoffSeconds = Math.min(15L << Math.min(job.getAttempts(), 8), 3600L);
+            repo.markAttemptFailed(job.getId(), "NEW", now.plus(Duration.ofSeconds(backoffSeconds)), message);
+        }
+    }
+
+    /**
+     * Gửi một nhóm email qua cùng một kết nối SMTP. Trả về lỗi theo id của các email không gửi được.
+     */
+    static Map<Long, String> sendChunk(JavaMailSender mailSender, String from, List<EmailJob> jobs) {
+        Map<Long, String> failures = new HashMap<>();
+        Map<MimeMessage, EmailJob> byMessage = new IdentityHashMap<>();
+        List<MimeMessage> messages = new ArrayList<>(jobs.size());
+        for (EmailJob job : jobs) {
+            try {
+                MimeMessage message = mailSender.createMimeMessage();
+                MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+                helper.setFrom(from);
+                helper.setTo(job.getRecipient());
+                helper.setSubject(job.getSubject());
+                helper.setText(job.getBodyHtml(), true);
+                byMessage.put(message, job);
+                messages.add(message);
+            } catch (MessagingException | RuntimeException e) {
+                failures.put(job.getId(), describe(e));
+            }
+        }
+        if (messages.isEmpty()) {
+            return failures;
+        }
+
+        try {
+            mailSender.send(messages.toArray(new MimeMessage[0]));
+        } catch (MailSendException e) {
+            if (e.getFailedMessages().isEmpty()) {
+                // Không kết nối được: cả nhóm lỗi
+                messages.forEach(message -> failures.put(byMessage.get(message).getId(), describe(e)));
+            } else {
+                e.getFailedMessages().forEach((message, cause) -> {
+                    EmailJob job = byMessage.get(message);
+                    if (job != null) {
+                        failures.put(job.getId(), describe(cause));
+                    }
+                });
+            }
+        } catch (RuntimeException e) {
+            messages.forEach(message -> failures.put(byMessage.get(message).getId(), describe(e)));
+        }
+        return failures;
+    }
+
+    private static String describe(Throwable e) {
+        return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+    }
+}
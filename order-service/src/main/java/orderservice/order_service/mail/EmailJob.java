@@ -0,0 +1,73 @@
+package orderservice.order_service.mail;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+import java.time.Instant;
+
+/**
+ * Email chờ gửi (xác nhận đơn hàng, đặt bàn), được ghi trong cùng transaction với nghiệp vụ.
+ * Mỗi (type, entity_id) chỉ có một dòng nên cùng một đơn / đặt bàn không bị gửi hai lần.
+ * EmailDispatcher lấy các dòng đến hạn và gửi qua SMTP.
+ */
+@Entity
+@Table(name = "email_job",
+        uniqueConstraints = @UniqueConstraint(name = "ux_email_job_type_entity", columnNames = {"type", "entity_id"}),
+        indexes = {
+                @Index(name = "idx_email_job_status_next_attempt", columnList = "status, next_attempt_at"),
+                @Index(name = "idx_email_job_created", columnList = "created_at")
+        })
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class EmailJob {
+
+    public static final String TYPE_ORDER_CONFIRMATION = "ORDER_CONFIRMATION";
+    public static final String TYPE_RESERVATION_CONFIRMATION = "RESERVATION_CONFIRMATION";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    Long id;
+
+    @Column(name = "type", nullable = false, length = 50)
+    String type;               // ORDER_CONFIRMATION | RESERVATION_CONFIRMATION
+
+    @Column(name = "entity_id", nullable = false)
+    Integer entityId;          // orderId / reservationId
+
+    @Column(name = "recipient", nullable = false, length = 255)
+    String recipient;
+
+    @Column(name = "subject", nullable = false, length = 255)
+    String subject;
+
+    @Lob
+    @Column(name = "body_html", nullable = false, columnDefinition = "MEDIUMTEXT")
+    String bodyHtml;
+
+    @Column(name = "status", nullable = false, length = 20)
+    String status;             // NEW | SENDING | SENT | FAILED
+
+    @Column(name = "attempts", nullable = false)
+    Integer attempts;
+
+    @Column(name = "last_error", length = 500)
+    String lastError;
+
+    @Column(name = "next_attempt_at")
+    Instant nextAttemptAt;     // NEW: thời điểm được thử lại; SENDING: hết hạn lease
+
+    @Column(name = "created_at", nullable = false)
+    Instant createdAt;
+
+    @Column(name = "sent_at")
+    Instant sentAt;
+}
@@ -0,0 +1,39 @@
+package orderservice.order_service.mail;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+@Component
+@Slf4j
+public class EmailJobCleanupJob {
+
+    private static final int DELETE_BATCH_SIZE = 2000;
+
+    private final EmailJobRepository repo;
+
+    @Value("${email.queue.cleanup.retention-days:30}")
+    private int retentionDays;
+
+    public EmailJobCleanupJob(EmailJobRepository repo) {
+        this.repo = repo;
+    }
+
+    // Xoá theo batch 2000 các email đã gửi / lỗi hẳn quá hạn giữ lại (dòng cũ không còn cần cho chống gửi trùng)
+    @Scheduled(cron = "${email.queue.cleanup.cron:0 15 */6 * * *}")
+    @Transactional
+    public void cleanup() {
+        Instant threshold = Instant.now().minus(retentionDays, ChronoUnit.DAYS);
+        int total = 0, affected;
+        do {
+            affected = repo.deleteOldJobs(threshold, DELETE_BATCH_SIZE);
+            total += affected;
+        } while (affected == DELETE_BATCH_SIZE);
+        if (total > 0) log.info("EmailJobCleanupJob deleted {} rows", total);
+    }
+}
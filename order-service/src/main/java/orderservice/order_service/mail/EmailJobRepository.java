@@ -0,0 +1,56 @@
+package orderservice.order_service.mail;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface EmailJobRepository extends JpaRepository<EmailJob, Long> {
+
+    /**
+     * Thêm email vào hàng đợi, bỏ qua nếu (type, entity_id) đã có. Trả về 1 nếu thêm mới, 0 nếu trùng.
+     * Dùng INSERT IGNORE: với ON DUPLICATE KEY UPDATE id = id, Connector/J báo 1 dòng (useAffectedRows=false
+     * đếm dòng "found") nên bản trùng cũng bị coi là thêm mới.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO email_job (type, entity_id, recipient, subject, body_html, status, attempts, created_at) " +
+            "VALUES (:type, :entityId, :recipient, :subject, :bodyHtml, 'NEW', 0, :now)",
+            nativeQuery = true)
+    int enqueue(@Param("type") String type, @Param("entityId") Integer entityId,
+            @Param("recipient") String recipient, @Param("subject") String subject,
+            @Param("bodyHtml") String bodyHtml, @Param("now") Instant now);
+
+    /**
+     * Nhận một lô email đến hạn: NEW đến giờ thử lại, hoặc SENDING đã hết lease (instance gửi bị dừng giữa chừng).
+     * SKIP LOCKED để nhiều instance cùng chạy không lấy trùng dòng.
+     */
+    @Query(value = "SELECT * FROM email_job WHERE status IN ('NEW','SENDING') " +
+            "AND (next_attempt_at IS NULL OR next_attempt_at <= :now) " +
+            "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<EmailJob> claimBatch(@Param("now") Instant now, @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE EmailJob j SET j.status = 'SENT', j.sentAt = :now, j.lastError = NULL WHERE j.id IN :ids")
+    int markSent(@Param("ids") Collection<Long> ids, @Param("now") Instant now);
+
+    @Modifying
+    @Query("UPDATE EmailJob j SET j.status = :status, j.nextAttemptAt = :nextAttemptAt, j.lastError = :lastError " +
+            "WHERE j.id = :id")
+    int markAttemptFailed(@Param("id") Long id, @Param("status") String status,
+            @Param("nextAttemptAt") Instant nextAttemptAt, @Param("lastError") String lastError);
+
+    long countByStatus(String status);
+
+    @Modifying
+    @Query(value = "DELETE FROM email_job WHERE status IN ('SENT','FAILED') AND created_at < :threshold LIMIT :limit", nativeQuery = true)
+    int deleteOldJobs(@Param("threshold") Instant threshold, @Param("limit") int limit);
+}
@@ -0,0 +1,103 @@
+package orderservice.order_service.mail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Template HTML đã biên dịch sẵn: chuỗi nguồn được tách một lần thành các đoạn literal và placeholder,
+ * mỗi lần render chỉ còn nối chuỗi vào StringBuilder.
+ *
+ * {{name}} được escape HTML, {{{name}}} chèn nguyên văn (dùng cho đoạn HTML đã render sẵn).
+ * Placeholder không có giá trị được thay bằng chuỗi rỗng.
+ */
+public final class EmailTemplate {
+
+    private record Segment(String text, boolean placeholder, boolean raw) {
+    }
+
+    private final List<Segment> segments;
+    private final int literalLength;
+
+    private EmailTemplate(List<Segment> segments, int literalLength) {
+        this.segments = segments;
+        this.literalLength = literalLength;
+    }
+
+    public static EmailTemplate compile(String source) {
+        List<Segment> segments = new ArrayList<>();
+        int literalLength = 0;
+        int position = 0;
+        while (position < source.length()) {
+            int open = source.indexOf("{{", position);
+            if (open < 0) {
+                break;
+            }
+            boolean raw = source.startsWith("{{{", open);
+            String closeToken = raw ? "}}}" : "}}";
+            int nameStart = open + (raw ? 3 : 2);
+            int close = source.indexOf(closeToken, nameStart);
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed placeholder at offset " + open);
+            }
+            if (open > position) {
+                segments.add(new Segment(source.substring(position, open), false, false));
+                literalLength += open - position;
+            }
+            segments.add(new Segment(source.substring(nameStart, close).trim(), true, raw));
+            position = close + closeToken.length();
+        }
+        if (position < source.length()) {
+            segments.add(new Segment(source.substring(position), false, false));
+            literalLength += source.length() - position;
+        }
+        return new EmailTemplate(List.copyOf(segments), literalLength);
+    }
+
+    public String render(Map<String, ?> model) {
+        StringBuilder out = new StringBuilder(literalLength + 256);
+        renderTo(out, model);
+        return out.toString();
+    }
+
+    public void renderTo(StringBuilder out, Map<String, ?> model) {
+        for (Segment segment : segments) {
+            if (!segment.placeholder()) {
+                out.append(segment.text());
+                continue;
+            }
+            Object value = model.get(segment.text());
+            if (value == null) {
+                continue;
+            }
+            if (segment.raw()) {
+                out.append(value);
+            } else {
+                appendEscaped(out, value.toString());
+            }
+        }
+    }
+
+    public static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        StringBuilder out = new StringBuilder(value.length() + 16);
+        appendEscaped(out, value);
+        return out.toString();
+    }
+
+    private static void appendEscaped(StringBuilder out, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '<' -> out.append("&lt;");
+                case '>' -> out.append("&gt;");
+                case '&' -> out.append("&amp;");
+                case '"' -> out.append("&quot;");
+                case '\'' -> out.append("&#39;");
+                default -> out.append(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package orderservice.order_service.mail;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Các template email (resources/templates/email), đọc và biên dịch một lần lúc khởi động.
+ */
+@Component
+public class EmailTemplates {
+
+    private final EmailTemplate orderConfirmation;
+    private final EmailTemplate orderItemRow;
+    private final EmailTemplate reservationConfirmation;
+
+    public EmailTemplates() {
+        this.orderConfirmation = load("templates/email/order-confirmation.html");
+        this.orderItemRow = load("templates/email/order-item-row.html");
+        this.reservationConfirmation = load("templates/email/reservation-confirmation.html");
+    }
+
+    public EmailTemplate orderConfirmation() {
+        return orderConfirmation;
+    }
+
+    public EmailTemplate orderItemRow() {
+        return orderItemRow;
+    }
+
+    public EmailTemplate reservationConfirmation() {
+        return reservationConfirmation;
+    }
+
+    private static EmailTemplate load(String path) {
+        try (InputStream in = new ClassPathResource(path).getInputStream()) {
+            return EmailTemplate.compile(new String(in.readAllBytes(), StandardCharsets.UTF_8).strip());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load email template " + path, e);
+        }
+    }
+}
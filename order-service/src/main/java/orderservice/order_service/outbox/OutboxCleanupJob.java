@@ -0,0 +1,39 @@
+package orderservice.order_service.outbox;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+@Component
+@Slf4j
+public class OutboxCleanupJob {
+
+    private static final int DELETE_BATCH_SIZE = 2000;
+
+    private final OutboxEventRepository repo;
+
+    @Value("${outbox.cleanup.retention-days:7}")
+    private int retentionDays;
+
+    public OutboxCleanupJob(OutboxEventRepository repo) {
+        this.repo = repo;
+    }
+
+    // Chạy mỗi 3 giờ, xoá theo batch 2000 các sự kiện đã gửi / lỗi hẳn quá hạn giữ lại
+    @Scheduled(cron = "${outbox.cleanup.cron:0 0 */3 * * *}")
+    @Transactional
+    public void cleanup() {
+        Instant threshold = Instant.now().minus(retentionDays, ChronoUnit.DAYS);
+        int total = 0, affected;
+        do {
+            affected = repo.deleteOldEvents(threshold, DELETE_BATCH_SIZE);
+            total += affected;
+        } while (affected == DELETE_BATCH_SIZE);
+        if (total > 0) log.info("OutboxCleanupJob deleted {} rows", total);
+    }
+}
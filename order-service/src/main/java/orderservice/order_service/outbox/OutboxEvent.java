@@ -0,0 +1,66 @@
+package orderservice.order_service.outbox;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+import java.time.Instant;
+
+/**
+ * Sự kiện chờ gửi Kafka, được ghi trong cùng transaction với thay đổi nghiệp vụ (đơn hàng, đặt bàn).
+ * OutboxPublisher đọc các dòng NEW và gửi lên topic tương ứng.
+ */
+@Entity
+@Table(name = "outbox_event", indexes = {
+        @Index(name = "idx_outbox_event_status_created", columnList = "status, created_at"),
+        @Index(name = "idx_outbox_event_created", columnList = "created_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class OutboxEvent {
+
+    @Id
+    @Column(name = "id", length = 36)
+    String id;                 // UUID
+
+    @Column(name = "aggregate_type", nullable = false, length = 50)
+    String aggregateType;      // ORDER | RESERVATION | CACHE
+
+    @Column(name = "aggregate_id", length = 50)
+    String aggregateId;        // orderId / reservationId / branchId, dùng làm message key
+
+    @Column(name = "type", nullable = false, length = 100)
+    String type;               // OrderCreated, ReservationConfirmed, ...
+
+    @Column(name = "topic", nullable = false, length = 100)
+    String topic;
+
+    @Lob
+    @Column(name = "payload", nullable = false, columnDefinition = "LONGTEXT")
+    String payload;            // JSON
+
+    @Column(name = "status", nullable = false, length = 20)
+    String status;             // NEW | PUBLISHED | FAILED
+
+    @Column(name = "attempts", nullable = false)
+    Integer attempts;
+
+    @Column(name = "last_error", length = 500)
+    String lastError;
+
+    @Column(name = "next_attempt_at")
+    Instant nextAttemptAt;
+
+    @Column(name = "created_at", nullable = false)
+    Instant createdAt;
+
+    @Column(name = "published_at")
+    Instant publishedAt;
+}
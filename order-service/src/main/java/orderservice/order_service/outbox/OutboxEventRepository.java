@@ -0,0 +1,39 @@
+package orderservice.order_service.outbox;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, String> {
+
+    /**
+     * Nhận một lô sự kiện NEW đến hạn gửi. SKIP LOCKED để nhiều instance cùng chạy publisher
+     * không lấy trùng dòng; khóa giữ đến khi transaction của lô kết thúc.
+     */
+    @Query(value = "SELECT * FROM outbox_event WHERE status = 'NEW' " +
+            "AND (next_attempt_at IS NULL OR next_attempt_at <= :now) " +
+            "ORDER BY created_at LIMIT :limit FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<OutboxEvent> claimBatch(@Param("now") Instant now, @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.status = 'PUBLISHED', e.publishedAt = :now, " +
+            "e.attempts = e.attempts + 1, e.lastError = NULL WHERE e.id IN :ids")
+    int markPublished(@Param("ids") Collection<String> ids, @Param("now") Instant now);
+
+    long countByStatus(String status);
+
+    @Query("SELECT MIN(e.createdAt) FROM OutboxEvent e WHERE e.status = 'NEW'")
+    Instant findOldestPendingCreatedAt();
+
+    @Modifying
+    @Query(value = "DELETE FROM outbox_event WHERE status IN ('PUBLISHED','FAILED') AND created_at < :threshold LIMIT :limit", nativeQuery = true)
+    int deleteOldEvents(@Param("threshold") Instant threshold, @Param("limit") int limit);
+}
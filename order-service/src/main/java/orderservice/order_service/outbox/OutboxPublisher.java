@@ -0,0 +1,159 @@
+package orderservice.order_service.outbox;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Relay outbox → Kafka. Mỗi vòng nhận một lô dòng NEW (FOR UPDATE SKIP LOCKED), gửi cả lô bằng producer
+ * idempotent rồi flush, sau đó cập nhật trạng thái trong cùng transaction. Nhiều instance có thể chạy song song.
+ * Gửi thất bại thì thử lại với backoff tăng dần, quá max-attempts thì đánh dấu FAILED.
+ */
+@Component
+@Slf4j
+public class OutboxPublisher {
+
+    private static final int MAX_BATCHES_PER_RUN = 50;
+
+    private final OutboxEventRepository repo;
+    private final KafkaTemplate<String, String> kafka;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    // Giá trị cho gauge, cập nhật sau mỗi vòng để không query DB mỗi lần scrape metrics
+    private final AtomicLong pendingCount = new AtomicLong();
+    private final AtomicLong lagMillis = new AtomicLong();
+
+    @Value("${outbox.publisher.batch-size:200}")
+    private int batchSize;
+
+    @Value("${outbox.publisher.send-timeout-ms:10000}")
+    private long sendTimeoutMs;
+
+    @Value("${outbox.publisher.max-attempts:10}")
+    private int maxAttempts;
+
+    public OutboxPublisher(OutboxEventRepository repo,
+            @Qualifier("outboxKafkaTemplate") KafkaTemplate<String, String> kafka,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry) {
+        this.repo = repo;
+        this.kafka = kafka;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+
+        Gauge.builder("outbox.pending", pendingCount, AtomicLong::get)
+                .description("Số sự kiện outbox chưa gửi")
+                .register(meterRegistry);
+        Gauge.builder("outbox.lag.seconds", lagMillis, v -> v.get() / 1000.0)
+                .description("Tuổi của sự kiện outbox chưa gửi lâu nhất")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.publisher.fixed-delay-ms:500}")
+    public void publish() {
+        try {
+            // Xả liên tục khi còn lô đầy, có giới hạn để không chiếm scheduler quá lâu
+            for (int i = 0; i < MAX_BATCHES_PER_RUN; i++) {
+                Integer claimed = transactionTemplate.execute(status -> publishBatch());
+                if (claimed == null || claimed < batchSize) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.error("OutboxPublisher run failed", e);
+        } finally {
+            refreshLagMetrics();
+        }
+    }
+
+    private int publishBatch() {
+        Instant now = Instant.now();
+        List<OutboxEvent> batch = repo.claimBatch(now, batchSize);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        List<CompletableFuture<SendResult<String, String>>> sends = new ArrayList<>(batch.size());
+        for (OutboxEvent e : batch) {
+            try {
+                sends.add(kafka.send(e.getTopic(), e.getAggregateId(), e.getPayload()));
+            } catch (Exception ex) {
+                sends.add(CompletableFuture.failedFuture(ex));
+            }
+        }
+        // Đẩy ngay các record đang chờ linger thay vì đợi hết linger.ms
+        kafka.flush();
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        List<String> published = new ArrayList<>(batch.size());
+        int failed = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            OutboxEvent e = batch.get(i);
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                sends.get(i).get(remaining, TimeUnit.NANOSECONDS);
+                published.add(e.getId());
+            } catch (Exception ex) {
+                failed++;
+                markFailedAttempt(e, ex, now);
+            }
+        }
+
+        if (!published.isEmpty()) {
+            repo.markPublished(published, Instant.now());
+            meterRegistry.counter("outbox.published").increment(published.size());
+        }
+        if (failed > 0) {
+            meterRegistry.counter("outbox.publish.failures").increment(failed);
+            log.warn("OutboxPublisher: {} of {} events failed to publish, will retry", failed, batch.size());
+        } else {
+            log.debug("OutboxPublisher: published {} events", published.size());
+        }
+        return batch.size();
+    }
+
+    private void markFailedAttempt(OutboxEvent e, Exception ex, Instant now) {
+        Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+        int attempts = (e.getAttempts() == null ? 0 : e.getAttempts()) + 1;
+        e.setAttempts(attempts);
+        String message = cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+        e.setLastError(message.length() > 500 ? message.substring(0, 500) : message);
+        if (attempts >= maxAttempts) {
+            e.setStatus("FAILED");
+            log.error("Outbox event {} ({} → {}) failed after {} attempts: {}",
+                    e.getId(), e.getType(), e.getTopic(), attempts, message);
+        } else {
+            // Backoff 2^attempts giây, tối đa 5 phút
+            long backoffSeconds = Math.min(1L << Math.min(attempts, 8), 300L);
+            e.setNextAttemptAt(now.plus(Duration.ofSeconds(backoffSeconds)));
+        }
+        // Entity đang được quản lý trong transaction của lô, thay đổi được flush khi commit
+    }
+
+    private void refreshLagMetrics() {
+        try {
+            pendingCount.set(repo.countByStatus("NEW"));
+            Instant oldest = repo.findOldestPendingCreatedAt();
+            lagMillis.set(oldest == null ? 0 : Math.max(0, Duration.between(oldest, Instant.now()).toMillis()));
+        } catch (Exception e) {
+            log.debug("OutboxPublisher: failed to refresh lag metrics: {}", e.getMessage());
+        }
+    }
+}
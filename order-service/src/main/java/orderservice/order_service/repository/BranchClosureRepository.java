@@ -34,6 +34,9 @@ public interface BranchClosureRepository extends JpaRepository<BranchClosure, In
     @Query("SELECT bc FROM BranchClosure bc WHERE bc.branchId IS NULL AND bc.startDate <= :to AND bc.endDate >= :from")
     List<BranchClosure> findByBranchIdIsNullAndDateOverlap(@Param("from") LocalDate from, @Param("to") LocalDate to);
 
+    @Query("SELECT bc FROM BranchClosure bc WHERE bc.startDate <= :to AND bc.endDate >= :from")
+    List<BranchClosure> findByDateOverlap(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
     @Query("SELECT bc FROM BranchClosure bc WHERE bc.userId = :userId AND bc.startDate <= :to AND bc.endDate >= :from")
     List<BranchClosure> findByUserIdAndDateOverlap(@Param("userId") Integer userId, @Param("from") LocalDate from, @Param("to") LocalDate to);
 
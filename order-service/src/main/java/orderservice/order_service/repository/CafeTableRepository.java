@@ -1,7 +1,9 @@
 package orderservice.order_service.repository;
 
+import jakarta.persistence.LockModeType;
 import orderservice.order_service.entity.CafeTable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -24,4 +26,9 @@ public interface CafeTableRepository extends JpaRepository<CafeTable, Integer> {
         List<CafeTable> findAvailableTablesForReservation(@Param("branchId") Integer branchId,
                         @Param("partySize") Integer partySize, @Param("startTime") java.time.LocalDateTime startTime,
                         @Param("endTime") java.time.LocalDateTime endTime);
-}
\ No newline at end of file
+
+        // Khoá các bàn (SELECT ... FOR UPDATE) khi gán cho reservation, để hai instance không gán cùng bàn một lúc
+        @Lock(LockModeType.PESSIMISTIC_WRITE)
+        @Query("SELECT t FROM CafeTable t WHERE t.tableId IN :tableIds")
+        List<CafeTable> findAllByIdForUpdate(@Param("tableIds") List<Integer> tableIds);
+}
@@ -0,0 +1,76 @@
+package orderservice.order_service.repository;
+
+import orderservice.order_service.entity.CustomerDailyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface CustomerDailyRollupRepository extends JpaRepository<CustomerDailyRollup, Long> {
+
+    @Modifying
+    @Query(value = "INSERT INTO customer_daily_rollup (branch_id, business_date, customer_id, customer_name, order_count, completed_paid_count, total_amount, update_at) " +
+            "VALUES (:branchId, :businessDate, :customerId, :customerName, :orderDelta, :completedPaidDelta, :amountDelta, NOW()) " +
+            "ON DUPLICATE KEY UPDATE order_count = order_count + VALUES(order_count), " +
+            "completed_paid_count = completed_paid_count + VALUES(completed_paid_count), " +
+            "total_amount = total_amount + VALUES(total_amount), " +
+            "customer_name = COALESCE(customer_name, VALUES(customer_name)), update_at = NOW()",
+            nativeQuery = true)
+    int upsertDelta(@Param("branchId") Integer branchId,
+            @Param("businessDate") LocalDate businessDate,
+            @Param("customerId") Integer customerId,
+            @Param("customerName") String customerName,
+            @Param("orderDelta") long orderDelta,
+            @Param("completedPaidDelta") long completedPaidDelta,
+            @Param("amountDelta") BigDecimal amountDelta);
+
+    @Modifying
+    @Query(value = "DELETE FROM customer_daily_rollup WHERE business_date BETWEEN :fromDate AND :toDate", nativeQuery = true)
+    int deleteByBusinessDateRange(@Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate);
+
+    @Modifying
+    @Query(value = "INSERT INTO customer_daily_rollup (branch_id, business_date, customer_id, customer_name, order_count, completed_paid_count, total_amount, update_at) " +
+            "SELECT o.branch_id, o.business_date, o.customer_id, MAX(o.customer_name), COUNT(*), " +
+            "SUM(CASE WHEN o.status = 'COMPLETED' AND o.payment_status = 'PAID' THEN 1 ELSE 0 END), COALESCE(SUM(o.total_amount), 0), NOW() " +
+            "FROM orders o WHERE o.business_date BETWEEN :fromDate AND :toDate AND o.customer_id IS NOT NULL " +
+            "GROUP BY o.branch_id, o.business_date, o.customer_id",
+            nativeQuery = true)
+    int rebuildFromOrders(@Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate);
+
+    @Query("SELECT r FROM CustomerDailyRollup r WHERE r.branchId = :branchId AND r.businessDate = :date AND r.orderCount > 0")
+    List<CustomerDailyRollup> findByBranchIdAndBusinessDate(@Param("branchId") Integer branchId, @Param("date") LocalDate date);
+
+    @Query("SELECT r FROM CustomerDailyRollup r WHERE r.businessDate = :date AND r.orderCount > 0")
+    List<CustomerDailyRollup> findByBusinessDate(@Param("date") LocalDate date);
+
+    /**
+     * Số khách hàng đã đăng ký (ID != 0) từng đặt hàng tại chi nhánh trước ngày cho trước
+     */
+    @Query("SELECT COUNT(DISTINCT r.customerId) FROM CustomerDailyRollup r " +
+            "WHERE r.branchId = :branchId AND r.businessDate < :date AND r.customerId <> 0 AND r.orderCount > 0")
+    Long countRegisteredCustomersBefore(@Param("branchId") Integer branchId, @Param("date") LocalDate date);
+
+    @Query("SELECT COUNT(DISTINCT r.customerId) FROM CustomerDailyRollup r " +
+            "WHERE r.businessDate < :date AND r.customerId <> 0 AND r.orderCount > 0")
+    Long countRegisteredCustomersBeforeAllBranches(@Param("date") LocalDate date);
+
+    /**
+     * Trong danh sách customerIds, trả về những khách đã từng đặt hàng tại chi nhánh trước ngày cho trước
+     */
+    @Query("SELECT DISTINCT r.customerId FROM CustomerDailyRollup r " +
+            "WHERE r.branchId = :branchId AND r.businessDate < :date AND r.customerId IN :customerIds AND r.orderCount > 0")
+    List<Integer> findReturningCustomerIds(@Param("branchId") Integer branchId, @Param("date") LocalDate date,
+            @Param("customerIds") Collection<Integer> customerIds);
+
+    @Query("SELECT DISTINCT r.customerId FROM CustomerDailyRollup r " +
+            "WHERE r.businessDate < :date AND r.customerId IN :customerIds AND r.orderCount > 0")
+    List<Integer> findReturningCustomerIdsAllBranches(@Param("date") LocalDate date,
+            @Param("customerIds") Collection<Integer> customerIds);
+}
@@ -4,9 +4,11 @@ import orderservice.order_service.entity.Discount;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -17,6 +19,26 @@ public interface DiscountRepository extends JpaRepository<Discount, Integer> {
 
     Optional<Discount> findByCode(String code);
 
+    /**
+     * Tăng used_count thêm amount trong một câu UPDATE có điều kiện, chỉ thành công khi còn đủ lượt.
+     * Trả về 0 nếu mã không tồn tại hoặc đã hết lượt.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE discounts SET used_count = COALESCE(used_count, 0) + :amount, update_at = NOW() " +
+            "WHERE code = :code AND (usage_limit IS NULL OR usage_limit = 0 OR COALESCE(used_count, 0) + :amount <= usage_limit)",
+            nativeQuery = true)
+    int incrementUsedCount(@Param("code") String code, @Param("amount") int amount);
+
+    /**
+     * Trả lại các lượt đã giữ nhưng không dùng (chế độ flash, xem FlashDiscountCounter).
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE discounts SET used_count = GREATEST(COALESCE(used_count, 0) - :amount, 0), update_at = NOW() " +
+            "WHERE code = :code", nativeQuery = true)
+    int decrementUsedCount(@Param("code") String code, @Param("amount") int amount);
+
     List<Discount> findByActiveTrue();
 
     List<Discount> findByBranchIdAndActiveTrue(Integer branchId);
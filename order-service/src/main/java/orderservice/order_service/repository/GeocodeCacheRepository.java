@@ -0,0 +1,39 @@
+package orderservice.order_service.repository;
+
+import orderservice.order_service.entity.GeocodeCacheEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface GeocodeCacheRepository extends JpaRepository<GeocodeCacheEntry, Long> {
+
+    Optional<GeocodeCacheEntry> findByAddressKey(String addressKey);
+
+    /**
+     * Ghi (hoặc ghi đè) kết quả geocoding của một địa chỉ; nhiều request cùng địa chỉ không bị lỗi trùng khóa.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO geocode_cache (address_key, latitude, longitude, resolved, expires_at, update_at) " +
+            "VALUES (:addressKey, :latitude, :longitude, :resolved, :expiresAt, NOW()) " +
+            "ON DUPLICATE KEY UPDATE latitude = VALUES(latitude), longitude = VALUES(longitude), " +
+            "resolved = VALUES(resolved), expires_at = VALUES(expires_at), update_at = NOW()",
+            nativeQuery = true)
+    int upsert(@Param("addressKey") String addressKey,
+            @Param("latitude") Double latitude,
+            @Param("longitude") Double longitude,
+            @Param("resolved") boolean resolved,
+            @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM GeocodeCacheEntry g WHERE g.expiresAt < :cutoff")
+    int deleteExpired(@Param("cutoff") LocalDateTime cutoff);
+}
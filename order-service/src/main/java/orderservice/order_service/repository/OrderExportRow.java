@@ -0,0 +1,34 @@
+package orderservice.order_service.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Một dòng export: thông tin đơn kèm một dòng sản phẩm (các cột item null nếu đơn không có sản phẩm).
+ * Là DTO projection nên Hibernate không giữ entity trong persistence context khi stream.
+ */
+public record OrderExportRow(
+        Integer orderId,
+        LocalDate businessDate,
+        LocalDateTime orderDate,
+        Integer branchId,
+        String orderType,
+        String status,
+        String paymentMethod,
+        String paymentStatus,
+        Integer customerId,
+        String customerName,
+        Integer staffId,
+        BigDecimal subtotal,
+        BigDecimal discount,
+        BigDecimal vat,
+        BigDecimal totalAmount,
+        String discountCode,
+        Integer productId,
+        Integer productDetailId,
+        Integer sizeId,
+        BigDecimal quantity,
+        BigDecimal unitPrice,
+        BigDecimal lineTotal) {
+}
@@ -4,10 +4,13 @@ import orderservice.order_service.entity.OrderItem;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface OrderItemRepository extends JpaRepository<OrderItem, Integer> {
 
     List<OrderItem> findByOrderOrderId(Integer orderId);
+
+    List<OrderItem> findByOrderOrderIdIn(Collection<Integer> orderIds);
 }
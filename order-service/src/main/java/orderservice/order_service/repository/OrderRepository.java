@@ -1,8 +1,13 @@
 package orderservice.order_service.repository;
 
+import jakarta.persistence.QueryHint;
 import orderservice.order_service.entity.Order;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -10,14 +15,20 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface OrderRepository extends JpaRepository<Order, Integer> {
+public interface OrderRepository extends JpaRepository<Order, Integer>, JpaSpecificationExecutor<Order> {
 
     List<Order> findByCustomerIdOrderByOrderDateDesc(Integer customerId);
 
     List<Order> findByBranchIdOrderByOrderDateDesc(Integer branchId);
 
+    // Chi tiết đơn: lấy đơn cùng các dòng sản phẩm trong một query
+    @EntityGraph(attributePaths = "orderItems")
+    Optional<Order> findWithItemsByOrderId(Integer orderId);
+
     List<Order> findByStatusOrderByOrderDateDesc(String status);
 
     @Query("SELECT o FROM Order o WHERE o.customerId = :customerId AND o.status = :status ORDER BY o.orderDate DESC")
@@ -39,39 +50,39 @@ public interface OrderRepository extends JpaRepository<Order, Integer> {
             @Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
 
     /**
-     * Tính tổng doanh thu theo ngày (convert sang giờ Việt Nam UTC+7)
+     * Tính tổng doanh thu theo ngày kinh doanh (business_date, giờ Việt Nam UTC+7)
      */
-    @Query(value = "SELECT COALESCE(SUM(o.total_amount), 0) FROM orders o WHERE o.branch_id = :branchId AND DATE(DATE_ADD(o.create_at, INTERVAL 7 HOUR)) = :date AND o.status = 'COMPLETED'", nativeQuery = true)
+    @Query(value = "SELECT COALESCE(SUM(o.total_amount), 0) FROM orders o WHERE o.branch_id = :branchId AND o.business_date = :date AND o.status = 'COMPLETED'", nativeQuery = true)
     BigDecimal getTotalRevenueByBranchAndDate(@Param("branchId") Integer branchId, @Param("date") LocalDate date);
 
     /**
-     * Đếm số đơn hàng theo ngày (convert sang giờ Việt Nam UTC+7)
+     * Đếm số đơn hàng theo ngày kinh doanh (business_date, giờ Việt Nam UTC+7)
      */
-    @Query(value = "SELECT COUNT(*) FROM orders o WHERE o.branch_id = :branchId AND DATE(DATE_ADD(o.create_at, INTERVAL 7 HOUR)) = :date AND o.status = 'COMPLETED'", nativeQuery = true)
+    @Query(value = "SELECT COUNT(*) FROM orders o WHERE o.branch_id = :branchId AND o.business_date = :date AND o.status = 'COMPLETED'", nativeQuery = true)
     Long countOrdersByBranchAndDate(@Param("branchId") Integer branchId, @Param("date") LocalDate date);
 
     @Query("SELECT COUNT(DISTINCT o.customerId) FROM Order o WHERE o.branchId = :branchId AND DATE(o.createAt) = :date AND o.customerId IS NOT NULL")
     Long countDistinctCustomersByBranchAndDate(@Param("branchId") Integer branchId, @Param("date") LocalDate date);
 
-    // Get hour directly from database - convert to Vietnam timezone (UTC+7)
-    @Query(value = "SELECT HOUR(DATE_ADD(o.create_at, INTERVAL 7 HOUR)) as hour, o.total_amount, o.status, o.payment_status FROM orders o WHERE DATE(DATE_ADD(o.create_at, INTERVAL 7 HOUR)) = :date AND o.branch_id = :branchId", nativeQuery = true)
+    // Giờ kinh doanh (Vietnam timezone UTC+7) đã lưu sẵn trong business_hour
+    @Query(value = "SELECT o.business_hour as hour, o.total_amount, o.status, o.payment_status FROM orders o WHERE o.branch_id = :branchId AND o.business_date = :date", nativeQuery = true)
     List<Object[]> findOrderHoursByBranchAndDate(@Param("branchId") Integer branchId, @Param("date") LocalDate date);
     
     /**
      * Đếm số đơn hàng theo giờ trong ngày (chỉ tính các đơn có status = 'COMPLETED')
-     * Convert sang giờ Việt Nam (UTC+7)
+     * Theo giờ kinh doanh (business_hour, giờ Việt Nam UTC+7): đọc hoàn toàn từ idx_orders_branch_business_date
      */
-    @Query(value = "SELECT HOUR(DATE_ADD(o.create_at, INTERVAL 7 HOUR)) as hour, COUNT(*) as order_count FROM orders o WHERE DATE(DATE_ADD(o.create_at, INTERVAL 7 HOUR)) = :date AND o.branch_id = :branchId AND o.status = 'COMPLETED' GROUP BY HOUR(DATE_ADD(o.create_at, INTERVAL 7 HOUR)) ORDER BY hour", nativeQuery = true)
+    @Query(value = "SELECT o.business_hour as hour, COUNT(*) as order_count FROM orders o WHERE o.branch_id = :branchId AND o.business_date = :date AND o.status = 'COMPLETED' GROUP BY o.business_hour ORDER BY hour", nativeQuery = true)
     List<Object[]> countOrdersByHourAndBranchAndDate(@Param("branchId") Integer branchId, @Param("date") LocalDate date);
     
     /**
      * Lấy doanh thu theo ngày trong khoảng thời gian
      * Tính tổng các total_amount của các đơn hàng có status = 'COMPLETED' trong ngày
-     * Convert sang giờ Việt Nam (UTC+7)
+     * Theo ngày kinh doanh (business_date, giờ Việt Nam UTC+7), startDate tính cả, endDate không tính
      */
-    @Query(value = "SELECT DATE(DATE_ADD(o.create_at, INTERVAL 7 HOUR)) as date, SUM(o.total_amount) as revenue, COUNT(*) as order_count FROM orders o WHERE o.branch_id = :branchId AND DATE_ADD(o.create_at, INTERVAL 7 HOUR) >= :startDate AND DATE_ADD(o.create_at, INTERVAL 7 HOUR) < :endDate AND o.status = 'COMPLETED' GROUP BY DATE(DATE_ADD(o.create_at, INTERVAL 7 HOUR)) ORDER BY date", nativeQuery = true)
+    @Query(value = "SELECT o.business_date as date, SUM(o.total_amount) as revenue, COUNT(*) as order_count FROM orders o WHERE o.branch_id = :branchId AND o.business_date >= :startDate AND o.business_date < :endDate AND o.status = 'COMPLETED' GROUP BY o.business_date ORDER BY date", nativeQuery = true)
     List<Object[]> getDailyRevenueByBranchAndDateRange(@Param("branchId") Integer branchId, 
-            @Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+            @Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
     
     /**
      * Đếm tổng số đơn hàng trong khoảng thời gian
@@ -88,4 +99,41 @@ public interface OrderRepository extends JpaRepository<Order, Integer> {
 
     @Query("SELECT o FROM Order o WHERE o.status IN :statuses")
     List<Order> findByStatusIn(@Param("statuses") List<String> statuses);
+
+    /**
+     * ID các đơn ở một trong các trạng thái cho trước, tạo trước / sau mốc cutoff
+     * (dùng cho auto-cancel, chạy trên index status + create_at).
+     */
+    @Query("SELECT o.orderId FROM Order o WHERE o.status IN :statuses AND o.createAt < :cutoff ORDER BY o.orderId")
+    List<Integer> findIdsByStatusInAndCreateAtBefore(@Param("statuses") List<String> statuses,
+            @Param("cutoff") LocalDateTime cutoff);
+
+    @Query("SELECT o.orderId FROM Order o WHERE o.status IN :statuses AND o.createAt > :cutoff ORDER BY o.orderId")
+    List<Integer> findIdsByStatusInAndCreateAtAfter(@Param("statuses") List<String> statuses,
+            @Param("cutoff") LocalDateTime cutoff);
+
+    @Query("SELECT MIN(o.createAt) FROM Order o")
+    LocalDateTime findEarliestCreateAt();
+
+    String EXPORT_SELECT = "SELECT new orderservice.order_service.repository.OrderExportRow(" +
+            "o.orderId, o.businessDate, o.orderDate, o.branchId, o.orderType, o.status, o.paymentMethod, " +
+            "o.paymentStatus, o.customerId, o.customerName, o.staffId, o.subtotal, o.discount, o.vat, " +
+            "o.totalAmount, o.discountCode, i.productId, i.productDetailId, i.sizeId, i.quantity, " +
+            "i.unitPrice, i.totalPrice) FROM Order o LEFT JOIN o.orderItems i ";
+
+    /**
+     * Export đơn + dòng sản phẩm theo ngày kinh doanh [fromDate, toDate], các dòng của cùng một đơn đứng liền nhau.
+     * Fetch size Integer.MIN_VALUE: MySQL driver trả từng dòng thay vì đọc cả result set vào bộ nhớ.
+     * Phải được gọi trong transaction và đóng Stream sau khi dùng.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query(EXPORT_SELECT + "WHERE o.businessDate >= :fromDate AND o.businessDate <= :toDate " +
+            "ORDER BY o.orderId, i.orderItemId")
+    Stream<OrderExportRow> streamExportRows(@Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query(EXPORT_SELECT + "WHERE o.branchId = :branchId AND o.businessDate >= :fromDate AND o.businessDate <= :toDate " +
+            "ORDER BY o.orderId, i.orderItemId")
+    Stream<OrderExportRow> streamExportRowsByBranch(@Param("branchId") Integer branchId,
+            @Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate);
 }
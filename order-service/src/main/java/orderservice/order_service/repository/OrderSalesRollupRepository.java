@@ -0,0 +1,82 @@
+package orderservice.order_service.repository;
+
+import orderservice.order_service.entity.OrderSalesRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface OrderSalesRollupRepository extends JpaRepository<OrderSalesRollup, Long> {
+
+    /**
+     * Cộng dồn (hoặc trừ khi delta âm) vào một bucket, tạo mới nếu chưa có.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO order_sales_rollup (branch_id, business_date, business_hour, status, payment_status, payment_method, order_count, total_amount, update_at) " +
+            "VALUES (:branchId, :businessDate, :businessHour, :status, :paymentStatus, :paymentMethod, :orderDelta, :amountDelta, NOW()) " +
+            "ON DUPLICATE KEY UPDATE order_count = order_count + VALUES(order_count), total_amount = total_amount + VALUES(total_amount), update_at = NOW()",
+            nativeQuery = true)
+    int upsertDelta(@Param("branchId") Integer branchId,
+            @Param("businessDate") LocalDate businessDate,
+            @Param("businessHour") Integer businessHour,
+            @Param("status") String status,
+            @Param("paymentStatus") String paymentStatus,
+            @Param("paymentMethod") String paymentMethod,
+            @Param("orderDelta") long orderDelta,
+            @Param("amountDelta") BigDecimal amountDelta);
+
+    @Modifying
+    @Query(value = "DELETE FROM order_sales_rollup WHERE business_date BETWEEN :fromDate AND :toDate", nativeQuery = true)
+    int deleteByBusinessDateRange(@Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate);
+
+    /**
+     * Tính lại rollup từ bảng orders cho các ngày kinh doanh [fromDate, toDate],
+     * theo business_date / business_hour đã lưu trên đơn.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO order_sales_rollup (branch_id, business_date, business_hour, status, payment_status, payment_method, order_count, total_amount, update_at) " +
+            "SELECT o.branch_id, o.business_date, o.business_hour, " +
+            "o.status, COALESCE(o.payment_status, ''), COALESCE(o.payment_method, ''), COUNT(*), COALESCE(SUM(o.total_amount), 0), NOW() " +
+            "FROM orders o WHERE o.business_date BETWEEN :fromDate AND :toDate " +
+            "GROUP BY o.branch_id, o.business_date, o.business_hour, " +
+            "o.status, COALESCE(o.payment_status, ''), COALESCE(o.payment_method, '')",
+            nativeQuery = true)
+    int rebuildFromOrders(@Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate);
+
+    @Query("SELECT r FROM OrderSalesRollup r WHERE r.branchId = :branchId AND r.businessDate = :date AND r.orderCount > 0")
+    List<OrderSalesRollup> findByBranchIdAndBusinessDate(@Param("branchId") Integer branchId, @Param("date") LocalDate date);
+
+    @Query("SELECT r FROM OrderSalesRollup r WHERE r.businessDate = :date AND r.orderCount > 0")
+    List<OrderSalesRollup> findByBusinessDate(@Param("date") LocalDate date);
+
+    /**
+     * Tổng hợp theo chi nhánh trong khoảng ngày: [branchId, status, paymentStatus, orderCount, totalAmount]
+     */
+    @Query("SELECT r.branchId, r.status, r.paymentStatus, SUM(r.orderCount), SUM(r.totalAmount) FROM OrderSalesRollup r " +
+            "WHERE r.businessDate BETWEEN :fromDate AND :toDate " +
+            "GROUP BY r.branchId, r.status, r.paymentStatus")
+    List<Object[]> summarizeByBranch(@Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate);
+
+    /**
+     * Tổng hợp theo chi nhánh và ngày: [branchId, businessDate, status, paymentStatus, orderCount, totalAmount]
+     */
+    @Query("SELECT r.branchId, r.businessDate, r.status, r.paymentStatus, SUM(r.orderCount), SUM(r.totalAmount) FROM OrderSalesRollup r " +
+            "WHERE r.businessDate BETWEEN :fromDate AND :toDate " +
+            "GROUP BY r.branchId, r.businessDate, r.status, r.paymentStatus")
+    List<Object[]> summarizeByBranchAndDate(@Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate);
+
+    /**
+     * Tổng hợp theo ngày cho một chi nhánh: [branchId, businessDate, status, paymentStatus, orderCount, totalAmount]
+     */
+    @Query("SELECT r.branchId, r.businessDate, r.status, r.paymentStatus, SUM(r.orderCount), SUM(r.totalAmount) FROM OrderSalesRollup r " +
+            "WHERE r.branchId = :branchId AND r.businessDate BETWEEN :fromDate AND :toDate " +
+            "GROUP BY r.branchId, r.businessDate, r.status, r.paymentStatus")
+    List<Object[]> summarizeByDateForBranch(@Param("branchId") Integer branchId,
+            @Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate);
+}
@@ -0,0 +1,57 @@
+package orderservice.order_service.repository;
+
+import orderservice.order_service.entity.Order;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+
+/**
+ * Các điều kiện lọc cho danh sách đơn hàng (GET /orders), đẩy xuống DB để dùng các index
+ * (branch_id, create_at, status), (branch_id, order_date, order_id), (branch_id, order_type, order_date).
+ */
+public final class OrderSpecifications {
+
+    private OrderSpecifications() {
+    }
+
+    public static Specification<Order> hasBranch(Integer branchId) {
+        return (root, query, cb) -> branchId == null ? null : cb.equal(root.get("branchId"), branchId);
+    }
+
+    public static Specification<Order> hasStatus(String status) {
+        // Cột status dùng collation không phân biệt hoa thường, so sánh trực tiếp để giữ được index
+        return (root, query, cb) -> status == null || status.isBlank() ? null
+                : cb.equal(root.get("status"), status.trim().toUpperCase());
+    }
+
+    public static Specification<Order> hasStaff(Integer staffId) {
+        return (root, query, cb) -> staffId == null ? null : cb.equal(root.get("staffId"), staffId);
+    }
+
+    public static Specification<Order> hasOrderType(String orderType) {
+        return (root, query, cb) -> orderType == null || orderType.isBlank() ? null
+                : cb.equal(root.get("orderType"), orderType.trim().toLowerCase());
+    }
+
+    public static Specification<Order> createdFrom(LocalDateTime from) {
+        return (root, query, cb) -> from == null ? null : cb.greaterThanOrEqualTo(root.get("createAt"), from);
+    }
+
+    public static Specification<Order> createdBefore(LocalDateTime to) {
+        return (root, query, cb) -> to == null ? null : cb.lessThan(root.get("createAt"), to);
+    }
+
+    /**
+     * Keyset pagination: các đơn đứng sau (orderDate, orderId) theo thứ tự orderDate DESC, orderId DESC.
+     */
+    public static Specification<Order> after(LocalDateTime orderDate, Integer orderId) {
+        return (root, query, cb) -> {
+            if (orderDate == null || orderId == null) {
+                return null;
+            }
+            return cb.or(
+                    cb.lessThan(root.get("orderDate"), orderDate),
+                    cb.and(cb.equal(root.get("orderDate"), orderDate), cb.lessThan(root.get("orderId"), orderId)));
+        };
+    }
+}
@@ -0,0 +1,57 @@
+package orderservice.order_service.repository;
+
+import orderservice.order_service.entity.OrderSummary;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OrderSummaryRepository extends JpaRepository<OrderSummary, Integer> {
+
+    // Keyset pagination theo (order_date, order_id) giảm dần: trang đầu và các trang sau cursor
+    @Query("SELECT s FROM OrderSummary s WHERE s.customerId = :customerId ORDER BY s.orderDate DESC, s.orderId DESC")
+    List<OrderSummary> findFirstPageByCustomer(@Param("customerId") Integer customerId, Pageable pageable);
+
+    @Query("SELECT s FROM OrderSummary s WHERE s.customerId = :customerId " +
+            "AND (s.orderDate < :orderDate OR (s.orderDate = :orderDate AND s.orderId < :orderId)) " +
+            "ORDER BY s.orderDate DESC, s.orderId DESC")
+    List<OrderSummary> findPageByCustomerAfter(@Param("customerId") Integer customerId,
+            @Param("orderDate") LocalDateTime orderDate, @Param("orderId") Integer orderId, Pageable pageable);
+
+    @Query("SELECT s FROM OrderSummary s WHERE s.branchId = :branchId ORDER BY s.orderDate DESC, s.orderId DESC")
+    List<OrderSummary> findFirstPageByBranch(@Param("branchId") Integer branchId, Pageable pageable);
+
+    @Query("SELECT s FROM OrderSummary s WHERE s.branchId = :branchId " +
+            "AND (s.orderDate < :orderDate OR (s.orderDate = :orderDate AND s.orderId < :orderId)) " +
+            "ORDER BY s.orderDate DESC, s.orderId DESC")
+    List<OrderSummary> findPageByBranchAfter(@Param("branchId") Integer branchId,
+            @Param("orderDate") LocalDateTime orderDate, @Param("orderId") Integer orderId, Pageable pageable);
+
+    /**
+     * Dựng tóm tắt cho các đơn chưa có dòng trong order_summaries (backfill lần đầu).
+     * Sản phẩm đầu tiên = dòng order_details có id nhỏ nhất.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO order_summaries (order_id, customer_id, customer_name, branch_id, status, payment_status, " +
+            "payment_method, order_type, total_amount, item_count, total_quantity, first_item_product_id, " +
+            "first_item_quantity, order_date, update_at) " +
+            "SELECT o.order_id, o.customer_id, o.customer_name, o.branch_id, o.status, o.payment_status, o.payment_method, " +
+            "o.order_type, o.total_amount, COUNT(d.id), COALESCE(SUM(d.qty), 0), " +
+            "(SELECT f.product_id FROM order_details f WHERE f.order_id = o.order_id ORDER BY f.id LIMIT 1), " +
+            "(SELECT f.qty FROM order_details f WHERE f.order_id = o.order_id ORDER BY f.id LIMIT 1), " +
+            "o.order_date, NOW() " +
+            "FROM orders o LEFT JOIN order_details d ON d.order_id = o.order_id " +
+            "LEFT JOIN order_summaries s ON s.order_id = o.order_id " +
+            "WHERE s.order_id IS NULL " +
+            "GROUP BY o.order_id",
+            nativeQuery = true)
+    int backfillMissing();
+}
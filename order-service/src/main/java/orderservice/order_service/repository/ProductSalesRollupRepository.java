@@ -0,0 +1,78 @@
+package orderservice.order_service.repository;
+
+import orderservice.order_service.entity.ProductSalesRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface ProductSalesRollupRepository extends JpaRepository<ProductSalesRollup, Long> {
+
+    @Modifying
+    @Query(value = "INSERT INTO product_sales_rollup (branch_id, business_date, product_id, status, quantity, revenue, order_count, update_at) " +
+            "VALUES (:branchId, :businessDate, :productId, :status, :quantityDelta, :revenueDelta, :orderDelta, NOW()) " +
+            "ON DUPLICATE KEY UPDATE quantity = quantity + VALUES(quantity), revenue = revenue + VALUES(revenue), " +
+            "order_count = order_count + VALUES(order_count), update_at = NOW()",
+            nativeQuery = true)
+    int upsertDelta(@Param("branchId") Integer branchId,
+            @Param("businessDate") LocalDate businessDate,
+            @Param("productId") Integer productId,
+            @Param("status") String status,
+            @Param("quantityDelta") BigDecimal quantityDelta,
+            @Param("revenueDelta") BigDecimal revenueDelta,
+            @Param("orderDelta") long orderDelta);
+
+    @Modifying
+    @Query(value = "DELETE FROM product_sales_rollup WHERE business_date BETWEEN :fromDate AND :toDate", nativeQuery = true)
+    int deleteByBusinessDateRange(@Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate);
+
+    /**
+     * Tính lại từ order_details JOIN orders cho các ngày kinh doanh [fromDate, toDate] theo business_date của đơn.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO product_sales_rollup (branch_id, business_date, product_id, status, quantity, revenue, order_count, update_at) " +
+            "SELECT o.branch_id, o.business_date, d.product_id, o.status, " +
+            "SUM(d.qty), SUM(d.line_total), COUNT(DISTINCT o.order_id), NOW() " +
+            "FROM order_details d JOIN orders o ON o.order_id = d.order_id " +
+            "WHERE o.business_date BETWEEN :fromDate AND :toDate " +
+            "GROUP BY o.branch_id, o.business_date, d.product_id, o.status",
+            nativeQuery = true)
+    int rebuildFromOrders(@Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate);
+
+    /**
+     * [productId, quantity, revenue] của một chi nhánh trong ngày (mọi trạng thái đơn)
+     */
+    @Query("SELECT p.productId, SUM(p.quantity), SUM(p.revenue) FROM ProductSalesRollup p " +
+            "WHERE p.branchId = :branchId AND p.businessDate = :date " +
+            "GROUP BY p.productId HAVING SUM(p.orderCount) > 0")
+    List<Object[]> summarizeProductsByBranchAndDate(@Param("branchId") Integer branchId, @Param("date") LocalDate date);
+
+    /**
+     * [branchId, productId, quantity, revenue] của tất cả chi nhánh trong ngày (mọi trạng thái đơn)
+     */
+    @Query("SELECT p.branchId, p.productId, SUM(p.quantity), SUM(p.revenue) FROM ProductSalesRollup p " +
+            "WHERE p.businessDate = :date " +
+            "GROUP BY p.branchId, p.productId HAVING SUM(p.orderCount) > 0")
+    List<Object[]> summarizeProductsByDate(@Param("date") LocalDate date);
+
+    /**
+     * [productId, quantity, revenue, orderCount] của các đơn theo trạng thái trong khoảng ngày
+     */
+    @Query("SELECT p.productId, SUM(p.quantity), SUM(p.revenue), SUM(p.orderCount) FROM ProductSalesRollup p " +
+            "WHERE p.status = :status AND p.businessDate BETWEEN :fromDate AND :toDate " +
+            "GROUP BY p.productId HAVING SUM(p.orderCount) > 0")
+    List<Object[]> summarizeProductsByStatus(@Param("status") String status,
+            @Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate);
+
+    @Query("SELECT p.productId, SUM(p.quantity), SUM(p.revenue), SUM(p.orderCount) FROM ProductSalesRollup p " +
+            "WHERE p.branchId = :branchId AND p.status = :status AND p.businessDate BETWEEN :fromDate AND :toDate " +
+            "GROUP BY p.productId HAVING SUM(p.orderCount) > 0")
+    List<Object[]> summarizeProductsByBranchAndStatus(@Param("branchId") Integer branchId, @Param("status") String status,
+            @Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate);
+}
@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -43,4 +44,17 @@ public interface ReservationTableRepository extends JpaRepository<ReservationTab
 
     // Count assignments by table
     long countByTableId(Integer tableId);
+
+    // Slot bàn của các reservation đang giữ bàn (branchId, tableId, reservedAt), dùng cho TableAvailabilityIndex
+    @Query("SELECT r.branchId, rt.tableId, r.reservedAt FROM ReservationTable rt JOIN Reservation r ON rt.reservationId = r.reservationId WHERE r.branchId = :branchId AND r.status IN ('CONFIRMED', 'CHECKED_IN') AND r.reservedAt >= :from")
+    List<Object[]> findActiveSlotsByBranch(@Param("branchId") Integer branchId, @Param("from") LocalDateTime from);
+
+    @Query("SELECT r.branchId, rt.tableId, r.reservedAt FROM ReservationTable rt JOIN Reservation r ON rt.reservationId = r.reservationId WHERE r.status IN ('CONFIRMED', 'CHECKED_IN') AND r.reservedAt >= :from")
+    List<Object[]> findActiveSlots(@Param("from") LocalDateTime from);
+
+    // Bàn trong tableIds đang giữ cho reservation khác có slot trùng (reservedAt trong [from, to]); kiểm tra trên DB khi gán bàn
+    @Query("SELECT DISTINCT rt.tableId FROM ReservationTable rt JOIN Reservation r ON rt.reservationId = r.reservationId WHERE rt.tableId IN :tableIds AND rt.reservationId <> :reservationId AND r.status IN ('CONFIRMED', 'CHECKED_IN') AND r.reservedAt BETWEEN :from AND :to")
+    List<Integer> findConflictingTableIds(@Param("tableIds") List<Integer> tableIds,
+            @Param("reservationId") Integer reservationId, @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to);
 }
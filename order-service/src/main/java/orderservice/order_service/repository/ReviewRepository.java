@@ -9,6 +9,7 @@ import org.springframework.data.repository.query.Param;
 import orderservice.order_service.entity.Review;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface ReviewRepository extends JpaRepository<Review, Integer> {
@@ -58,4 +59,16 @@ public interface ReviewRepository extends JpaRepository<Review, Integer> {
     // Analytics query: Get reviews by branch and date
     @Query("SELECT r FROM Review r WHERE r.branchId = :branchId AND DATE(r.createAt) = :date AND r.isDeleted = false")
     List<Review> findByBranchIdAndDate(@Param("branchId") Integer branchId, @Param("date") LocalDate date);
+
+    // Analytics query: số review theo (chi nhánh, số sao) trong khoảng [from, to) - một query cho tất cả chi nhánh
+    @Query("SELECT r.branchId, r.rating, COUNT(r) FROM Review r " +
+           "WHERE r.createAt >= :from AND r.createAt < :to AND r.isDeleted = false AND r.branchId IS NOT NULL " +
+           "GROUP BY r.branchId, r.rating")
+    List<Object[]> countByBranchAndRating(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // Analytics query: review mới nhất trong khoảng [from, to) của mọi chi nhánh
+    @Query("SELECT r FROM Review r " +
+           "WHERE r.createAt >= :from AND r.createAt < :to AND r.isDeleted = false AND r.branchId IS NOT NULL " +
+           "ORDER BY r.createAt DESC")
+    List<Review> findRecentBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to, Pageable pageable);
 }
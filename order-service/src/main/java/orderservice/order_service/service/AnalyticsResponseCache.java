@@ -0,0 +1,223 @@
+package orderservice.order_service.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import orderservice.order_service.dto.ApiResponse;
+import orderservice.order_service.events.AnalyticsDataChangedEvent;
+import orderservice.order_service.events.BranchDataChangedEvent;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.DigestUtils;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Cache response của các API /analytics/metrics, khóa theo (endpoint, chi nhánh, khoảng ngày, tham số khác).
+ *
+ * - Khoảng ngày đã qua hoàn toàn được coi là bất biến: chỉ hết hạn sau immutable-ttl-seconds (giới hạn bộ nhớ)
+ *   hoặc khi có sự kiện sửa dữ liệu của chính ngày đó (đơn cũ đổi trạng thái, reconcile hằng đêm).
+ * - Khoảng có chứa hôm nay (hoặc không giới hạn) bị xoá khi rollup / review của chi nhánh trong ngày thay đổi
+ *   (AnalyticsDataChangedEvent, sau commit). Các instance khác không nhận được sự kiện này nên entry
+ *   của hôm nay còn có TTL ngắn (today-ttl-seconds) làm lưới an toàn.
+ * - Mỗi entry mang ETag (md5 của JSON response) để client gửi If-None-Match và nhận 304.
+ * - Các request đồng thời cùng khóa chỉ tính một lần, các request còn lại chờ kết quả đó.
+ *   Lỗi không được cache.
+ */
+@Service
+@Slf4j
+public class AnalyticsResponseCache {
+
+    public record Key(String endpoint, Integer branchId, LocalDate fromDate, LocalDate toDate, String params) {
+    }
+
+    public record Cached<T>(ApiResponse<T> body, String etag) {
+    }
+
+    private static final class Entry {
+        final Key key;
+        final CompletableFuture<Cached<?>> value = new CompletableFuture<>();
+        final long createdAtMillis = System.currentTimeMillis();
+        final long expiresAtMillis;
+
+        Entry(Key key, long ttlMillis) {
+            this.key = key;
+            this.expiresAtMillis = createdAtMillis + ttlMillis;
+        }
+
+        boolean isExpired(long now) {
+            return now >= expiresAtMillis;
+        }
+    }
+
+    private final ObjectMapper objectMapper;
+    private final SalesRollupService salesRollupService;
+    private final MeterRegistry meterRegistry;
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+
+    @Value("${analytics.response-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${analytics.response-cache.max-entries:5000}")
+    private int maxEntries;
+
+    @Value("${analytics.response-cache.today-ttl-seconds:60}")
+    private long todayTtlSeconds;
+
+    @Value("${analytics.response-cache.immutable-ttl-seconds:86400}")
+    private long immutableTtlSeconds;
+
+    public AnalyticsResponseCache(@Qualifier("kafkaObjectMapper") ObjectMapper objectMapper,
+            SalesRollupService salesRollupService,
+            MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.salesRollupService = salesRollupService;
+        this.meterRegistry = meterRegistry;
+        meterRegistry.gaugeMapSize("analytics.response-cache.size", Tags.empty(), entries);
+    }
+
+    /**
+     * Response đã cache cho khóa, hoặc gọi loader để tính (một lần cho mọi request đồng thời cùng khóa).
+     * Lỗi của loader được ném lại cho mọi request đang chờ.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Cached<T> get(Key key, Supplier<ApiResponse<T>> loader) {
+        if (!enabled) {
+            ApiResponse<T> body = loader.get();
+            return new Cached<>(body, etagOf(body));
+        }
+
+        long now = System.currentTimeMillis();
+        Entry mine = new Entry(key, ttlMillis(key));
+        Entry entry = entries.compute(key, (k, existing) ->
+                existing == null || (existing.value.isDone() && existing.isExpired(now)) ? mine : existing);
+        if (entry != mine) {
+            meterRegistry.counter("analytics.response-cache.lookups", "result", "hit").increment();
+            return (Cached<T>) join(entry);
+        }
+
+        meterRegistry.counter("analytics.response-cache.lookups", "result", "miss").increment();
+        try {
+            ApiResponse<T> body = loader.get();
+            Cached<T> cached = new Cached<>(body, etagOf(body));
+            mine.value.complete(cached);
+            evictIfFull();
+            return cached;
+        } catch (RuntimeException e) {
+            entries.remove(key, mine);
+            mine.value.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private static Cached<?> join(Entry entry) {
+        try {
+            return entry.value.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private long ttlMillis(Key key) {
+        LocalDate today = salesRollupService.currentBusinessDate();
+        boolean includesToday = key.toDate() == null || !key.toDate().isBefore(today);
+        return (includesToday ? todayTtlSeconds : immutableTtlSeconds) * 1000L;
+    }
+
+    private String etagOf(ApiResponse<?> body) {
+        try {
+            return "\"" + DigestUtils.md5DigestAsHex(objectMapper.writeValueAsBytes(body)) + "\"";
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize analytics response", e);
+        }
+    }
+
+    /**
+     * If-None-Match có chứa ETag hiện tại (hoặc "*") không. Chấp nhận cả ETag yếu (W/"...").
+     */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals("*") || value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Xoá các response của chi nhánh (và của "tất cả chi nhánh") có khoảng ngày giao với [fromDate, toDate].
+     */
+    public void invalidate(Integer branchId, LocalDate fromDate, LocalDate toDate) {
+        entries.values().removeIf(entry -> affects(entry.key, branchId, fromDate, toDate));
+    }
+
+    private static boolean affects(Key key, Integer branchId, LocalDate fromDate, LocalDate toDate) {
+        if (branchId != null && key.branchId() != null && !branchId.equals(key.branchId())) {
+            return false;
+        }
+        boolean startsAfter = toDate != null && key.fromDate() != null && key.fromDate().isAfter(toDate);
+        boolean endsBefore = fromDate != null && key.toDate() != null && key.toDate().isBefore(fromDate);
+        return !startsAfter && !endsBefore;
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    private void evictIfFull() {
+        if (entries.size() <= maxEntries) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.value.isDone() && entry.isExpired(now));
+        // Vẫn đầy: bỏ các entry cũ nhất
+        int overflow = entries.size() - maxEntries;
+        if (overflow > 0) {
+            entries.values().stream()
+                    .sorted(Comparator.comparingLong(entry -> entry.createdAtMillis))
+                    .limit(overflow)
+                    .toList()
+                    .forEach(entry -> entries.remove(entry.key, entry));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.response-cache.purge-interval-ms:300000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.value.isDone() && entry.isExpired(now));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAnalyticsDataChanged(AnalyticsDataChangedEvent event) {
+        log.debug("[AnalyticsResponseCache] Analytics data changed (branch {}, {} - {}, {})",
+                event.getBranchId(), event.getFromDate(), event.getToDate(), event.getReason());
+        invalidate(event.getBranchId(), event.getFromDate(), event.getToDate());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBranchDataChanged(BranchDataChangedEvent event) {
+        // Tên chi nhánh, lịch nghỉ... có trong các response "tất cả chi nhánh"
+        invalidate(event.getBranchId(), null, null);
+    }
+}
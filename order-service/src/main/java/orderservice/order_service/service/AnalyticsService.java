@@ -6,10 +6,11 @@ import lombok.extern.slf4j.Slf4j;
 import orderservice.order_service.client.CatalogServiceClient;
 import orderservice.order_service.dto.ApiResponse;
 import orderservice.order_service.dto.response.*;
-import orderservice.order_service.entity.Order;
-import orderservice.order_service.entity.OrderItem;
+import orderservice.order_service.entity.CustomerDailyRollup;
+import orderservice.order_service.entity.OrderSalesRollup;
 import orderservice.order_service.entity.Review;
 import orderservice.order_service.repository.*;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
@@ -17,7 +18,6 @@ import java.math.RoundingMode;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.time.format.TextStyle;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -28,49 +28,29 @@ import java.util.stream.Collectors;
 @FieldDefaults(level = lombok.AccessLevel.PRIVATE, makeFinal = true)
 public class AnalyticsService {
 
-    OrderRepository orderRepository;
-    OrderItemRepository orderItemRepository;
     ReviewRepository reviewRepository;
     CatalogServiceClient catalogServiceClient;
     BranchRepository branchRepository;
+    OrderSalesRollupRepository orderSalesRollupRepository;
+    CustomerDailyRollupRepository customerDailyRollupRepository;
+    ProductSalesRollupRepository productSalesRollupRepository;
+    SalesRollupService salesRollupService;
 
     public RevenueMetricsResponse getRevenueMetrics(Integer branchId, LocalDate date) {
         try {
-            LocalDateTime startOfDay = date.atStartOfDay();
-            LocalDateTime endOfDay = date.atTime(LocalTime.MAX);
+            // Đọc từ bảng rollup theo giờ (giờ Việt Nam) thay vì quét lại toàn bộ đơn trong ngày
+            List<OrderSalesRollup> rollups = orderSalesRollupRepository.findByBranchIdAndBusinessDate(branchId, date);
 
-            List<Order> orders = orderRepository.findByBranchIdAndDateRange(branchId, startOfDay, endOfDay);
-
-            // Get hours directly from database to avoid timezone conversion issues
-            List<Object[]> orderHoursData = orderRepository.findOrderHoursByBranchAndDate(branchId, date);
-            
-            // Create maps for hour-based calculations using database hours
+            SalesTotals totals = new SalesTotals();
             Map<Integer, Integer> ordersByHour = new HashMap<>();
             Map<Integer, BigDecimal> revenueByHourMap = new HashMap<>();
-            BigDecimal totalRevenue = BigDecimal.ZERO;
-            int completedPaidOrderCount = 0; // Count only completed and paid orders for avgOrderValue
-            
-            for (Object[] row : orderHoursData) {
-                Integer hour = ((Number) row[0]).intValue();
-                BigDecimal totalAmount = (BigDecimal) row[1];
-                String status = (String) row[2];
-                String paymentStatus = (String) row[3];
-                
-                // Count orders by hour
-                ordersByHour.put(hour, ordersByHour.getOrDefault(hour, 0) + 1);
-                
-                // Calculate revenue for completed and paid orders
-                if ("COMPLETED".equals(status) && "PAID".equals(paymentStatus)) {
-                    revenueByHourMap.put(hour, revenueByHourMap.getOrDefault(hour, BigDecimal.ZERO).add(totalAmount));
-                    totalRevenue = totalRevenue.add(totalAmount);
-                    completedPaidOrderCount++;
-                }
-            }
+            Map<String, BigDecimal> revenueByPaymentMethod = new HashMap<>();
+            accumulateHourly(rollups, totals, ordersByHour, revenueByHourMap, revenueByPaymentMethod);
 
-            int orderCount = orders.size();
+            BigDecimal totalRevenue = totals.completedPaidRevenue;
             // Calculate avgOrderValue only on completed and paid orders
-            BigDecimal avgOrderValue = completedPaidOrderCount > 0
-                    ? totalRevenue.divide(BigDecimal.valueOf(completedPaidOrderCount), 2, RoundingMode.HALF_UP)
+            BigDecimal avgOrderValue = totals.completedPaidOrders > 0
+                    ? totalRevenue.divide(BigDecimal.valueOf(totals.completedPaidOrders), 2, RoundingMode.HALF_UP)
                     : BigDecimal.ZERO;
 
             // Calculate peak hour
@@ -81,12 +61,10 @@ public class AnalyticsService {
 
             // Build revenue by hour list - only include hours with data
             List<RevenueMetricsResponse.HourlyRevenue> revenueByHour = new ArrayList<>();
-            // Get all hours that have either revenue or orders
             Set<Integer> hoursWithData = new HashSet<>();
             hoursWithData.addAll(ordersByHour.keySet());
             hoursWithData.addAll(revenueByHourMap.keySet());
-            
-            // Sort hours and add only those with data
+
             hoursWithData.stream()
                     .sorted()
                     .forEach(hour -> {
@@ -101,38 +79,17 @@ public class AnalyticsService {
                                     .build());
                         }
                     });
-            
-            // Filter completed and paid orders for payment method calculation
-            List<Order> completedOrders = orders.stream()
-                    .filter(o -> "COMPLETED".equals(o.getStatus()) && "PAID".equals(o.getPaymentStatus()))
-                    .collect(Collectors.toList());
-
-            // Revenue by payment method
-            Map<String, BigDecimal> revenueByPaymentMethod = completedOrders.stream()
-                    .filter(o -> o.getPaymentMethod() != null)
-                    .collect(Collectors.groupingBy(
-                            Order::getPaymentMethod,
-                            Collectors.mapping(
-                                    Order::getTotalAmount,
-                                    Collectors.reducing(BigDecimal.ZERO, BigDecimal::add)
-                            )
-                    ));
-
-            // Order status counts
-            long completedCount = orders.stream().filter(o -> "COMPLETED".equals(o.getStatus())).count();
-            long cancelledCount = orders.stream().filter(o -> "CANCELLED".equals(o.getStatus())).count();
-            long pendingCount = orders.stream().filter(o -> "PENDING".equals(o.getStatus()) || "CREATED".equals(o.getStatus())).count();
 
             return RevenueMetricsResponse.builder()
                     .totalRevenue(totalRevenue)
-                    .orderCount(orderCount)
+                    .orderCount((int) totals.orderCount)
                     .avgOrderValue(avgOrderValue)
                     .peakHour(peakHour)
                     .revenueByHour(revenueByHour)
                     .revenueByPaymentMethod(revenueByPaymentMethod)
-                    .completedOrders((int) completedCount)
-                    .cancelledOrders((int) cancelledCount)
-                    .pendingOrders((int) pendingCount)
+                    .completedOrders((int) totals.completedOrders)
+                    .cancelledOrders((int) totals.cancelledOrders)
+                    .pendingOrders((int) totals.pendingOrders)
                     .build();
 
         } catch (Exception e) {
@@ -153,89 +110,32 @@ public class AnalyticsService {
 
     public CustomerMetricsResponse getCustomerMetrics(Integer branchId, LocalDate date) {
         try {
-            LocalDateTime startOfDay = date.atStartOfDay();
-            LocalDateTime endOfDay = date.atTime(LocalTime.MAX);
-
-            List<Order> orders = orderRepository.findByBranchIdAndDateRange(branchId, startOfDay, endOfDay);
-
-            // Get unique registered customers (ID != 0)
-            Set<Integer> registeredCustomerIds = orders.stream()
-                    .filter(o -> o.getCustomerId() != null && o.getCustomerId() != 0)
-                    .map(Order::getCustomerId)
-                    .collect(Collectors.toSet());
-
-            // Count walk-in customers (ID=0) - each order counts as 1
-            long walkInOrderCount = orders.stream()
-                    .filter(o -> o.getCustomerId() != null && o.getCustomerId() == 0)
-                    .count();
+            CustomerDayStats dayStats = new CustomerDayStats();
+            customerDailyRollupRepository.findByBranchIdAndBusinessDate(branchId, date).forEach(dayStats::add);
 
             // customerCount = registered customers + walk-in orders (each walk-in order counts)
-            int customerCount = registeredCustomerIds.size() + (int) walkInOrderCount;
-            
-            // Get unique registered customers with completed and paid orders
-            Set<Integer> registeredUniqueCustomerIds = orders.stream()
-                    .filter(o -> o.getCustomerId() != null 
-                            && o.getCustomerId() != 0
-                            && "COMPLETED".equals(o.getStatus()) 
-                            && "PAID".equals(o.getPaymentStatus()))
-                    .map(Order::getCustomerId)
-                    .collect(Collectors.toSet());
-            
-            // Count walk-in orders with completed and paid status
-            long walkInCompletedPaidCount = orders.stream()
-                    .filter(o -> o.getCustomerId() != null 
-                            && o.getCustomerId() == 0
-                            && "COMPLETED".equals(o.getStatus()) 
-                            && "PAID".equals(o.getPaymentStatus()))
-                    .count();
-            
-            // uniqueCustomers = registered customers with completed+paid + walk-in completed+paid orders
-            int uniqueCustomers = registeredUniqueCustomerIds.size() + (int) walkInCompletedPaidCount;
+            int customerCount = dayStats.registeredCustomerIds.size() + (int) dayStats.walkInOrderCount;
 
-            // Get registered customers who ordered before this date (repeat customers)
-            // Use startOfDay (not minusDays) to include all orders before the current date
-            List<Order> previousOrders = orderRepository.findByBranchIdAndDateRange(branchId,
-                    LocalDateTime.of(2020, 1, 1, 0, 0), startOfDay);
+            // uniqueCustomers = registered customers with completed+paid + walk-in completed+paid orders
+            int uniqueCustomers = dayStats.registeredCompletedPaidCustomerIds.size() + (int) dayStats.walkInCompletedPaidCount;
 
-            Set<Integer> previousRegisteredCustomerIds = previousOrders.stream()
-                    .filter(o -> o.getCustomerId() != null && o.getCustomerId() != 0)
-                    .map(Order::getCustomerId)
-                    .collect(Collectors.toSet());
+            // Registered customers who ordered at this branch before this date (repeat customers)
+            Long previousCustomerCount = customerDailyRollupRepository.countRegisteredCustomersBefore(branchId, date);
+            long previousRegisteredCustomers = previousCustomerCount != null ? previousCustomerCount : 0L;
 
             // repeatCustomers: only registered customers (exclude walk-in ID=0)
-            Set<Integer> repeatCustomerIds = registeredCustomerIds.stream()
-                    .filter(previousRegisteredCustomerIds::contains)
-                    .collect(Collectors.toSet());
-
-            int repeatCustomers = repeatCustomerIds.size();
+            int repeatCustomers = dayStats.registeredCustomerIds.isEmpty() ? 0
+                    : customerDailyRollupRepository.findReturningCustomerIds(branchId, date, dayStats.registeredCustomerIds).size();
             // newCustomers: only registered customers (exclude walk-in ID=0)
-            int newCustomers = registeredCustomerIds.size() - repeatCustomers;
+            int newCustomers = dayStats.registeredCustomerIds.size() - repeatCustomers;
 
             // Calculate retention rate (only for registered customers)
-            BigDecimal retentionRate = previousRegisteredCustomerIds.size() > 0
+            BigDecimal retentionRate = previousRegisteredCustomers > 0
                     ? BigDecimal.valueOf(repeatCustomers)
-                            .divide(BigDecimal.valueOf(previousRegisteredCustomerIds.size()), 4, RoundingMode.HALF_UP)
+                            .divide(BigDecimal.valueOf(previousRegisteredCustomers), 4, RoundingMode.HALF_UP)
                     : BigDecimal.ZERO;
 
-            // Top customers
-            Map<Integer, CustomerOrderStats> customerStats = orders.stream()
-                    .filter(o -> o.getCustomerId() != null)
-                    .collect(Collectors.groupingBy(
-                            Order::getCustomerId,
-                            Collectors.collectingAndThen(
-                                    Collectors.toList(),
-                                    orderList -> {
-                                        int count = orderList.size();
-                                        BigDecimal total = orderList.stream()
-                                                .map(Order::getTotalAmount)
-                                                .reduce(BigDecimal.ZERO, BigDecimal::add);
-                                        String name = orderList.get(0).getCustomerName();
-                                        return new CustomerOrderStats(count, total, name);
-                                    }
-                            )
-                    ));
-
-            List<CustomerMetricsResponse.TopCustomer> topCustomers = customerStats.entrySet().stream()
+            List<CustomerMetricsResponse.TopCustomer> topCustomers = dayStats.customerStats.entrySet().stream()
                     .sorted((e1, e2) -> e2.getValue().total.compareTo(e1.getValue().total))
                     .limit(10)
                     .map(entry -> CustomerMetricsResponse.TopCustomer.builder()
@@ -270,13 +170,13 @@ public class AnalyticsService {
 
     public ProductMetricsResponse getProductMetrics(Integer branchId, LocalDate date) {
         try {
-            LocalDateTime startOfDay = date.atStartOfDay();
-            LocalDateTime endOfDay = date.atTime(LocalTime.MAX);
-
-            List<Order> orders = orderRepository.findByBranchIdAndDateRange(branchId, startOfDay, endOfDay);
-            List<Integer> orderIds = orders.stream().map(Order::getOrderId).collect(Collectors.toList());
+            // Tổng hợp theo sản phẩm từ product_sales_rollup (O(products)), không nạp order_details vào heap
+            Map<Integer, ProductSalesStats> productStats = new HashMap<>();
+            for (Object[] row : productSalesRollupRepository.summarizeProductsByBranchAndDate(branchId, date)) {
+                productStats.put((Integer) row[0], new ProductSalesStats(toBigDecimal(row[1]), toBigDecimal(row[2])));
+            }
 
-            if (orderIds.isEmpty()) {
+            if (productStats.isEmpty()) {
                 return ProductMetricsResponse.builder()
                         .uniqueProductsSold(0)
                         .topSellingProductId(null)
@@ -287,35 +187,10 @@ public class AnalyticsService {
                         .build();
             }
 
-            List<OrderItem> orderItems = orderItemRepository.findAll().stream()
-                    .filter(item -> orderIds.contains(item.getOrder().getOrderId()))
-                    .collect(Collectors.toList());
-
             // Unique products
-            Set<Integer> uniqueProductIds = orderItems.stream()
-                    .map(OrderItem::getProductId)
-                    .collect(Collectors.toSet());
-
+            Set<Integer> uniqueProductIds = productStats.keySet();
             int uniqueProductsSold = uniqueProductIds.size();
 
-            // Product sales statistics
-            Map<Integer, ProductSalesStats> productStats = orderItems.stream()
-                    .collect(Collectors.groupingBy(
-                            OrderItem::getProductId,
-                            Collectors.collectingAndThen(
-                                    Collectors.toList(),
-                                    itemList -> {
-                                        BigDecimal quantity = itemList.stream()
-                                                .map(OrderItem::getQuantity)
-                                                .reduce(BigDecimal.ZERO, BigDecimal::add);
-                                        BigDecimal revenue = itemList.stream()
-                                                .map(OrderItem::getTotalPrice)
-                                                .reduce(BigDecimal.ZERO, BigDecimal::add);
-                                        return new ProductSalesStats(quantity, revenue);
-                                    }
-                            )
-                    ));
-
             // Get product information from catalog service
             Map<Integer, ProductResponse> productMap = new HashMap<>();
             try {
@@ -343,8 +218,8 @@ public class AnalyticsService {
             }
 
             // Product diversity score (simplified: unique products / total items)
-            BigDecimal totalItems = orderItems.stream()
-                    .map(OrderItem::getQuantity)
+            BigDecimal totalItems = productStats.values().stream()
+                    .map(s -> s.quantity)
                     .reduce(BigDecimal.ZERO, BigDecimal::add);
 
             BigDecimal diversityScore = totalItems.compareTo(BigDecimal.ZERO) > 0
@@ -444,7 +319,7 @@ public class AnalyticsService {
             long negativeReviews = reviews.stream().filter(r -> r.getRating() < 3).count();
 
             // Review rate (reviews / orders)
-            long orderCount = orderRepository.countOrdersByBranchAndDate(branchId, date);
+            long orderCount = countCompletedOrders(orderSalesRollupRepository.findByBranchIdAndBusinessDate(branchId, date));
             BigDecimal reviewRate = orderCount > 0
                     ? BigDecimal.valueOf(totalReviews)
                             .divide(BigDecimal.valueOf(orderCount), 4, RoundingMode.HALF_UP)
@@ -493,27 +368,22 @@ public class AnalyticsService {
     public BranchDailyStatsResponse getBranchDailyStats(Integer branchId, LocalDate date) {
         try {
             log.info("Getting daily stats for branch {} on date {}", branchId, date);
-            
-            // 1. Tổng số đơn hàng trong ngày (chỉ tính các đơn có status = 'COMPLETED')
-            Long totalOrders = orderRepository.countOrdersByBranchAndDate(branchId, date);
-            
-            // 2. Tổng doanh thu trong ngày (chỉ tính các đơn có status = 'COMPLETED')
-            BigDecimal totalRevenue = orderRepository.getTotalRevenueByBranchAndDate(branchId, date);
-            if (totalRevenue == null) {
-                totalRevenue = BigDecimal.ZERO;
-            }
-            
-            // 3. Danh sách số đơn hàng theo giờ
-            List<Object[]> hourlyData = orderRepository.countOrdersByHourAndBranchAndDate(branchId, date);
-            
-            // Tạo map để dễ lookup
+
+            // Chỉ tính các đơn có status = 'COMPLETED', đọc từ bảng rollup theo giờ
+            List<OrderSalesRollup> rollups = orderSalesRollupRepository.findByBranchIdAndBusinessDate(branchId, date);
+
+            Long totalOrders = 0L;
+            BigDecimal totalRevenue = BigDecimal.ZERO;
             Map<Integer, Long> hourlyOrderCountMap = new HashMap<>();
-            for (Object[] row : hourlyData) {
-                Integer hour = ((Number) row[0]).intValue();
-                Long count = ((Number) row[1]).longValue();
-                hourlyOrderCountMap.put(hour, count);
+            for (OrderSalesRollup rollup : rollups) {
+                if (!"COMPLETED".equals(rollup.getStatus())) {
+                    continue;
+                }
+                totalOrders += rollup.getOrderCount();
+                totalRevenue = totalRevenue.add(rollup.getTotalAmount());
+                hourlyOrderCountMap.merge(rollup.getBusinessHour(), rollup.getOrderCount(), Long::sum);
             }
-            
+
             // Tạo danh sách đầy đủ 24 giờ (0-23), nếu không có dữ liệu thì = 0
             List<BranchDailyStatsResponse.HourlyOrderCount> hourlyOrderCounts = new ArrayList<>();
             for (int hour = 0; hour < 24; hour++) {
@@ -523,7 +393,7 @@ public class AnalyticsService {
                         .orderCount(count)
                         .build());
             }
-            
+
             return BranchDailyStatsResponse.builder()
                     .branchId(branchId)
                     .date(date.toString())
@@ -531,7 +401,7 @@ public class AnalyticsService {
                     .totalRevenue(totalRevenue)
                     .hourlyOrderCounts(hourlyOrderCounts)
                     .build();
-                    
+
         } catch (Exception e) {
             log.error("Error getting daily stats for branch {} on date {}", branchId, date, e);
             return BranchDailyStatsResponse.builder()
@@ -548,66 +418,50 @@ public class AnalyticsService {
      * Lấy doanh thu theo tuần hiện tại của chi nhánh
      */
     public BranchWeeklyRevenueResponse getBranchWeeklyRevenue(Integer branchId) {
+        // Tính toán tuần hiện tại (từ thứ 2 đến chủ nhật) - theo giờ Việt Nam
+        LocalDate today = salesRollupService.currentBusinessDate();
+        LocalDate weekStart = today.with(DayOfWeek.MONDAY);
+        LocalDate weekEnd = weekStart.plusDays(6); // Chủ nhật
         try {
             log.info("Getting weekly revenue for branch {}", branchId);
-            
-            // Tính toán tuần hiện tại (từ thứ 2 đến chủ nhật) - theo giờ Việt Nam
-            LocalDate today = LocalDate.now();
-            LocalDate weekStart = today.with(DayOfWeek.MONDAY);
-            LocalDate weekEnd = weekStart.plusDays(6); // Chủ nhật
-            
-            // Convert từ giờ Việt Nam sang UTC để query (trừ 7 giờ)
-            LocalDateTime startDateTime = weekStart.atStartOfDay().minusHours(7);
-            LocalDateTime endDateTime = weekEnd.atTime(LocalTime.MAX).plusSeconds(1).minusHours(7); // Bao gồm cả ngày cuối
-            
-            // Lấy doanh thu theo ngày trong tuần (query sẽ convert lại sang giờ Việt Nam)
-            List<Object[]> dailyRevenueData = orderRepository.getDailyRevenueByBranchAndDateRange(
-                    branchId, startDateTime, endDateTime);
-            
-            // Tạo map để dễ lookup
+
+            // Doanh thu theo ngày trong tuần (chỉ tính các đơn COMPLETED)
             Map<LocalDate, DailyRevenueData> dailyRevenueMap = new HashMap<>();
-            for (Object[] row : dailyRevenueData) {
-                LocalDate date;
-                if (row[0] instanceof java.sql.Date) {
-                    date = ((java.sql.Date) row[0]).toLocalDate();
-                } else if (row[0] instanceof java.time.LocalDate) {
-                    date = (LocalDate) row[0];
-                } else {
-                    // Fallback: parse từ string hoặc timestamp
-                    date = LocalDate.parse(row[0].toString());
+            for (Object[] row : orderSalesRollupRepository.summarizeByDateForBranch(branchId, weekStart, weekEnd)) {
+                if (!"COMPLETED".equals(row[2])) {
+                    continue;
                 }
-                BigDecimal revenue = (BigDecimal) row[1];
-                if (revenue == null) {
-                    revenue = BigDecimal.ZERO;
-                }
-                Long orderCount = ((Number) row[2]).longValue();
-                dailyRevenueMap.put(date, new DailyRevenueData(revenue, orderCount));
+                LocalDate date = (LocalDate) row[1];
+                DailyRevenueData data = dailyRevenueMap.computeIfAbsent(date,
+                        d -> new DailyRevenueData(BigDecimal.ZERO, 0L));
+                data.orderCount += ((Number) row[4]).longValue();
+                data.revenue = data.revenue.add(toBigDecimal(row[5]));
             }
-            
+
             // Tạo danh sách đầy đủ 7 ngày trong tuần
             List<BranchWeeklyRevenueResponse.DailyRevenue> dailyRevenues = new ArrayList<>();
             BigDecimal totalRevenue = BigDecimal.ZERO;
             Long totalOrders = 0L;
-            
+
             for (int i = 0; i < 7; i++) {
                 LocalDate currentDate = weekStart.plusDays(i);
-                DailyRevenueData data = dailyRevenueMap.getOrDefault(currentDate, 
+                DailyRevenueData data = dailyRevenueMap.getOrDefault(currentDate,
                         new DailyRevenueData(BigDecimal.ZERO, 0L));
-                
+
                 DayOfWeek dayOfWeek = currentDate.getDayOfWeek();
                 String dayName = dayOfWeek.getDisplayName(TextStyle.FULL, Locale.ENGLISH);
-                
+
                 dailyRevenues.add(BranchWeeklyRevenueResponse.DailyRevenue.builder()
                         .date(currentDate.toString())
                         .dayOfWeek(dayName)
                         .revenue(data.revenue)
                         .orderCount(data.orderCount)
                         .build());
-                
+
                 totalRevenue = totalRevenue.add(data.revenue);
                 totalOrders += data.orderCount;
             }
-            
+
             return BranchWeeklyRevenueResponse.builder()
                     .branchId(branchId)
                     .weekStartDate(weekStart.toString())
@@ -616,13 +470,9 @@ public class AnalyticsService {
                     .totalOrders(totalOrders)
                     .dailyRevenues(dailyRevenues)
                     .build();
-                    
+
         } catch (Exception e) {
             log.error("Error getting weekly revenue for branch {}", branchId, e);
-            LocalDate today = LocalDate.now();
-            LocalDate weekStart = today.with(DayOfWeek.MONDAY);
-            LocalDate weekEnd = weekStart.plusDays(6);
-            
             return BranchWeeklyRevenueResponse.builder()
                     .branchId(branchId)
                     .weekStartDate(weekStart.toString())
@@ -639,69 +489,34 @@ public class AnalyticsService {
     public AllBranchesRevenueMetricsResponse getAllBranchesRevenueMetrics(LocalDate date) {
         try {
             List<orderservice.order_service.entity.Branch> branches = branchRepository.findAll();
-            LocalDateTime startOfDay = date.atStartOfDay();
-            LocalDateTime endOfDay = date.atTime(LocalTime.MAX);
 
-            BigDecimal totalRevenue = BigDecimal.ZERO;
-            int totalOrderCount = 0;
-            int totalCompletedPaidOrderCount = 0;
+            // Một query cho tất cả chi nhánh, gom nhóm theo chi nhánh trong bộ nhớ (O(branches x hours))
+            Map<Integer, List<OrderSalesRollup>> rollupsByBranch = orderSalesRollupRepository.findByBusinessDate(date).stream()
+                    .collect(Collectors.groupingBy(OrderSalesRollup::getBranchId));
+
+            SalesTotals totals = new SalesTotals();
             Map<Integer, Integer> ordersByHour = new HashMap<>();
             Map<Integer, BigDecimal> revenueByHourMap = new HashMap<>();
             Map<String, BigDecimal> revenueByPaymentMethod = new HashMap<>();
-            int totalCompletedOrders = 0;
-            int totalCancelledOrders = 0;
-            int totalPendingOrders = 0;
             List<AllBranchesRevenueMetricsResponse.BranchRevenue> branchRevenues = new ArrayList<>();
 
             for (orderservice.order_service.entity.Branch branch : branches) {
-                List<Order> branchOrders = orderRepository.findByBranchIdAndDateRange(branch.getBranchId(), startOfDay, endOfDay);
-                List<Object[]> orderHoursData = orderRepository.findOrderHoursByBranchAndDate(branch.getBranchId(), date);
-
-                BigDecimal branchRevenue = BigDecimal.ZERO;
-
-                for (Object[] row : orderHoursData) {
-                    Integer hour = ((Number) row[0]).intValue();
-                    BigDecimal totalAmount = (BigDecimal) row[1];
-                    String status = (String) row[2];
-                    String paymentStatus = (String) row[3];
-
-                    ordersByHour.put(hour, ordersByHour.getOrDefault(hour, 0) + 1);
-
-                    if ("COMPLETED".equals(status) && "PAID".equals(paymentStatus)) {
-                        revenueByHourMap.put(hour, revenueByHourMap.getOrDefault(hour, BigDecimal.ZERO).add(totalAmount));
-                        branchRevenue = branchRevenue.add(totalAmount);
-                        totalRevenue = totalRevenue.add(totalAmount);
-                        totalCompletedPaidOrderCount++;
-                    }
-                }
-
-                totalOrderCount += branchOrders.size();
-                totalCompletedOrders += branchOrders.stream().filter(o -> "COMPLETED".equals(o.getStatus())).count();
-                totalCancelledOrders += branchOrders.stream().filter(o -> "CANCELLED".equals(o.getStatus())).count();
-                totalPendingOrders += branchOrders.stream().filter(o -> "PENDING".equals(o.getStatus()) || "CREATED".equals(o.getStatus())).count();
-
-                List<Order> completedOrders = branchOrders.stream()
-                        .filter(o -> "COMPLETED".equals(o.getStatus()) && "PAID".equals(o.getPaymentStatus()))
-                        .collect(Collectors.toList());
-
-                completedOrders.forEach(o -> {
-                    if (o.getPaymentMethod() != null) {
-                        revenueByPaymentMethod.put(o.getPaymentMethod(),
-                                revenueByPaymentMethod.getOrDefault(o.getPaymentMethod(), BigDecimal.ZERO)
-                                        .add(o.getTotalAmount()));
-                    }
-                });
+                SalesTotals branchTotals = new SalesTotals();
+                accumulateHourly(rollupsByBranch.getOrDefault(branch.getBranchId(), List.of()),
+                        branchTotals, ordersByHour, revenueByHourMap, revenueByPaymentMethod);
+                totals.add(branchTotals);
 
                 branchRevenues.add(AllBranchesRevenueMetricsResponse.BranchRevenue.builder()
                         .branchId(branch.getBranchId())
                         .branchName(branch.getName())
-                        .revenue(branchRevenue)
-                        .orderCount(branchOrders.size())
+                        .revenue(branchTotals.completedPaidRevenue)
+                        .orderCount((int) branchTotals.orderCount)
                         .build());
             }
 
-            BigDecimal avgOrderValue = totalCompletedPaidOrderCount > 0
-                    ? totalRevenue.divide(BigDecimal.valueOf(totalCompletedPaidOrderCount), 2, RoundingMode.HALF_UP)
+            BigDecimal totalRevenue = totals.completedPaidRevenue;
+            BigDecimal avgOrderValue = totals.completedPaidOrders > 0
+                    ? totalRevenue.divide(BigDecimal.valueOf(totals.completedPaidOrders), 2, RoundingMode.HALF_UP)
                     : BigDecimal.ZERO;
 
             int peakHour = ordersByHour.entrySet().stream()
@@ -730,14 +545,14 @@ public class AnalyticsService {
 
             return AllBranchesRevenueMetricsResponse.builder()
                     .totalRevenue(totalRevenue)
-                    .totalOrderCount(totalOrderCount)
+                    .totalOrderCount((int) totals.orderCount)
                     .avgOrderValue(avgOrderValue)
                     .peakHour(peakHour)
                     .revenueByHour(revenueByHour)
                     .revenueByPaymentMethod(revenueByPaymentMethod)
-                    .completedOrders(totalCompletedOrders)
-                    .cancelledOrders(totalCancelledOrders)
-                    .pendingOrders(totalPendingOrders)
+                    .completedOrders((int) totals.completedOrders)
+                    .cancelledOrders((int) totals.cancelledOrders)
+                    .pendingOrders((int) totals.pendingOrders)
                     .branchRevenues(branchRevenues)
                     .build();
 
@@ -761,63 +576,44 @@ public class AnalyticsService {
     public AllBranchesCustomerMetricsResponse getAllBranchesCustomerMetrics(LocalDate date) {
         try {
             List<orderservice.order_service.entity.Branch> branches = branchRepository.findAll();
-            LocalDateTime startOfDay = date.atStartOfDay();
-            LocalDateTime endOfDay = date.atTime(LocalTime.MAX);
+
+            Map<Integer, CustomerDayStats> statsByBranch = new HashMap<>();
+            for (CustomerDailyRollup rollup : customerDailyRollupRepository.findByBusinessDate(date)) {
+                statsByBranch.computeIfAbsent(rollup.getBranchId(), id -> new CustomerDayStats()).add(rollup);
+            }
 
             Set<Integer> allRegisteredCustomerIds = new HashSet<>();
             Set<Integer> allRegisteredUniqueCustomerIds = new HashSet<>();
             long totalWalkInOrderCount = 0;
             long totalWalkInCompletedPaidCount = 0;
-            Set<Integer> allPreviousRegisteredCustomerIds = new HashSet<>();
             Map<Integer, CustomerOrderStats> allCustomerStats = new HashMap<>();
             List<AllBranchesCustomerMetricsResponse.BranchCustomerStats> branchCustomerStats = new ArrayList<>();
 
-            // Get previous customers across all branches
             for (orderservice.order_service.entity.Branch branch : branches) {
-                List<Order> previousOrders = orderRepository.findByBranchIdAndDateRange(branch.getBranchId(),
-                        LocalDateTime.of(2020, 1, 1, 0, 0), startOfDay);
-                previousOrders.stream()
-                        .filter(o -> o.getCustomerId() != null && o.getCustomerId() != 0)
-                        .forEach(o -> allPreviousRegisteredCustomerIds.add(o.getCustomerId()));
+                CustomerDayStats dayStats = statsByBranch.get(branch.getBranchId());
+                if (dayStats != null) {
+                    allRegisteredCustomerIds.addAll(dayStats.registeredCustomerIds);
+                }
             }
 
-            for (orderservice.order_service.entity.Branch branch : branches) {
-                List<Order> branchOrders = orderRepository.findByBranchIdAndDateRange(branch.getBranchId(), startOfDay, endOfDay);
+            // Previous customers across all branches
+            Long previousCustomerCount = customerDailyRollupRepository.countRegisteredCustomersBeforeAllBranches(date);
+            long allPreviousRegisteredCustomers = previousCustomerCount != null ? previousCustomerCount : 0L;
+            Set<Integer> returningCustomerIds = allRegisteredCustomerIds.isEmpty() ? Set.of()
+                    : new HashSet<>(customerDailyRollupRepository.findReturningCustomerIdsAllBranches(date, allRegisteredCustomerIds));
 
-                Set<Integer> registeredCustomerIds = branchOrders.stream()
-                        .filter(o -> o.getCustomerId() != null && o.getCustomerId() != 0)
-                        .map(Order::getCustomerId)
-                        .collect(Collectors.toSet());
-
-                long walkInOrderCount = branchOrders.stream()
-                        .filter(o -> o.getCustomerId() != null && o.getCustomerId() == 0)
-                        .count();
-
-                Set<Integer> registeredUniqueCustomerIds = branchOrders.stream()
-                        .filter(o -> o.getCustomerId() != null
-                                && o.getCustomerId() != 0
-                                && "COMPLETED".equals(o.getStatus())
-                                && "PAID".equals(o.getPaymentStatus()))
-                        .map(Order::getCustomerId)
-                        .collect(Collectors.toSet());
-
-                long walkInCompletedPaidCount = branchOrders.stream()
-                        .filter(o -> o.getCustomerId() != null
-                                && o.getCustomerId() == 0
-                                && "COMPLETED".equals(o.getStatus())
-                                && "PAID".equals(o.getPaymentStatus()))
-                        .count();
+            for (orderservice.order_service.entity.Branch branch : branches) {
+                CustomerDayStats dayStats = statsByBranch.getOrDefault(branch.getBranchId(), new CustomerDayStats());
 
-                allRegisteredCustomerIds.addAll(registeredCustomerIds);
-                allRegisteredUniqueCustomerIds.addAll(registeredUniqueCustomerIds);
-                totalWalkInOrderCount += walkInOrderCount;
-                totalWalkInCompletedPaidCount += walkInCompletedPaidCount;
+                allRegisteredUniqueCustomerIds.addAll(dayStats.registeredCompletedPaidCustomerIds);
+                totalWalkInOrderCount += dayStats.walkInOrderCount;
+                totalWalkInCompletedPaidCount += dayStats.walkInCompletedPaidCount;
 
-                int branchCustomerCount = registeredCustomerIds.size() + (int) walkInOrderCount;
-                int branchRepeatCustomers = (int) registeredCustomerIds.stream()
-                        .filter(allPreviousRegisteredCustomerIds::contains)
+                int branchCustomerCount = dayStats.registeredCustomerIds.size() + (int) dayStats.walkInOrderCount;
+                int branchRepeatCustomers = (int) dayStats.registeredCustomerIds.stream()
+                        .filter(returningCustomerIds::contains)
                         .count();
-                int branchNewCustomers = registeredCustomerIds.size() - branchRepeatCustomers;
+                int branchNewCustomers = dayStats.registeredCustomerIds.size() - branchRepeatCustomers;
 
                 branchCustomerStats.add(AllBranchesCustomerMetricsResponse.BranchCustomerStats.builder()
                         .branchId(branch.getBranchId())
@@ -827,27 +623,22 @@ public class AnalyticsService {
                         .newCustomers(branchNewCustomers)
                         .build());
 
-                branchOrders.stream()
-                        .filter(o -> o.getCustomerId() != null)
-                        .forEach(o -> {
-                            CustomerOrderStats stats = allCustomerStats.getOrDefault(o.getCustomerId(),
-                                    new CustomerOrderStats(0, BigDecimal.ZERO, o.getCustomerName()));
-                            stats.count++;
-                            stats.total = stats.total.add(o.getTotalAmount());
-                            allCustomerStats.put(o.getCustomerId(), stats);
-                        });
+                dayStats.customerStats.forEach((customerId, stats) -> {
+                    CustomerOrderStats merged = allCustomerStats.computeIfAbsent(customerId,
+                            id -> new CustomerOrderStats(0, BigDecimal.ZERO, stats.name));
+                    merged.count += stats.count;
+                    merged.total = merged.total.add(stats.total);
+                });
             }
 
             int totalCustomerCount = allRegisteredCustomerIds.size() + (int) totalWalkInOrderCount;
             int totalUniqueCustomers = allRegisteredUniqueCustomerIds.size() + (int) totalWalkInCompletedPaidCount;
-            int totalRepeatCustomers = (int) allRegisteredCustomerIds.stream()
-                    .filter(allPreviousRegisteredCustomerIds::contains)
-                    .count();
+            int totalRepeatCustomers = returningCustomerIds.size();
             int totalNewCustomers = allRegisteredCustomerIds.size() - totalRepeatCustomers;
 
-            BigDecimal overallRetentionRate = allPreviousRegisteredCustomerIds.size() > 0
+            BigDecimal overallRetentionRate = allPreviousRegisteredCustomers > 0
                     ? BigDecimal.valueOf(totalRepeatCustomers)
-                            .divide(BigDecimal.valueOf(allPreviousRegisteredCustomerIds.size()), 4, RoundingMode.HALF_UP)
+                            .divide(BigDecimal.valueOf(allPreviousRegisteredCustomers), 4, RoundingMode.HALF_UP)
                     : BigDecimal.ZERO;
 
             List<AllBranchesCustomerMetricsResponse.TopCustomer> topCustomers = allCustomerStats.entrySet().stream()
@@ -888,10 +679,7 @@ public class AnalyticsService {
     public AllBranchesProductMetricsResponse getAllBranchesProductMetrics(LocalDate date) {
         try {
             List<orderservice.order_service.entity.Branch> branches = branchRepository.findAll();
-            LocalDateTime startOfDay = date.atStartOfDay();
-            LocalDateTime endOfDay = date.atTime(LocalTime.MAX);
 
-            Set<Integer> allUniqueProductIds = new HashSet<>();
             Map<Integer, ProductSalesStats> allProductStats = new HashMap<>();
             Map<Integer, String> productNameMap = new HashMap<>();
             List<AllBranchesProductMetricsResponse.BranchProductStats> branchProductStats = new ArrayList<>();
@@ -906,68 +694,38 @@ public class AnalyticsService {
                 log.warn("Failed to fetch products from catalog service: {}", e.getMessage());
             }
 
+            // Một query cho tất cả chi nhánh: [branchId, productId, quantity, revenue]
+            Map<Integer, Map<Integer, ProductSalesStats>> productStatsByBranch = new HashMap<>();
+            for (Object[] row : productSalesRollupRepository.summarizeProductsByDate(date)) {
+                productStatsByBranch.computeIfAbsent((Integer) row[0], id -> new HashMap<>())
+                        .put((Integer) row[1], new ProductSalesStats(toBigDecimal(row[2]), toBigDecimal(row[3])));
+            }
+
             for (orderservice.order_service.entity.Branch branch : branches) {
-                List<Order> branchOrders = orderRepository.findByBranchIdAndDateRange(branch.getBranchId(), startOfDay, endOfDay);
-                List<Integer> orderIds = branchOrders.stream().map(Order::getOrderId).collect(Collectors.toList());
-
-                if (!orderIds.isEmpty()) {
-                    List<OrderItem> branchOrderItems = orderItemRepository.findAll().stream()
-                            .filter(item -> orderIds.contains(item.getOrder().getOrderId()))
-                            .collect(Collectors.toList());
-
-                    Set<Integer> branchUniqueProductIds = branchOrderItems.stream()
-                            .map(OrderItem::getProductId)
-                            .collect(Collectors.toSet());
-                    allUniqueProductIds.addAll(branchUniqueProductIds);
-
-                    Map<Integer, ProductSalesStats> branchProductStatsMap = branchOrderItems.stream()
-                            .collect(Collectors.groupingBy(
-                                    OrderItem::getProductId,
-                                    Collectors.collectingAndThen(
-                                            Collectors.toList(),
-                                            itemList -> {
-                                                BigDecimal quantity = itemList.stream()
-                                                        .map(OrderItem::getQuantity)
-                                                        .reduce(BigDecimal.ZERO, BigDecimal::add);
-                                                BigDecimal revenue = itemList.stream()
-                                                        .map(OrderItem::getTotalPrice)
-                                                        .reduce(BigDecimal.ZERO, BigDecimal::add);
-                                                return new ProductSalesStats(quantity, revenue);
-                                            }
-                                    )
-                            ));
-
-                    branchProductStatsMap.forEach((productId, stats) -> {
-                        ProductSalesStats existing = allProductStats.getOrDefault(productId,
-                                new ProductSalesStats(BigDecimal.ZERO, BigDecimal.ZERO));
-                        existing.quantity = existing.quantity.add(stats.quantity);
-                        existing.revenue = existing.revenue.add(stats.revenue);
-                        allProductStats.put(productId, existing);
-                    });
+                Map<Integer, ProductSalesStats> branchProductStatsMap = productStatsByBranch
+                        .getOrDefault(branch.getBranchId(), Map.of());
+
+                branchProductStatsMap.forEach((productId, stats) -> {
+                    ProductSalesStats existing = allProductStats.computeIfAbsent(productId,
+                            id -> new ProductSalesStats(BigDecimal.ZERO, BigDecimal.ZERO));
+                    existing.quantity = existing.quantity.add(stats.quantity);
+                    existing.revenue = existing.revenue.add(stats.revenue);
+                });
 
-                    Map.Entry<Integer, ProductSalesStats> topProduct = branchProductStatsMap.entrySet().stream()
-                            .max(Comparator.comparing(e -> e.getValue().quantity))
-                            .orElse(null);
-
-                    branchProductStats.add(AllBranchesProductMetricsResponse.BranchProductStats.builder()
-                            .branchId(branch.getBranchId())
-                            .branchName(branch.getName())
-                            .uniqueProductsSold(branchUniqueProductIds.size())
-                            .topSellingProductId(topProduct != null ? topProduct.getKey() : null)
-                            .topSellingProductName(topProduct != null ? productNameMap.get(topProduct.getKey()) : null)
-                            .build());
-                } else {
-                    branchProductStats.add(AllBranchesProductMetricsResponse.BranchProductStats.builder()
-                            .branchId(branch.getBranchId())
-                            .branchName(branch.getName())
-                            .uniqueProductsSold(0)
-                            .topSellingProductId(null)
-                            .topSellingProductName(null)
-                            .build());
-                }
+                Map.Entry<Integer, ProductSalesStats> topProduct = branchProductStatsMap.entrySet().stream()
+                        .max(Comparator.comparing(e -> e.getValue().quantity))
+                        .orElse(null);
+
+                branchProductStats.add(AllBranchesProductMetricsResponse.BranchProductStats.builder()
+                        .branchId(branch.getBranchId())
+                        .branchName(branch.getName())
+                        .uniqueProductsSold(branchProductStatsMap.size())
+                        .topSellingProductId(topProduct != null ? topProduct.getKey() : null)
+                        .topSellingProductName(topProduct != null ? productNameMap.get(topProduct.getKey()) : null)
+                        .build());
             }
 
-            int totalUniqueProductsSold = allUniqueProductIds.size();
+            int totalUniqueProductsSold = allProductStats.size();
 
             Map.Entry<Integer, ProductSalesStats> topProduct = allProductStats.entrySet().stream()
                     .max(Comparator.comparing(e -> e.getValue().quantity))
@@ -1027,47 +785,38 @@ public class AnalyticsService {
     public AllBranchesReviewMetricsResponse getAllBranchesReviewMetrics(LocalDate date) {
         try {
             List<orderservice.order_service.entity.Branch> branches = branchRepository.findAll();
+            Map<Integer, orderservice.order_service.entity.Branch> branchesById = branches.stream()
+                    .collect(Collectors.toMap(orderservice.order_service.entity.Branch::getBranchId, b -> b, (a, b) -> a));
+
+            // Một query GROUP BY (chi nhánh, số sao) thay vì tải review của từng chi nhánh
+            LocalDateTime dayStart = date.atStartOfDay();
+            LocalDateTime dayEnd = date.plusDays(1).atStartOfDay();
+            Map<Integer, ReviewCounts> countsByBranch = new HashMap<>();
+            for (Object[] row : reviewRepository.countByBranchAndRating(dayStart, dayEnd)) {
+                Integer branchId = (Integer) row[0];
+                if (!branchesById.containsKey(branchId)) {
+                    continue;
+                }
+                countsByBranch.computeIfAbsent(branchId, k -> new ReviewCounts())
+                        .add(((Number) row[1]).intValue(), ((Number) row[2]).longValue());
+            }
 
-            List<Review> allReviews = new ArrayList<>();
-            Map<Integer, Integer> reviewDistribution = new HashMap<>();
-            final int[] totalPositiveReviews = {0};
-            final int[] totalNegativeReviews = {0};
+            ReviewCounts overall = new ReviewCounts();
             List<AllBranchesReviewMetricsResponse.BranchReviewStats> branchReviewStats = new ArrayList<>();
-
             for (orderservice.order_service.entity.Branch branch : branches) {
-                List<Review> branchReviews = reviewRepository.findByBranchIdAndDate(branch.getBranchId(), date);
-                allReviews.addAll(branchReviews);
-
-                if (!branchReviews.isEmpty()) {
-                    double avgScore = branchReviews.stream()
-                            .mapToInt(r -> r.getRating().intValue())
-                            .average()
-                            .orElse(0.0);
-
-                    long positive = branchReviews.stream().filter(r -> r.getRating() >= 4).count();
-                    long negative = branchReviews.stream().filter(r -> r.getRating() < 3).count();
-
-                    branchReviewStats.add(AllBranchesReviewMetricsResponse.BranchReviewStats.builder()
-                            .branchId(branch.getBranchId())
-                            .branchName(branch.getName())
-                            .avgReviewScore(BigDecimal.valueOf(avgScore).setScale(2, RoundingMode.HALF_UP))
-                            .totalReviews(branchReviews.size())
-                            .positiveReviews((int) positive)
-                            .negativeReviews((int) negative)
-                            .build());
-                } else {
-                    branchReviewStats.add(AllBranchesReviewMetricsResponse.BranchReviewStats.builder()
-                            .branchId(branch.getBranchId())
-                            .branchName(branch.getName())
-                            .avgReviewScore(BigDecimal.ZERO)
-                            .totalReviews(0)
-                            .positiveReviews(0)
-                            .negativeReviews(0)
-                            .build());
-                }
+                ReviewCounts counts = countsByBranch.getOrDefault(branch.getBranchId(), new ReviewCounts());
+                overall.addAll(counts);
+                branchReviewStats.add(AllBranchesReviewMetricsResponse.BranchReviewStats.builder()
+                        .branchId(branch.getBranchId())
+                        .branchName(branch.getName())
+                        .avgReviewScore(counts.average())
+                        .totalReviews((int) counts.total)
+                        .positiveReviews((int) counts.positive)
+                        .negativeReviews((int) counts.negative)
+                        .build());
             }
 
-            if (allReviews.isEmpty()) {
+            if (overall.total == 0) {
                 return AllBranchesReviewMetricsResponse.builder()
                         .overallAvgReviewScore(BigDecimal.ZERO)
                         .totalReviews(0)
@@ -1080,36 +829,22 @@ public class AnalyticsService {
                         .build();
             }
 
-            double overallAvgScore = allReviews.stream()
-                    .mapToInt(r -> r.getRating().intValue())
-                    .average()
-                    .orElse(0.0);
-
-            allReviews.forEach(r -> {
-                int rating = r.getRating().intValue();
-                reviewDistribution.put(rating, reviewDistribution.getOrDefault(rating, 0) + 1);
-                if (r.getRating() >= 4) totalPositiveReviews[0]++;
-                if (r.getRating() < 3) totalNegativeReviews[0]++;
-            });
+            Map<Integer, Integer> reviewDistribution = new HashMap<>();
+            overall.byRating.forEach((rating, count) -> reviewDistribution.put(rating, count.intValue()));
 
-            long totalOrderCount = 0;
-            for (orderservice.order_service.entity.Branch branch : branches) {
-                totalOrderCount += orderRepository.countOrdersByBranchAndDate(branch.getBranchId(), date);
-            }
+            long totalOrderCount = countCompletedOrders(orderSalesRollupRepository.findByBusinessDate(date).stream()
+                    .filter(r -> branchesById.containsKey(r.getBranchId()))
+                    .collect(Collectors.toList()));
 
             BigDecimal overallReviewRate = totalOrderCount > 0
-                    ? BigDecimal.valueOf(allReviews.size())
+                    ? BigDecimal.valueOf(overall.total)
                             .divide(BigDecimal.valueOf(totalOrderCount), 4, RoundingMode.HALF_UP)
                     : BigDecimal.ZERO;
 
-            List<AllBranchesReviewMetricsResponse.RecentReview> recentReviews = allReviews.stream()
-                    .sorted(Comparator.comparing(Review::getCreateAt).reversed())
-                    .limit(10)
+            List<AllBranchesReviewMetricsResponse.RecentReview> recentReviews = reviewRepository
+                    .findRecentBetween(dayStart, dayEnd, PageRequest.of(0, 10)).stream()
                     .map(r -> {
-                        orderservice.order_service.entity.Branch reviewBranch = branches.stream()
-                                .filter(b -> b.getBranchId().equals(r.getBranchId()))
-                                .findFirst()
-                                .orElse(null);
+                        orderservice.order_service.entity.Branch reviewBranch = branchesById.get(r.getBranchId());
                         return AllBranchesReviewMetricsResponse.RecentReview.builder()
                                 .reviewId(r.getReviewId())
                                 .branchId(r.getBranchId())
@@ -1123,11 +858,11 @@ public class AnalyticsService {
                     .collect(Collectors.toList());
 
             return AllBranchesReviewMetricsResponse.builder()
-                    .overallAvgReviewScore(BigDecimal.valueOf(overallAvgScore).setScale(2, RoundingMode.HALF_UP))
-                    .totalReviews(allReviews.size())
+                    .overallAvgReviewScore(overall.average())
+                    .totalReviews((int) overall.total)
                     .reviewDistribution(reviewDistribution)
-                    .totalPositiveReviews(totalPositiveReviews[0])
-                    .totalNegativeReviews(totalNegativeReviews[0])
+                    .totalPositiveReviews((int) overall.positive)
+                    .totalNegativeReviews((int) overall.negative)
                     .overallReviewRate(overallReviewRate)
                     .recentReviews(recentReviews)
                     .branchReviewStats(branchReviewStats)
@@ -1153,25 +888,25 @@ public class AnalyticsService {
     public BranchStatsResponse getBranchStats(LocalDate dateFrom, LocalDate dateTo) {
         try {
             List<orderservice.order_service.entity.Branch> branches = branchRepository.findAll();
-            LocalDateTime startDate = dateFrom.atStartOfDay();
-            LocalDateTime endDate = dateTo.atTime(LocalTime.MAX);
+            Map<Integer, SalesTotals> totalsByBranch = summarizeByBranch(dateFrom, dateTo);
 
             BigDecimal totalRevenue = BigDecimal.ZERO;
+            int activeBranches = 0;
             List<BranchStatsResponse.TopPerformingBranch> topPerformingBranches = new ArrayList<>();
 
             for (orderservice.order_service.entity.Branch branch : branches) {
-                List<Order> branchOrders = orderRepository.findByBranchIdAndDateRange(branch.getBranchId(), startDate, endDate);
-                BigDecimal branchRevenue = branchOrders.stream()
-                        .filter(o -> "COMPLETED".equals(o.getStatus()) && "PAID".equals(o.getPaymentStatus()))
-                        .map(Order::getTotalAmount)
-                        .reduce(BigDecimal.ZERO, BigDecimal::add);
+                SalesTotals branchTotals = totalsByBranch.getOrDefault(branch.getBranchId(), new SalesTotals());
+                BigDecimal branchRevenue = branchTotals.completedPaidRevenue;
 
                 totalRevenue = totalRevenue.add(branchRevenue);
+                if (branchTotals.orderCount > 0) {
+                    activeBranches++;
+                }
 
                 topPerformingBranches.add(BranchStatsResponse.TopPerformingBranch.builder()
                         .branch(branch)
                         .revenue(branchRevenue)
-                        .orderCount(branchOrders.size())
+                        .orderCount((int) branchTotals.orderCount)
                         .build());
             }
 
@@ -1181,12 +916,6 @@ public class AnalyticsService {
                     .collect(Collectors.toList());
 
             int totalBranches = branches.size();
-            int activeBranches = (int) branches.stream()
-                    .filter(b -> {
-                        List<Order> orders = orderRepository.findByBranchIdAndDateRange(b.getBranchId(), startDate, endDate);
-                        return !orders.isEmpty();
-                    })
-                    .count();
 
             BigDecimal averageRevenue = totalBranches > 0
                     ? totalRevenue.divide(BigDecimal.valueOf(totalBranches), 2, RoundingMode.HALF_UP)
@@ -1215,43 +944,40 @@ public class AnalyticsService {
     public AllBranchesStatsResponse getAllBranchesStats(LocalDate dateFrom, LocalDate dateTo) {
         try {
             List<orderservice.order_service.entity.Branch> branches = branchRepository.findAll();
-            LocalDateTime startDate = dateFrom.atStartOfDay();
-            LocalDateTime endDate = dateTo.atTime(LocalTime.MAX);
+            Map<Integer, SalesTotals> totalsByBranch = summarizeByBranch(dateFrom, dateTo);
 
             BigDecimal totalRevenue = BigDecimal.ZERO;
             int totalOrders = 0;
+            int activeBranches = 0;
             List<AllBranchesStatsResponse.TopPerformingBranch> topPerformingBranches = new ArrayList<>();
             List<AllBranchesStatsResponse.BranchSummary> branchSummaries = new ArrayList<>();
 
             for (orderservice.order_service.entity.Branch branch : branches) {
-                List<Order> branchOrders = orderRepository.findByBranchIdAndDateRange(branch.getBranchId(), startDate, endDate);
-                BigDecimal branchRevenue = branchOrders.stream()
-                        .filter(o -> "COMPLETED".equals(o.getStatus()) && "PAID".equals(o.getPaymentStatus()))
-                        .map(Order::getTotalAmount)
-                        .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-                int completedOrders = (int) branchOrders.stream().filter(o -> "COMPLETED".equals(o.getStatus())).count();
-                int cancelledOrders = (int) branchOrders.stream().filter(o -> "CANCELLED".equals(o.getStatus())).count();
-                int pendingOrders = (int) branchOrders.stream().filter(o -> "PENDING".equals(o.getStatus()) || "CREATED".equals(o.getStatus())).count();
+                SalesTotals branchTotals = totalsByBranch.getOrDefault(branch.getBranchId(), new SalesTotals());
+                BigDecimal branchRevenue = branchTotals.completedPaidRevenue;
+                int branchOrderCount = (int) branchTotals.orderCount;
 
                 totalRevenue = totalRevenue.add(branchRevenue);
-                totalOrders += branchOrders.size();
+                totalOrders += branchOrderCount;
+                if (branchOrderCount > 0) {
+                    activeBranches++;
+                }
 
                 topPerformingBranches.add(AllBranchesStatsResponse.TopPerformingBranch.builder()
                         .branchId(branch.getBranchId())
                         .branchName(branch.getName())
                         .revenue(branchRevenue)
-                        .orderCount(branchOrders.size())
+                        .orderCount(branchOrderCount)
                         .build());
 
                 branchSummaries.add(AllBranchesStatsResponse.BranchSummary.builder()
                         .branchId(branch.getBranchId())
                         .branchName(branch.getName())
                         .revenue(branchRevenue)
-                        .orderCount(branchOrders.size())
-                        .completedOrders(completedOrders)
-                        .cancelledOrders(cancelledOrders)
-                        .pendingOrders(pendingOrders)
+                        .orderCount(branchOrderCount)
+                        .completedOrders((int) branchTotals.completedOrders)
+                        .cancelledOrders((int) branchTotals.cancelledOrders)
+                        .pendingOrders((int) branchTotals.pendingOrders)
                         .build());
             }
 
@@ -1261,12 +987,6 @@ public class AnalyticsService {
                     .collect(Collectors.toList());
 
             int totalBranches = branches.size();
-            int activeBranches = (int) branches.stream()
-                    .filter(b -> {
-                        List<Order> orders = orderRepository.findByBranchIdAndDateRange(b.getBranchId(), startDate, endDate);
-                        return !orders.isEmpty();
-                    })
-                    .count();
 
             BigDecimal averageRevenuePerBranch = totalBranches > 0
                     ? totalRevenue.divide(BigDecimal.valueOf(totalBranches), 2, RoundingMode.HALF_UP)
@@ -1304,40 +1024,24 @@ public class AnalyticsService {
 
     public BranchRevenueResponse getBranchRevenue(Integer branchId, LocalDate dateFrom, LocalDate dateTo) {
         try {
-            LocalDateTime startDate = dateFrom.atStartOfDay();
-            LocalDateTime endDate = dateTo.atTime(LocalTime.MAX);
+            // Doanh thu (COMPLETED + PAID) theo ngày kinh doanh
+            Map<LocalDate, BigDecimal> revenueByDate = completedPaidRevenueByDate(
+                    orderSalesRollupRepository.summarizeByDateForBranch(branchId, dateFrom, dateTo))
+                    .getOrDefault(branchId, new HashMap<>());
 
-            List<Order> orders = orderRepository.findByBranchIdAndDateRange(branchId, startDate, endDate);
-            BigDecimal totalRevenue = orders.stream()
-                    .filter(o -> "COMPLETED".equals(o.getStatus()) && "PAID".equals(o.getPaymentStatus()))
-                    .map(Order::getTotalAmount)
+            BigDecimal totalRevenue = revenueByDate.values().stream()
                     .reduce(BigDecimal.ZERO, BigDecimal::add);
 
-            // Group by date
-            Map<String, BigDecimal> dailyRevenueMap = orders.stream()
-                    .filter(o -> "COMPLETED".equals(o.getStatus()) && "PAID".equals(o.getPaymentStatus()))
-                    .collect(Collectors.groupingBy(
-                            o -> o.getCreateAt().toLocalDate().toString(),
-                            Collectors.mapping(Order::getTotalAmount, Collectors.reducing(BigDecimal.ZERO, BigDecimal::add))
-                    ));
-
-            List<BranchRevenueResponse.DailyRevenue> dailyRevenue = dailyRevenueMap.entrySet().stream()
+            List<BranchRevenueResponse.DailyRevenue> dailyRevenue = revenueByDate.entrySet().stream()
                     .sorted(Map.Entry.comparingByKey())
                     .map(entry -> BranchRevenueResponse.DailyRevenue.builder()
-                            .date(entry.getKey())
+                            .date(entry.getKey().toString())
                             .revenue(entry.getValue())
                             .build())
                     .collect(Collectors.toList());
 
             // Group by month (YYYY-MM format)
-            Map<String, BigDecimal> monthlyRevenueMap = orders.stream()
-                    .filter(o -> "COMPLETED".equals(o.getStatus()) && "PAID".equals(o.getPaymentStatus()))
-                    .collect(Collectors.groupingBy(
-                            o -> o.getCreateAt().toLocalDate().withDayOfMonth(1).toString(),
-                            Collectors.mapping(Order::getTotalAmount, Collectors.reducing(BigDecimal.ZERO, BigDecimal::add))
-                    ));
-
-            List<BranchRevenueResponse.MonthlyRevenue> monthlyRevenue = monthlyRevenueMap.entrySet().stream()
+            List<BranchRevenueResponse.MonthlyRevenue> monthlyRevenue = groupByMonth(revenueByDate).entrySet().stream()
                     .sorted(Map.Entry.comparingByKey())
                     .map(entry -> BranchRevenueResponse.MonthlyRevenue.builder()
                             .month(entry.getKey())
@@ -1364,8 +1068,8 @@ public class AnalyticsService {
     public AllBranchesRevenueResponse getAllBranchesRevenue(LocalDate dateFrom, LocalDate dateTo) {
         try {
             List<orderservice.order_service.entity.Branch> branches = branchRepository.findAll();
-            LocalDateTime startDate = dateFrom.atStartOfDay();
-            LocalDateTime endDate = dateTo.atTime(LocalTime.MAX);
+            Map<Integer, Map<LocalDate, BigDecimal>> revenueByBranchAndDate = completedPaidRevenueByDate(
+                    orderSalesRollupRepository.summarizeByBranchAndDate(dateFrom, dateTo));
 
             BigDecimal totalRevenue = BigDecimal.ZERO;
             Map<String, BigDecimal> dailyRevenueMap = new HashMap<>();
@@ -1373,38 +1077,24 @@ public class AnalyticsService {
             List<AllBranchesRevenueResponse.BranchRevenueDetail> branchRevenueDetails = new ArrayList<>();
 
             for (orderservice.order_service.entity.Branch branch : branches) {
-                List<Order> branchOrders = orderRepository.findByBranchIdAndDateRange(branch.getBranchId(), startDate, endDate);
-                BigDecimal branchTotalRevenue = branchOrders.stream()
-                        .filter(o -> "COMPLETED".equals(o.getStatus()) && "PAID".equals(o.getPaymentStatus()))
-                        .map(Order::getTotalAmount)
+                Map<LocalDate, BigDecimal> branchRevenueByDate = revenueByBranchAndDate
+                        .getOrDefault(branch.getBranchId(), new HashMap<>());
+                BigDecimal branchTotalRevenue = branchRevenueByDate.values().stream()
                         .reduce(BigDecimal.ZERO, BigDecimal::add);
 
                 totalRevenue = totalRevenue.add(branchTotalRevenue);
 
                 // Daily revenue for this branch
-                Map<String, BigDecimal> branchDailyRevenueMap = branchOrders.stream()
-                        .filter(o -> "COMPLETED".equals(o.getStatus()) && "PAID".equals(o.getPaymentStatus()))
-                        .collect(Collectors.groupingBy(
-                                o -> o.getCreateAt().toLocalDate().toString(),
-                                Collectors.mapping(Order::getTotalAmount, Collectors.reducing(BigDecimal.ZERO, BigDecimal::add))
-                        ));
-
-                List<AllBranchesRevenueResponse.DailyRevenue> branchDailyRevenue = branchDailyRevenueMap.entrySet().stream()
+                List<AllBranchesRevenueResponse.DailyRevenue> branchDailyRevenue = branchRevenueByDate.entrySet().stream()
                         .sorted(Map.Entry.comparingByKey())
                         .map(entry -> AllBranchesRevenueResponse.DailyRevenue.builder()
-                                .date(entry.getKey())
+                                .date(entry.getKey().toString())
                                 .revenue(entry.getValue())
                                 .build())
                         .collect(Collectors.toList());
 
                 // Monthly revenue for this branch
-                Map<String, BigDecimal> branchMonthlyRevenueMap = branchOrders.stream()
-                        .filter(o -> "COMPLETED".equals(o.getStatus()) && "PAID".equals(o.getPaymentStatus()))
-                        .collect(Collectors.groupingBy(
-                                o -> o.getCreateAt().toLocalDate().withDayOfMonth(1).toString(),
-                                Collectors.mapping(Order::getTotalAmount, Collectors.reducing(BigDecimal.ZERO, BigDecimal::add))
-                        ));
-
+                Map<String, BigDecimal> branchMonthlyRevenueMap = groupByMonth(branchRevenueByDate);
                 List<AllBranchesRevenueResponse.MonthlyRevenue> branchMonthlyRevenue = branchMonthlyRevenueMap.entrySet().stream()
                         .sorted(Map.Entry.comparingByKey())
                         .map(entry -> AllBranchesRevenueResponse.MonthlyRevenue.builder()
@@ -1414,10 +1104,10 @@ public class AnalyticsService {
                         .collect(Collectors.toList());
 
                 // Aggregate into overall maps
-                branchDailyRevenueMap.forEach((date, revenue) ->
-                        dailyRevenueMap.put(date, dailyRevenueMap.getOrDefault(date, BigDecimal.ZERO).add(revenue)));
+                branchRevenueByDate.forEach((date, revenue) ->
+                        dailyRevenueMap.merge(date.toString(), revenue, BigDecimal::add));
                 branchMonthlyRevenueMap.forEach((month, revenue) ->
-                        monthlyRevenueMap.put(month, monthlyRevenueMap.getOrDefault(month, BigDecimal.ZERO).add(revenue)));
+                        monthlyRevenueMap.merge(month, revenue, BigDecimal::add));
 
                 branchRevenueDetails.add(AllBranchesRevenueResponse.BranchRevenueDetail.builder()
                         .branchId(branch.getBranchId())
@@ -1462,6 +1152,166 @@ public class AnalyticsService {
         }
     }
 
+    // ========== Rollup helpers ==========
+
+    /**
+     * Cộng dồn các bucket theo giờ vào totals, đồng thời gom số đơn / doanh thu theo giờ
+     * và doanh thu theo phương thức thanh toán (chỉ tính đơn COMPLETED + PAID).
+     */
+    private void accumulateHourly(List<OrderSalesRollup> rollups, SalesTotals totals,
+            Map<Integer, Integer> ordersByHour, Map<Integer, BigDecimal> revenueByHourMap,
+            Map<String, BigDecimal> revenueByPaymentMethod) {
+        for (OrderSalesRollup rollup : rollups) {
+            totals.add(rollup.getStatus(), rollup.getPaymentStatus(), rollup.getOrderCount(), rollup.getTotalAmount());
+            ordersByHour.merge(rollup.getBusinessHour(), rollup.getOrderCount().intValue(), Integer::sum);
+
+            if (isCompletedAndPaid(rollup.getStatus(), rollup.getPaymentStatus())) {
+                revenueByHourMap.merge(rollup.getBusinessHour(), rollup.getTotalAmount(), BigDecimal::add);
+                if (rollup.getPaymentMethod() != null && !rollup.getPaymentMethod().isEmpty()) {
+                    revenueByPaymentMethod.merge(rollup.getPaymentMethod(), rollup.getTotalAmount(), BigDecimal::add);
+                }
+            }
+        }
+    }
+
+    private long countCompletedOrders(List<OrderSalesRollup> rollups) {
+        return rollups.stream()
+                .filter(r -> "COMPLETED".equals(r.getStatus()))
+                .mapToLong(OrderSalesRollup::getOrderCount)
+                .sum();
+    }
+
+    private Map<Integer, SalesTotals> summarizeByBranch(LocalDate dateFrom, LocalDate dateTo) {
+        Map<Integer, SalesTotals> totalsByBranch = new HashMap<>();
+        for (Object[] row : orderSalesRollupRepository.summarizeByBranch(dateFrom, dateTo)) {
+            totalsByBranch.computeIfAbsent((Integer) row[0], id -> new SalesTotals())
+                    .add((String) row[1], (String) row[2], ((Number) row[3]).longValue(), toBigDecimal(row[4]));
+        }
+        return totalsByBranch;
+    }
+
+    /**
+     * Rows [branchId, businessDate, status, paymentStatus, orderCount, totalAmount]
+     * -> doanh thu COMPLETED + PAID theo chi nhánh và ngày (chỉ các ngày có đơn).
+     */
+    private Map<Integer, Map<LocalDate, BigDecimal>> completedPaidRevenueByDate(List<Object[]> rows) {
+        Map<Integer, Map<LocalDate, BigDecimal>> result = new HashMap<>();
+        for (Object[] row : rows) {
+            if (!isCompletedAndPaid((String) row[2], (String) row[3]) || ((Number) row[4]).longValue() <= 0) {
+                continue;
+            }
+            result.computeIfAbsent((Integer) row[0], id -> new HashMap<>())
+                    .merge((LocalDate) row[1], toBigDecimal(row[5]), BigDecimal::add);
+        }
+        return result;
+    }
+
+    private Map<String, BigDecimal> groupByMonth(Map<LocalDate, BigDecimal> revenueByDate) {
+        Map<String, BigDecimal> revenueByMonth = new HashMap<>();
+        revenueByDate.forEach((date, revenue) ->
+                revenueByMonth.merge(date.withDayOfMonth(1).toString(), revenue, BigDecimal::add));
+        return revenueByMonth;
+    }
+
+    private static boolean isCompletedAndPaid(String status, String paymentStatus) {
+        return "COMPLETED".equals(status) && "PAID".equals(paymentStatus);
+    }
+
+    private static BigDecimal toBigDecimal(Object value) {
+        if (value == null) {
+            return BigDecimal.ZERO;
+        }
+        return value instanceof BigDecimal ? (BigDecimal) value : new BigDecimal(value.toString());
+    }
+
+    // Số review theo số sao của một chi nhánh (hoặc tổng), dựng từ kết quả GROUP BY
+    private static class ReviewCounts {
+        final Map<Integer, Long> byRating = new HashMap<>();
+        long total;
+        long ratingSum;
+        long positive;
+        long negative;
+
+        void add(int rating, long count) {
+            byRating.merge(rating, count, Long::sum);
+            total += count;
+            ratingSum += rating * count;
+            if (rating >= 4) positive += count;
+            if (rating < 3) negative += count;
+        }
+
+        void addAll(ReviewCounts other) {
+            other.byRating.forEach(this::add);
+        }
+
+        BigDecimal average() {
+            return total > 0
+                    ? BigDecimal.valueOf((double) ratingSum / total).setScale(2, RoundingMode.HALF_UP)
+                    : BigDecimal.ZERO;
+        }
+    }
+
+    private static class SalesTotals {
+        long orderCount;
+        long completedOrders;
+        long cancelledOrders;
+        long pendingOrders;
+        long completedPaidOrders;
+        BigDecimal completedPaidRevenue = BigDecimal.ZERO;
+
+        void add(String status, String paymentStatus, long count, BigDecimal amount) {
+            orderCount += count;
+            if ("COMPLETED".equals(status)) {
+                completedOrders += count;
+                if ("PAID".equals(paymentStatus)) {
+                    completedPaidOrders += count;
+                    completedPaidRevenue = completedPaidRevenue.add(amount != null ? amount : BigDecimal.ZERO);
+                }
+            } else if ("CANCELLED".equals(status)) {
+                cancelledOrders += count;
+            } else if ("PENDING".equals(status) || "CREATED".equals(status)) {
+                pendingOrders += count;
+            }
+        }
+
+        void add(SalesTotals other) {
+            orderCount += other.orderCount;
+            completedOrders += other.completedOrders;
+            cancelledOrders += other.cancelledOrders;
+            pendingOrders += other.pendingOrders;
+            completedPaidOrders += other.completedPaidOrders;
+            completedPaidRevenue = completedPaidRevenue.add(other.completedPaidRevenue);
+        }
+    }
+
+    /**
+     * Thống kê khách hàng trong một ngày của một chi nhánh, dựng từ customer_daily_rollup.
+     */
+    private static class CustomerDayStats {
+        Set<Integer> registeredCustomerIds = new HashSet<>();
+        Set<Integer> registeredCompletedPaidCustomerIds = new HashSet<>();
+        long walkInOrderCount;
+        long walkInCompletedPaidCount;
+        Map<Integer, CustomerOrderStats> customerStats = new HashMap<>();
+
+        void add(CustomerDailyRollup rollup) {
+            Integer customerId = rollup.getCustomerId();
+            if (customerId == 0) {
+                walkInOrderCount += rollup.getOrderCount();
+                walkInCompletedPaidCount += rollup.getCompletedPaidCount();
+            } else {
+                registeredCustomerIds.add(customerId);
+                if (rollup.getCompletedPaidCount() > 0) {
+                    registeredCompletedPaidCustomerIds.add(customerId);
+                }
+            }
+            CustomerOrderStats stats = customerStats.computeIfAbsent(customerId,
+                    id -> new CustomerOrderStats(0, BigDecimal.ZERO, rollup.getCustomerName()));
+            stats.count += rollup.getOrderCount().intValue();
+            stats.total = stats.total.add(rollup.getTotalAmount());
+        }
+    }
+
     // Helper classes
     private static class CustomerOrderStats {
         int count;
@@ -1500,33 +1350,17 @@ public class AnalyticsService {
                 sortBy = "quantity";
             }
 
-            // Build date range
-            LocalDateTime startDateTime = startDate != null ? startDate.atStartOfDay() : null;
-            LocalDateTime endDateTime = endDate != null ? endDate.atTime(LocalTime.MAX) : null;
-
-            // Query orders - only COMPLETED orders
-            List<Order> orders;
-            if (branchId != null && startDateTime != null && endDateTime != null) {
-                orders = orderRepository.findByBranchIdAndDateRange(branchId, startDateTime, endDateTime);
-            } else if (branchId != null) {
-                orders = orderRepository.findByBranchIdOrderByOrderDateDesc(branchId);
-            } else if (startDateTime != null && endDateTime != null) {
-                // Query all branches within date range
-                orders = orderRepository.findAll().stream()
-                        .filter(o -> o.getCreateAt() != null 
-                                && o.getCreateAt().isAfter(startDateTime.minusSeconds(1))
-                                && o.getCreateAt().isBefore(endDateTime.plusSeconds(1)))
-                        .collect(Collectors.toList());
-            } else {
-                orders = orderRepository.findAll();
-            }
+            // Lọc theo khoảng ngày chỉ khi có đủ cả startDate và endDate (giữ hành vi cũ)
+            boolean hasDateRange = startDate != null && endDate != null;
+            LocalDate fromDate = hasDateRange ? startDate : LocalDate.of(1970, 1, 1);
+            LocalDate toDate = hasDateRange ? endDate : LocalDate.of(9999, 12, 31);
 
-            // Filter only COMPLETED orders
-            List<Order> completedOrders = orders.stream()
-                    .filter(o -> "COMPLETED".equals(o.getStatus()))
-                    .collect(Collectors.toList());
+            // Chỉ tính các đơn COMPLETED: [productId, quantity, revenue, orderCount]
+            List<Object[]> rows = branchId != null
+                    ? productSalesRollupRepository.summarizeProductsByBranchAndStatus(branchId, "COMPLETED", fromDate, toDate)
+                    : productSalesRollupRepository.summarizeProductsByStatus("COMPLETED", fromDate, toDate);
 
-            if (completedOrders.isEmpty()) {
+            if (rows.isEmpty()) {
                 return TopSellingProductsResponse.builder()
                         .branchId(branchId)
                         .startDate(startDate)
@@ -1536,40 +1370,16 @@ public class AnalyticsService {
                         .build();
             }
 
-            List<Integer> orderIds = completedOrders.stream()
-                    .map(Order::getOrderId)
-                    .collect(Collectors.toList());
-
-            // Get all order items for these orders
-            List<OrderItem> orderItems = orderItemRepository.findAll().stream()
-                    .filter(item -> orderIds.contains(item.getOrder().getOrderId()))
-                    .collect(Collectors.toList());
-
-            // Group by productId and calculate stats
-            Map<Integer, ProductSalesStatsWithOrders> productStats = orderItems.stream()
-                    .collect(Collectors.groupingBy(
-                            OrderItem::getProductId,
-                            Collectors.collectingAndThen(
-                                    Collectors.toList(),
-                                    itemList -> {
-                                        BigDecimal quantity = itemList.stream()
-                                                .map(OrderItem::getQuantity)
-                                                .reduce(BigDecimal.ZERO, BigDecimal::add);
-                                        BigDecimal revenue = itemList.stream()
-                                                .map(OrderItem::getTotalPrice)
-                                                .reduce(BigDecimal.ZERO, BigDecimal::add);
-                                        // Count unique orders containing this product
-                                        Set<Integer> uniqueOrderIds = itemList.stream()
-                                                .map(item -> item.getOrder().getOrderId())
-                                                .collect(Collectors.toSet());
-                                        int orderCount = uniqueOrderIds.size();
-                                        BigDecimal avgOrderValue = orderCount > 0
-                                                ? revenue.divide(BigDecimal.valueOf(orderCount), 2, RoundingMode.HALF_UP)
-                                                : BigDecimal.ZERO;
-                                        return new ProductSalesStatsWithOrders(quantity, revenue, orderCount, avgOrderValue);
-                                    }
-                            )
-                    ));
+            Map<Integer, ProductSalesStatsWithOrders> productStats = new HashMap<>();
+            for (Object[] row : rows) {
+                BigDecimal quantity = toBigDecimal(row[1]);
+                BigDecimal revenue = toBigDecimal(row[2]);
+                int orderCount = ((Number) row[3]).intValue();
+                BigDecimal avgOrderValue = orderCount > 0
+                        ? revenue.divide(BigDecimal.valueOf(orderCount), 2, RoundingMode.HALF_UP)
+                        : BigDecimal.ZERO;
+                productStats.put((Integer) row[0], new ProductSalesStatsWithOrders(quantity, revenue, orderCount, avgOrderValue));
+            }
 
             // Get product information from catalog service
             Map<Integer, ProductResponse> productMap = new HashMap<>();
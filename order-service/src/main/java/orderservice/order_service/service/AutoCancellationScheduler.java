@@ -2,19 +2,29 @@ package orderservice.order_service.service;
 
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 
-import feign.FeignException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import orderservice.order_service.client.CatalogServiceClient;
 import orderservice.order_service.dto.ApiResponse;
 import orderservice.order_service.dto.response.ReservationResponse;
-import orderservice.order_service.entity.Order;
 import orderservice.order_service.entity.Reservation;
 import orderservice.order_service.repository.OrderRepository;
 import orderservice.order_service.repository.ReservationRepository;
@@ -22,11 +32,14 @@ import orderservice.order_service.repository.ReservationRepository;
 /**
  * Scheduler tự động hủy các đơn hàng / đặt bàn ở trạng thái PENDING quá 1 tiếng.
  * Và tự động hủy các đơn hàng không còn reservation (đã bị xóa/hết hạn).
+ *
+ * Với đơn hàng: lọc theo trạng thái + cutoff ngay trong DB, hỏi catalog-service holdId theo từng chunk
+ * (một request cho cả chunk), rồi hủy song song trên một executor giới hạn số luồng.
+ * Mỗi lần hủy chạy trong transaction riêng của OrderService.cancelOrderByCustomer.
  */
 @Component
 @RequiredArgsConstructor
 @Slf4j
-@org.springframework.transaction.annotation.Transactional
 public class AutoCancellationScheduler {
 
     private final OrderRepository orderRepository;
@@ -34,8 +47,53 @@ public class AutoCancellationScheduler {
     private final OrderService orderService;
     private final ReservationService reservationService;
     private final CatalogServiceClient catalogServiceClient;
+    private final MeterRegistry meterRegistry;
 
     private static final long MAX_PENDING_MINUTES = 60L;
+    private static final List<String> OPEN_STATUSES = List.of("PENDING", "PREPARING", "CREATED");
+
+    @Value("${app.orders.auto-cancel-chunk-size:100}")
+    private int chunkSize;
+
+    @Value("${app.orders.auto-cancel-parallelism:4}")
+    private int parallelism;
+
+    private ExecutorService cancelExecutor;
+
+    @PostConstruct
+    private void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.cancelExecutor = Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+            Thread thread = new Thread(runnable, "auto-cancel-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    private void shutdown() {
+        cancelExecutor.shutdown();
+        try {
+            if (!cancelExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                cancelExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            cancelExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Kết quả một lần chạy, dùng cho log tổng kết.
+     */
+    private static final class RunStats {
+        final AtomicInteger cancelled = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        int stale;
+        int checked;
+        int missingReservation;
+        int skipped;
+    }
 
     /**
      * Chạy định kỳ để auto-cancel các đơn hàng PENDING/PREPARING/CREATED quá 1 tiếng.
@@ -44,77 +102,123 @@ public class AutoCancellationScheduler {
      */
     @Scheduled(fixedDelayString = "${app.orders.auto-cancel-interval-ms:300000}")
     public void autoCancelStalePendingOrders() {
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime cutoff = now.minus(MAX_PENDING_MINUTES, ChronoUnit.MINUTES);
+        long startNanos = System.nanoTime();
+        LocalDateTime cutoff = LocalDateTime.now().minus(MAX_PENDING_MINUTES, ChronoUnit.MINUTES);
+        RunStats stats = new RunStats();
 
-        // 1. Cancel các order PENDING/PREPARING/CREATED quá 1 tiếng
-        List<Order> staleOrders = orderRepository.findByStatusIn(List.of("PENDING", "PREPARING", "CREATED"))
-                .stream()
-                .filter(order -> order.getCreateAt().isBefore(cutoff))
-                .toList();
-        
-        if (!staleOrders.isEmpty()) {
-            log.info("[AutoCancellationScheduler] Found {} stale PENDING/PREPARING/CREATED orders to cancel (cutoff: {})",
-                    staleOrders.size(), cutoff);
-
-            staleOrders.forEach(order -> {
-                try {
-                    log.info("[AutoCancellationScheduler] Auto-cancelling orderId={} (status={}, createdAt={})",
-                            order.getOrderId(), order.getStatus(), order.getCreateAt());
-                    // Sử dụng cùng logic cancel của service để đảm bảo release reservations + publish events
-                    orderService.cancelOrderByCustomer(order.getOrderId());
-                } catch (Exception e) {
-                    log.error("[AutoCancellationScheduler] Failed to auto-cancel orderId={}", order.getOrderId(), e);
+        try {
+            // 1. Cancel các order PENDING/PREPARING/CREATED quá 1 tiếng
+            List<Integer> staleOrderIds = orderRepository.findIdsByStatusInAndCreateAtBefore(OPEN_STATUSES, cutoff);
+            stats.stale = staleOrderIds.size();
+            if (!staleOrderIds.isEmpty()) {
+                log.info("[AutoCancellationScheduler] Found {} stale PENDING/PREPARING/CREATED orders to cancel (cutoff: {})",
+                        staleOrderIds.size(), cutoff);
+                for (List<Integer> chunk : chunks(staleOrderIds)) {
+                    cancelAll(chunk, "stale", stats);
                 }
-            });
-        }
+            }
 
-        // 2. Cancel các order PENDING/PREPARING/CREATED không còn reservation (đã bị xóa/hết hạn)
-        // Chỉ kiểm tra các order chưa quá 1 tiếng (để tránh trùng với bước 1)
-        List<Order> ordersToCheckReservation = orderRepository.findByStatusIn(List.of("PENDING", "PREPARING", "CREATED"))
-                .stream()
-                .filter(order -> order.getCreateAt().isAfter(cutoff)) // Chỉ kiểm tra order mới (chưa quá 1 tiếng)
-                .toList();
-        
-        if (!ordersToCheckReservation.isEmpty()) {
-            log.info("[AutoCancellationScheduler] Checking {} recent PENDING/PREPARING/CREATED orders for missing reservations",
-                    ordersToCheckReservation.size());
-
-            ordersToCheckReservation.forEach(order -> {
-                try {
-                    // Kiểm tra xem order có reservation không
-                    ApiResponse<Map<String, Object>> holdIdResponse = catalogServiceClient.getHoldIdByOrderId(order.getOrderId());
-                    if (holdIdResponse == null || holdIdResponse.getResult() == null || 
-                        holdIdResponse.getResult().get("holdId") == null) {
-                        // Không tìm thấy reservation → tự động cancel order
-                        log.warn("[AutoCancellationScheduler] Order {} has no active reservation. Auto-cancelling order.",
-                                order.getOrderId());
-                        orderService.cancelOrderByCustomer(order.getOrderId());
+            // 2. Cancel các order PENDING/PREPARING/CREATED không còn reservation (đã bị xóa/hết hạn)
+            // Chỉ kiểm tra các order chưa quá 1 tiếng (để tránh trùng với bước 1)
+            List<Integer> recentOrderIds = orderRepository.findIdsByStatusInAndCreateAtAfter(OPEN_STATUSES, cutoff);
+            stats.checked = recentOrderIds.size();
+            if (!recentOrderIds.isEmpty()) {
+                log.info("[AutoCancellationScheduler] Checking {} recent PENDING/PREPARING/CREATED orders for missing reservations",
+                        recentOrderIds.size());
+                for (List<Integer> chunk : chunks(recentOrderIds)) {
+                    Map<Integer, String> holdIds = fetchHoldIds(chunk);
+                    if (holdIds == null) {
+                        // Không biết chắc order nào mất reservation → bỏ qua chunk này, lần chạy sau kiểm tra lại
+                        stats.skipped += chunk.size();
+                        meterRegistry.counter("orders.autocancel.orders", "reason", "missing_reservation", "result", "skipped")
+                                .increment(chunk.size());
+                        continue;
                     }
-                } catch (FeignException.NotFound e) {
-                    // Reservation không tồn tại → tự động cancel order
-                    log.warn("[AutoCancellationScheduler] Order {} reservation not found. Auto-cancelling order.",
-                            order.getOrderId());
-                    try {
-                        orderService.cancelOrderByCustomer(order.getOrderId());
-                    } catch (Exception cancelEx) {
-                        log.error("[AutoCancellationScheduler] Failed to auto-cancel orderId={} due to missing reservation",
-                                order.getOrderId(), cancelEx);
+                    List<Integer> missing = chunk.stream()
+                            .filter(orderId -> holdIds.get(orderId) == null)
+                            .toList();
+                    if (!missing.isEmpty()) {
+                        log.warn("[AutoCancellationScheduler] Orders {} have no active reservation. Auto-cancelling.", missing);
+                        stats.missingReservation += missing.size();
+                        cancelAll(missing, "missing_reservation", stats);
                     }
-                } catch (Exception e) {
-                    log.error("[AutoCancellationScheduler] Error checking reservation for orderId={}: {}",
-                            order.getOrderId(), e.getMessage(), e);
-                    // Không throw exception để không ảnh hưởng đến các order khác
                 }
-            });
+            }
+        } finally {
+            long elapsedNanos = System.nanoTime() - startNanos;
+            Timer.builder("orders.autocancel.run")
+                    .description("Thời gian một lần chạy auto-cancel đơn hàng")
+                    .register(meterRegistry)
+                    .record(elapsedNanos, TimeUnit.NANOSECONDS);
+            if (stats.stale > 0 || stats.checked > 0) {
+                log.info("[AutoCancellationScheduler] Run finished in {} ms: stale={}, checked={}, missingReservation={}, "
+                                + "cancelled={}, failed={}, skipped={}",
+                        TimeUnit.NANOSECONDS.toMillis(elapsedNanos), stats.stale, stats.checked,
+                        stats.missingReservation, stats.cancelled.get(), stats.failed.get(), stats.skipped);
+            }
+        }
+    }
+
+    /**
+     * Hỏi catalog-service holdId của cả chunk trong một request.
+     * Trả về null nếu lỗi (không được coi là "không có reservation").
+     */
+    private Map<Integer, String> fetchHoldIds(List<Integer> orderIds) {
+        try {
+            ApiResponse<Map<Integer, String>> response =
+                    catalogServiceClient.getHoldIdsByOrderIds(Map.of("orderIds", orderIds));
+            if (response == null || response.getResult() == null) {
+                log.error("[AutoCancellationScheduler] Empty hold-id response for {} orders", orderIds.size());
+                return null;
+            }
+            return response.getResult();
+        } catch (Exception e) {
+            log.error("[AutoCancellationScheduler] Error checking reservations for {} orders: {}",
+                    orderIds.size(), e.getMessage(), e);
+            return null;
         }
     }
 
+    /**
+     * Hủy các order song song trên cancelExecutor và chờ cả chunk xong.
+     * Lỗi của một order không ảnh hưởng đến các order khác.
+     */
+    private void cancelAll(List<Integer> orderIds, String reason, RunStats stats) {
+        CompletableFuture<?>[] tasks = orderIds.stream()
+                .map(orderId -> CompletableFuture.runAsync(() -> cancelOne(orderId, reason, stats), cancelExecutor))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(tasks).join();
+    }
+
+    private void cancelOne(Integer orderId, String reason, RunStats stats) {
+        try {
+            log.info("[AutoCancellationScheduler] Auto-cancelling orderId={} (reason={})", orderId, reason);
+            // Sử dụng cùng logic cancel của service để đảm bảo release reservations + publish events
+            orderService.cancelOrderByCustomer(orderId);
+            stats.cancelled.incrementAndGet();
+            meterRegistry.counter("orders.autocancel.orders", "reason", reason, "result", "cancelled").increment();
+        } catch (Exception e) {
+            stats.failed.incrementAndGet();
+            meterRegistry.counter("orders.autocancel.orders", "reason", reason, "result", "failed").increment();
+            log.error("[AutoCancellationScheduler] Failed to auto-cancel orderId={} (reason={})", orderId, reason, e);
+        }
+    }
+
+    private List<List<Integer>> chunks(List<Integer> ids) {
+        int size = Math.max(1, chunkSize);
+        List<List<Integer>> chunks = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += size) {
+            chunks.add(ids.subList(i, Math.min(ids.size(), i + size)));
+        }
+        return chunks;
+    }
+
     /**
      * Chạy định kỳ để auto-cancel các đặt bàn PENDING quá 1 tiếng.
      * Mặc định 5 phút chạy một lần, có thể override qua cấu hình.
      */
     @Scheduled(fixedDelayString = "${app.reservations.auto-cancel-interval-ms:300000}")
+    @Transactional
     public void autoCancelStalePendingReservations() {
         LocalDateTime now = LocalDateTime.now();
         LocalDateTime cutoff = now.minus(MAX_PENDING_MINUTES, ChronoUnit.MINUTES);
@@ -151,5 +255,3 @@ public class AutoCancellationScheduler {
         });
     }
 }
-
-
@@ -0,0 +1,264 @@
+package orderservice.order_service.service;
+
+import lombok.extern.slf4j.Slf4j;
+import orderservice.order_service.entity.Branch;
+import orderservice.order_service.entity.BranchClosure;
+import orderservice.order_service.events.BranchDataChangedEvent;
+import orderservice.order_service.repository.BranchClosureRepository;
+import orderservice.order_service.repository.BranchRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Lịch nghỉ chi nhánh dựng sẵn trong bộ nhớ: mỗi chi nhánh (và lịch nghỉ toàn hệ thống) có một BitSet
+ * theo năm, bit (dayOfYear - 1) bật khi ngày đó nghỉ; kèm mask 7 bit các thứ mở cửa (openDays).
+ * "Chi nhánh X có nghỉ ngày D không" chỉ còn là đọc một bit, không truy vấn DB.
+ *
+ * Chỉ phủ các năm trong cửa sổ [năm nay - past-years, năm nay + future-years]; ngày ngoài cửa sổ
+ * được trả lời bằng một query dựng lịch tạm cho khoảng đó (xem forRange).
+ * Dựng lại định kỳ, khi khởi động và sau khi chi nhánh / lịch nghỉ thay đổi (BranchDataChangedEvent);
+ * thay đổi ghi ở instance khác tới qua CacheInvalidationRelay (topic order.cache.invalidated), nên độ trễ
+ * chỉ còn bằng thời gian relay outbox + consumer thay vì tới refresh-interval-ms.
+ */
+@Service
+@Slf4j
+public class BranchClosureCalendar {
+
+    // Mỗi thứ trong tuần một bit: bit 0 = thứ Hai ... bit 6 = Chủ nhật
+    static final int ALL_DAYS_MASK = 0x7F;
+
+    private final BranchRepository branchRepository;
+    private final BranchClosureRepository branchClosureRepository;
+
+    @Value("${branch.closure-calendar.past-years:1}")
+    private int pastYears;
+
+    @Value("${branch.closure-calendar.future-years:2}")
+    private int futureYears;
+
+    private volatile Calendar snapshot;
+    // Chỉ một luồng dựng lại lịch (query DB) tại một thời điểm
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    public BranchClosureCalendar(BranchRepository branchRepository,
+            BranchClosureRepository branchClosureRepository) {
+        this.branchRepository = branchRepository;
+        this.branchClosureRepository = branchClosureRepository;
+    }
+
+    /**
+     * Lịch nghỉ bất biến cho các năm [firstYear, lastYear].
+     */
+    public static final class Calendar {
+        private final int firstYear;
+        private final int lastYear;
+        private final BitSet[] global;
+        private final Map<Integer, BitSet[]> byBranch;
+        private final Map<Integer, Integer> openDaysMasks;
+
+        private Calendar(int firstYear, int lastYear, BitSet[] global, Map<Integer, BitSet[]> byBranch,
+                Map<Integer, Integer> openDaysMasks) {
+            this.firstYear = firstYear;
+            this.lastYear = lastYear;
+            this.global = global;
+            this.byBranch = byBranch;
+            this.openDaysMasks = openDaysMasks;
+        }
+
+        static Calendar build(int firstYear, int lastYear, List<BranchClosure> closures, List<Branch> branches) {
+            int years = lastYear - firstYear + 1;
+            BitSet[] global = new BitSet[years];
+            Map<Integer, BitSet[]> byBranch = new HashMap<>();
+            LocalDate windowStart = LocalDate.of(firstYear, 1, 1);
+            LocalDate windowEnd = LocalDate.of(lastYear, 12, 31);
+
+            for (BranchClosure closure : closures) {
+                if (closure.getStartDate() == null || closure.getEndDate() == null) {
+                    continue;
+                }
+                LocalDate from = closure.getStartDate().isBefore(windowStart) ? windowStart : closure.getStartDate();
+                LocalDate to = closure.getEndDate().isAfter(windowEnd) ? windowEnd : closure.getEndDate();
+                if (from.isAfter(to)) {
+                    continue;
+                }
+                BitSet[] target = closure.getBranchId() == null
+                        ? global
+                        : byBranch.computeIfAbsent(closure.getBranchId(), k -> new BitSet[years]);
+                // Đánh dấu theo từng năm bằng BitSet.set(from, to) thay vì từng ngày
+                for (int year = from.getYear(); year <= to.getYear(); year++) {
+                    int startDay = year == from.getYear() ? from.getDayOfYear() - 1 : 0;
+                    int endDay = year == to.getYear() ? to.getDayOfYear() : LocalDate.of(year, 12, 31).getDayOfYear();
+                    int index = year - firstYear;
+                    if (target[index] == null) {
+                        target[index] = new BitSet(366);
+                    }
+                    target[index].set(startDay, endDay);
+                }
+            }
+
+            Map<Integer, Integer> masks = new HashMap<>();
+            for (Branch branch : branches) {
+                masks.put(branch.getBranchId(), openDaysMask(branch.getOpenDays()));
+            }
+            return new Calendar(firstYear, lastYear, global, byBranch, masks);
+        }
+
+        public boolean covers(LocalDate date) {
+            return date.getYear() >= firstYear && date.getYear() <= lastYear;
+        }
+
+        /**
+         * Ngày có lịch nghỉ (toàn hệ thống, hoặc của chi nhánh nếu branchId khác null).
+         */
+        public boolean isClosed(Integer branchId, LocalDate date) {
+            int index = date.getYear() - firstYear;
+            int day = date.getDayOfYear() - 1;
+            if (isSet(global[index], day)) {
+                return true;
+            }
+            if (branchId == null) {
+                return false;
+            }
+            BitSet[] branchDays = byBranch.get(branchId);
+            return branchDays != null && isSet(branchDays[index], day);
+        }
+
+        /**
+         * Không có lịch nghỉ và thứ trong tuần nằm trong openDays của chi nhánh.
+         */
+        public boolean isOpen(Integer branchId, LocalDate date) {
+            if (isClosed(branchId, date)) {
+                return false;
+            }
+            int mask = branchId != null ? openDaysMasks.getOrDefault(branchId, ALL_DAYS_MASK) : ALL_DAYS_MASK;
+            return (mask & (1 << (date.getDayOfWeek().getValue() - 1))) != 0;
+        }
+
+        private static boolean isSet(BitSet days, int day) {
+            return days != null && days.get(day);
+        }
+    }
+
+    /**
+     * Mask các thứ mở cửa từ chuỗi openDays ("1,2,3,4,5", 1 = thứ Hai). Rỗng = mở tất cả các ngày,
+     * giống BranchClosureService.isBranchOperatingOnDate.
+     */
+    static int openDaysMask(String openDays) {
+        if (openDays == null || openDays.trim().isEmpty()) {
+            return ALL_DAYS_MASK;
+        }
+        int mask = 0;
+        for (String dayStr : openDays.split(",")) {
+            try {
+                int day = Integer.parseInt(dayStr.trim());
+                if (day >= 1 && day <= 7) {
+                    mask |= 1 << (day - 1);
+                }
+            } catch (NumberFormatException e) {
+                // Bỏ qua giá trị không hợp lệ như isBranchOperatingOnDate
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Snapshot hiện tại, null nếu chưa dựng được (DB lỗi lúc khởi động).
+     */
+    public Calendar current() {
+        Calendar current = snapshot;
+        if (current == null) {
+            try {
+                current = rebuild(false);
+            } catch (Exception e) {
+                log.error("[BranchClosureCalendar] Failed to build closure calendar", e);
+                return null;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Lịch phủ [from, to]: dùng snapshot nếu nằm trong cửa sổ, ngược lại dựng lịch tạm từ một query.
+     */
+    public Calendar forRange(LocalDate from, LocalDate to) {
+        Calendar current = current();
+        if (current != null && current.covers(from) && current.covers(to)) {
+            return current;
+        }
+        return Calendar.build(from.getYear(), to.getYear(),
+                branchClosureRepository.findByDateOverlap(from, to), branchRepository.findAll());
+    }
+
+    /**
+     * Các ngày trong [from, to] thỏa điều kiện open (true = ngày mở cửa, false = ngày có lịch nghỉ).
+     */
+    public List<LocalDate> daysMatching(Calendar calendar, Integer branchId, LocalDate from, LocalDate to, boolean open) {
+        List<LocalDate> days = new ArrayList<>();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            boolean matches = open ? calendar.isOpen(branchId, day) : calendar.isClosed(branchId, day);
+            if (matches) {
+                days.add(day);
+            }
+        }
+        return days;
+    }
+
+    /**
+     * Dựng lại lịch: 1 query chi nhánh + 1 query lịch nghỉ giao với cửa sổ.
+     * force = false: nếu luồng khác vừa dựng xong trong lúc chờ khoá thì dùng luôn snapshot đó.
+     */
+    private Calendar rebuild(boolean force) {
+        rebuildLock.lock();
+        try {
+            Calendar existing = snapshot;
+            if (!force && existing != null) {
+                return existing;
+            }
+            int year = LocalDate.now().getYear();
+            int firstYear = year - Math.max(0, pastYears);
+            int lastYear = year + Math.max(0, futureYears);
+            Calendar rebuilt = Calendar.build(firstYear, lastYear,
+                    branchClosureRepository.findByDateOverlap(LocalDate.of(firstYear, 1, 1), LocalDate.of(lastYear, 12, 31)),
+                    branchRepository.findAll());
+            snapshot = rebuilt;
+            log.debug("[BranchClosureCalendar] Built closure calendar for {}-{} ({} branches with closures)",
+                    firstYear, lastYear, rebuilt.byBranch.size());
+            return rebuilt;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${branch.closure-calendar.refresh-interval-ms:600000}")
+    public void refresh() {
+        try {
+            rebuild(true);
+        } catch (Exception e) {
+            // Giữ snapshot cũ nếu DB tạm thời lỗi
+            log.error("[BranchClosureCalendar] Failed to refresh closure calendar", e);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        refresh();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBranchDataChanged(BranchDataChangedEvent event) {
+        log.debug("[BranchClosureCalendar] Branch data changed (branch {}, {}), rebuilding", event.getBranchId(), event.getReason());
+        refresh();
+    }
+}
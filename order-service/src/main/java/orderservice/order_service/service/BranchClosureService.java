@@ -7,19 +7,23 @@ import orderservice.order_service.dto.request.CreateBranchClosureRequest;
 import orderservice.order_service.dto.request.UpdateBranchClosureRequest;
 import orderservice.order_service.dto.request.UpdateBranchClosureGroupRequest;
 import orderservice.order_service.dto.request.DeleteBranchClosureGroupRequest;
+import orderservice.order_service.dto.response.BranchCalendarResponse;
 import orderservice.order_service.dto.response.BranchClosureResponse;
 import orderservice.order_service.dto.response.UserResponse;
 import orderservice.order_service.entity.Branch;
 import orderservice.order_service.entity.BranchClosure;
+import orderservice.order_service.events.BranchDataChangedEvent;
 import orderservice.order_service.exception.AppException;
 import orderservice.order_service.exception.ErrorCode;
 import orderservice.order_service.repository.BranchClosureRepository;
 import orderservice.order_service.repository.BranchRepository;
 import orderservice.order_service.util.SecurityUtils;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -32,9 +36,13 @@ import java.util.stream.Collectors;
 @Slf4j
 public class BranchClosureService {
 
+    private static final int MAX_CALENDAR_DAYS = 366;
+
     private final BranchClosureRepository branchClosureRepository;
     private final BranchRepository branchRepository;
     private final AuthServiceClient authServiceClient;
+    private final ApplicationEventPublisher eventPublisher;
+    private final BranchClosureCalendar branchClosureCalendar;
 
     @Transactional
     public BranchClosureResponse createClosure(CreateBranchClosureRequest request) {
@@ -87,6 +95,7 @@ public class BranchClosureService {
                 .build();
 
         BranchClosure saved = branchClosureRepository.save(closure);
+        publishChanged(saved.getBranchId(), "closure created");
         return toResponse(saved);
     }
 
@@ -135,6 +144,7 @@ public class BranchClosureService {
         }
 
         BranchClosure updated = branchClosureRepository.save(closure);
+        publishChanged(updated.getBranchId(), "closure updated");
         return toResponse(updated);
     }
 
@@ -154,6 +164,7 @@ public class BranchClosureService {
         }
         
         branchClosureRepository.delete(closure);
+        publishChanged(closure.getBranchId(), "closure deleted");
     }
 
     /**
@@ -269,6 +280,7 @@ public class BranchClosureService {
             }
             
             List<BranchClosure> saved = branchClosureRepository.saveAll(newClosures);
+            publishChanged(null, "closure group updated");
             return saved.stream().map(this::toResponse).collect(Collectors.toList());
         } else {
             // TH1: Branches unchanged -> update all records
@@ -284,6 +296,7 @@ public class BranchClosureService {
                 }
             }
             List<BranchClosure> updated = branchClosureRepository.saveAll(closures);
+            publishChanged(null, "closure group updated");
             return updated.stream().map(this::toResponse).collect(Collectors.toList());
         }
     }
@@ -326,6 +339,7 @@ public class BranchClosureService {
         }
         
         branchClosureRepository.deleteAll(closures);
+        publishChanged(null, "closure group deleted");
     }
 
     public BranchClosureResponse getClosure(Integer id) {
@@ -492,9 +506,8 @@ public class BranchClosureService {
                 } else {
                     // No branch filter: return all ADMIN-created closures, optionally filtered by overlap.
                     if (effectiveFrom != null && effectiveTo != null) {
-                        closures = branchClosureRepository.findAll().stream()
-                                .filter(c -> c.getStartDate() != null && c.getEndDate() != null)
-                                .filter(c -> !c.getStartDate().isAfter(effectiveTo) && !c.getEndDate().isBefore(effectiveFrom))
+                        // Lọc khoảng ngày trong DB thay vì tải toàn bộ bảng
+                        closures = branchClosureRepository.findByDateOverlap(effectiveFrom, effectiveTo).stream()
                                 .filter(c -> "ADMIN".equals(roleOfUser(c.getUserId(), creatorRoleCache)))
                                 .collect(Collectors.toList());
                     } else {
@@ -625,6 +638,12 @@ public class BranchClosureService {
         if (date == null) {
             return false;
         }
+
+        // Tra lịch nghỉ dựng sẵn (một bit), chỉ query DB khi ngày nằm ngoài cửa sổ của lịch
+        BranchClosureCalendar.Calendar calendar = branchClosureCalendar.current();
+        if (calendar != null && calendar.covers(date)) {
+            return calendar.isClosed(branchId, date);
+        }
         
         // Kiểm tra global closures (branchId = null) - áp dụng cho tất cả chi nhánh
         List<BranchClosure> globalClosures = branchClosureRepository.findByBranchIdIsNullAndDateOverlap(date, date);
@@ -648,6 +667,27 @@ public class BranchClosureService {
         return false;
     }
 
+    /**
+     * Ngày nghỉ và ngày mở cửa của chi nhánh trong [from, to] (tối đa 366 ngày), tính từ lịch nghỉ dựng sẵn.
+     * branchId = null: chỉ xét lịch nghỉ toàn hệ thống. Không lọc theo người tạo như listClosures.
+     */
+    public BranchCalendarResponse getCalendar(Integer branchId, LocalDate from, LocalDate to) {
+        if (from == null || to == null || to.isBefore(from)) {
+            throw new AppException(ErrorCode.BRANCH_CLOSURE_INVALID_DATE);
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_CALENDAR_DAYS) {
+            throw new AppException(ErrorCode.BRANCH_CALENDAR_RANGE_TOO_LARGE);
+        }
+        BranchClosureCalendar.Calendar calendar = branchClosureCalendar.forRange(from, to);
+        return BranchCalendarResponse.builder()
+                .branchId(branchId)
+                .from(from)
+                .to(to)
+                .closedDates(branchClosureCalendar.daysMatching(calendar, branchId, from, to, false))
+                .openDates(branchClosureCalendar.daysMatching(calendar, branchId, from, to, true))
+                .build();
+    }
+
     /**
      * Kiểm tra xem chi nhánh có hoạt động vào một ngày cụ thể không (dựa trên openDays)
      * @param branch Chi nhánh cần kiểm tra
@@ -687,6 +727,13 @@ public class BranchClosureService {
         return false;
     }
 
+    /**
+     * Báo cho BranchLocationIndex và BranchClosureCalendar dựng lại sau khi transaction commit
+     */
+    private void publishChanged(Integer branchId, String reason) {
+        eventPublisher.publishEvent(new BranchDataChangedEvent(branchId, reason));
+    }
+
     private BranchClosureResponse toResponse(BranchClosure closure) {
         return BranchClosureResponse.builder()
                 .id(closure.getId())
@@ -0,0 +1,285 @@
+package orderservice.order_service.service;
+
+import lombok.extern.slf4j.Slf4j;
+import orderservice.order_service.entity.Branch;
+import orderservice.order_service.entity.BranchClosure;
+import orderservice.order_service.events.BranchDataChangedEvent;
+import orderservice.order_service.repository.BranchClosureRepository;
+import orderservice.order_service.repository.BranchRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Chỉ mục vị trí chi nhánh trong bộ nhớ, dùng cho chọn chi nhánh gần nhất mà không cần truy vấn DB.
+ *
+ * Chi nhánh có tọa độ được chia vào lưới ô vuông theo lat/lng (cell-size-degrees), truy vấn theo bán kính
+ * chỉ xét các ô giao với bounding box của vòng tròn. Kèm theo là snapshot "mở cửa hôm nay"
+ * (không có lịch nghỉ và ngày nằm trong openDays); giờ mở cửa được kiểm tra lúc truy vấn.
+ *
+ * Snapshot được dựng lại định kỳ, khi sang ngày mới, và sau khi chi nhánh / lịch nghỉ thay đổi
+ * (BranchDataChangedEvent). Các Branch trả về là bản dùng chung, chỉ được đọc.
+ */
+@Service
+@Slf4j
+public class BranchLocationIndex {
+
+    private static final double KM_PER_DEGREE_LAT = 111.32;
+    // So sánh ổn định: khoảng cách chênh dưới ngưỡng này coi như bằng nhau, ưu tiên branch_id nhỏ
+    private static final double DISTANCE_TIE_KM = 0.05;
+
+    private final BranchRepository branchRepository;
+    private final BranchClosureRepository branchClosureRepository;
+    private final BranchClosureService branchClosureService;
+    private final GeocodingService geocodingService;
+
+    @Value("${branch.index.cell-size-degrees:0.05}")
+    private double cellSizeDegrees;
+
+    private volatile Snapshot snapshot;
+    // Chỉ một luồng dựng lại snapshot (query DB) tại một thời điểm
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    public BranchLocationIndex(BranchRepository branchRepository,
+            BranchClosureRepository branchClosureRepository,
+            BranchClosureService branchClosureService,
+            GeocodingService geocodingService) {
+        this.branchRepository = branchRepository;
+        this.branchClosureRepository = branchClosureRepository;
+        this.branchClosureService = branchClosureService;
+        this.geocodingService = geocodingService;
+    }
+
+    /**
+     * Chi nhánh kèm khoảng cách (km) tới điểm truy vấn.
+     */
+    public record Candidate(Branch branch, double distanceKm) {
+    }
+
+    private record IndexedBranch(Branch branch, GeocodingService.Coordinates location) {
+    }
+
+    private record Snapshot(LocalDate date, double cellSize, Map<Long, List<IndexedBranch>> cells,
+            List<IndexedBranch> openToday) {
+    }
+
+    /**
+     * Các chi nhánh có tọa độ, mở cửa hôm nay và đang trong giờ làm việc, sắp xếp theo branch_id.
+     */
+    public List<Branch> findOpenNow() {
+        LocalTime now = LocalTime.now();
+        return current().openToday().stream()
+                .map(IndexedBranch::branch)
+                .filter(b -> isWithinWorkingHours(b, now))
+                .toList();
+    }
+
+    /**
+     * Chi nhánh đang mở gần nhất trong bán kính (null = không giới hạn), null nếu không có.
+     */
+    public Candidate findNearest(GeocodingService.Coordinates origin, Double radiusKm) {
+        Candidate nearest = null;
+        for (Candidate candidate : collect(origin, radiusKm)) {
+            if (nearest == null
+                    || candidate.distanceKm() < nearest.distanceKm() - DISTANCE_TIE_KM
+                    || (Math.abs(candidate.distanceKm() - nearest.distanceKm()) < DISTANCE_TIE_KM
+                            && candidate.branch().getBranchId() < nearest.branch().getBranchId())) {
+                nearest = candidate;
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * k chi nhánh đang mở gần nhất trong bán kính (null = không giới hạn),
+     * sắp xếp theo khoảng cách rồi branch_id.
+     */
+    public List<Candidate> findTopK(GeocodingService.Coordinates origin, int k, Double radiusKm) {
+        if (k <= 0) {
+            return List.of();
+        }
+        Comparator<Candidate> order = Comparator.comparingDouble(Candidate::distanceKm)
+                .thenComparing(c -> c.branch().getBranchId());
+        // Max-heap kích thước k: phần tử xa nhất nằm ở đầu để bị thay thế
+        PriorityQueue<Candidate> heap = new PriorityQueue<>(k + 1, order.reversed());
+        for (Candidate candidate : collect(origin, radiusKm)) {
+            heap.offer(candidate);
+            if (heap.size() > k) {
+                heap.poll();
+            }
+        }
+        List<Candidate> result = new ArrayList<>(heap);
+        result.sort(order);
+        return result;
+    }
+
+    private List<Candidate> collect(GeocodingService.Coordinates origin, Double radiusKm) {
+        Snapshot current = current();
+        LocalTime now = LocalTime.now();
+        List<Candidate> candidates = new ArrayList<>();
+        for (IndexedBranch indexed : candidatesNear(current, origin, radiusKm)) {
+            if (!isWithinWorkingHours(indexed.branch(), now)) {
+                continue;
+            }
+            double distance = geocodingService.calculateDistance(origin, indexed.location());
+            if (radiusKm == null || distance <= radiusKm) {
+                candidates.add(new Candidate(indexed.branch(), distance));
+            }
+        }
+        return candidates;
+    }
+
+    private List<IndexedBranch> candidatesNear(Snapshot current, GeocodingService.Coordinates origin, Double radiusKm) {
+        if (radiusKm == null) {
+            return current.openToday();
+        }
+        double dLat = radiusKm / KM_PER_DEGREE_LAT;
+        double cosLat = Math.max(Math.cos(Math.toRadians(origin.getLatitude())), 0.01);
+        double dLng = radiusKm / (KM_PER_DEGREE_LAT * cosLat);
+
+        long minRow = cellOf(origin.getLatitude() - dLat, current.cellSize());
+        long maxRow = cellOf(origin.getLatitude() + dLat, current.cellSize());
+        long minCol = cellOf(origin.getLongitude() - dLng, current.cellSize());
+        long maxCol = cellOf(origin.getLongitude() + dLng, current.cellSize());
+
+        // Bán kính phủ nhiều ô hơn số ô đang có dữ liệu: duyệt thẳng danh sách sẽ rẻ hơn
+        if ((maxRow - minRow + 1) * (maxCol - minCol + 1) > current.cells().size()) {
+            return current.openToday();
+        }
+
+        List<IndexedBranch> result = new ArrayList<>();
+        for (long row = minRow; row <= maxRow; row++) {
+            for (long col = minCol; col <= maxCol; col++) {
+                List<IndexedBranch> cell = current.cells().get(cellKey(row, col));
+                if (cell != null) {
+                    result.addAll(cell);
+                }
+            }
+        }
+        return result;
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null || !current.date().equals(LocalDate.now())) {
+            current = rebuild(false);
+        }
+        return current;
+    }
+
+    /**
+     * Dựng lại chỉ mục từ DB: 1 query chi nhánh + 1 query lịch nghỉ của ngày hôm nay.
+     *
+     * @param force false = chỉ dựng nếu snapshot vẫn cũ sau khi lấy lock (các request chờ lúc khởi động /
+     *              sang ngày dùng lại snapshot vừa dựng thay vì lần lượt dựng lại)
+     */
+    private Snapshot rebuild(boolean force) {
+        rebuildLock.lock();
+        try {
+            LocalDate today = LocalDate.now();
+            Snapshot existing = snapshot;
+            if (!force && existing != null && existing.date().equals(today)) {
+                return existing;
+            }
+            List<Branch> branches = branchRepository.findAll();
+
+            boolean globalClosure = false;
+            Set<Integer> closedBranchIds = new HashSet<>();
+            for (BranchClosure closure : branchClosureRepository.findByDateOverlap(today, today)) {
+                if (closure.getBranchId() == null) {
+                    globalClosure = true;
+                } else {
+                    closedBranchIds.add(closure.getBranchId());
+                }
+            }
+
+            double cellSize = cellSizeDegrees > 0 ? cellSizeDegrees : 0.05;
+            Map<Long, List<IndexedBranch>> cells = new HashMap<>();
+            List<IndexedBranch> openToday = new ArrayList<>();
+            for (Branch branch : branches) {
+                if (branch.getLatitude() == null || branch.getLongitude() == null) {
+                    continue;
+                }
+                if (globalClosure || closedBranchIds.contains(branch.getBranchId())
+                        || !branchClosureService.isBranchOperatingOnDate(branch, today)) {
+                    continue;
+                }
+                IndexedBranch indexed = new IndexedBranch(branch, new GeocodingService.Coordinates(
+                        branch.getLatitude().doubleValue(), branch.getLongitude().doubleValue()));
+                openToday.add(indexed);
+                long key = cellKey(cellOf(indexed.location().getLatitude(), cellSize),
+                        cellOf(indexed.location().getLongitude(), cellSize));
+                cells.computeIfAbsent(key, k -> new ArrayList<>()).add(indexed);
+            }
+            openToday.sort(Comparator.comparing(b -> b.branch().getBranchId()));
+
+            Snapshot rebuilt = new Snapshot(today, cellSize, cells, List.copyOf(openToday));
+            snapshot = rebuilt;
+            log.debug("[BranchLocationIndex] Indexed {} open branches in {} cells for {}", openToday.size(), cells.size(), today);
+            return rebuilt;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${branch.index.refresh-interval-ms:300000}")
+    public void refresh() {
+        try {
+            rebuild(true);
+        } catch (Exception e) {
+            // Giữ snapshot cũ nếu DB tạm thời lỗi
+            log.error("[BranchLocationIndex] Failed to refresh branch index", e);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        refresh();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBranchDataChanged(BranchDataChangedEvent event) {
+        log.debug("[BranchLocationIndex] Branch data changed (branch {}, {}), rebuilding", event.getBranchId(), event.getReason());
+        refresh();
+    }
+
+    static boolean isWithinWorkingHours(Branch branch, LocalTime currentTime) {
+        if (branch.getOpenHours() == null || branch.getEndHours() == null) {
+            // Nếu không có giờ làm việc, coi như luôn mở
+            return true;
+        }
+
+        if (branch.getEndHours().isAfter(branch.getOpenHours())) {
+            // Normal same-day window (e.g., 08:00 - 22:00)
+            return !currentTime.isBefore(branch.getOpenHours())
+                    && !currentTime.isAfter(branch.getEndHours());
+        } else {
+            // Overnight window (e.g., 22:00 - 06:00)
+            return !currentTime.isBefore(branch.getOpenHours())
+                    || !currentTime.isAfter(branch.getEndHours());
+        }
+    }
+
+    private static long cellOf(double degrees, double cellSize) {
+        return (long) Math.floor(degrees / cellSize);
+    }
+
+    private static long cellKey(long row, long col) {
+        return (row << 32) ^ (col & 0xffffffffL);
+    }
+}
@@ -2,10 +2,10 @@ package orderservice.order_service.service;
 
 import lombok.extern.slf4j.Slf4j;
 import orderservice.order_service.entity.Branch;
-import orderservice.order_service.repository.BranchRepository;
 import orderservice.order_service.mapper.BranchMapper;
 import orderservice.order_service.dto.response.BranchResponse;
 import orderservice.order_service.dto.response.BranchWithDistanceResponse;
+import orderservice.order_service.util.Deadline;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -16,14 +16,11 @@ import java.util.List;
 @Slf4j
 public class BranchSelectionService {
 
-    @Autowired
-    private BranchRepository branchRepository;
-
     @Autowired
     private GeocodingService geocodingService;
 
     @Autowired
-    private BranchClosureService branchClosureService;
+    private BranchLocationIndex branchLocationIndex;
 
     @Autowired
     private BranchMapper branchMapper;
@@ -31,108 +28,43 @@ public class BranchSelectionService {
     @Value("${delivery.max-distance-km:20}")
     private double maxDeliveryDistanceKm;
 
-    /**
-     * Kiểm tra chi nhánh có đang trong giờ làm việc không
-     * @param branch - Chi nhánh cần kiểm tra
-     * @return true nếu đang trong giờ làm việc, false nếu không
-     */
-    private boolean isBranchWithinWorkingHours(Branch branch) {
-        if (branch.getOpenHours() == null || branch.getEndHours() == null) {
-            // Nếu không có giờ làm việc, coi như luôn mở
-            return true;
-        }
-        
-        java.time.LocalTime currentTime = java.time.LocalTime.now();
-        
-        if (branch.getEndHours().isAfter(branch.getOpenHours())) {
-            // Normal same-day window (e.g., 08:00 - 22:00)
-            return !currentTime.isBefore(branch.getOpenHours()) 
-                    && !currentTime.isAfter(branch.getEndHours());
-        } else {
-            // Overnight window (e.g., 22:00 - 06:00)
-            return !currentTime.isBefore(branch.getOpenHours()) 
-                    || !currentTime.isAfter(branch.getEndHours());
-        }
-    }
-
     /**
      * Tìm chi nhánh gần nhất dựa trên địa chỉ khách hàng
      * Chỉ trả về chi nhánh đang hoạt động (không nghỉ, có trong openDays, và trong giờ làm việc)
      * QUAN TRỌNG: Tự động lọc theo khoảng cách tối đa (maxDeliveryDistanceKm)
      */
     public Branch findNearestBranch(String customerAddress) {
+        return findNearestBranch(customerAddress, geocodingService.newDeadline());
+    }
+
+    /**
+     * Như findNearestBranch(String), geocoding chỉ chờ tới deadline của bên gọi.
+     */
+    public Branch findNearestBranch(String customerAddress, Deadline deadline) {
         try {
 
             // 1️⃣ Geocoding địa chỉ khách hàng
-            GeocodingService.Coordinates customerLocation = geocodingService.geocodeAddress(customerAddress);
+            GeocodingService.Coordinates customerLocation = geocodingService.geocodeAddress(customerAddress, deadline);
 
-            // 2️⃣ Lấy danh sách chi nhánh, lọc các chi nhánh đang hoạt động
-            java.time.LocalDate today = java.time.LocalDate.now();
-            List<Branch> allBranches = branchRepository.findAll()
-                    .stream()
-                    .filter(b -> b.getLatitude() != null && b.getLongitude() != null)
-                    // Lọc chi nhánh đang nghỉ (branch closure)
-                    .filter(b -> !branchClosureService.isBranchClosedOnDate(b.getBranchId(), today))
-                    // Lọc chi nhánh không hoạt động vào ngày hôm nay (openDays)
-                    .filter(b -> branchClosureService.isBranchOperatingOnDate(b, today))
-                    .filter(b -> isBranchWithinWorkingHours(b))
-                    .sorted((a, b) -> a.getBranchId().compareTo(b.getBranchId()))
-                    .toList();
+            // 2️⃣ + 3️⃣ Tìm chi nhánh đang hoạt động gần nhất trong phạm vi cho phép (chỉ mục trong bộ nhớ,
+            // ưu tiên branch_id nhỏ nếu khoảng cách bằng nhau)
+            BranchLocationIndex.Candidate nearest = branchLocationIndex.findNearest(customerLocation, maxDeliveryDistanceKm);
 
-            if (allBranches.isEmpty()) {
-                log.warn("No active branches available for order on {}", today);
-                return null;
-            }
-
-            // 3️⃣ Tìm chi nhánh gần nhất trong phạm vi cho phép (ưu tiên branch_id nhỏ nếu khoảng cách bằng nhau)
-            Branch nearestBranch = null;
-            double minDistance = Double.MAX_VALUE;
-
-            for (Branch branch : allBranches) {
-                GeocodingService.Coordinates branchLocation = new GeocodingService.Coordinates(
-                        branch.getLatitude().doubleValue(),
-                        branch.getLongitude().doubleValue());
-
-                double distance = geocodingService.calculateDistance(customerLocation, branchLocation);
-
-                // QUAN TRỌNG: Chỉ xem xét chi nhánh trong phạm vi cho phép
-                if (distance > maxDeliveryDistanceKm) {
-                    log.debug("Branch {} is {} km away, exceeds max distance {} km, skipping", 
-                            branch.getBranchId(), distance, maxDeliveryDistanceKm);
-                    continue; // Bỏ qua chi nhánh quá xa
-                }
-
-                // So sánh ổn định: khoảng cách nhỏ hơn, hoặc bằng nhưng ID nhỏ hơn
-                if (distance < minDistance - 0.05 ||
-                        (Math.abs(distance - minDistance) < 0.05
-                                && (nearestBranch == null || branch.getBranchId() < nearestBranch.getBranchId()))) {
-                    minDistance = distance;
-                    nearestBranch = branch;
-                }
-            }
-
-            if (nearestBranch == null) {
-                log.warn("No branches found within {} km from address: {}", maxDeliveryDistanceKm, customerAddress);
+            if (nearest == null) {
+                log.warn("No active branches found within {} km from address: {}", maxDeliveryDistanceKm, customerAddress);
                 return null; // Không có chi nhánh trong phạm vi
             }
 
+            Branch nearestBranch = nearest.branch();
             log.info("Selected nearest active branch: {} (ID: {}) at {} km from address: {} (within {} km limit)", 
-                    nearestBranch.getName(), nearestBranch.getBranchId(), minDistance, customerAddress, maxDeliveryDistanceKm);
+                    nearestBranch.getName(), nearestBranch.getBranchId(), nearest.distanceKm(), customerAddress, maxDeliveryDistanceKm);
             return nearestBranch;
 
         } catch (Exception e) {
             log.error("Error finding nearest branch: {}", e.getMessage(), e);
 
             // Fallback: chọn chi nhánh đầu tiên có tọa độ và đang hoạt động (sau khi sắp xếp)
-            java.time.LocalDate today = java.time.LocalDate.now();
-            List<Branch> allBranches = branchRepository.findAll()
-                    .stream()
-                    .filter(b -> b.getLatitude() != null && b.getLongitude() != null)
-                    .filter(b -> !branchClosureService.isBranchClosedOnDate(b.getBranchId(), today))
-                    .filter(b -> branchClosureService.isBranchOperatingOnDate(b, today))
-                    .filter(b -> isBranchWithinWorkingHours(b))
-                    .sorted((a, b) -> a.getBranchId().compareTo(b.getBranchId()))
-                    .toList();
+            List<Branch> allBranches = branchLocationIndex.findOpenNow();
 
             if (!allBranches.isEmpty()) {
                 Branch fallback = allBranches.get(0);
@@ -152,8 +84,15 @@ public class BranchSelectionService {
      * @return Khoảng cách (km)
      */
     public double calculateDistanceFromAddress(String customerAddress, Branch branch) {
+        return calculateDistanceFromAddress(customerAddress, branch, geocodingService.newDeadline());
+    }
+
+    /**
+     * Như calculateDistanceFromAddress(String, Branch), geocoding chỉ chờ tới deadline của bên gọi.
+     */
+    public double calculateDistanceFromAddress(String customerAddress, Branch branch, Deadline deadline) {
         try {
-            GeocodingService.Coordinates customerLocation = geocodingService.geocodeAddress(customerAddress);
+            GeocodingService.Coordinates customerLocation = geocodingService.geocodeAddress(customerAddress, deadline);
             GeocodingService.Coordinates branchLocation = new GeocodingService.Coordinates(
                     branch.getLatitude().doubleValue(),
                     branch.getLongitude().doubleValue());
@@ -171,12 +110,20 @@ public class BranchSelectionService {
      * Chỉ trả về chi nhánh đang hoạt động (không nghỉ và có trong openDays)
      */
     public Branch findNearestBranchWithinDistance(String customerAddress, double maxDistanceKm) {
+        return findNearestBranchWithinDistance(customerAddress, maxDistanceKm, geocodingService.newDeadline());
+    }
+
+    /**
+     * Như findNearestBranchWithinDistance(String, double); cả hai lần geocode dùng chung deadline của bên gọi
+     * (lần thứ hai thường trúng cache).
+     */
+    public Branch findNearestBranchWithinDistance(String customerAddress, double maxDistanceKm, Deadline deadline) {
         // findNearestBranch đã tự động lọc các chi nhánh đang hoạt động
-        Branch nearestBranch = findNearestBranch(customerAddress);
+        Branch nearestBranch = findNearestBranch(customerAddress, deadline);
 
         if (nearestBranch != null) {
             try {
-                double distance = calculateDistanceFromAddress(customerAddress, nearestBranch);
+                double distance = calculateDistanceFromAddress(customerAddress, nearestBranch, deadline);
 
                 if (distance > maxDistanceKm) {
                     log.debug("Nearest active branch {} is {} km away, exceeds max distance {} km", 
@@ -218,73 +165,27 @@ public class BranchSelectionService {
             // 1️⃣ Geocoding địa chỉ khách hàng
             GeocodingService.Coordinates customerLocation = geocodingService.geocodeAddress(customerAddress);
 
-            // 2️⃣ Lấy danh sách chi nhánh, lọc các chi nhánh đang hoạt động
-            java.time.LocalDate today = java.time.LocalDate.now();
-            List<Branch> allBranches = branchRepository.findAll()
+            // 2️⃣ + 3️⃣ + 4️⃣ Lấy n chi nhánh đang hoạt động gần nhất, sắp xếp theo khoảng cách rồi branch_id
+            // QUAN TRỌNG: Lọc theo khoảng cách tối đa nếu có
+            return branchLocationIndex.findTopK(customerLocation, limit, maxDistanceKm)
                     .stream()
-                    .filter(b -> b.getLatitude() != null && b.getLongitude() != null)
-                    // Lọc chi nhánh đang nghỉ (branch closure)
-                    .filter(b -> !branchClosureService.isBranchClosedOnDate(b.getBranchId(), today))
-                    // Lọc chi nhánh không hoạt động vào ngày hôm nay (openDays)
-                    .filter(b -> branchClosureService.isBranchOperatingOnDate(b, today))
-                    .filter(b -> isBranchWithinWorkingHours(b))
-                    .sorted((a, b) -> a.getBranchId().compareTo(b.getBranchId()))
-                    .toList();
-
-            if (allBranches.isEmpty()) {
-                log.warn("No active branches available for order on {}", today);
-                return List.of();
-            }
-
-            // 3️⃣ Tính khoảng cách cho tất cả chi nhánh và sắp xếp
-            List<BranchWithDistance> branchesWithDistance = allBranches.stream()
-                    .map(branch -> {
-                        GeocodingService.Coordinates branchLocation = new GeocodingService.Coordinates(
-                                branch.getLatitude().doubleValue(),
-                                branch.getLongitude().doubleValue());
-                        double distance = geocodingService.calculateDistance(customerLocation, branchLocation);
-                        return new BranchWithDistance(branch, distance);
-                    })
-                    // QUAN TRỌNG: Lọc theo khoảng cách tối đa nếu có
-                    .filter(branchWithDistance -> maxDistanceKm == null || branchWithDistance.distance <= maxDistanceKm)
-                    .sorted((a, b) -> {
-                        // Sắp xếp theo khoảng cách, nếu bằng nhau thì theo branch_id
-                        int distanceComparison = Double.compare(a.distance, b.distance);
-                        if (distanceComparison == 0) {
-                            return a.branch.getBranchId().compareTo(b.branch.getBranchId());
-                        }
-                        return distanceComparison;
-                    })
-                    .toList();
-
-            // 4️⃣ Lấy n chi nhánh gần nhất
-            return branchesWithDistance.stream()
-                    .limit(limit)
-                    .map(branchWithDistance -> branchWithDistance.branch)
+                    .map(BranchLocationIndex.Candidate::branch)
                     .toList();
 
         } catch (Exception e) {
             log.error("Error finding top nearest branches: {}", e.getMessage(), e);
             
             // Fallback: trả về n chi nhánh đầu tiên có tọa độ và đang hoạt động
-            java.time.LocalDate today = java.time.LocalDate.now();
-            List<Branch> allBranches = branchRepository.findAll()
+            return branchLocationIndex.findOpenNow()
                     .stream()
-                    .filter(b -> b.getLatitude() != null && b.getLongitude() != null)
-                    .filter(b -> !branchClosureService.isBranchClosedOnDate(b.getBranchId(), today))
-                    .filter(b -> branchClosureService.isBranchOperatingOnDate(b, today))
-                    .filter(b -> isBranchWithinWorkingHours(b))
-                    .sorted((a, b) -> a.getBranchId().compareTo(b.getBranchId()))
                     .limit(limit)
                     .toList();
-
-            return allBranches;
         }
     }
 
     /**
      * Tìm n chi nhánh gần nhất với khoảng cách và thời gian giao hàng ước tính
-     * Tận dụng method findTopNearestBranches() có sẵn và thêm thông tin khoảng cách
+     * Dùng chung chỉ mục vị trí với findTopNearestBranches() và thêm thông tin khoảng cách
      * QUAN TRỌNG: Tự động lọc theo khoảng cách tối đa (maxDeliveryDistanceKm)
      * @param customerAddress - Địa chỉ khách hàng
      * @param limit - Số lượng chi nhánh cần lấy
@@ -293,32 +194,28 @@ public class BranchSelectionService {
     public List<BranchWithDistanceResponse> findTopNearestBranchesWithDistance(
             String customerAddress, int limit) {
         try {
-            // Tận dụng method có sẵn để lấy danh sách chi nhánh gần nhất
+            // Geocoding địa chỉ khách hàng một lần, chỉ mục trả về luôn khoảng cách
+            GeocodingService.Coordinates customerLocation = geocodingService.geocodeAddress(customerAddress);
+
             // QUAN TRỌNG: Lọc theo khoảng cách tối đa
-            List<Branch> nearestBranches = findTopNearestBranches(customerAddress, limit, maxDeliveryDistanceKm);
+            List<BranchLocationIndex.Candidate> nearestBranches =
+                    branchLocationIndex.findTopK(customerLocation, limit, maxDeliveryDistanceKm);
             
-            if (nearestBranches == null || nearestBranches.isEmpty()) {
+            if (nearestBranches.isEmpty()) {
                 log.warn("No branches found for address: {}", customerAddress);
                 return List.of();
             }
 
-            // Geocoding địa chỉ khách hàng để tính khoảng cách
-            GeocodingService.Coordinates customerLocation = geocodingService.geocodeAddress(customerAddress);
-
-            // Tính khoảng cách và tạo response cho từng chi nhánh
+            // Tạo response cho từng chi nhánh
             List<BranchWithDistanceResponse> branchesWithDistance = nearestBranches.stream()
-                    .map(branch -> {
-                        GeocodingService.Coordinates branchLocation = new GeocodingService.Coordinates(
-                                branch.getLatitude().doubleValue(),
-                                branch.getLongitude().doubleValue());
-                        
-                        double distance = geocodingService.calculateDistance(customerLocation, branchLocation);
+                    .map(candidate -> {
+                        double distance = candidate.distanceKm();
                         
                         // Ước tính thời gian giao hàng: 5 phút/km (trung bình 12km/h)
                         int estimatedTime = (int) Math.ceil(distance * 5);
                         
                         // Map Branch to BranchResponse sử dụng mapper
-                        BranchResponse branchResponse = branchMapper.toBranchResponse(branch);
+                        BranchResponse branchResponse = branchMapper.toBranchResponse(candidate.branch());
                         
                         return BranchWithDistanceResponse.builder()
                                 .branch(branchResponse)
@@ -335,17 +232,4 @@ public class BranchSelectionService {
             return List.of();
         }
     }
-
-    /**
-     * Helper class để lưu trữ chi nhánh và khoảng cách
-     */
-    private static class BranchWithDistance {
-        final Branch branch;
-        final double distance;
-
-        BranchWithDistance(Branch branch, double distance) {
-            this.branch = branch;
-            this.distance = distance;
-        }
-    }
 }
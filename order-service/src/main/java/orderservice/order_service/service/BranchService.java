@@ -2,11 +2,13 @@ package orderservice.order_service.service;
 
 import orderservice.order_service.dto.request.CreateBranchRequest;
 import orderservice.order_service.entity.Branch;
+import orderservice.order_service.events.BranchDataChangedEvent;
 import orderservice.order_service.exception.AppException;
 import orderservice.order_service.exception.ErrorCode;
 import orderservice.order_service.repository.BranchRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -16,6 +18,7 @@ import org.springframework.data.domain.PageRequest;
 import java.math.BigDecimal;
 import java.time.LocalTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -24,14 +27,17 @@ public class BranchService {
 
     private final BranchRepository branchRepository;
     private final GeocodingService geocodingService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Value("${geocoding.mandatory:true}")
     private boolean geocodingMandatory;
 
     @Autowired
-    public BranchService(BranchRepository branchRepository, GeocodingService geocodingService) {
+    public BranchService(BranchRepository branchRepository, GeocodingService geocodingService,
+            ApplicationEventPublisher eventPublisher) {
         this.branchRepository = branchRepository;
         this.geocodingService = geocodingService;
+        this.eventPublisher = eventPublisher;
     }
 
     public Branch createBranch(CreateBranchRequest request) {
@@ -90,7 +96,9 @@ public class BranchService {
             }
         }
 
-        return branchRepository.save(branch);
+        Branch saved = branchRepository.save(branch);
+        publishChanged(saved.getBranchId(), "created");
+        return saved;
     }
 
     public List<Branch> getAllBranches() {
@@ -214,7 +222,9 @@ public class BranchService {
             }
         }
 
-        return branchRepository.save(branch);
+        Branch saved = branchRepository.save(branch);
+        publishChanged(branchId, "updated");
+        return saved;
     }
 
     public void deleteBranch(Integer branchId) {
@@ -228,6 +238,7 @@ public class BranchService {
 
         try {
             branchRepository.deleteById(branchId);
+            publishChanged(branchId, "deleted");
         } catch (org.springframework.dao.DataIntegrityViolationException ex) {
             // Foreign key constraints exist in related tables
             throw new AppException(ErrorCode.BRANCH_IN_USE);
@@ -252,7 +263,9 @@ public class BranchService {
                 if (coordinates != null) {
                     branch.setLatitude(BigDecimal.valueOf(coordinates.getLatitude()));
                     branch.setLongitude(BigDecimal.valueOf(coordinates.getLongitude()));
-                    return branchRepository.save(branch);
+                    Branch saved = branchRepository.save(branch);
+                    publishChanged(branchId, "geocoded");
+                    return saved;
                 }
             } catch (Exception e) {
                 throw new AppException(ErrorCode.UNCATEGORIZED_EXCEPTION);
@@ -268,21 +281,32 @@ public class BranchService {
     public List<Branch> geocodeAllBranchesWithoutCoordinates() {
         List<Branch> branches = branchRepository.findByLatitudeIsNullOrLongitudeIsNull();
 
+        // Geocode song song (giới hạn đồng thời + rate limit trong GeocodingClient)
+        Map<String, GeocodingService.Coordinates> coordinatesByAddress = geocodingService
+                .geocodeAddressesWithFallback(branches.stream()
+                        .map(Branch::getAddress)
+                        .filter(address -> address != null && !address.trim().isEmpty())
+                        .toList());
+
         for (Branch branch : branches) {
-            if (branch.getAddress() != null && !branch.getAddress().trim().isEmpty()) {
-                try {
-                    GeocodingService.Coordinates coordinates = geocodingService
-                            .geocodeAddressWithFallback(branch.getAddress());
-                    if (coordinates != null) {
-                        branch.setLatitude(BigDecimal.valueOf(coordinates.getLatitude()));
-                        branch.setLongitude(BigDecimal.valueOf(coordinates.getLongitude()));
-                    }
-                } catch (Exception e) {
-                    // Geocoding failed for this branch
-                }
+            GeocodingService.Coordinates coordinates = branch.getAddress() != null
+                    ? coordinatesByAddress.get(branch.getAddress())
+                    : null;
+            if (coordinates != null) {
+                branch.setLatitude(BigDecimal.valueOf(coordinates.getLatitude()));
+                branch.setLongitude(BigDecimal.valueOf(coordinates.getLongitude()));
             }
         }
 
-        return branchRepository.saveAll(branches);
+        List<Branch> saved = branchRepository.saveAll(branches);
+        publishChanged(null, "geocoded");
+        return saved;
+    }
+
+    /**
+     * Báo cho BranchLocationIndex dựng lại chỉ mục sau khi transaction commit
+     */
+    private void publishChanged(Integer branchId, String reason) {
+        eventPublisher.publishEvent(new BranchDataChangedEvent(branchId, reason));
     }
 }
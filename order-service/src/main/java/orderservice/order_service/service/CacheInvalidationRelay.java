@@ -0,0 +1,99 @@
+package orderservice.order_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import orderservice.order_service.events.BranchDataChangedEvent;
+import orderservice.order_service.events.CacheInvalidationEvent;
+import orderservice.order_service.events.TableAvailabilityChangedEvent;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+
+/**
+ * Đồng bộ các chỉ mục trong bộ nhớ giữa các instance order-service.
+ *
+ * Sự kiện nội bộ (TableAvailabilityChangedEvent, BranchDataChangedEvent) chỉ tới instance đã ghi thay đổi. Relay ghi thêm một
+ * CacheInvalidationEvent vào outbox trong cùng transaction (nên không gửi nếu rollback); mọi instance nghe topic
+ * với consumer group riêng và dựng lại chi nhánh tương ứng, instance origin bỏ qua vì đã tự dựng lại.
+ */
+@Component
+@Slf4j
+public class CacheInvalidationRelay {
+
+    private final OrderEventProducer orderEventProducer;
+    private final ObjectMapper objectMapper;
+    private final TableAvailabilityIndex tableAvailabilityIndex;
+    private final BranchLocationIndex branchLocationIndex;
+    private final BranchClosureCalendar branchClosureCalendar;
+
+    @Value("${app.kafka.instance-id:order-service}")
+    private String instanceId;
+
+    public CacheInvalidationRelay(OrderEventProducer orderEventProducer,
+            @Qualifier("kafkaObjectMapper") ObjectMapper objectMapper,
+            TableAvailabilityIndex tableAvailabilityIndex,
+            BranchLocationIndex branchLocationIndex,
+            BranchClosureCalendar branchClosureCalendar) {
+        this.orderEventProducer = orderEventProducer;
+        this.objectMapper = objectMapper;
+        this.tableAvailabilityIndex = tableAvailabilityIndex;
+        this.branchLocationIndex = branchLocationIndex;
+        this.branchClosureCalendar = branchClosureCalendar;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onTableAvailabilityChanged(TableAvailabilityChangedEvent event) {
+        forward(CacheInvalidationEvent.TABLE_AVAILABILITY, event.getBranchId(), event.getReason());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onBranchDataChanged(BranchDataChangedEvent event) {
+        forward(CacheInvalidationEvent.BRANCH_DATA, event.getBranchId(), event.getReason());
+    }
+
+    private void forward(String cache, Integer branchId, String reason) {
+        orderEventProducer.publishCacheInvalidation(CacheInvalidationEvent.builder()
+                .cache(cache)
+                .branchId(branchId)
+                .reason(reason)
+                .origin(instanceId)
+                .occurredAt(Instant.now())
+                .build());
+    }
+
+    // Mỗi instance dùng group riêng để instance nào cũng nhận được sự kiện và dựng lại chỉ mục của mình
+    @KafkaListener(topics = "${app.kafka.topics.cache-invalidated:order.cache.invalidated}",
+            groupId = "order-cache-invalidation-${app.kafka.instance-id:order-service}")
+    public void onCacheInvalidated(String payload) {
+        CacheInvalidationEvent event;
+        try {
+            event = objectMapper.readValue(payload, CacheInvalidationEvent.class);
+        } catch (Exception e) {
+            log.error("[CacheInvalidationRelay] Cannot parse cache invalidation event, rebuilding all: {}", e.getMessage());
+            tableAvailabilityIndex.onTableAvailabilityChanged(new TableAvailabilityChangedEvent(null, "remote:unparseable"));
+            rebuildBranchData(new BranchDataChangedEvent(null, "remote:unparseable"));
+            return;
+        }
+        if (instanceId.equals(event.getOrigin())) {
+            return;
+        }
+        log.debug("[CacheInvalidationRelay] {} changed on {} (branch {}, {}), rebuilding",
+                event.getCache(), event.getOrigin(), event.getBranchId(), event.getReason());
+        if (CacheInvalidationEvent.TABLE_AVAILABILITY.equals(event.getCache())) {
+            tableAvailabilityIndex.onTableAvailabilityChanged(
+                    new TableAvailabilityChangedEvent(event.getBranchId(), "remote:" + event.getReason()));
+        } else if (CacheInvalidationEvent.BRANCH_DATA.equals(event.getCache())) {
+            rebuildBranchData(new BranchDataChangedEvent(event.getBranchId(), "remote:" + event.getReason()));
+        }
+    }
+
+    private void rebuildBranchData(BranchDataChangedEvent event) {
+        branchLocationIndex.onBranchDataChanged(event);
+        branchClosureCalendar.onBranchDataChanged(event);
+    }
+}
@@ -0,0 +1,189 @@
+package orderservice.order_service.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import orderservice.order_service.client.CatalogServiceClient;
+import orderservice.order_service.dto.ApiResponse;
+import orderservice.order_service.dto.response.ProductResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thông tin product (kèm các size) để hiển thị giỏ hàng.
+ *
+ * Ba tầng: map theo request (một request không hỏi catalog hai lần cho cùng product), cache dùng chung
+ * với TTL ngắn, và một lần gọi bulk GET /products/by-ids cho các product còn thiếu.
+ * Khi catalog chậm / lỗi, trả về bản đã cache (kể cả đã quá TTL) thay vì để product = null.
+ * Cache được xoá theo sự kiện "product updated" từ catalog-service (CatalogEventListener).
+ */
+@Service
+@Slf4j
+public class CartCatalogCache {
+
+    private static final String REQUEST_ATTRIBUTE = CartCatalogCache.class.getName() + ".products";
+
+    private final CatalogServiceClient catalogServiceClient;
+    private final Map<Integer, Snapshot> cache = new ConcurrentHashMap<>();
+    // Tăng mỗi lần invalidate để kết quả của lần gọi catalog đang chạy dở không ghi đè dữ liệu mới
+    private final AtomicLong generation = new AtomicLong();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Value("${cart.catalog-cache.ttl-seconds:30}")
+    private long ttlSeconds;
+
+    // Bản cũ hơn mức này thì không dùng làm dự phòng nữa
+    @Value("${cart.catalog-cache.stale-max-seconds:3600}")
+    private long staleMaxSeconds;
+
+    @Value("${cart.catalog-cache.timeout-ms:1500}")
+    private long timeoutMs;
+
+    public CartCatalogCache(CatalogServiceClient catalogServiceClient) {
+        this.catalogServiceClient = catalogServiceClient;
+    }
+
+    @PreDestroy
+    private void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Trả về product theo id. Id không tồn tại bên catalog (hoặc catalog lỗi và chưa từng cache)
+     * sẽ không có trong map kết quả.
+     */
+    public Map<Integer, ProductResponse> getProducts(Collection<Integer> productIds) {
+        Map<Integer, ProductResponse> result = new HashMap<>();
+        if (productIds == null || productIds.isEmpty()) {
+            return result;
+        }
+
+        Map<Integer, ProductResponse> requestScoped = requestScopedProducts();
+        long now = System.currentTimeMillis();
+        Set<Integer> missing = new LinkedHashSet<>();
+        for (Integer id : productIds) {
+            if (id == null || result.containsKey(id)) {
+                continue;
+            }
+            ProductResponse product = requestScoped.get(id);
+            if (product == null) {
+                Snapshot snapshot = cache.get(id);
+                if (snapshot != null && snapshot.ageMillis(now) <= ttlSeconds * 1000L) {
+                    product = snapshot.product();
+                }
+            }
+            if (product != null) {
+                result.put(id, product);
+            } else {
+                missing.add(id);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            result.putAll(load(missing, now));
+        }
+        requestScoped.putAll(result);
+        return result;
+    }
+
+    private Map<Integer, ProductResponse> load(Set<Integer> productIds, long now) {
+        long generationBeforeLoad = generation.get();
+        // Kể cả khi quá timeout, kết quả về muộn vẫn được ghi vào cache cho các request sau
+        CompletableFuture<Map<Integer, ProductResponse>> fetch = CompletableFuture
+                .supplyAsync(() -> catalogServiceClient.getProductsByIds(new ArrayList<>(productIds)), executor)
+                .thenApply(response -> store(response, generationBeforeLoad));
+        try {
+            Map<Integer, ProductResponse> loaded = fetch.get(timeoutMs, TimeUnit.MILLISECONDS);
+            if (loaded != null) {
+                return loaded;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("[CartCatalogCache] Catalog lookup for products {} failed or timed out after {} ms: {}",
+                    productIds, timeoutMs, e.toString());
+        }
+
+        Map<Integer, ProductResponse> loaded = new HashMap<>();
+        // Catalog không trả lời kịp: dùng bản cũ nếu còn
+        for (Integer id : productIds) {
+            Snapshot snapshot = cache.get(id);
+            if (snapshot != null && snapshot.ageMillis(now) <= staleMaxSeconds * 1000L) {
+                loaded.put(id, snapshot.product());
+            }
+        }
+        if (!loaded.isEmpty()) {
+            log.info("[CartCatalogCache] Serving {} of {} products from stale cache", loaded.size(), productIds.size());
+        }
+        return loaded;
+    }
+
+    private Map<Integer, ProductResponse> store(ApiResponse<List<ProductResponse>> response, long generationBeforeLoad) {
+        if (response == null || response.getResult() == null) {
+            return null;
+        }
+        long loadedAt = System.currentTimeMillis();
+        Map<Integer, ProductResponse> loaded = new HashMap<>();
+        for (ProductResponse product : response.getResult()) {
+            if (product == null || product.getProductId() == null) {
+                continue;
+            }
+            loaded.put(product.getProductId(), product);
+            if (generation.get() == generationBeforeLoad) {
+                cache.put(product.getProductId(), new Snapshot(product, loadedAt));
+            }
+        }
+        return loaded;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Integer, ProductResponse> requestScopedProducts() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            // Ngoài HTTP request (job, Kafka listener): không có tầng theo request
+            return new HashMap<>();
+        }
+        Object existing = attributes.getAttribute(REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (existing instanceof Map<?, ?> map) {
+            return (Map<Integer, ProductResponse>) map;
+        }
+        Map<Integer, ProductResponse> products = new HashMap<>();
+        attributes.setAttribute(REQUEST_ATTRIBUTE, products, RequestAttributes.SCOPE_REQUEST);
+        return products;
+    }
+
+    public void evict(Integer productId) {
+        generation.incrementAndGet();
+        if (productId == null) {
+            cache.clear();
+            return;
+        }
+        cache.remove(productId);
+    }
+
+    public void evictAll() {
+        generation.incrementAndGet();
+        cache.clear();
+    }
+
+    private record Snapshot(ProductResponse product, long loadedAtMillis) {
+        long ageMillis(long now) {
+            return now - loadedAtMillis;
+        }
+    }
+}
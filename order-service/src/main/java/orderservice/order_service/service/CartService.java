@@ -19,6 +19,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -31,6 +32,7 @@ public class CartService {
     CartRepository cartRepository;
     CartItemRepository cartItemRepository;
     CatalogServiceClient catalogServiceClient;
+    CartCatalogCache cartCatalogCache;
 
     @Transactional
     public CartItemResponse addToCart(Integer userId, AddToCartRequest request) {
@@ -84,8 +86,7 @@ public class CartService {
         
         Cart cart = cartOpt.get();
         List<CartItem> items = cartItemRepository.findByCartCartId(cart.getCartId());
-        List<CartItemResponse> itemResponses = items.stream().map(this::toCartItemResponse)
-                .collect(Collectors.toList());
+        List<CartItemResponse> itemResponses = toCartItemResponses(items);
         BigDecimal totalAmount = items.stream().map(CartItem::getTotalPrice).reduce(BigDecimal.ZERO, BigDecimal::add);
         int totalItems = items.stream().mapToInt(CartItem::getQuantity).sum();
         
@@ -145,35 +146,40 @@ public class CartService {
     }
 
     private CartItemResponse toCartItemResponse(CartItem item) {
-        try {
-            ApiResponse<ProductResponse> p = catalogServiceClient.getProductById(item.getProductId());
-            ApiResponse<ProductDetailResponse> pd = catalogServiceClient
-                    .getProductDetailById(item.getProductDetailId());
-            return CartItemResponse.builder()
-                    .cartItemId(item.getCartItemId())
-                    .productId(item.getProductId())
-                    .productDetailId(item.getProductDetailId())
-                    .product(p.getResult())
-                    .productDetail(pd.getResult())
-                    .quantity(item.getQuantity())
-                    .unitPrice(item.getUnitPrice())
-                    .totalPrice(item.getTotalPrice())
-                    .createAt(item.getCreateAt())
-                    .updateAt(item.getUpdateAt())
-                    .build();
-        } catch (Exception e) {
-            return CartItemResponse.builder()
-                    .cartItemId(item.getCartItemId())
-                    .productId(item.getProductId())
-                    .productDetailId(item.getProductDetailId())
-                    .product(null)
-                    .productDetail(null)
-                    .quantity(item.getQuantity())
-                    .unitPrice(item.getUnitPrice())
-                    .totalPrice(item.getTotalPrice())
-                    .createAt(item.getCreateAt())
-                    .updateAt(item.getUpdateAt())
-                    .build();
+        return toCartItemResponses(List.of(item)).get(0);
+    }
+
+    /**
+     * Gắn thông tin product / size cho các dòng giỏ hàng bằng một lần tra CartCatalogCache
+     * (tối đa một request bulk tới catalog cho cả giỏ).
+     */
+    private List<CartItemResponse> toCartItemResponses(List<CartItem> items) {
+        Map<Integer, ProductResponse> products = cartCatalogCache.getProducts(
+                items.stream().map(CartItem::getProductId).toList());
+        return items.stream()
+                .map(item -> toCartItemResponse(item, products.get(item.getProductId())))
+                .collect(Collectors.toList());
+    }
+
+    private CartItemResponse toCartItemResponse(CartItem item, ProductResponse product) {
+        ProductDetailResponse productDetail = null;
+        if (product != null && product.getProductDetails() != null) {
+            productDetail = product.getProductDetails().stream()
+                    .filter(detail -> detail.getPdId() != null && detail.getPdId().equals(item.getProductDetailId()))
+                    .findFirst()
+                    .orElse(null);
         }
+        return CartItemResponse.builder()
+                .cartItemId(item.getCartItemId())
+                .productId(item.getProductId())
+                .productDetailId(item.getProductDetailId())
+                .product(product)
+                .productDetail(productDetail)
+                .quantity(item.getQuantity())
+                .unitPrice(item.getUnitPrice())
+                .totalPrice(item.getTotalPrice())
+                .createAt(item.getCreateAt())
+                .updateAt(item.getUpdateAt())
+                .build();
     }
 }
@@ -0,0 +1,42 @@
+package orderservice.order_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import orderservice.order_service.events.ProductUpdatedEvent;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+@Component
+@Slf4j
+public class CatalogEventListener {
+
+    private final ObjectMapper objectMapper;
+    private final ProductDetailSnapshotCache productDetailSnapshotCache;
+    private final CartCatalogCache cartCatalogCache;
+
+    public CatalogEventListener(@Qualifier("kafkaObjectMapper") ObjectMapper objectMapper,
+                                ProductDetailSnapshotCache productDetailSnapshotCache,
+                                CartCatalogCache cartCatalogCache) {
+        this.objectMapper = objectMapper;
+        this.productDetailSnapshotCache = productDetailSnapshotCache;
+        this.cartCatalogCache = cartCatalogCache;
+    }
+
+    // Mỗi instance dùng group riêng để instance nào cũng nhận được sự kiện và xoá cache của mình
+    @KafkaListener(topics = "${app.kafka.topics.product-updated:catalog.product.updated}",
+            groupId = "order-product-cache-${app.kafka.instance-id:order-service}")
+    public void onProductUpdated(String payload) {
+        try {
+            ProductUpdatedEvent event = objectMapper.readValue(payload, ProductUpdatedEvent.class);
+            productDetailSnapshotCache.evict(event.getProductDetailIds());
+            cartCatalogCache.evict(event.getProductId());
+            log.info("[CatalogEventListener] Evicted product detail cache for product {} (details {})",
+                    event.getProductId(), event.getProductDetailIds());
+        } catch (Exception e) {
+            log.error("[CatalogEventListener] Failed to handle product updated event, clearing cache: {}", e.getMessage());
+            productDetailSnapshotCache.evictAll();
+            cartCatalogCache.evictAll();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package orderservice.order_service.service;
+
+import lombok.extern.slf4j.Slf4j;
+import orderservice.order_service.entity.Discount;
+import orderservice.order_service.repository.DiscountRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache mã giảm giá theo code cho bước kiểm tra giỏ hàng / áp mã (applyDiscount).
+ * Được xoá khi tạo / sửa / xoá discount; TTL ngắn chỉ để đồng bộ giữa các instance và cập nhật used_count.
+ * Mã không tồn tại cũng được cache để mã gõ sai không đánh thẳng vào DB.
+ *
+ * Bản ghi trong cache là bản sao (không phải entity đang được quản lý), chỉ dùng để đọc.
+ * used_count trong cache có thể cũ: giới hạn lượt dùng thực sự được chốt bằng UPDATE có điều kiện lúc redeem.
+ */
+@Service
+@Slf4j
+public class DiscountCodeCache {
+
+    private final DiscountRepository discountRepository;
+    private final Map<String, Snapshot> cache = new ConcurrentHashMap<>();
+    // Tăng mỗi lần invalidate để kết quả của lần đọc DB đang chạy dở không ghi đè dữ liệu mới
+    private final AtomicLong generation = new AtomicLong();
+
+    @Value("${discount.cache.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    public DiscountCodeCache(DiscountRepository discountRepository) {
+        this.discountRepository = discountRepository;
+    }
+
+    public static String keyOf(String code) {
+        // Cột code dùng collation không phân biệt hoa thường nên khóa cache cũng vậy
+        return code == null ? null : code.trim().toUpperCase(Locale.ROOT);
+    }
+
+    public Optional<Discount> findByCode(String code) {
+        String key = keyOf(code);
+        if (key == null || key.isEmpty()) {
+            return Optional.empty();
+        }
+
+        long now = System.currentTimeMillis();
+        Snapshot snapshot = cache.get(key);
+        if (snapshot != null && !snapshot.isExpired(now, ttlSeconds)) {
+            return Optional.ofNullable(snapshot.discount()).map(DiscountCodeCache::copyOf);
+        }
+
+        long generationBeforeLoad = generation.get();
+        Optional<Discount> loaded = discountRepository.findByCode(code.trim());
+        if (generation.get() == generationBeforeLoad) {
+            cache.put(key, new Snapshot(loaded.map(DiscountCodeCache::copyOf).orElse(null), now));
+        }
+        return loaded.map(DiscountCodeCache::copyOf);
+    }
+
+    /**
+     * Đánh dấu mã đã hết lượt trong cache (sau khi UPDATE có điều kiện từ chối) để lần áp mã sau
+     * trả lời ngay mà không cần chờ TTL.
+     */
+    public void markExhausted(String code) {
+        String key = keyOf(code);
+        if (key == null) {
+            return;
+        }
+        cache.computeIfPresent(key, (k, snapshot) -> {
+            Discount discount = snapshot.discount();
+            if (discount == null || discount.getUsageLimit() == null || discount.getUsageLimit() <= 0) {
+                return snapshot;
+            }
+            Discount exhausted = copyOf(discount);
+            exhausted.setUsedCount(discount.getUsageLimit());
+            return new Snapshot(exhausted, snapshot.loadedAtMillis());
+        });
+    }
+
+    /**
+     * Xoá mã khỏi cache ngay và thêm một lần nữa sau khi transaction hiện tại commit,
+     * tránh trường hợp một request khác đọc lại bản cũ trước khi thay đổi được commit.
+     */
+    public void evict(String code) {
+        evictNow(code);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictNow(code);
+                }
+            });
+        }
+    }
+
+    public void evictAll() {
+        generation.incrementAndGet();
+        cache.clear();
+    }
+
+    private void evictNow(String code) {
+        generation.incrementAndGet();
+        String key = keyOf(code);
+        if (key != null) {
+            cache.remove(key);
+        }
+    }
+
+    private static Discount copyOf(Discount discount) {
+        return Discount.builder()
+                .discountId(discount.getDiscountId())
+                .code(discount.getCode())
+                .name(discount.getName())
+                .description(discount.getDescription())
+                .discountType(discount.getDiscountType())
+                .discountValue(discount.getDiscountValue())
+                .minOrderAmount(discount.getMinOrderAmount())
+                .maxDiscountAmount(discount.getMaxDiscountAmount())
+                .startDate(discount.getStartDate())
+                .endDate(discount.getEndDate())
+                .usageLimit(discount.getUsageLimit())
+                .usedCount(discount.getUsedCount())
+                .branchId(discount.getBranchId())
+                .active(discount.getActive())
+                .createAt(discount.getCreateAt())
+                .updateAt(discount.getUpdateAt())
+                .build();
+    }
+
+    private record Snapshot(Discount discount, long loadedAtMillis) {
+        boolean isExpired(long now, long ttlSeconds) {
+            return now - loadedAtMillis > ttlSeconds * 1000L;
+        }
+    }
+}
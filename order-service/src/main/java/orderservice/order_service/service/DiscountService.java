@@ -10,6 +10,7 @@ import orderservice.order_service.entity.Discount;
 import orderservice.order_service.repository.DiscountRepository;
 import orderservice.order_service.exception.ErrorCode;
 import orderservice.order_service.exception.AppException;
+import orderservice.order_service.util.OrderPricing;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
@@ -30,6 +31,8 @@ import java.util.stream.Collectors;
 public class DiscountService {
 
     private final DiscountRepository discountRepository;
+    private final DiscountCodeCache discountCodeCache;
+    private final FlashDiscountCounter flashDiscountCounter;
 
     @Transactional
     public DiscountResponse createDiscount(CreateDiscountRequest request) {
@@ -68,6 +71,8 @@ public class DiscountService {
                 .build();
 
         Discount savedDiscount = discountRepository.save(discount);
+        // Xoá cả kết quả "không tồn tại" đã cache cho mã này
+        discountCodeCache.evict(savedDiscount.getCode());
         log.info("Created discount with ID: {}", savedDiscount.getDiscountId());
 
         return convertToResponse(savedDiscount);
@@ -135,6 +140,7 @@ public class DiscountService {
         }
 
         Discount updatedDiscount = discountRepository.save(discount);
+        discountCodeCache.evict(updatedDiscount.getCode());
         log.info("Updated discount with ID: {}", updatedDiscount.getDiscountId());
 
         return convertToResponse(updatedDiscount);
@@ -148,6 +154,7 @@ public class DiscountService {
                 .orElseThrow(() -> new AppException(ErrorCode.DISCOUNT_NOT_FOUND));
 
         discountRepository.delete(discount);
+        discountCodeCache.evict(discount.getCode());
         log.info("Deleted discount with ID: {}", discountId);
     }
 
@@ -223,12 +230,15 @@ public class DiscountService {
                 .collect(Collectors.toList());
     }
 
-    @Transactional
+    /**
+     * Kiểm tra và tính tiền giảm cho một mã, đọc từ DiscountCodeCache (không mở transaction khi cache hit).
+     * Kiểm tra usage limit ở đây chỉ mang tính báo trước; useDiscount mới chốt lượt dùng.
+     */
     public DiscountApplicationResponse applyDiscount(ApplyDiscountRequest request) {
         log.info("Applying discount with code: {} for order amount: {}", request.getDiscountCode(),
                 request.getOrderAmount());
 
-        Discount discount = discountRepository.findByCode(request.getDiscountCode())
+        Discount discount = discountCodeCache.findByCode(request.getDiscountCode())
                 .orElseThrow(() -> new AppException(ErrorCode.DISCOUNT_NOT_FOUND));
 
         // Check if discount is active
@@ -300,25 +310,43 @@ public class DiscountService {
                 .build();
     }
 
-    @Transactional
+    /**
+     * Chốt một lượt dùng mã bằng UPDATE có điều kiện (used_count < usage_limit) nên không bị
+     * vượt giới hạn khi nhiều đơn dùng cùng mã đồng thời. Mã flash sale đi qua FlashDiscountCounter.
+     *
+     * Không rollback transaction của người gọi khi từ chối: UPDATE không đổi dòng nào, và luồng tạo
+     * đơn tự quyết định có bỏ qua lỗi hay không.
+     */
+    @Transactional(noRollbackFor = AppException.class)
     public void useDiscount(String discountCode) {
         log.info("Using discount with code: {}", discountCode);
 
-        Discount discount = discountRepository.findByCode(discountCode)
-                .orElseThrow(() -> new AppException(ErrorCode.DISCOUNT_NOT_FOUND));
+        boolean redeemed = flashDiscountCounter.isFlash(discountCode)
+                ? flashDiscountCounter.tryRedeem(discountCode)
+                : discountRepository.incrementUsedCount(discountCode, 1) > 0;
 
-        discount.setUsedCount(discount.getUsedCount() + 1);
-        discountRepository.save(discount);
+        if (!redeemed) {
+            if (discountRepository.findByCode(discountCode).isEmpty()) {
+                throw new AppException(ErrorCode.DISCOUNT_NOT_FOUND);
+            }
+            discountCodeCache.markExhausted(discountCode);
+            throw new AppException(ErrorCode.DISCOUNT_USAGE_LIMIT_EXCEEDED);
+        }
 
         log.info("Incremented usage count for discount: {}", discountCode);
     }
 
+    /**
+     * Lỗi của useDiscount mà bên tạo đơn phải trả nguyên cho client (đơn đã bị rollback vì không trừ được lượt).
+     */
+    public static boolean isRedemptionFailure(AppException e) {
+        return e.getErrorCode() == ErrorCode.DISCOUNT_USAGE_LIMIT_EXCEEDED
+                || e.getErrorCode() == ErrorCode.DISCOUNT_NOT_FOUND;
+    }
+
     private BigDecimal calculateDiscountAmount(Discount discount, BigDecimal orderAmount) {
-        if (discount.getDiscountType() == Discount.DiscountType.PERCENT) {
-            return orderAmount.multiply(discount.getDiscountValue()).divide(BigDecimal.valueOf(100));
-        } else {
-            return discount.getDiscountValue();
-        }
+        return OrderPricing.discountAmount(discount.getDiscountType() == Discount.DiscountType.PERCENT,
+                discount.getDiscountValue(), orderAmount);
     }
 
     private DiscountResponse convertToResponse(Discount discount) {
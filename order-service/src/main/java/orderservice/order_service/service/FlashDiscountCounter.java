@@ -0,0 +1,243 @@
+package orderservice.order_service.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import orderservice.order_service.repository.DiscountRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Bộ đếm lượt dùng trong bộ nhớ cho các mã flash sale (cấu hình qua discount.flash.codes).
+ *
+ * Thay vì mỗi lượt redeem là một UPDATE trên cùng một dòng discounts, mỗi instance "giữ" trước một block
+ * lượt (lease-size) bằng UPDATE có điều kiện, rồi chia ra nhiều shard trong bộ nhớ để các request
+ * trừ lượt bằng CAS, không tranh chấp lock. Vì lượt được giữ trong DB trước khi phát ra nên không bao giờ
+ * vượt usage_limit, kể cả khi chạy nhiều instance.
+ *
+ * used_count trong DB có thể cao hơn số lượt thực dùng tối đa shards * lease-size mỗi instance;
+ * job reconcile định kỳ (và lúc shutdown) trả lại các lượt chưa dùng.
+ */
+@Component
+@Slf4j
+public class FlashDiscountCounter {
+
+    private final DiscountRepository discountRepository;
+    private final TransactionTemplate requiresNewTransaction;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Allowance> allowances = new ConcurrentHashMap<>();
+
+    @Value("${discount.flash.codes:}")
+    private String flashCodesConfig;
+
+    @Value("${discount.flash.shards:8}")
+    private int shardCount;
+
+    @Value("${discount.flash.lease-size:20}")
+    private int leaseSize;
+
+    @Value("${discount.flash.lease-wait-ms:2000}")
+    private long leaseWaitMs;
+
+    private Set<String> flashCodes = Set.of();
+
+    public FlashDiscountCounter(DiscountRepository discountRepository,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry) {
+        this.discountRepository = discountRepository;
+        // Lease / trả lượt commit độc lập với transaction tạo đơn
+        this.requiresNewTransaction = new TransactionTemplate(transactionManager);
+        this.requiresNewTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    private void init() {
+        flashCodes = Arrays.stream(flashCodesConfig.split(","))
+                .map(DiscountCodeCache::keyOf)
+                .filter(code -> code != null && !code.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+        if (!flashCodes.isEmpty()) {
+            log.info("[FlashDiscountCounter] Sharded redemption enabled for codes {} (shards={}, leaseSize={})",
+                    flashCodes, shardCount, leaseSize);
+        }
+    }
+
+    public boolean isFlash(String code) {
+        return !flashCodes.isEmpty() && flashCodes.contains(DiscountCodeCache.keyOf(code));
+    }
+
+    /**
+     * Trừ một lượt dùng của mã. Trả về false nếu mã không tồn tại hoặc đã hết lượt.
+     * Nếu transaction gọi tới bị rollback thì lượt được trả lại shard.
+     */
+    public boolean tryRedeem(String code) {
+        Allowance allowance = allowances.computeIfAbsent(DiscountCodeCache.keyOf(code),
+                key -> new Allowance(code.trim(), Math.max(1, shardCount)));
+        Shard shard = allowance.shards[ThreadLocalRandom.current().nextInt(allowance.shards.length)];
+
+        if (shard.tryTake() || refill(allowance, shard) || allowance.tryTakeAny()) {
+            returnOnRollback(shard);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Lease thêm lượt cho shard đã cạn. Chỉ một request mỗi shard chạy UPDATE lease; các request khác chờ
+     * leaseLock tối đa lease-wait-ms, quá thời gian đó thì tự giữ đúng một lượt trong DB thay vì tiếp tục xếp hàng.
+     */
+    private boolean refill(Allowance allowance, Shard shard) {
+        try {
+            if (!shard.leaseLock.tryLock(leaseWaitMs, TimeUnit.MILLISECONDS)) {
+                meterRegistry.counter("discount.flash.leases", "result", "lock_timeout").increment();
+                return leaseOne(allowance.code);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        try {
+            // Request giữ lock trước có thể vừa lease xong
+            if (shard.tryTake()) {
+                return true;
+            }
+            int leased = lease(allowance.code);
+            if (leased <= 0) {
+                return false;
+            }
+            // Giữ lại một lượt cho request hiện tại
+            shard.remaining.addAndGet(leased - 1);
+            return true;
+        } finally {
+            shard.leaseLock.unlock();
+        }
+    }
+
+    private int lease(String code) {
+        Integer leased = requiresNewTransaction.execute(status -> {
+            int blockSize = Math.max(1, leaseSize);
+            if (discountRepository.incrementUsedCount(code, blockSize) > 0) {
+                return blockSize;
+            }
+            // Còn ít hơn một block: giữ từng lượt một
+            return blockSize > 1 && discountRepository.incrementUsedCount(code, 1) > 0 ? 1 : 0;
+        });
+        int granted = leased != null ? leased : 0;
+        meterRegistry.counter("discount.flash.leases", "result", granted > 0 ? "granted" : "exhausted").increment();
+        return granted;
+    }
+
+    private boolean leaseOne(String code) {
+        return Boolean.TRUE.equals(requiresNewTransaction.execute(status ->
+                discountRepository.incrementUsedCount(code, 1) > 0));
+    }
+
+    private void returnOnRollback(Shard shard) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    shard.remaining.incrementAndGet();
+                }
+            }
+        });
+    }
+
+    /**
+     * Trả các lượt đã giữ nhưng chưa dùng về DB để used_count khớp với số lượt thực dùng.
+     */
+    @Scheduled(fixedDelayString = "${discount.flash.reconcile-interval-ms:30000}")
+    public void reconcile() {
+        allowances.values().forEach(this::release);
+    }
+
+    @PreDestroy
+    private void shutdown() {
+        reconcile();
+    }
+
+    private void release(Allowance allowance) {
+        int unused = allowance.drain();
+        if (unused <= 0) {
+            return;
+        }
+        try {
+            requiresNewTransaction.executeWithoutResult(status ->
+                    discountRepository.decrementUsedCount(allowance.code, unused));
+            log.debug("[FlashDiscountCounter] Released {} unused leases for code {}", unused, allowance.code);
+        } catch (Exception e) {
+            // Không trả được thì giữ lại trong bộ nhớ, lần reconcile sau thử lại
+            allowance.shards[0].remaining.addAndGet(unused);
+            log.warn("[FlashDiscountCounter] Failed to release {} leases for code {}: {}",
+                    unused, allowance.code, e.getMessage());
+        }
+    }
+
+    private static final class Shard {
+        final AtomicInteger remaining = new AtomicInteger();
+        final ReentrantLock leaseLock = new ReentrantLock();
+
+        boolean tryTake() {
+            while (true) {
+                int current = remaining.get();
+                if (current <= 0) {
+                    return false;
+                }
+                if (remaining.compareAndSet(current, current - 1)) {
+                    return true;
+                }
+            }
+        }
+    }
+
+    private static final class Allowance {
+        final String code;
+        final Shard[] shards;
+
+        Allowance(String code, int shardCount) {
+            this.code = code;
+            this.shards = new Shard[shardCount];
+            for (int i = 0; i < shardCount; i++) {
+                shards[i] = new Shard();
+            }
+        }
+
+        boolean tryTakeAny() {
+            for (Shard shard : shards) {
+                if (shard.tryTake()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        int drain() {
+            int total = 0;
+            for (Shard shard : shards) {
+                total += shard.remaining.getAndSet(0);
+            }
+            return total;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package orderservice.order_service.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import orderservice.order_service.entity.GeocodeCacheEntry;
+import orderservice.order_service.repository.GeocodeCacheRepository;
+import orderservice.order_service.util.VietnameseNormalizer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Cache hai tầng cho kết quả geocoding: LRU trong bộ nhớ (giới hạn số phần tử) và bảng geocode_cache.
+ * Khóa là địa chỉ đã chuẩn hóa (bỏ dấu, chữ thường) nên "123 Lê Lợi" và "123 le loi" dùng chung một kết quả.
+ * Địa chỉ không tìm được tọa độ cũng được cache (kết quả âm) với TTL ngắn hơn để không gọi lại OpenCage liên tục.
+ */
+@Service
+@Slf4j
+public class GeocodeCache {
+
+    /**
+     * Kết quả tra cache: coordinates = null nghĩa là địa chỉ đã được xác định là không geocode được.
+     */
+    public record Lookup(GeocodingService.Coordinates coordinates) {
+        public boolean resolved() {
+            return coordinates != null;
+        }
+    }
+
+    private record Entry(GeocodingService.Coordinates coordinates, long expiresAtMillis) {
+    }
+
+    private final GeocodeCacheRepository geocodeCacheRepository;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Entry> memory;
+
+    @Value("${geocoding.cache.memory-max-entries:5000}")
+    private int memoryMaxEntries;
+
+    @Value("${geocoding.cache.ttl-days:30}")
+    private long ttlDays;
+
+    @Value("${geocoding.cache.negative-ttl-hours:12}")
+    private long negativeTtlHours;
+
+    // Giữ lại bản ghi đã hết hạn thêm một thời gian để dùng làm tọa độ dự phòng khi OpenCage không khả dụng
+    @Value("${geocoding.cache.stale-retention-days:30}")
+    private long staleRetentionDays;
+
+    public GeocodeCache(GeocodeCacheRepository geocodeCacheRepository, MeterRegistry meterRegistry) {
+        this.geocodeCacheRepository = geocodeCacheRepository;
+        this.meterRegistry = meterRegistry;
+        // accessOrder = true: phần tử ít được dùng nhất bị loại khi vượt giới hạn
+        this.memory = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > memoryMaxEntries;
+            }
+        };
+        meterRegistry.gaugeMapSize("geocoding.cache.memory.size", Tags.empty(), memory);
+    }
+
+    /**
+     * Khóa cache cho một địa chỉ, null nếu địa chỉ rỗng.
+     */
+    public static String keyOf(String address) {
+        if (address == null || address.trim().isEmpty()) {
+            return null;
+        }
+        String normalized = VietnameseNormalizer.normalizeVietnameseAddress(address, false, true);
+        return normalized.replaceAll("\\s*,\\s*", ", ").replaceAll("[\\s,.]+$", "");
+    }
+
+    public Optional<Lookup> get(String key) {
+        if (key == null) {
+            return Optional.empty();
+        }
+
+        long now = System.currentTimeMillis();
+        Entry entry;
+        synchronized (memory) {
+            entry = memory.get(key);
+            if (entry != null && entry.expiresAtMillis() <= now) {
+                memory.remove(key);
+                entry = null;
+            }
+        }
+        if (entry != null) {
+            record("memory", entry.coordinates());
+            return Optional.of(new Lookup(entry.coordinates()));
+        }
+
+        try {
+            Optional<GeocodeCacheEntry> stored = geocodeCacheRepository.findByAddressKey(key);
+            if (stored.isPresent() && stored.get().getExpiresAt().isAfter(LocalDateTime.now())) {
+                GeocodeCacheEntry row = stored.get();
+                GeocodingService.Coordinates coordinates = Boolean.TRUE.equals(row.getResolved())
+                        && row.getLatitude() != null && row.getLongitude() != null
+                                ? new GeocodingService.Coordinates(row.getLatitude(), row.getLongitude())
+                                : null;
+                long remainingMillis = Duration.between(LocalDateTime.now(), row.getExpiresAt()).toMillis();
+                putMemory(key, coordinates, now + remainingMillis);
+                record("db", coordinates);
+                return Optional.of(new Lookup(coordinates));
+            }
+        } catch (Exception e) {
+            // Lỗi DB không được làm hỏng luồng geocoding, coi như miss
+            log.warn("[GeocodeCache] Failed to read geocode cache for '{}': {}", key, e.getMessage());
+        }
+
+        meterRegistry.counter("geocoding.cache.lookups", "level", "none", "result", "miss").increment();
+        return Optional.empty();
+    }
+
+    /**
+     * Tọa độ đã biết gần nhất cho địa chỉ, kể cả khi đã hết TTL. Chỉ dùng ở chế độ suy giảm
+     * (OpenCage không gọi được), không tính vào hit/miss của cache.
+     */
+    public Optional<GeocodingService.Coordinates> getLastKnown(String key) {
+        if (key == null) {
+            return Optional.empty();
+        }
+        try {
+            return geocodeCacheRepository.findByAddressKey(key)
+                    .filter(row -> Boolean.TRUE.equals(row.getResolved())
+                            && row.getLatitude() != null && row.getLongitude() != null)
+                    .map(row -> new GeocodingService.Coordinates(row.getLatitude(), row.getLongitude()));
+        } catch (Exception e) {
+            log.warn("[GeocodeCache] Failed to read last known coordinates for '{}': {}", key, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    public void putResolved(String key, GeocodingService.Coordinates coordinates) {
+        put(key, coordinates, Duration.ofDays(ttlDays));
+    }
+
+    public void putUnresolved(String key) {
+        put(key, null, Duration.ofHours(negativeTtlHours));
+    }
+
+    private void put(String key, GeocodingService.Coordinates coordinates, Duration ttl) {
+        if (key == null) {
+            return;
+        }
+        putMemory(key, coordinates, System.currentTimeMillis() + ttl.toMillis());
+        if (key.length() > 500) {
+            return;
+        }
+        try {
+            geocodeCacheRepository.upsert(
+                    key,
+                    coordinates != null ? coordinates.getLatitude() : null,
+                    coordinates != null ? coordinates.getLongitude() : null,
+                    coordinates != null,
+                    LocalDateTime.now().plus(ttl));
+        } catch (Exception e) {
+            log.warn("[GeocodeCache] Failed to persist geocode cache for '{}': {}", key, e.getMessage());
+        }
+    }
+
+    private void putMemory(String key, GeocodingService.Coordinates coordinates, long expiresAtMillis) {
+        synchronized (memory) {
+            memory.put(key, new Entry(coordinates, expiresAtMillis));
+        }
+    }
+
+    private void record(String level, GeocodingService.Coordinates coordinates) {
+        meterRegistry.counter("geocoding.cache.lookups", "level", level,
+                "result", coordinates != null ? "hit" : "negative_hit").increment();
+    }
+
+    @Scheduled(cron = "${geocoding.cache.cleanup-cron:0 15 4 * * *}")
+    public void purgeExpired() {
+        try {
+            int removed = geocodeCacheRepository.deleteExpired(LocalDateTime.now().minusDays(staleRetentionDays));
+            if (removed > 0) {
+                log.info("[GeocodeCache] Purged {} expired geocode cache entries", removed);
+            }
+        } catch (Exception e) {
+            log.error("[GeocodeCache] Failed to purge expired geocode cache entries", e);
+        }
+    }
+}
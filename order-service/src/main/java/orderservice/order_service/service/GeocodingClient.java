@@ -0,0 +1,340 @@
+package orderservice.order_service.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Client gọi OpenCage không chặn thread của request: mỗi lookup chạy trên virtual thread,
+ * giới hạn số lookup đồng thời (bulkhead), giãn nhịp gọi API (rate limit), ngắt mạch khi OpenCage lỗi liên tục
+ * (circuit breaker) và dừng lại khi hết thời gian mà bên gọi cho phép.
+ *
+ * Kết quả của lookup: tọa độ, null nếu OpenCage không có kết quả cho địa chỉ, hoặc hoàn thành lỗi với
+ * GeocodingUnavailableException khi không gọi được (mạch mở, hết chỗ, hết thời gian, lỗi mạng).
+ */
+@Service
+@Slf4j
+public class GeocodingClient {
+
+    private static final String OPENCAGE_URL = "https://api.opencagedata.com/geocode/v1/json";
+
+    @Value("${geocoding.api.key}")
+    private String apiKey;
+
+    @Value("${geocoding.client.max-concurrent:8}")
+    private int maxConcurrent;
+
+    @Value("${geocoding.client.rate-per-second:5}")
+    private double ratePerSecond;
+
+    @Value("${geocoding.client.circuit-breaker.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${geocoding.client.circuit-breaker.open-duration-ms:30000}")
+    private long openDurationMs;
+
+    private final RestTemplate restTemplate;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+    private Semaphore bulkhead;
+    private long permitIntervalNanos;
+    private long nextPermitNanos = System.nanoTime();
+
+    /**
+     * Không gọi được OpenCage lúc này (khác với "địa chỉ không có kết quả").
+     */
+    public static class GeocodingUnavailableException extends RuntimeException {
+        public GeocodingUnavailableException(String message) {
+            super(message);
+        }
+
+        public GeocodingUnavailableException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    /**
+     * Bị giới hạn tần suất phía mình (rate-per-second), chưa gọi tới OpenCage: không tính là lỗi của OpenCage.
+     */
+    private static final class RateLimitedException extends GeocodingUnavailableException {
+        RateLimitedException(String message) {
+            super(message);
+        }
+    }
+
+    public GeocodingClient(MeterRegistry meterRegistry) {
+        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
+        factory.setConnectTimeout(5000);
+        factory.setReadTimeout(10000);
+        this.restTemplate = new RestTemplate(factory);
+        this.objectMapper = new ObjectMapper();
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    private void init() {
+        List<ClientHttpRequestInterceptor> interceptors = new ArrayList<>();
+        interceptors.add((request, body, execution) -> {
+            request.getHeaders().set("User-Agent", "coffee-order-service/1.0");
+            request.getHeaders().set("Accept-Language", "vi");
+            return execution.execute(request, body);
+        });
+        this.restTemplate.setInterceptors(interceptors);
+
+        this.bulkhead = new Semaphore(Math.max(1, maxConcurrent));
+        this.permitIntervalNanos = ratePerSecond > 0 ? (long) (1_000_000_000L / ratePerSecond) : 0L;
+    }
+
+    @PreDestroy
+    private void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Tra tọa độ cho chuỗi địa chỉ (gửi nguyên văn cho OpenCage) trong giới hạn thời gian timeout.
+     * Không bao giờ chặn thread gọi; hết chỗ trong bulkhead thì từ chối ngay.
+     */
+    public CompletableFuture<GeocodingService.Coordinates> lookup(String query, Duration timeout) {
+        if (!circuitBreaker.allowRequest()) {
+            return rejected("circuit_open", "Geocoding tạm ngắt do OpenCage lỗi liên tục");
+        }
+        if (!bulkhead.tryAcquire()) {
+            circuitBreaker.releaseTrial();
+            return rejected("bulkhead_full", "Quá nhiều yêu cầu geocoding đồng thời");
+        }
+
+        long deadline = System.nanoTime() + timeout.toNanos();
+        CompletableFuture<GeocodingService.Coordinates> result = new CompletableFuture<>();
+        Future<?> task;
+        try {
+            task = executor.submit(() -> {
+                try {
+                    GeocodingService.Coordinates coordinates = requestCoordinates(query, deadline);
+                    circuitBreaker.onSuccess();
+                    result.complete(coordinates);
+                } catch (RateLimitedException e) {
+                    // Như bulkhead_full: OpenCage vẫn bình thường, chỉ trả lại lượt thử half-open
+                    circuitBreaker.releaseTrial();
+                    meterRegistry.counter("geocoding.client.rejected", "reason", "rate_limited").increment();
+                    result.completeExceptionally(e);
+                } catch (GeocodingUnavailableException e) {
+                    circuitBreaker.onFailure();
+                    result.completeExceptionally(e);
+                } catch (Exception e) {
+                    circuitBreaker.onFailure();
+                    result.completeExceptionally(new GeocodingUnavailableException(e.getMessage(), e));
+                } finally {
+                    bulkhead.release();
+                }
+            });
+        } catch (Exception e) {
+            bulkhead.release();
+            circuitBreaker.releaseTrial();
+            return rejected("executor_rejected", "Không thể chạy geocoding: " + e.getMessage());
+        }
+
+        result.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        result.whenComplete((coordinates, error) -> {
+            if (error instanceof TimeoutException) {
+                // Hủy lookup đang chạy dở (kể cả khi đang chờ backoff / đọc socket)
+                task.cancel(true);
+                meterRegistry.counter("geocoding.client.rejected", "reason", "timeout").increment();
+            }
+        });
+        return result;
+    }
+
+    private CompletableFuture<GeocodingService.Coordinates> rejected(String reason, String message) {
+        meterRegistry.counter("geocoding.client.rejected", "reason", reason).increment();
+        return CompletableFuture.failedFuture(new GeocodingUnavailableException(message));
+    }
+
+    /**
+     * Gọi OpenCage (chạy trên virtual thread của lookup). Retry lỗi 429/5xx/mạng với backoff,
+     * nhưng không vượt quá deadline. Trả về null khi API trả lời thành công nhưng không có tọa độ.
+     */
+    private GeocodingService.Coordinates requestCoordinates(String address, long deadline) throws InterruptedException {
+        if (apiKey == null || apiKey.trim().isEmpty()) {
+            throw new RuntimeException("OpenCage API key chưa được cấu hình!");
+        }
+
+        String encodedAddress = URLEncoder.encode(address, StandardCharsets.UTF_8);
+        String url = String.format(
+                "%s?q=%s&key=%s&limit=1&countrycode=vn&language=vi",
+                OPENCAGE_URL, encodedAddress, apiKey);
+
+        int maxAttempts = 3;
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            try {
+                acquireRatePermit(deadline);
+            } catch (RateLimitedException e) {
+                if (attempt == 1) {
+                    throw e;
+                }
+                // Lần thử trước đã lỗi từ OpenCage, không còn thời gian để thử lại
+                throw new RuntimeException("Geocoding thất bại, hết thời gian chờ để thử lại", e);
+            }
+            try {
+                String response = restTemplate.getForObject(url, String.class);
+                if (response == null || response.isBlank()) {
+                    throw new RuntimeException("Phản hồi rỗng từ OpenCage API");
+                }
+
+                JsonNode jsonNode = objectMapper.readTree(response);
+                JsonNode results = jsonNode.path("results");
+
+                if (results.isArray() && results.size() > 0) {
+                    JsonNode geometry = results.get(0).path("geometry");
+
+                    if (geometry.has("lat") && geometry.has("lng")) {
+                        double lat = geometry.get("lat").asDouble();
+                        double lng = geometry.get("lng").asDouble();
+                        return new GeocodingService.Coordinates(lat, lng);
+                    }
+                }
+
+                // API trả lời bình thường nhưng không có tọa độ: thử lại cũng không thay đổi
+                return null;
+
+            } catch (HttpStatusCodeException httpEx) {
+                HttpStatusCode status = httpEx.getStatusCode();
+                boolean retryable = status.value() == 429 || status.is5xxServerError();
+
+                if (status.value() == 401) {
+                    throw new RuntimeException("OpenCage API key không hợp lệ!");
+                }
+
+                if (retryable && attempt < maxAttempts && backoff(attempt, deadline)) {
+                    continue;
+                }
+                throw new RuntimeException("Geocoding thất bại (" + status.value() + ")");
+            } catch (Exception e) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException("Geocoding bị hủy");
+                }
+                if (attempt < maxAttempts && backoff(attempt, deadline)) {
+                    continue;
+                }
+                throw new RuntimeException("Geocoding thất bại: " + e.getMessage());
+            }
+        }
+
+        throw new RuntimeException("Geocoding thất bại sau " + maxAttempts + " lần thử");
+    }
+
+    /**
+     * Chờ trước lần thử tiếp theo; false nếu chờ xong sẽ vượt quá deadline (không retry nữa).
+     */
+    private boolean backoff(int attempt, long deadline) throws InterruptedException {
+        long backoffNanos = TimeUnit.MILLISECONDS.toNanos(500L * attempt);
+        if (System.nanoTime() + backoffNanos >= deadline) {
+            return false;
+        }
+        TimeUnit.NANOSECONDS.sleep(backoffNanos);
+        return true;
+    }
+
+    /**
+     * Giãn đều các lần gọi OpenCage theo rate-per-second (dùng chung cho mọi lookup).
+     * Lượt gọi kế tiếp rơi sau deadline thì ném RateLimitedException ngay thay vì chờ.
+     */
+    private void acquireRatePermit(long deadline) throws InterruptedException {
+        if (permitIntervalNanos <= 0) {
+            return;
+        }
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long permitAt = Math.max(now, nextPermitNanos);
+            if (permitAt >= deadline) {
+                throw new RateLimitedException("Vượt giới hạn tần suất gọi geocoding");
+            }
+            nextPermitNanos = permitAt + permitIntervalNanos;
+            waitNanos = permitAt - now;
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Ngắt mạch đơn giản: mở sau failureThreshold lỗi liên tiếp từ OpenCage (HTTP 429/5xx, mạng, hết thời gian;
+     * không tính lần bị giới hạn tần suất phía mình), sau openDurationMs cho một lần thử (half-open);
+     * thử thành công thì đóng lại, thất bại thì mở tiếp.
+     */
+    private final class CircuitBreaker {
+        private int consecutiveFailures;
+        private long openUntilMillis;
+        private boolean trialInFlight;
+
+        synchronized boolean allowRequest() {
+            if (openUntilMillis == 0) {
+                return true;
+            }
+            if (System.currentTimeMillis() < openUntilMillis || trialInFlight) {
+                return false;
+            }
+            trialInFlight = true;
+            return true;
+        }
+
+        synchronized void releaseTrial() {
+            trialInFlight = false;
+        }
+
+        synchronized void onSuccess() {
+            if (openUntilMillis != 0) {
+                log.info("[GeocodingClient] OpenCage recovered, closing circuit");
+            }
+            consecutiveFailures = 0;
+            openUntilMillis = 0;
+            trialInFlight = false;
+        }
+
+        synchronized void onFailure() {
+            consecutiveFailures++;
+            if (trialInFlight || consecutiveFailures >= failureThreshold) {
+                if (openUntilMillis == 0 || trialInFlight) {
+                    log.warn("[GeocodingClient] Opening geocoding circuit for {} ms after {} consecutive failures",
+                            openDurationMs, consecutiveFailures);
+                    meterRegistry.counter("geocoding.client.circuit.opened").increment();
+                }
+                openUntilMillis = System.currentTimeMillis() + openDurationMs;
+                trialInFlight = false;
+            }
+        }
+    }
+
+    /**
+     * Executor virtual thread dùng chung cho các tác vụ geocoding hàng loạt.
+     */
+    ExecutorService executor() {
+        return executor;
+    }
+}
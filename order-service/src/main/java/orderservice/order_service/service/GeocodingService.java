@@ -1,61 +1,64 @@
 package orderservice.order_service.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpStatusCode;
-import org.springframework.http.client.ClientHttpRequestInterceptor;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.HttpStatusCodeException;
-import org.springframework.web.client.RestTemplate;
+import orderservice.order_service.util.Deadline;
 import orderservice.order_service.util.VietnameseNormalizer;
 
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.List;
-import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Service
 @Slf4j
 public class GeocodingService {
 
-    @Value("${geocoding.api.key}")
-    private String apiKey;
+    private final GeocodeCache geocodeCache;
+    private final GeocodingClient geocodingClient;
 
-    private static final String OPENCAGE_URL = "https://api.opencagedata.com/geocode/v1/json";
-    private final RestTemplate restTemplate;
-    private final ObjectMapper objectMapper;
+    // Thời gian tối đa một request được chờ geocoding (khi bên gọi không truyền)
+    @Value("${geocoding.client.timeout-ms:3000}")
+    private long defaultTimeoutMs;
 
-    public GeocodingService() {
-        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
-        factory.setConnectTimeout(5000);
-        factory.setReadTimeout(10000);
-        this.restTemplate = new RestTemplate(factory);
-        this.objectMapper = new ObjectMapper();
-    }
+    @Value("${geocoding.client.bulk-concurrency:4}")
+    private int bulkConcurrency;
 
-    @PostConstruct
-    private void configureInterceptors() {
-        List<ClientHttpRequestInterceptor> interceptors = new ArrayList<>();
-        interceptors.add((request, body, execution) -> {
-            request.getHeaders().set("User-Agent", "coffee-order-service/1.0");
-            request.getHeaders().set("Accept-Language", "vi");
-            return execution.execute(request, body);
-        });
-        this.restTemplate.setInterceptors(interceptors);
+    public GeocodingService(GeocodeCache geocodeCache, GeocodingClient geocodingClient) {
+        this.geocodeCache = geocodeCache;
+        this.geocodingClient = geocodingClient;
     }
 
     /**
      * Geocoding địa chỉ thành tọa độ sử dụng OpenCage Data API
      * Tự động chuẩn hóa địa chỉ tiếng Việt để cải thiện khả năng tìm kiếm
+     * Kết quả (kể cả "không tìm thấy") được cache theo địa chỉ chuẩn hóa, cache hit không gọi API
      */
     public Coordinates geocodeAddress(String address) {
+        return geocodeAddress(address, newDeadline());
+    }
+
+    /**
+     * Như geocodeAddress(String) nhưng chỉ chờ tới deadline của bên gọi. Khi OpenCage không gọi được trước mốc đó
+     * (hết giờ, mạch đang mở, quá tải) thì dùng tọa độ đã biết gần nhất của địa chỉ nếu có.
+     */
+    public Coordinates geocodeAddress(String address, Deadline deadline) {
 
-        if (apiKey == null || apiKey.trim().isEmpty()) {
-            throw new RuntimeException("OpenCage API key chưa được cấu hình!");
+        String cacheKey = GeocodeCache.keyOf(address);
+        Optional<GeocodeCache.Lookup> cached = geocodeCache.get(cacheKey);
+        if (cached.isPresent()) {
+            if (cached.get().resolved()) {
+                return cached.get().coordinates();
+            }
+            throw new RuntimeException("Không tìm thấy tọa độ hợp lệ cho địa chỉ: " + address);
         }
 
         // Chuẩn hóa địa chỉ tiếng Việt để cải thiện khả năng geocoding
@@ -64,58 +67,19 @@ public class GeocodingService {
             normalizedAddress = VietnameseNormalizer.normalizeVietnameseAddress(address);
         }
 
-        String encodedAddress = URLEncoder.encode(normalizedAddress, StandardCharsets.UTF_8);
-        String url = String.format(
-                "%s?q=%s&key=%s&limit=1&countrycode=vn&language=vi",
-                OPENCAGE_URL, encodedAddress, apiKey);
-
-        int maxAttempts = 3;
-        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
-            try {
-                String response = restTemplate.getForObject(url, String.class);
-                if (response == null || response.isBlank()) {
-                    throw new RuntimeException("Phản hồi rỗng từ OpenCage API");
-                }
-
-                JsonNode jsonNode = objectMapper.readTree(response);
-                JsonNode results = jsonNode.path("results");
-
-                if (results.isArray() && results.size() > 0) {
-                    JsonNode geometry = results.get(0).path("geometry");
-
-                    if (geometry.has("lat") && geometry.has("lng")) {
-                        double lat = geometry.get("lat").asDouble();
-                        double lng = geometry.get("lng").asDouble();
-                        return new Coordinates(lat, lng);
-                    }
-                }
-
-                throw new RuntimeException("Không tìm thấy tọa độ hợp lệ cho địa chỉ: " + address);
-
-            } catch (HttpStatusCodeException httpEx) {
-                HttpStatusCode status = httpEx.getStatusCode();
-                boolean retryable = status.value() == 429 || status.is5xxServerError();
-
-                if (status.value() == 401) {
-                    throw new RuntimeException("OpenCage API key không hợp lệ!");
-                }
-
-                if (retryable && attempt < maxAttempts) {
-                    sleepBackoff(attempt);
-                    continue;
-                }
-                throw new RuntimeException("Geocoding thất bại (" + status.value() + ")");
-            } catch (Exception e) {
-                if (attempt < maxAttempts) {
-                    sleepBackoff(attempt);
-                    continue;
-                }
-                throw new RuntimeException("Geocoding thất bại: " + e.getMessage());
-            }
+        Coordinates result;
+        try {
+            result = lookup(normalizedAddress, deadline);
+        } catch (GeocodingClient.GeocodingUnavailableException e) {
+            return degraded(cacheKey, address, e);
         }
 
-        // Nếu không có kết quả sau 3 lần thử → trả null (để bên gọi xử lý fallback)
-        return null;
+        if (result == null) {
+            geocodeCache.putUnresolved(cacheKey);
+            throw new RuntimeException("Không tìm thấy tọa độ hợp lệ cho địa chỉ: " + address);
+        }
+        geocodeCache.putResolved(cacheKey, result);
+        return result;
     }
 
     /**
@@ -125,15 +89,34 @@ public class GeocodingService {
      * @return Tọa độ nếu thành công, null nếu thất bại
      */
     public Coordinates geocodeAddressWithFallback(String address) {
+        return geocodeAddressWithFallback(address, newDeadline());
+    }
+
+    /**
+     * Như geocodeAddressWithFallback(String); hai lần thử dùng chung deadline, lần thử với địa chỉ chuẩn hoá
+     * chỉ còn phần thời gian lần đầu chưa dùng.
+     */
+    public Coordinates geocodeAddressWithFallback(String address, Deadline deadline) {
+
+        String cacheKey = GeocodeCache.keyOf(address);
+        Optional<GeocodeCache.Lookup> cached = geocodeCache.get(cacheKey);
+        if (cached.isPresent()) {
+            return cached.get().coordinates();
+        }
+
+        // Chỉ cache kết quả âm khi mọi lần thử đều trả lời "không có kết quả" (không phải lỗi mạng / quota)
+        boolean definitiveMiss = true;
 
         // Thử với địa chỉ gốc trước
         try {
-            Coordinates result = geocodeAddressOriginal(address);
+            Coordinates result = lookup(address, deadline);
             if (result != null) {
+                geocodeCache.putResolved(cacheKey, result);
                 return result;
             }
         } catch (Exception e) {
             // Geocoding với địa chỉ gốc thất bại
+            definitiveMiss = false;
         }
 
         // Nếu thất bại, thử với địa chỉ đã chuẩn hóa
@@ -141,86 +124,110 @@ public class GeocodingService {
             String normalizedAddress = VietnameseNormalizer.normalizeVietnameseAddress(address);
 
             try {
-                Coordinates result = geocodeAddressOriginal(normalizedAddress);
+                Coordinates result = lookup(normalizedAddress, deadline);
                 if (result != null) {
+                    geocodeCache.putResolved(cacheKey, result);
                     return result;
                 }
             } catch (Exception e) {
                 // Geocoding với địa chỉ đã chuẩn hóa thất bại
+                definitiveMiss = false;
             }
         }
 
-        return null;
+        if (definitiveMiss) {
+            geocodeCache.putUnresolved(cacheKey);
+            return null;
+        }
+        return geocodeCache.getLastKnown(cacheKey).orElse(null);
     }
 
     /**
-     * Phương thức geocoding gốc (không chuẩn hóa)
+     * Geocoding nhiều địa chỉ song song (tối đa bulk-concurrency cùng lúc, vẫn chịu rate limit của GeocodingClient).
+     *
+     * @return Map địa chỉ → tọa độ, chỉ gồm các địa chỉ geocode được
      */
-    private Coordinates geocodeAddressOriginal(String address) {
-        if (apiKey == null || apiKey.trim().isEmpty()) {
-            throw new RuntimeException("OpenCage API key chưa được cấu hình!");
-        }
-
-        String encodedAddress = URLEncoder.encode(address, StandardCharsets.UTF_8);
-        String url = String.format(
-                "%s?q=%s&key=%s&limit=1&countrycode=vn&language=vi",
-                OPENCAGE_URL, encodedAddress, apiKey);
-
-        int maxAttempts = 3;
-        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
-            try {
-                String response = restTemplate.getForObject(url, String.class);
-                if (response == null || response.isBlank()) {
-                    throw new RuntimeException("Phản hồi rỗng từ OpenCage API");
-                }
-
-                JsonNode jsonNode = objectMapper.readTree(response);
-                JsonNode results = jsonNode.path("results");
-
-                if (results.isArray() && results.size() > 0) {
-                    JsonNode geometry = results.get(0).path("geometry");
-
-                    if (geometry.has("lat") && geometry.has("lng")) {
-                        double lat = geometry.get("lat").asDouble();
-                        double lng = geometry.get("lng").asDouble();
-                        return new Coordinates(lat, lng);
-                    }
+    public Map<String, Coordinates> geocodeAddressesWithFallback(Collection<String> addresses) {
+        Semaphore permits = new Semaphore(Math.max(1, bulkConcurrency));
+        Map<String, CompletableFuture<Coordinates>> futures = new LinkedHashMap<>();
+        for (String address : new LinkedHashSet<>(addresses)) {
+            if (address == null || address.trim().isEmpty()) {
+                continue;
+            }
+            futures.put(address, CompletableFuture.supplyAsync(() -> {
+                try {
+                    permits.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return null;
                 }
-
-                throw new RuntimeException("Không tìm thấy tọa độ hợp lệ cho địa chỉ: " + address);
-
-            } catch (HttpStatusCodeException httpEx) {
-                HttpStatusCode status = httpEx.getStatusCode();
-                boolean retryable = status.value() == 429 || status.is5xxServerError();
-
-                if (status.value() == 401) {
-                    throw new RuntimeException("OpenCage API key không hợp lệ!");
+                try {
+                    return geocodeAddressWithFallback(address);
+                } finally {
+                    permits.release();
                 }
+            }, geocodingClient.executor()));
+        }
 
-                if (retryable && attempt < maxAttempts) {
-                    sleepBackoff(attempt);
-                    continue;
+        Map<String, Coordinates> result = new LinkedHashMap<>();
+        futures.forEach((address, future) -> {
+            try {
+                Coordinates coordinates = future.join();
+                if (coordinates != null) {
+                    result.put(address, coordinates);
                 }
-                throw new RuntimeException("Geocoding thất bại (" + status.value() + ")");
             } catch (Exception e) {
-                if (attempt < maxAttempts) {
-                    sleepBackoff(attempt);
-                    continue;
-                }
-                throw new RuntimeException("Geocoding thất bại: " + e.getMessage());
+                log.warn("Geocoding failed for address '{}': {}", address, e.getMessage());
             }
-        }
+        });
+        return result;
+    }
 
-        return null;
+    /**
+     * Deadline mặc định (geocoding.client.timeout-ms) cho bên gọi không có ngân sách thời gian riêng.
+     */
+    public Deadline newDeadline() {
+        return Deadline.after(Duration.ofMillis(defaultTimeoutMs));
     }
 
-    private void sleepBackoff(int attempt) {
+    private Coordinates lookup(String query, Deadline deadline) {
+        Duration timeout = deadline.remaining();
+        if (timeout.isZero()) {
+            throw new GeocodingClient.GeocodingUnavailableException("Hết thời gian dành cho geocoding");
+        }
+        return await(geocodingClient.lookup(query, timeout), timeout);
+    }
+
+    private Coordinates await(CompletableFuture<Coordinates> future, Duration timeout) {
         try {
-            long backoffMs = 500L * attempt;
-            Thread.sleep(backoffMs);
-        } catch (InterruptedException ignored) {
+            // Lookup tự hết hạn theo timeout; chờ thêm một chút để nhận đúng lỗi từ client
+            return future.get(timeout.toMillis() + 100, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
+            throw new GeocodingClient.GeocodingUnavailableException("Geocoding bị gián đoạn", e);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new GeocodingClient.GeocodingUnavailableException("Geocoding quá thời gian " + timeout.toMillis() + " ms");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof GeocodingClient.GeocodingUnavailableException unavailable) {
+                throw unavailable;
+            }
+            throw new GeocodingClient.GeocodingUnavailableException(
+                    "Geocoding thất bại: " + (cause != null ? cause.getMessage() : e.getMessage()), cause);
+        }
+    }
+
+    /**
+     * Chế độ suy giảm: OpenCage không gọi được, dùng tọa độ đã biết gần nhất (có thể đã hết TTL).
+     */
+    private Coordinates degraded(String cacheKey, String address, RuntimeException cause) {
+        Optional<Coordinates> lastKnown = geocodeCache.getLastKnown(cacheKey);
+        if (lastKnown.isPresent()) {
+            log.warn("Geocoding unavailable ({}), using last known coordinates for '{}'", cause.getMessage(), address);
+            return lastKnown.get();
         }
+        throw new RuntimeException("Geocoding tạm thời không khả dụng: " + cause.getMessage(), cause);
     }
 
     /**
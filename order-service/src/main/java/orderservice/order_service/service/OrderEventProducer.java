@@ -1,20 +1,43 @@
 package orderservice.order_service.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
+import orderservice.order_service.events.CacheInvalidationEvent;
+import orderservice.order_service.events.OrderChangedEvent;
 import orderservice.order_service.events.OrderCreatedEvent;
 import orderservice.order_service.events.OrderCompletedEvent;
 import orderservice.order_service.events.ReservationCreatedEvent;
-import org.springframework.kafka.core.KafkaTemplate;
+import orderservice.order_service.outbox.OutboxEvent;
+import orderservice.order_service.outbox.OutboxEventRepository;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Ghi sự kiện đơn hàng / đặt bàn vào outbox trong transaction hiện tại của bên gọi.
+ * Sự kiện chỉ được gửi Kafka (bởi OutboxPublisher) khi transaction nghiệp vụ commit thành công.
+ */
 @Service
 @Slf4j
 public class OrderEventProducer {
 
-    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.kafka.topics.cache-invalidated:order.cache.invalidated}")
+    private String cacheInvalidatedTopic;
+
+    @Value("${app.kafka.topics.order-changed:order.changed}")
+    private String orderChangedTopic;
 
-    public OrderEventProducer(KafkaTemplate<String, Object> kafkaTemplate) {
-        this.kafkaTemplate = kafkaTemplate;
+    public OrderEventProducer(OutboxEventRepository outboxEventRepository,
+            @Qualifier("kafkaObjectMapper") ObjectMapper objectMapper) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.objectMapper = objectMapper;
     }
     
     private static final String ORDER_CREATED_TOPIC = "order.created";
@@ -25,130 +48,58 @@ public class OrderEventProducer {
     private static final String RESERVATION_CANCELLED_TOPIC = "reservation.cancelled";
 
     public void publishOrderCreated(OrderCreatedEvent event) {
-        try {
-            log.info("=== [OrderEventProducer] Publishing order.created event ===");
-            log.info("OrderId: {}", event.getOrderId());
-            log.info("BranchId: {}", event.getBranchId());
-            log.info("CustomerId: {}", event.getCustomerId());
-            log.info("CustomerName: {}", event.getCustomerName());
-            log.info("TotalAmount: {}", event.getTotalAmount());
-            log.info("PaymentMethod: {}", event.getPaymentMethod());
-            log.info("Topic: {}", ORDER_CREATED_TOPIC);
-            
-            // Send object directly, JsonSerializer will handle serialization
-            kafkaTemplate.send(ORDER_CREATED_TOPIC, event);
-            log.info("[OrderEventProducer] ✅ Successfully published order.created event to topic '{}' for orderId: {}", 
-                    ORDER_CREATED_TOPIC, event.getOrderId());
-            log.info("=== [OrderEventProducer] Event published successfully ===");
-        } catch (Exception e) {
-            log.error("[OrderEventProducer] ❌ Failed to publish order.created event for orderId: {}", 
-                    event.getOrderId(), e);
-            // Don't throw exception to avoid breaking order creation flow
-        }
+        enqueue(ORDER_CREATED_TOPIC, "ORDER", event.getOrderId(), "OrderCreated", event);
     }
 
     public void publishOrderCompleted(OrderCompletedEvent event) {
-        try {
-            log.info("=== [OrderEventProducer] Publishing order.completed event ===");
-            log.info("OrderId: {}", event.getOrderId());
-            log.info("BranchId: {}", event.getBranchId());
-            log.info("CustomerId: {}", event.getCustomerId());
-            log.info("CustomerName: {}", event.getCustomerName());
-            log.info("TotalAmount: {}", event.getTotalAmount());
-            log.info("Topic: {}", ORDER_COMPLETED_TOPIC);
-            
-            kafkaTemplate.send(ORDER_COMPLETED_TOPIC, event);
-            log.info("[OrderEventProducer] ✅ Successfully published order.completed event to topic '{}' for orderId: {}", 
-                    ORDER_COMPLETED_TOPIC, event.getOrderId());
-            log.info("=== [OrderEventProducer] Event published successfully ===");
-        } catch (Exception e) {
-            log.error("[OrderEventProducer] ❌ Failed to publish order.completed event for orderId: {}", 
-                    event.getOrderId(), e);
-            // Don't throw exception to avoid breaking order status update flow
-        }
+        enqueue(ORDER_COMPLETED_TOPIC, "ORDER", event.getOrderId(), "OrderCompleted", event);
     }
 
     public void publishOrderCancelled(OrderCompletedEvent event) {
-        try {
-            log.info("=== [OrderEventProducer] Publishing order.cancelled event ===");
-            log.info("OrderId: {}", event.getOrderId());
-            log.info("BranchId: {}", event.getBranchId());
-            log.info("CustomerId: {}", event.getCustomerId());
-            log.info("CustomerName: {}", event.getCustomerName());
-            log.info("TotalAmount: {}", event.getTotalAmount());
-            log.info("Topic: {}", ORDER_CANCELLED_TOPIC);
-            
-            kafkaTemplate.send(ORDER_CANCELLED_TOPIC, event);
-            log.info("[OrderEventProducer] ✅ Successfully published order.cancelled event to topic '{}' for orderId: {}", 
-                    ORDER_CANCELLED_TOPIC, event.getOrderId());
-            log.info("=== [OrderEventProducer] Event published successfully ===");
-        } catch (Exception e) {
-            log.error("[OrderEventProducer] ❌ Failed to publish order.cancelled event for orderId: {}", 
-                    event.getOrderId(), e);
-            // Don't throw exception to avoid breaking order status update flow
-        }
+        enqueue(ORDER_CANCELLED_TOPIC, "ORDER", event.getOrderId(), "OrderCancelled", event);
     }
 
     public void publishReservationCreated(ReservationCreatedEvent event) {
-        try {
-            log.info("=== [OrderEventProducer] Publishing reservation.created event ===");
-            log.info("ReservationId: {}", event.getReservationId());
-            log.info("BranchId: {}", event.getBranchId());
-            log.info("CustomerId: {}", event.getCustomerId());
-            log.info("CustomerName: {}", event.getCustomerName());
-            log.info("ReservedAt: {}", event.getReservedAt());
-            log.info("PartySize: {}", event.getPartySize());
-            log.info("Topic: {}", RESERVATION_CREATED_TOPIC);
-            
-            kafkaTemplate.send(RESERVATION_CREATED_TOPIC, event);
-            log.info("[OrderEventProducer] ✅ Successfully published reservation.created event to topic '{}' for reservationId: {}", 
-                    RESERVATION_CREATED_TOPIC, event.getReservationId());
-            log.info("=== [OrderEventProducer] Event published successfully ===");
-        } catch (Exception e) {
-            log.error("[OrderEventProducer] ❌ Failed to publish reservation.created event for reservationId: {}", 
-                    event.getReservationId(), e);
-            // Don't throw exception to avoid breaking reservation creation flow
-        }
+        enqueue(RESERVATION_CREATED_TOPIC, "RESERVATION", event.getReservationId(), "ReservationCreated", event);
     }
 
     public void publishReservationConfirmed(ReservationCreatedEvent event) {
-        try {
-            log.info("=== [OrderEventProducer] Publishing reservation.confirmed event ===");
-            log.info("ReservationId: {}", event.getReservationId());
-            log.info("BranchId: {}", event.getBranchId());
-            log.info("CustomerId: {}", event.getCustomerId());
-            log.info("CustomerName: {}", event.getCustomerName());
-            log.info("Topic: {}", RESERVATION_CONFIRMED_TOPIC);
-            
-            kafkaTemplate.send(RESERVATION_CONFIRMED_TOPIC, event);
-            log.info("[OrderEventProducer] ✅ Successfully published reservation.confirmed event to topic '{}' for reservationId: {}", 
-                    RESERVATION_CONFIRMED_TOPIC, event.getReservationId());
-            log.info("=== [OrderEventProducer] Event published successfully ===");
-        } catch (Exception e) {
-            log.error("[OrderEventProducer] ❌ Failed to publish reservation.confirmed event for reservationId: {}", 
-                    event.getReservationId(), e);
-            // Don't throw exception to avoid breaking reservation status update flow
-        }
+        enqueue(RESERVATION_CONFIRMED_TOPIC, "RESERVATION", event.getReservationId(), "ReservationConfirmed", event);
     }
 
     public void publishReservationCancelled(ReservationCreatedEvent event) {
+        enqueue(RESERVATION_CANCELLED_TOPIC, "RESERVATION", event.getReservationId(), "ReservationCancelled", event);
+    }
+
+    // Key theo chi nhánh để các delta của một chi nhánh giữ đúng thứ tự trên một partition
+    public void publishOrderChanged(OrderChangedEvent event) {
+        enqueue(orderChangedTopic, "ORDER", event.getBranchId(), "OrderChanged", event);
+    }
+
+    public void publishCacheInvalidation(CacheInvalidationEvent event) {
+        enqueue(cacheInvalidatedTopic, "CACHE", event.getBranchId(), "CacheInvalidated", event);
+    }
+
+    private void enqueue(String topic, String aggregateType, Integer aggregateId, String type, Object event) {
+        String payload;
         try {
-            log.info("=== [OrderEventProducer] Publishing reservation.cancelled event ===");
-            log.info("ReservationId: {}", event.getReservationId());
-            log.info("BranchId: {}", event.getBranchId());
-            log.info("CustomerId: {}", event.getCustomerId());
-            log.info("CustomerName: {}", event.getCustomerName());
-            log.info("Topic: {}", RESERVATION_CANCELLED_TOPIC);
-            
-            kafkaTemplate.send(RESERVATION_CANCELLED_TOPIC, event);
-            log.info("[OrderEventProducer] ✅ Successfully published reservation.cancelled event to topic '{}' for reservationId: {}", 
-                    RESERVATION_CANCELLED_TOPIC, event.getReservationId());
-            log.info("=== [OrderEventProducer] Event published successfully ===");
-        } catch (Exception e) {
-            log.error("[OrderEventProducer] ❌ Failed to publish reservation.cancelled event for reservationId: {}", 
-                    event.getReservationId(), e);
-            // Don't throw exception to avoid breaking reservation cancellation flow
+            payload = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize " + type + " event", e);
         }
+
+        OutboxEvent outboxEvent = OutboxEvent.builder()
+                .id(UUID.randomUUID().toString())
+                .aggregateType(aggregateType)
+                .aggregateId(aggregateId != null ? String.valueOf(aggregateId) : null)
+                .type(type)
+                .topic(topic)
+                .payload(payload)
+                .status("NEW")
+                .attempts(0)
+                .createdAt(Instant.now())
+                .build();
+        outboxEventRepository.save(outboxEvent);
+        log.debug("[OrderEventProducer] Queued {} event for {} {} (topic '{}')", type, aggregateType, aggregateId, topic);
     }
 }
-
@@ -0,0 +1,252 @@
+package orderservice.order_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import orderservice.order_service.dto.response.ProductResponse;
+import orderservice.order_service.exception.AppException;
+import orderservice.order_service.exception.ErrorCode;
+import orderservice.order_service.repository.OrderExportRow;
+import orderservice.order_service.repository.OrderRepository;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Export đơn hàng theo khoảng ngày kinh doanh (và chi nhánh) ra CSV / NDJSON.
+ *
+ * Đọc đơn + dòng sản phẩm bằng một query stream (MySQL trả từng dòng) và ghi thẳng ra response,
+ * nên bộ nhớ dùng không phụ thuộc số đơn: chỉ giữ dòng hiện tại (NDJSON: các dòng của đơn hiện tại)
+ * và tên sản phẩm đã tra trong lần export.
+ */
+@Service
+@Slf4j
+public class OrderExportService {
+
+    public enum Format {
+        CSV("csv", new MediaType("text", "csv", StandardCharsets.UTF_8)),
+        NDJSON("ndjson", MediaType.APPLICATION_NDJSON);
+
+        private final String extension;
+        private final MediaType mediaType;
+
+        Format(String extension, MediaType mediaType) {
+            this.extension = extension;
+            this.mediaType = mediaType;
+        }
+
+        public MediaType getMediaType() {
+            return mediaType;
+        }
+    }
+
+    /**
+     * Tham số export đã kiểm tra; branchId null = tất cả chi nhánh.
+     */
+    public record ExportRequest(Integer branchId, LocalDate fromDate, LocalDate toDate, Format format) {
+
+        public String filename() {
+            return "orders_" + fromDate + "_" + toDate
+                    + (branchId != null ? "_branch-" + branchId : "") + "." + format.extension;
+        }
+    }
+
+    private static final String[] CSV_HEADER = {
+            "order_id", "business_date", "order_date", "branch_id", "type", "status", "payment_method",
+            "payment_status", "customer_id", "customer_name", "staff_id", "subtotal", "discount", "vat",
+            "total_amount", "discount_code", "product_id", "product_name", "product_detail_id", "size_id",
+            "quantity", "unit_price", "line_total"
+    };
+
+    private final OrderRepository orderRepository;
+    private final CartCatalogCache cartCatalogCache;
+    private final ObjectMapper objectMapper;
+
+    public OrderExportService(OrderRepository orderRepository,
+            CartCatalogCache cartCatalogCache,
+            @Qualifier("kafkaObjectMapper") ObjectMapper objectMapper) {
+        this.orderRepository = orderRepository;
+        this.cartCatalogCache = cartCatalogCache;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Kiểm tra tham số trước khi bắt đầu ghi response (sau đó không còn trả được mã lỗi).
+     */
+    public ExportRequest prepare(Integer branchId, String dateFrom, String dateTo, String format) {
+        LocalDate fromDate = parseDate(dateFrom);
+        LocalDate toDate = parseDate(dateTo);
+        if (fromDate.isAfter(toDate)) {
+            throw new AppException(ErrorCode.VALIDATION_FAILED, "dateFrom must be on or before dateTo");
+        }
+        Format exportFormat;
+        try {
+            exportFormat = Format.valueOf((format == null || format.isBlank() ? "csv" : format.trim())
+                    .toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new AppException(ErrorCode.VALIDATION_FAILED, "Unsupported export format: " + format);
+        }
+        return new ExportRequest(branchId, fromDate, toDate, exportFormat);
+    }
+
+    private static LocalDate parseDate(String value) {
+        if (value == null || value.isBlank()) {
+            throw new AppException(ErrorCode.VALIDATION_FAILED, "dateFrom and dateTo are required");
+        }
+        try {
+            return LocalDate.parse(value.trim());
+        } catch (DateTimeParseException e) {
+            throw new AppException(ErrorCode.VALIDATION_FAILED, "Invalid date: " + value);
+        }
+    }
+
+    /**
+     * Ghi toàn bộ đơn của request ra out. Stream và kết nối DB được giữ trong suốt transaction này.
+     *
+     * @return số đơn đã export
+     */
+    @Transactional(readOnly = true)
+    public long export(ExportRequest request, OutputStream out) throws IOException {
+        long startedAt = System.currentTimeMillis();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        Map<Integer, String> productNames = new HashMap<>();
+        long orders;
+        try (Stream<OrderExportRow> rows = request.branchId() != null
+                ? orderRepository.streamExportRowsByBranch(request.branchId(), request.fromDate(), request.toDate())
+                : orderRepository.streamExportRows(request.fromDate(), request.toDate())) {
+            orders = request.format() == Format.CSV
+                    ? writeCsv(rows.iterator(), writer, productNames)
+                    : writeNdjson(rows.iterator(), writer, productNames);
+        }
+        writer.flush();
+        log.info("[OrderExportService] Exported {} orders ({}, branch {}, {} - {}) in {} ms", orders,
+                request.format(), request.branchId(), request.fromDate(), request.toDate(),
+                System.currentTimeMillis() - startedAt);
+        return orders;
+    }
+
+    private long writeCsv(Iterator<OrderExportRow> rows, Writer writer, Map<Integer, String> productNames)
+            throws IOException {
+        // BOM để Excel đọc đúng tiếng Việt
+        writer.write('\uFEFF');
+        writer.write(String.join(",", CSV_HEADER));
+        writer.write("\r\n");
+        long orders = 0;
+        Integer currentOrderId = null;
+        while (rows.hasNext()) {
+            OrderExportRow row = rows.next();
+            if (!row.orderId().equals(currentOrderId)) {
+                currentOrderId = row.orderId();
+                orders++;
+            }
+            Object[] values = {
+                    row.orderId(), row.businessDate(), row.orderDate(), row.branchId(), row.orderType(), row.status(),
+                    row.paymentMethod(), row.paymentStatus(), row.customerId(), row.customerName(), row.staffId(),
+                    row.subtotal(), row.discount(), row.vat(), row.totalAmount(), row.discountCode(),
+                    row.productId(), productName(row.productId(), productNames), row.productDetailId(),
+                    row.sizeId(), row.quantity(), row.unitPrice(), row.lineTotal()
+            };
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write(csvValue(values[i]));
+            }
+            writer.write("\r\n");
+        }
+        return orders;
+    }
+
+    static String csvValue(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value instanceof BigDecimal decimal ? decimal.toPlainString() : value.toString();
+        // Chặn CSV injection: chuỗi do người dùng nhập (tên khách, mã giảm giá) không được bắt đầu như công thức
+        if (value instanceof String && !text.isEmpty() && "=+-@".indexOf(text.charAt(0)) >= 0) {
+            text = "'" + text;
+        }
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            return "\"" + text.replace("\"", "\"\"") + "\"";
+        }
+        return text;
+    }
+
+    private record ExportedItem(Integer productId, String productName, Integer productDetailId, Integer sizeId,
+            BigDecimal quantity, BigDecimal unitPrice, BigDecimal lineTotal) {
+    }
+
+    private record ExportedOrder(Integer orderId, LocalDate businessDate, LocalDateTime orderDate, Integer branchId,
+            String type, String status, String paymentMethod, String paymentStatus, Integer customerId,
+            String customerName, Integer staffId, BigDecimal subtotal, BigDecimal discount, BigDecimal vat,
+            BigDecimal totalAmount, String discountCode, List<ExportedItem> items) {
+    }
+
+    private long writeNdjson(Iterator<OrderExportRow> rows, Writer writer, Map<Integer, String> productNames)
+            throws IOException {
+        long orders = 0;
+        OrderExportRow head = null;
+        List<ExportedItem> items = new ArrayList<>();
+        while (rows.hasNext()) {
+            OrderExportRow row = rows.next();
+            if (head != null && !row.orderId().equals(head.orderId())) {
+                writeOrderLine(writer, head, items);
+                orders++;
+                items = new ArrayList<>();
+            }
+            if (head == null || !row.orderId().equals(head.orderId())) {
+                head = row;
+            }
+            if (row.productId() != null) {
+                items.add(new ExportedItem(row.productId(), productName(row.productId(), productNames),
+                        row.productDetailId(), row.sizeId(), row.quantity(), row.unitPrice(), row.lineTotal()));
+            }
+        }
+        if (head != null) {
+            writeOrderLine(writer, head, items);
+            orders++;
+        }
+        return orders;
+    }
+
+    private void writeOrderLine(Writer writer, OrderExportRow head, List<ExportedItem> items) throws IOException {
+        ExportedOrder order = new ExportedOrder(head.orderId(), head.businessDate(), head.orderDate(), head.branchId(),
+                head.orderType(), head.status(), head.paymentMethod(), head.paymentStatus(), head.customerId(),
+                head.customerName(), head.staffId(), head.subtotal(), head.discount(), head.vat(),
+                head.totalAmount(), head.discountCode(), items);
+        writer.write(objectMapper.writeValueAsString(order));
+        writer.write('\n');
+    }
+
+    /**
+     * Tên sản phẩm, tra qua CartCatalogCache một lần cho mỗi product trong lần export
+     * (số product có giới hạn nên map này không lớn theo số đơn).
+     */
+    private String productName(Integer productId, Map<Integer, String> productNames) {
+        if (productId == null) {
+            return null;
+        }
+        return productNames.computeIfAbsent(productId, id -> {
+            ProductResponse product = cartCatalogCache.getProducts(List.of(id)).get(id);
+            return product != null && product.getName() != null ? product.getName() : "";
+        });
+    }
+}
@@ -0,0 +1,313 @@
+package orderservice.order_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import orderservice.order_service.dto.response.OrderDeltaResponse;
+import orderservice.order_service.dto.response.OrderSummaryResponse;
+import orderservice.order_service.dto.response.ProductResponse;
+import orderservice.order_service.events.OrderChangedEvent;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Đẩy delta đơn hàng (tạo / đổi trạng thái / xoá) của một chi nhánh tới các màn hình quản lý / pha chế qua SSE,
+ * thay cho việc poll lại danh sách đơn của chi nhánh.
+ *
+ * - Nguồn: OrderChangedEvent trên topic order.changed (OrderSummaryService ghi vào outbox trong transaction của đơn).
+ *   Mỗi instance nghe với consumer group riêng nên màn hình nối vào instance nào cũng thấy đơn ghi ở instance khác;
+ *   message được key theo chi nhánh nên delta của một chi nhánh đến đúng thứ tự.
+ * - Resume: mỗi delta có token "epoch-seq" tăng dần theo chi nhánh; mỗi chi nhánh giữ replay-size delta gần nhất.
+ *   Kết nối lại với Last-Event-ID (hoặc resumeToken) sẽ nhận các delta bị lỡ; token quá cũ hoặc của lần
+ *   khởi động trước nhận event "reset" để client tải lại danh sách.
+ * - Backpressure: mỗi kết nối có hàng đợi tối đa max-pending event, gửi trên virtual thread riêng nên client chậm
+ *   không chặn transaction ghi đơn. Hàng đợi đầy thì đóng kết nối đó; client kết nối lại và được replay.
+ * - Token replay do từng instance tự cấp; kết nối lại vào instance khác sẽ nhận "reset".
+ */
+@Service
+@Slf4j
+public class OrderLiveFeed {
+
+    static final String EVENT_ORDER = "order";
+    static final String EVENT_READY = "ready";
+    static final String EVENT_RESET = "reset";
+
+    private record Entry(long seq, OrderDeltaResponse delta) {
+    }
+
+    /**
+     * Delta gần nhất của một chi nhánh. Mọi thao tác giữ lock của chính nó để thứ tự replay / live
+     * của mỗi kết nối không bị đảo hoặc lỡ.
+     */
+    private static final class BranchLog {
+        final ArrayDeque<Entry> recent = new ArrayDeque<>();
+        final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+        long lastSeq;
+    }
+
+    private final class Subscriber {
+        final Integer branchId;
+        final SseEmitter emitter;
+        // SseEventBuilder không dùng lại được sau khi gửi nên mỗi kết nối tự dựng event lúc gửi
+        final ArrayDeque<Supplier<SseEmitter.SseEventBuilder>> pending = new ArrayDeque<>();
+        boolean draining;
+        boolean closed;
+
+        Subscriber(Integer branchId, SseEmitter emitter) {
+            this.branchId = branchId;
+            this.emitter = emitter;
+        }
+
+        synchronized void offer(Supplier<SseEmitter.SseEventBuilder> event) {
+            if (closed) {
+                return;
+            }
+            if (pending.size() >= maxPending) {
+                // Client không đọc kịp: bỏ kết nối này thay vì giữ event không giới hạn
+                meterRegistry.counter("orders.live-feed.overflows").increment();
+                log.debug("[OrderLiveFeed] Subscriber of branch {} is too slow, closing", branchId);
+                pending.clear();
+                closed = true;
+                executor.execute(() -> {
+                    emitter.complete();
+                    close();
+                });
+                return;
+            }
+            pending.add(event);
+            if (!draining) {
+                draining = true;
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                Supplier<SseEmitter.SseEventBuilder> event;
+                synchronized (this) {
+                    event = pending.poll();
+                    if (event == null || closed) {
+                        draining = false;
+                        return;
+                    }
+                }
+                try {
+                    emitter.send(event.get());
+                } catch (IOException | IllegalStateException e) {
+                    close();
+                    return;
+                }
+            }
+        }
+
+        synchronized boolean isIdle() {
+            return !closed && pending.isEmpty();
+        }
+
+        void close() {
+            synchronized (this) {
+                closed = true;
+                pending.clear();
+            }
+            BranchLog branchLog = branches.get(branchId);
+            if (branchLog != null) {
+                branchLog.subscribers.remove(this);
+            }
+            subscribers.remove(this);
+        }
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper;
+    private final CartCatalogCache cartCatalogCache;
+    private final Map<Integer, BranchLog> branches = new ConcurrentHashMap<>();
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    // Token của lần khởi động trước không còn replay được
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    @Value("${orders.live-feed.replay-size:500}")
+    private int replaySize;
+
+    @Value("${orders.live-feed.max-pending:200}")
+    private int maxPending;
+
+    @Value("${orders.live-feed.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    public OrderLiveFeed(MeterRegistry meterRegistry, @Qualifier("kafkaObjectMapper") ObjectMapper objectMapper,
+            CartCatalogCache cartCatalogCache) {
+        this.meterRegistry = meterRegistry;
+        this.objectMapper = objectMapper;
+        this.cartCatalogCache = cartCatalogCache;
+        meterRegistry.gaugeCollectionSize("orders.live-feed.subscribers", Tags.empty(), subscribers);
+    }
+
+    @PreDestroy
+    private void shutdown() {
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        executor.shutdownNow();
+    }
+
+    /**
+     * Mở kết nối SSE cho chi nhánh. Event "ready" mang token hiện tại; sau đó là các delta "order"
+     * (kể cả delta bị lỡ kể từ resumeToken nếu còn trong bộ nhớ), hoặc "reset" nếu không resume được.
+     */
+    public SseEmitter subscribe(Integer branchId, String resumeToken) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(branchId, emitter);
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(e -> subscriber.close());
+
+        BranchLog branchLog = branches.computeIfAbsent(branchId, k -> new BranchLog());
+        synchronized (branchLog) {
+            String currentToken = token(branchLog.lastSeq);
+            List<Entry> missed = missedSince(branchLog, resumeToken);
+            // Lỡ nhiều hơn hàng đợi của một kết nối: tải lại danh sách nhanh hơn replay từng delta
+            if (missed == null || missed.size() >= maxPending - 1) {
+                subscriber.offer(() -> SseEmitter.event().name(EVENT_RESET).id(currentToken).data(currentToken));
+            } else {
+                missed.forEach(entry -> subscriber.offer(() -> orderEvent(entry)));
+            }
+            subscriber.offer(() -> SseEmitter.event().name(EVENT_READY).id(currentToken).data(currentToken));
+            branchLog.subscribers.add(subscriber);
+            subscribers.add(subscriber);
+        }
+        return emitter;
+    }
+
+    /**
+     * Các delta sau resumeToken; danh sách rỗng nếu không có token, null nếu token không resume được.
+     */
+    private List<Entry> missedSince(BranchLog branchLog, String resumeToken) {
+        if (resumeToken == null || resumeToken.isBlank()) {
+            return List.of();
+        }
+        long seq = parseSeq(resumeToken.trim());
+        if (seq < 0 || seq > branchLog.lastSeq) {
+            return null;
+        }
+        Entry oldest = branchLog.recent.peekFirst();
+        long firstAvailable = oldest != null ? oldest.seq() : branchLog.lastSeq + 1;
+        if (seq + 1 < firstAvailable) {
+            return null;
+        }
+        List<Entry> missed = new ArrayList<>();
+        for (Entry entry : branchLog.recent) {
+            if (entry.seq() > seq) {
+                missed.add(entry);
+            }
+        }
+        return missed;
+    }
+
+    private long parseSeq(String token) {
+        int separator = token.lastIndexOf('-');
+        if (separator <= 0 || !token.substring(0, separator).equals(epoch)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(token.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private String token(long seq) {
+        return epoch + "-" + seq;
+    }
+
+    private static SseEmitter.SseEventBuilder orderEvent(Entry entry) {
+        return SseEmitter.event()
+                .name(EVENT_ORDER)
+                .id(entry.delta().getToken())
+                .data(entry.delta(), MediaType.APPLICATION_JSON);
+    }
+
+    // Mỗi instance dùng group riêng để instance nào cũng nhận được mọi delta
+    @KafkaListener(topics = "${app.kafka.topics.order-changed:order.changed}",
+            groupId = "order-live-feed-${app.kafka.instance-id:order-service}")
+    public void onOrderChanged(String payload) {
+        try {
+            OrderChangedEvent event = objectMapper.readValue(payload, OrderChangedEvent.class);
+            resolveProductName(event.getOrder());
+            append(event);
+        } catch (Exception e) {
+            log.error("[OrderLiveFeed] Failed to handle order changed event: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * order_summaries chỉ lưu product_id nên tên sản phẩm đầu tiên được tra ở đây, ngoài transaction ghi đơn.
+     */
+    private void resolveProductName(OrderSummaryResponse order) {
+        if (order == null || order.getFirstItem() == null || order.getFirstItem().getProductId() == null
+                || order.getFirstItem().getProductName() != null) {
+            return;
+        }
+        Integer productId = order.getFirstItem().getProductId();
+        try {
+            ProductResponse product = cartCatalogCache.getProducts(List.of(productId)).get(productId);
+            if (product != null) {
+                order.getFirstItem().setProductName(product.getName());
+            }
+        } catch (Exception e) {
+            // Gửi delta không có tên thay vì bỏ delta
+            log.warn("[OrderLiveFeed] Failed to resolve product {} name: {}", productId, e.getMessage());
+        }
+    }
+
+    void append(OrderChangedEvent event) {
+        if (event.getBranchId() == null) {
+            return;
+        }
+        BranchLog branchLog = branches.computeIfAbsent(event.getBranchId(), k -> new BranchLog());
+        synchronized (branchLog) {
+            long seq = ++branchLog.lastSeq;
+            Entry entry = new Entry(seq, OrderDeltaResponse.builder()
+                    .token(token(seq))
+                    .type(event.getType())
+                    .orderId(event.getOrderId())
+                    .branchId(event.getBranchId())
+                    .order(event.getOrder())
+                    .build());
+            branchLog.recent.addLast(entry);
+            while (branchLog.recent.size() > Math.max(1, replaySize)) {
+                branchLog.recent.pollFirst();
+            }
+            branchLog.subscribers.forEach(subscriber -> subscriber.offer(() -> orderEvent(entry)));
+        }
+    }
+
+    /**
+     * Comment SSE định kỳ để proxy không cắt kết nối rảnh và phát hiện client đã ngắt.
+     * Chỉ gửi cho kết nối không còn event chờ (kết nối đang bận đã có dữ liệu đi qua).
+     */
+    @Scheduled(fixedDelayString = "${orders.live-feed.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.isIdle()) {
+                subscriber.offer(() -> SseEmitter.event().comment("ping"));
+            }
+        }
+    }
+}
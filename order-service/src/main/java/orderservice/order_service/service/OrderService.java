@@ -10,6 +10,7 @@ import orderservice.order_service.dto.ApiResponse;
 import orderservice.order_service.dto.request.CreateOrderRequest;
 import orderservice.order_service.dto.request.CreateGuestOrderRequest;
 import orderservice.order_service.dto.response.OrderResponse;
+import orderservice.order_service.dto.response.OrderSummaryPageResponse;
 import orderservice.order_service.dto.response.ProductDetailResponse;
 import orderservice.order_service.dto.response.ProductResponse;
 import orderservice.order_service.entity.Branch;
@@ -20,11 +21,21 @@ import orderservice.order_service.exception.ErrorCode;
 import orderservice.order_service.repository.BranchRepository;
 import orderservice.order_service.repository.OrderItemRepository;
 import orderservice.order_service.repository.OrderRepository;
+import orderservice.order_service.repository.OrderSpecifications;
+import orderservice.order_service.util.OrderCursor;
+import orderservice.order_service.util.Deadline;
+import orderservice.order_service.util.OrderPricing;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -45,11 +56,20 @@ public class OrderService {
         DiscountService discountService;
         OrderEventProducer orderEventProducer;
         BranchClosureService branchClosureService;
+        ProductDetailSnapshotCache productDetailSnapshotCache;
+        SalesRollupService salesRollupService;
+        CartCatalogCache cartCatalogCache;
+        OrderSummaryService orderSummaryService;
 
         @Value("${delivery.max-distance-km:20}")
         @NonFinal
         private double maxDeliveryDistanceKm; // Not final to allow @Value injection
 
+        // Ngân sách thời gian tính từ đầu request tạo đơn; geocoding khi chọn / kiểm tra chi nhánh chỉ dùng phần còn lại
+        @Value("${orders.create.geocoding-budget-ms:2500}")
+        @NonFinal
+        private long createGeocodingBudgetMs;
+
         private static final Set<String> CANCEL_ALLOWED_STATUSES = Set.of("PENDING", "PREPARING");
         
         // Valid order status transitions
@@ -65,9 +85,17 @@ public class OrderService {
         @Transactional
         public OrderResponse createOrder(CreateOrderRequest request, String token) {
                 try {
+                        Deadline geocodingDeadline = Deadline.after(Duration.ofMillis(createGeocodingBudgetMs));
+
                         // Validate products and calculate subtotal
                         BigDecimal subtotal = BigDecimal.ZERO;
 
+                        // Một lần gọi catalog (hoặc không gọi nếu cache còn) cho toàn bộ item của đơn
+                        Map<Integer, ProductDetailResponse> productDetails = productDetailSnapshotCache.getProductDetails(
+                                        request.getOrderItems().stream()
+                                                        .map(CreateOrderRequest.OrderItemRequest::getProductDetailId)
+                                                        .collect(Collectors.toList()));
+
                         for (CreateOrderRequest.OrderItemRequest itemRequest : request.getOrderItems()) {
                                 // Validate quantity
                                 if (itemRequest.getQuantity() == null || itemRequest.getQuantity().compareTo(BigDecimal.ZERO) <= 0) {
@@ -75,14 +103,11 @@ public class OrderService {
                                                         "Order item quantity must be greater than 0");
                                 }
                                 
-                                ApiResponse<ProductDetailResponse> productDetailResponse = catalogServiceClient
-                                                .getProductDetailById(itemRequest.getProductDetailId());
+                                ProductDetailResponse productDetail = productDetails.get(itemRequest.getProductDetailId());
 
-                                if (productDetailResponse == null || productDetailResponse.getResult() == null) {
+                                if (productDetail == null) {
                                         throw new AppException(ErrorCode.PRODUCT_NOT_FOUND);
                                 }
-
-                                ProductDetailResponse productDetail = productDetailResponse.getResult();
                                 
                                 // Validate price
                                 if (productDetail.getPrice() == null || productDetail.getPrice().compareTo(BigDecimal.ZERO) <= 0) {
@@ -90,7 +115,7 @@ public class OrderService {
                                                         "Product price must be greater than 0");
                                 }
                                 
-                                BigDecimal itemTotal = productDetail.getPrice().multiply(itemRequest.getQuantity());
+                                BigDecimal itemTotal = OrderPricing.lineTotal(productDetail.getPrice(), itemRequest.getQuantity());
                                 subtotal = subtotal.add(itemTotal);
                         }
 
@@ -112,7 +137,7 @@ public class OrderService {
                                 if (addressForBranchSelection != null && !addressForBranchSelection.trim().isEmpty()) {
                                         try {
                                                 double distance = branchSelectionService.calculateDistanceFromAddress(
-                                                        addressForBranchSelection, selectedBranch);
+                                                        addressForBranchSelection, selectedBranch, geocodingDeadline);
                                                 
                                                 if (distance > maxDeliveryDistanceKm) {
                                                         String errorMessage = String.format("Chi nhánh được chọn cách địa chỉ giao hàng %.2f km, vượt quá giới hạn %s km. Vui lòng chọn địa chỉ giao hàng gần hơn hoặc liên hệ hỗ trợ.", 
@@ -137,7 +162,7 @@ public class OrderService {
                                 // Fallback: Tự động chọn chi nhánh dựa trên địa chỉ giao hàng
                                 // Kiểm tra khoảng cách tối đa khi tự động chọn chi nhánh
                                 selectedBranch = branchSelectionService.findNearestBranchWithinDistance(
-                                                addressForBranchSelection, maxDeliveryDistanceKm);
+                                                addressForBranchSelection, maxDeliveryDistanceKm, geocodingDeadline);
                                 if (selectedBranch == null) {
                                         String errorMessage = String.format("Không tìm thấy chi nhánh nào trong phạm vi %s km từ địa chỉ '%s'. Vui lòng chọn địa chỉ giao hàng gần hơn hoặc liên hệ hỗ trợ.", 
                                                 maxDeliveryDistanceKm, addressForBranchSelection);
@@ -194,18 +219,10 @@ public class OrderService {
                                 discount = request.getDiscount() != null ? request.getDiscount() : BigDecimal.ZERO;
                         }
 
-                        // Compute subtotal after discount
-                        BigDecimal afterDiscount = subtotal.subtract(discount);
-                        // Ensure afterDiscount is not negative
-                        if (afterDiscount.compareTo(BigDecimal.ZERO) < 0) {
-                                afterDiscount = BigDecimal.ZERO;
-                        }
-
-                        // Compute VAT (10%) on subtotal AFTER discount
-                        BigDecimal vat = afterDiscount.multiply(new BigDecimal("0.10"));
-                        vat = vat.setScale(2, java.math.RoundingMode.HALF_UP);
-
-                        BigDecimal totalAmount = afterDiscount.add(vat);
+                        // Subtotal sau giảm giá (không âm), VAT 10% trên phần sau giảm giá, rồi tổng
+                        OrderPricing.Totals totals = OrderPricing.totals(subtotal, discount);
+                        BigDecimal vat = totals.vat();
+                        BigDecimal totalAmount = totals.totalAmount();
                         
                         // Validate total amount is not negative
                         if (totalAmount.compareTo(BigDecimal.ZERO) < 0) {
@@ -238,15 +255,10 @@ public class OrderService {
                         order = orderRepository.save(order);
                         
                         // Use discount AFTER order is successfully created
+                        // Hết lượt (hoặc mã vừa bị xoá) thì ném AppException để rollback đơn, không lưu đơn với giá đã giảm
                         if (request.getDiscountCode() != null && !request.getDiscountCode().trim().isEmpty() && discount.compareTo(BigDecimal.ZERO) > 0) {
-                                try {
-                                        discountService.useDiscount(request.getDiscountCode());
-                                        log.info("Discount {} used for order {}", request.getDiscountCode(), order.getOrderId());
-                                } catch (Exception e) {
-                                        log.error("Failed to use discount {} for order {}: {}", 
-                                                request.getDiscountCode(), order.getOrderId(), e.getMessage());
-                                        // Don't fail order creation if discount usage fails, but log the error
-                                }
+                                discountService.useDiscount(request.getDiscountCode());
+                                log.info("Discount {} used for order {}", request.getDiscountCode(), order.getOrderId());
                         }
 
                         // Cập nhật order_id vào stock_reservations
@@ -285,11 +297,9 @@ public class OrderService {
                         }
 
                         // Create order items
+                        List<OrderItem> orderItems = new ArrayList<>();
                         for (CreateOrderRequest.OrderItemRequest itemRequest : request.getOrderItems()) {
-                                ApiResponse<ProductDetailResponse> productDetailResponse = catalogServiceClient
-                                                .getProductDetailById(itemRequest.getProductDetailId());
-
-                                ProductDetailResponse productDetail = productDetailResponse.getResult();
+                                ProductDetailResponse productDetail = productDetails.get(itemRequest.getProductDetailId());
 
                                 OrderItem orderItem = OrderItem.builder()
                                                 .order(order)
@@ -305,8 +315,12 @@ public class OrderService {
                                                 .notes(itemRequest.getNotes())
                                                 .build();
 
-                                orderItemRepository.save(orderItem);
+                                orderItems.add(orderItem);
                         }
+                        // Một lần saveAll: Hibernate gom các INSERT order_details thành batch
+                        orderItems = orderItemRepository.saveAll(orderItems);
+                        salesRollupService.recordCreated(order, orderItems);
+                        orderSummaryService.recordCreated(order, orderItems);
 
                         // Publish order created event to Kafka for staff notification
                         try {
@@ -317,101 +331,97 @@ public class OrderService {
                         }
 
                         return convertToOrderResponse(order);
+                } catch (AppException e) {
+                        if (DiscountService.isRedemptionFailure(e)) {
+                                throw e;
+                        }
+                        throw new AppException(ErrorCode.ORDER_CREATION_FAILED);
                 } catch (Exception e) {
                         throw new AppException(ErrorCode.ORDER_CREATION_FAILED);
                 }
         }
 
         public List<OrderResponse> getOrdersByCustomer(Integer customerId) {
-                List<Order> orders = orderRepository.findByCustomerIdOrderByOrderDateDesc(customerId);
-                return orders.stream()
-                                .map(this::convertToOrderResponse)
-                                .collect(Collectors.toList());
+                return convertToOrderResponses(orderRepository.findByCustomerIdOrderByOrderDateDesc(customerId));
         }
 
         public List<OrderResponse> getOrdersByBranch(Integer branchId) {
-                List<Order> orders = orderRepository.findByBranchIdOrderByOrderDateDesc(branchId);
-                return orders.stream()
-                                .map(this::convertToOrderResponse)
-                                .collect(Collectors.toList());
+                return convertToOrderResponses(orderRepository.findByBranchIdOrderByOrderDateDesc(branchId));
+        }
+
+        /**
+         * Danh sách đơn theo khách hàng, phân trang bằng cursor trên bảng order_summaries ("Đơn hàng của tôi").
+         */
+        public OrderSummaryPageResponse getOrderSummariesByCustomer(Integer customerId, String cursor, Integer limit) {
+                return orderSummaryService.getByCustomer(customerId, cursor, limit);
+        }
+
+        public OrderSummaryPageResponse getOrderSummariesByBranch(Integer branchId, String cursor, Integer limit) {
+                return orderSummaryService.getByBranch(branchId, cursor, limit);
         }
 
         public orderservice.order_service.dto.response.OrderListResponse getOrders(
                         String branchIdStr, String status, String type, String staffIdStr,
-                        String dateFrom, String dateTo, Integer page, Integer limit) {
+                        String dateFrom, String dateTo, Integer page, Integer limit, String cursor) {
+                // Cursor không hợp lệ là lỗi của client, không gộp vào ORDER_NOT_FOUND bên dưới
+                OrderCursor after = decodeOrderCursor(cursor);
                 try {
                         // Parse filters
                         Integer branchId = branchIdStr != null ? Integer.parseInt(branchIdStr) : null;
                         Integer staffId = staffIdStr != null ? Integer.parseInt(staffIdStr) : null;
-                        
-                        // Parse dates
+
+                        // Parse dates: [dateFrom 00:00, dateTo + 1 ngày 00:00)
                         java.time.LocalDateTime startDate = null;
                         java.time.LocalDateTime endDate = null;
                         if (dateFrom != null && !dateFrom.isEmpty()) {
                                 startDate = java.time.LocalDate.parse(dateFrom).atStartOfDay();
                         }
                         if (dateTo != null && !dateTo.isEmpty()) {
-                                endDate = java.time.LocalDate.parse(dateTo).atTime(23, 59, 59);
+                                endDate = java.time.LocalDate.parse(dateTo).plusDays(1).atStartOfDay();
                         }
 
-                        // Build query
-                        List<Order> orders;
-                        if (branchId != null && startDate != null && endDate != null) {
-                                // Filter by branch and date range
-                                orders = orderRepository.findByBranchIdAndDateRange(branchId, startDate, endDate);
-                        } else if (branchId != null) {
-                                // Filter by branch only
-                                orders = orderRepository.findByBranchIdOrderByOrderDateDesc(branchId);
-                        } else {
-                                // Get all orders
-                                orders = orderRepository.findAll();
-                        }
-
-                        // Apply additional filters
-                        if (status != null && !status.isEmpty()) {
-                                orders = orders.stream()
-                                                .filter(o -> o.getStatus().equalsIgnoreCase(status))
-                                                .collect(Collectors.toList());
-                        }
-                        if (staffId != null) {
-                                orders = orders.stream()
-                                                .filter(o -> o.getStaffId() != null && o.getStaffId().equals(staffId))
-                                                .collect(Collectors.toList());
-                        }
-                        // Filter by type: determine order type based on existing fields
-                        if (type != null && !type.isEmpty()) {
-                                String typeLower = type.toLowerCase();
-                                orders = orders.stream()
-                                                .filter(o -> {
-                                                        String orderType = determineOrderTypeFromOrder(o);
-                                                        return orderType.equalsIgnoreCase(typeLower);
-                                                })
-                                                .collect(Collectors.toList());
+                        // Toàn bộ điều kiện lọc chạy trên DB (order_type đã được lưu sẵn)
+                        Specification<Order> spec = Specification.<Order>where(null)
+                                        .and(OrderSpecifications.hasBranch(branchId))
+                                        .and(OrderSpecifications.hasStatus(status))
+                                        .and(OrderSpecifications.hasStaff(staffId))
+                                        .and(OrderSpecifications.hasOrderType(type))
+                                        .and(OrderSpecifications.createdFrom(startDate))
+                                        .and(OrderSpecifications.createdBefore(endDate));
+                        Sort sort = Sort.by(Sort.Order.desc("orderDate"), Sort.Order.desc("orderId"));
+
+                        if (after != null) {
+                                // Keyset pagination: không OFFSET, không COUNT; lấy thêm 1 dòng để biết còn trang sau
+                                List<Order> rows = orderRepository.findBy(
+                                                spec.and(OrderSpecifications.after(after.orderDate(), after.orderId())),
+                                                q -> q.sortBy(sort).limit(limit + 1).all());
+                                boolean hasMore = rows.size() > limit;
+                                List<Order> pageOrders = hasMore ? rows.subList(0, limit) : rows;
+                                Order last = pageOrders.isEmpty() ? null : pageOrders.get(pageOrders.size() - 1);
+
+                                return orderservice.order_service.dto.response.OrderListResponse.builder()
+                                                .orders(convertToOrderResponses(pageOrders))
+                                                .limit(limit)
+                                                .nextCursor(hasMore && last != null ? encodeOrderCursor(last) : null)
+                                                .build();
                         }
 
-                        // Sort by orderDate descending
-                        orders = orders.stream()
-                                        .sorted((a, b) -> b.getOrderDate().compareTo(a.getOrderDate()))
-                                        .collect(Collectors.toList());
-
-                        // Apply pagination
-                        int total = orders.size();
-                        int totalPages = (int) Math.ceil((double) total / limit);
-                        int start = page * limit;
-                        int end = Math.min(start + limit, total);
-                        List<Order> paginatedOrders = start < total ? orders.subList(start, end) : List.of();
+                        // Phân trang theo page/limit (giữ tương thích cho client cũ)
+                        Page<Order> result = orderRepository.findAll(spec, PageRequest.of(page, limit, sort));
+                        List<Order> pageOrders = result.getContent();
 
                         // Convert to response
-                        List<OrderResponse> orderResponses = paginatedOrders.stream()
-                                .map(this::convertToOrderResponse)
-                                .collect(Collectors.toList());
+                        List<OrderResponse> orderResponses = convertToOrderResponses(pageOrders);
 
                         return orderservice.order_service.dto.response.OrderListResponse.builder()
                                         .orders(orderResponses)
-                                        .total(total)
+                                        .total((int) result.getTotalElements())
                                         .page(page)
                                         .limit(limit)
-                                        .totalPages(totalPages)
+                                        .totalPages(result.getTotalPages())
+                                        .nextCursor(result.hasNext() && !pageOrders.isEmpty()
+                                                        ? encodeOrderCursor(pageOrders.get(pageOrders.size() - 1))
+                                                        : null)
                                         .build();
                 } catch (Exception e) {
                         log.error("Failed to get orders with filters", e);
@@ -419,10 +429,20 @@ public class OrderService {
                 }
         }
 
+        private String encodeOrderCursor(Order order) {
+                return OrderCursor.encode(order.getOrderDate(), order.getOrderId());
+        }
+
+        private OrderCursor decodeOrderCursor(String cursor) {
+                return OrderCursor.decode(cursor);
+        }
+
         public OrderResponse getOrderById(Integer orderId) {
-                Order order = orderRepository.findById(orderId)
+                // Đơn và các dòng sản phẩm trong một query (entity graph)
+                Order order = orderRepository.findWithItemsByOrderId(orderId)
                                 .orElseThrow(() -> new AppException(ErrorCode.ORDER_NOT_FOUND));
-                return convertToOrderResponse(order);
+                List<OrderItem> items = order.getOrderItems() != null ? order.getOrderItems() : List.of();
+                return convertToOrderResponse(order, items, productsOf(items));
         }
 
         @Transactional
@@ -457,8 +477,11 @@ public class OrderService {
                         commitReservationForOrder(order);
                 }
 
+                SalesRollupService.OrderSnapshot before = salesRollupService.snapshot(order);
                 order.setStatus(newStatus);
                 order = orderRepository.save(order);
+                salesRollupService.recordChanged(before, order);
+                orderSummaryService.recordChanged(order);
 
                 // Publish event when order is completed
                 if ("COMPLETED".equals(status) && order.getCustomerId() != null) {
@@ -517,18 +540,61 @@ public class OrderService {
                 // Ensure order items are removed before deleting order in case cascade isn't
                 // configured
                 List<OrderItem> items = orderItemRepository.findByOrderOrderId(orderId);
+                SalesRollupService.OrderSnapshot before = salesRollupService.snapshot(order, items);
                 if (items != null && !items.isEmpty()) {
                         orderItemRepository.deleteAll(items);
                 }
 
                 orderRepository.delete(order);
+                salesRollupService.recordDeleted(before);
+                orderSummaryService.recordDeleted(order.getOrderId());
         }
 
         private OrderResponse convertToOrderResponse(Order order) {
                 List<OrderItem> orderItems = orderItemRepository.findByOrderOrderId(order.getOrderId());
+                return convertToOrderResponse(order, orderItems, productsOf(orderItems));
+        }
+
+        /**
+         * Chuyển một danh sách đơn: một query order_details cho tất cả các đơn và một lần tra cứu product
+         * (CartCatalogCache) thay vì một query + một lần gọi catalog cho từng đơn / từng dòng.
+         */
+        private List<OrderResponse> convertToOrderResponses(List<Order> orders) {
+                if (orders.isEmpty()) {
+                        return new ArrayList<>();
+                }
+                List<OrderItem> allItems = orderItemRepository.findByOrderOrderIdIn(
+                                orders.stream().map(Order::getOrderId).collect(Collectors.toList()));
+                Map<Integer, List<OrderItem>> itemsByOrder = allItems.stream()
+                                .collect(Collectors.groupingBy(item -> item.getOrder().getOrderId()));
+                Map<Integer, ProductResponse> products = productsOf(allItems);
+                return orders.stream()
+                                .map(order -> convertToOrderResponse(order,
+                                                itemsByOrder.getOrDefault(order.getOrderId(), List.of()), products))
+                                .collect(Collectors.toList());
+        }
 
+        private Map<Integer, ProductResponse> productsOf(List<OrderItem> items) {
+                Set<Integer> productIds = items.stream()
+                                .map(OrderItem::getProductId)
+                                .filter(java.util.Objects::nonNull)
+                                .collect(Collectors.toCollection(java.util.LinkedHashSet::new));
+                if (productIds.isEmpty()) {
+                        return Map.of();
+                }
+                try {
+                        return cartCatalogCache.getProducts(productIds);
+                } catch (Exception e) {
+                        // Giống convertToOrderItemResponse: catalog lỗi thì product = null
+                        log.warn("Failed to load {} products for order response: {}", productIds.size(), e.getMessage());
+                        return Map.of();
+                }
+        }
+
+        private OrderResponse convertToOrderResponse(Order order, List<OrderItem> orderItems,
+                        Map<Integer, ProductResponse> products) {
                 List<OrderResponse.OrderItemResponse> orderItemResponses = orderItems.stream()
-                                .map(this::convertToOrderItemResponse)
+                                .map(item -> convertToOrderItemResponse(item, products.get(item.getProductId())))
                                 .collect(Collectors.toList());
 
                 // Determine order type based on fields
@@ -567,25 +633,8 @@ public class OrderService {
         }
 
         private String determineOrderTypeFromOrder(Order order) {
-                // POS orders: have staffId (created by staff at POS)
-                if (order.getStaffId() != null) {
-                        return "pos";
-                }
-                // Dine-in orders: have tableId (regardless of deliveryAddress)
-                if (order.getTableId() != null) {
-                        return "dine-in";
-                }
-                // Takeaway orders: have deliveryAddress = "take-away"
-                if (order.getDeliveryAddress() != null && "take-away".equalsIgnoreCase(order.getDeliveryAddress().trim())) {
-                        return "takeaway";
-                }
-                // Online orders: have deliveryAddress (not "take-away") and no tableId/staffId
-                // Online orders are created from web/app and have delivery address
-                if (order.getDeliveryAddress() != null && !order.getDeliveryAddress().trim().isEmpty()) {
-                        return "online";
-                }
-                // Fallback: takeaway
-                return "takeaway";
+                // order_type được tính khi lưu đơn; đơn cũ chưa backfill thì tính lại từ các trường
+                return order.getOrderType() != null ? order.getOrderType() : order.resolveOrderType();
         }
 
         /**
@@ -675,55 +724,41 @@ public class OrderService {
                 return "takeaway";
         }
 
-        private OrderResponse.OrderItemResponse convertToOrderItemResponse(OrderItem orderItem) {
-                try {
-                        // Get product information
-                        ApiResponse<ProductResponse> productResponse = catalogServiceClient
-                                        .getProductById(orderItem.getProductId());
-
-                        return OrderResponse.OrderItemResponse.builder()
-                                        .orderItemId(orderItem.getOrderItemId())
-                                        .productId(orderItem.getProductId())
-                                        .productDetailId(orderItem.getProductDetailId())
-                                        .sizeId(orderItem.getSizeId())
-                                        .product(productResponse.getResult())
-                                        .quantity(orderItem.getQuantity())
-                                        .unitPrice(orderItem.getUnitPrice())
-                                        .totalPrice(orderItem.getTotalPrice())
-                                        .notes(orderItem.getNotes())
-                                        .build();
-                } catch (Exception e) {
-                        // Return basic information if Feign call fails
-                        return OrderResponse.OrderItemResponse.builder()
-                                        .orderItemId(orderItem.getOrderItemId())
-                                        .productId(orderItem.getProductId())
-                                        .productDetailId(orderItem.getProductDetailId())
-                                        .sizeId(orderItem.getSizeId())
-                                        .product(null)
-                                        .quantity(orderItem.getQuantity())
-                                        .unitPrice(orderItem.getUnitPrice())
-                                        .totalPrice(orderItem.getTotalPrice())
-                                        .notes(orderItem.getNotes())
-                                        .build();
-                }
+        private OrderResponse.OrderItemResponse convertToOrderItemResponse(OrderItem orderItem, ProductResponse product) {
+                // product = null nếu catalog không trả được thông tin sản phẩm
+                return OrderResponse.OrderItemResponse.builder()
+                                .orderItemId(orderItem.getOrderItemId())
+                                .productId(orderItem.getProductId())
+                                .productDetailId(orderItem.getProductDetailId())
+                                .sizeId(orderItem.getSizeId())
+                                .product(product)
+                                .quantity(orderItem.getQuantity())
+                                .unitPrice(orderItem.getUnitPrice())
+                                .totalPrice(orderItem.getTotalPrice())
+                                .notes(orderItem.getNotes())
+                                .build();
         }
 
         @Transactional
         public OrderResponse createGuestOrder(CreateGuestOrderRequest request) {
                 try {
+                        Deadline geocodingDeadline = Deadline.after(Duration.ofMillis(createGeocodingBudgetMs));
+
                         // Validate products and calculate subtotal
                         BigDecimal subtotal = BigDecimal.ZERO;
 
+                        Map<Integer, ProductDetailResponse> productDetails = productDetailSnapshotCache.getProductDetails(
+                                        request.getOrderItems().stream()
+                                                        .map(CreateGuestOrderRequest.OrderItemRequest::getProductDetailId)
+                                                        .collect(Collectors.toList()));
+
                         for (CreateGuestOrderRequest.OrderItemRequest itemRequest : request.getOrderItems()) {
-                                ApiResponse<ProductDetailResponse> productDetailResponse = catalogServiceClient
-                                                .getProductDetailById(itemRequest.getProductDetailId());
+                                ProductDetailResponse productDetail = productDetails.get(itemRequest.getProductDetailId());
 
-                                if (productDetailResponse == null || productDetailResponse.getResult() == null) {
+                                if (productDetail == null) {
                                         throw new AppException(ErrorCode.PRODUCT_NOT_FOUND);
                                 }
-
-                                ProductDetailResponse productDetail = productDetailResponse.getResult();
-                                BigDecimal itemTotal = productDetail.getPrice().multiply(itemRequest.getQuantity());
+                                BigDecimal itemTotal = OrderPricing.lineTotal(productDetail.getPrice(), itemRequest.getQuantity());
                                 subtotal = subtotal.add(itemTotal);
                         }
 
@@ -743,7 +778,7 @@ public class OrderService {
                                 if (addressForBranchSelection != null && !addressForBranchSelection.trim().isEmpty()) {
                                         try {
                                                 double distance = branchSelectionService.calculateDistanceFromAddress(
-                                                        addressForBranchSelection, selectedBranch);
+                                                        addressForBranchSelection, selectedBranch, geocodingDeadline);
                                                 
                                                 if (distance > maxDeliveryDistanceKm) {
                                                         String errorMessage = String.format("Chi nhánh được chọn cách địa chỉ giao hàng %.2f km, vượt quá giới hạn %s km. Vui lòng chọn địa chỉ giao hàng gần hơn hoặc liên hệ hỗ trợ.", 
@@ -766,7 +801,7 @@ public class OrderService {
                                 // Fallback: tự động chọn chi nhánh dựa trên địa chỉ giao hàng
                                 // Kiểm tra khoảng cách tối đa khi tự động chọn chi nhánh
                                 selectedBranch = branchSelectionService.findNearestBranchWithinDistance(
-                                                addressForBranchSelection, maxDeliveryDistanceKm);
+                                                addressForBranchSelection, maxDeliveryDistanceKm, geocodingDeadline);
                                 if (selectedBranch == null) {
                                         String errorMessage = String.format("Không tìm thấy chi nhánh nào trong phạm vi %s km từ địa chỉ '%s'. Vui lòng chọn địa chỉ giao hàng gần hơn hoặc liên hệ hỗ trợ.", 
                                                 maxDeliveryDistanceKm, addressForBranchSelection);
@@ -822,18 +857,10 @@ public class OrderService {
                                 discount = request.getDiscount() != null ? request.getDiscount() : BigDecimal.ZERO;
                         }
 
-                        // Compute subtotal after discount
-                        BigDecimal afterDiscount = subtotal.subtract(discount);
-                        // Ensure afterDiscount is not negative
-                        if (afterDiscount.compareTo(BigDecimal.ZERO) < 0) {
-                                afterDiscount = BigDecimal.ZERO;
-                        }
-
-                        // Compute VAT (10%) on subtotal AFTER discount
-                        BigDecimal vat = afterDiscount.multiply(new BigDecimal("0.10"));
-                        vat = vat.setScale(2, java.math.RoundingMode.HALF_UP);
-
-                        BigDecimal totalAmount = afterDiscount.add(vat);
+                        // Subtotal sau giảm giá (không âm), VAT 10% trên phần sau giảm giá, rồi tổng
+                        OrderPricing.Totals totals = OrderPricing.totals(subtotal, discount);
+                        BigDecimal vat = totals.vat();
+                        BigDecimal totalAmount = totals.totalAmount();
                         
                         // Validate total amount is not negative
                         if (totalAmount.compareTo(BigDecimal.ZERO) < 0) {
@@ -866,32 +893,26 @@ public class OrderService {
                         order = orderRepository.save(order);
                         
                         // Use discount AFTER order is successfully created
+                        // Hết lượt (hoặc mã vừa bị xoá) thì ném AppException để rollback đơn, không lưu đơn với giá đã giảm
                         if (request.getDiscountCode() != null && !request.getDiscountCode().trim().isEmpty() && discount.compareTo(BigDecimal.ZERO) > 0) {
-                                try {
-                                        discountService.useDiscount(request.getDiscountCode());
-                                        log.info("Discount {} used for guest order {}", request.getDiscountCode(), order.getOrderId());
-                                } catch (Exception e) {
-                                        log.error("Failed to use discount {} for guest order {}: {}", 
-                                                request.getDiscountCode(), order.getOrderId(), e.getMessage());
-                                }
+                                discountService.useDiscount(request.getDiscountCode());
+                                log.info("Discount {} used for guest order {}", request.getDiscountCode(), order.getOrderId());
                         }
 
                         // Create order items
+                        List<OrderItem> orderItems = new ArrayList<>();
                         for (CreateGuestOrderRequest.OrderItemRequest itemRequest : request.getOrderItems()) {
                                 // Validate quantity
                                 if (itemRequest.getQuantity() == null || itemRequest.getQuantity().compareTo(BigDecimal.ZERO) <= 0) {
                                         throw new AppException(ErrorCode.VALIDATION_FAILED,
                                                         "Order item quantity must be greater than 0");
                                 }
-                                ApiResponse<ProductDetailResponse> productDetailResponse = catalogServiceClient
-                                                .getProductDetailById(itemRequest.getProductDetailId());
+                                ProductDetailResponse productDetail = productDetails.get(itemRequest.getProductDetailId());
                                 
-                                if (productDetailResponse == null || productDetailResponse.getResult() == null) {
+                                if (productDetail == null) {
                                         throw new AppException(ErrorCode.PRODUCT_NOT_FOUND);
                                 }
                                 
-                                ProductDetailResponse productDetail = productDetailResponse.getResult();
-                                
                                 // Validate price
                                 if (productDetail.getPrice() == null || productDetail.getPrice().compareTo(BigDecimal.ZERO) <= 0) {
                                         throw new AppException(ErrorCode.VALIDATION_FAILED,
@@ -912,8 +933,12 @@ public class OrderService {
                                                 .notes(itemRequest.getNotes())
                                                 .build();
 
-                                orderItemRepository.save(orderItem);
+                                orderItems.add(orderItem);
                         }
+                        // Một lần saveAll: Hibernate gom các INSERT order_details thành batch
+                        orderItems = orderItemRepository.saveAll(orderItems);
+                        salesRollupService.recordCreated(order, orderItems);
+                        orderSummaryService.recordCreated(order, orderItems);
 
                         // Cập nhật orderId trong stock_reservations
                         // Ưu tiên liên kết theo holdId (POS/flow đã check & reserve trước),
@@ -0,0 +1,234 @@
+package orderservice.order_service.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+import orderservice.order_service.dto.response.OrderSummaryPageResponse;
+import orderservice.order_service.dto.response.OrderSummaryResponse;
+import orderservice.order_service.dto.response.ProductResponse;
+import orderservice.order_service.entity.Order;
+import orderservice.order_service.entity.OrderItem;
+import orderservice.order_service.entity.OrderSummary;
+import orderservice.order_service.events.OrderChangedEvent;
+import orderservice.order_service.repository.OrderItemRepository;
+import orderservice.order_service.repository.OrderSummaryRepository;
+import orderservice.order_service.util.OrderCursor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Duy trì bảng order_summaries (một dòng tóm tắt mỗi đơn) và phục vụ danh sách đơn theo khách hàng /
+ * chi nhánh bằng keyset pagination trên bảng này: mỗi trang là một query theo index,
+ * không đọc order_details và không gọi catalog-service cho từng dòng.
+ *
+ * Được gọi cùng chỗ với SalesRollupService (tạo / đổi trạng thái / xóa đơn), trong cùng transaction.
+ * Mỗi thay đổi cũng được ghi vào outbox thành OrderChangedEvent (topic order.changed) cho OrderLiveFeed
+ * (SSE theo chi nhánh), trong cùng transaction nên không phát delta của đơn bị rollback.
+ * Lần khởi động đầu tiên sẽ dựng tóm tắt cho các đơn chưa có (backfill-on-startup).
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+@FieldDefaults(level = lombok.AccessLevel.PRIVATE, makeFinal = true)
+public class OrderSummaryService {
+
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+
+    OrderSummaryRepository orderSummaryRepository;
+    OrderItemRepository orderItemRepository;
+    CartCatalogCache cartCatalogCache;
+    OrderEventProducer orderEventProducer;
+
+    @NonFinal
+    @Value("${orders.summary.backfill-on-startup:true}")
+    boolean backfillOnStartup;
+
+    /**
+     * Ghi lại tóm tắt của đơn vừa tạo cùng các dòng sản phẩm đã lưu.
+     */
+    @Transactional
+    public void recordCreated(Order order, List<OrderItem> items) {
+        if (order == null || order.getOrderId() == null) {
+            return;
+        }
+        publish(OrderChangedEvent.CREATED, create(order, items));
+    }
+
+    private OrderSummary create(Order order, List<OrderItem> items) {
+        OrderSummary summary = OrderSummary.builder().orderId(order.getOrderId()).build();
+        applyItems(summary, items);
+        applyOrder(summary, order);
+        return orderSummaryRepository.save(summary);
+    }
+
+    /**
+     * Cập nhật các trường của đơn (trạng thái, thanh toán...). Các dòng sản phẩm không đổi nên chỉ đọc lại
+     * khi đơn chưa có tóm tắt (đơn cũ chưa được backfill).
+     */
+    @Transactional
+    public void recordChanged(Order order) {
+        if (order == null || order.getOrderId() == null) {
+            return;
+        }
+        OrderSummary summary = orderSummaryRepository.findById(order.getOrderId()).orElse(null);
+        if (summary == null) {
+            summary = create(order, orderItemRepository.findByOrderOrderId(order.getOrderId()));
+        } else {
+            applyOrder(summary, order);
+            summary = orderSummaryRepository.save(summary);
+        }
+        publish(OrderChangedEvent.UPDATED, summary);
+    }
+
+    @Transactional
+    public void recordDeleted(Integer orderId) {
+        if (orderId == null) {
+            return;
+        }
+        orderSummaryRepository.findById(orderId).ifPresent(summary -> {
+            orderSummaryRepository.delete(summary);
+            orderEventProducer.publishOrderChanged(new OrderChangedEvent(OrderChangedEvent.DELETED,
+                    summary.getBranchId(), orderId, null));
+        });
+    }
+
+    private void publish(String type, OrderSummary summary) {
+        orderEventProducer.publishOrderChanged(new OrderChangedEvent(type, summary.getBranchId(), summary.getOrderId(),
+                toResponse(summary, Map.of())));
+    }
+
+    private void applyOrder(OrderSummary summary, Order order) {
+        summary.setCustomerId(order.getCustomerId());
+        summary.setCustomerName(order.getCustomerName());
+        summary.setBranchId(order.getBranchId());
+        summary.setStatus(order.getStatus());
+        summary.setPaymentStatus(order.getPaymentStatus());
+        summary.setPaymentMethod(order.getPaymentMethod());
+        summary.setOrderType(order.getOrderType() != null ? order.getOrderType() : order.resolveOrderType());
+        summary.setTotalAmount(order.getTotalAmount() != null ? order.getTotalAmount() : BigDecimal.ZERO);
+        summary.setOrderDate(order.getOrderDate() != null ? order.getOrderDate() : LocalDateTime.now());
+        summary.setUpdateAt(LocalDateTime.now());
+    }
+
+    private void applyItems(OrderSummary summary, List<OrderItem> items) {
+        List<OrderItem> lines = items != null ? items : List.of();
+        summary.setItemCount(lines.size());
+        summary.setTotalQuantity(lines.stream()
+                .map(item -> item.getQuantity() != null ? item.getQuantity() : BigDecimal.ZERO)
+                .reduce(BigDecimal.ZERO, BigDecimal::add));
+        if (lines.isEmpty()) {
+            return;
+        }
+        OrderItem first = lines.get(0);
+        summary.setFirstItemProductId(first.getProductId());
+        summary.setFirstItemQuantity(first.getQuantity());
+    }
+
+    public OrderSummaryPageResponse getByCustomer(Integer customerId, String cursor, Integer limit) {
+        OrderCursor after = OrderCursor.decode(cursor);
+        int size = pageSize(limit);
+        PageRequest page = PageRequest.of(0, size + 1);
+        List<OrderSummary> rows = after == null
+                ? orderSummaryRepository.findFirstPageByCustomer(customerId, page)
+                : orderSummaryRepository.findPageByCustomerAfter(customerId, after.orderDate(), after.orderId(), page);
+        return toPage(rows, size);
+    }
+
+    public OrderSummaryPageResponse getByBranch(Integer branchId, String cursor, Integer limit) {
+        OrderCursor after = OrderCursor.decode(cursor);
+        int size = pageSize(limit);
+        PageRequest page = PageRequest.of(0, size + 1);
+        List<OrderSummary> rows = after == null
+                ? orderSummaryRepository.findFirstPageByBranch(branchId, page)
+                : orderSummaryRepository.findPageByBranchAfter(branchId, after.orderDate(), after.orderId(), page);
+        return toPage(rows, size);
+    }
+
+    private static int pageSize(Integer limit) {
+        if (limit == null || limit < 1) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+
+    private OrderSummaryPageResponse toPage(List<OrderSummary> rows, int size) {
+        // Lấy thêm 1 dòng để biết còn trang sau
+        boolean hasMore = rows.size() > size;
+        List<OrderSummary> pageRows = hasMore ? rows.subList(0, size) : rows;
+        OrderSummary last = pageRows.isEmpty() ? null : pageRows.get(pageRows.size() - 1);
+
+        // Tên sản phẩm đầu tiên: một lần tra cứu (có cache) cho cả trang
+        Set<Integer> productIds = pageRows.stream()
+                .map(OrderSummary::getFirstItemProductId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        Map<Integer, ProductResponse> products = productIds.isEmpty()
+                ? Map.of()
+                : cartCatalogCache.getProducts(productIds);
+
+        return OrderSummaryPageResponse.builder()
+                .orders(pageRows.stream()
+                        .map(row -> toResponse(row, products))
+                        .collect(Collectors.toList()))
+                .limit(size)
+                .nextCursor(hasMore && last != null ? OrderCursor.encode(last.getOrderDate(), last.getOrderId()) : null)
+                .build();
+    }
+
+    private OrderSummaryResponse toResponse(OrderSummary row, Map<Integer, ProductResponse> products) {
+        OrderSummaryResponse.FirstItem firstItem = null;
+        if (row.getFirstItemProductId() != null) {
+            ProductResponse product = products.get(row.getFirstItemProductId());
+            firstItem = OrderSummaryResponse.FirstItem.builder()
+                    .productId(row.getFirstItemProductId())
+                    .productName(product != null ? product.getName() : null)
+                    .quantity(row.getFirstItemQuantity())
+                    .build();
+        }
+        return OrderSummaryResponse.builder()
+                .orderId(row.getOrderId())
+                .customerId(row.getCustomerId())
+                .customerName(row.getCustomerName())
+                .branchId(row.getBranchId())
+                .status(row.getStatus())
+                .paymentStatus(row.getPaymentStatus())
+                .paymentMethod(row.getPaymentMethod())
+                .type(row.getOrderType())
+                .totalAmount(row.getTotalAmount())
+                .itemCount(row.getItemCount())
+                .totalQuantity(row.getTotalQuantity())
+                .firstItem(firstItem)
+                .orderDate(row.getOrderDate())
+                .build();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillMissing() {
+        if (!backfillOnStartup) {
+            return;
+        }
+        try {
+            int rows = orderSummaryRepository.backfillMissing();
+            if (rows > 0) {
+                log.info("[OrderSummaryService] Backfilled {} order summaries", rows);
+            }
+        } catch (Exception e) {
+            log.error("[OrderSummaryService] Failed to backfill order summaries", e);
+        }
+    }
+}
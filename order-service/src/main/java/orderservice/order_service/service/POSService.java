@@ -13,6 +13,7 @@ import orderservice.order_service.entity.Branch;
 import orderservice.order_service.entity.Order;
 import orderservice.order_service.entity.OrderItem;
 import orderservice.order_service.entity.OrderTable;
+import orderservice.order_service.events.TableAvailabilityChangedEvent;
 import orderservice.order_service.exception.AppException;
 import orderservice.order_service.exception.ErrorCode;
 import orderservice.order_service.repository.BranchRepository;
@@ -20,10 +21,13 @@ import orderservice.order_service.repository.CafeTableRepository;
 import orderservice.order_service.repository.OrderItemRepository;
 import orderservice.order_service.repository.OrderRepository;
 import orderservice.order_service.repository.OrderTableRepository;
+import orderservice.order_service.util.OrderPricing;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -44,6 +48,9 @@ public class POSService {
     OrderEventProducer orderEventProducer;
     BranchClosureService branchClosureService;
     BranchRepository branchRepository;
+    SalesRollupService salesRollupService;
+    OrderSummaryService orderSummaryService;
+    ApplicationEventPublisher eventPublisher;
 
     @Transactional
     public POSOrderResponse createPOSOrder(CreatePOSOrderRequest request) {
@@ -73,7 +80,7 @@ public class POSService {
                             "Product price must be greater than 0");
                 }
                 
-                BigDecimal itemTotal = productDetail.getPrice().multiply(itemRequest.getQuantity());
+                BigDecimal itemTotal = OrderPricing.lineTotal(productDetail.getPrice(), itemRequest.getQuantity());
                 subtotal = subtotal.add(itemTotal);
             }
 
@@ -107,18 +114,10 @@ public class POSService {
                 discount = request.getDiscount() != null ? request.getDiscount() : BigDecimal.ZERO;
             }
 
-            // Compute subtotal after discount
-            BigDecimal afterDiscount = subtotal.subtract(discount);
-            // Ensure afterDiscount is not negative
-            if (afterDiscount.compareTo(BigDecimal.ZERO) < 0) {
-                afterDiscount = BigDecimal.ZERO;
-            }
-
-            // Compute VAT (10%) on subtotal AFTER discount
-            BigDecimal vat = afterDiscount.multiply(new BigDecimal("0.10"));
-            vat = vat.setScale(2, java.math.RoundingMode.HALF_UP);
-
-            BigDecimal totalAmount = afterDiscount.add(vat);
+            // Subtotal sau giảm giá (không âm), VAT 10% trên phần sau giảm giá, rồi tổng
+            OrderPricing.Totals totals = OrderPricing.totals(subtotal, discount);
+            BigDecimal vat = totals.vat();
+            BigDecimal totalAmount = totals.totalAmount();
             
             // Validate total amount is not negative
             if (totalAmount.compareTo(BigDecimal.ZERO) < 0) {
@@ -213,40 +212,30 @@ public class POSService {
             }
             
             // Use discount AFTER order is successfully created
+            // Hết lượt (hoặc mã vừa bị xoá) thì ném AppException để rollback đơn, không lưu đơn với giá đã giảm
             if (request.getDiscountCode() != null && !request.getDiscountCode().trim().isEmpty() && discount.compareTo(BigDecimal.ZERO) > 0) {
-                try {
-                    discountService.useDiscount(request.getDiscountCode());
-                    log.info("Discount {} used for POS order {}", request.getDiscountCode(), order.getOrderId());
-                } catch (Exception e) {
-                    log.error("Failed to use discount {} for POS order {}: {}", 
-                            request.getDiscountCode(), order.getOrderId(), e.getMessage());
-                }
+                discountService.useDiscount(request.getDiscountCode());
+                log.info("Discount {} used for POS order {}", request.getDiscountCode(), order.getOrderId());
             }
 
-            // Create order tables mapping and update table status
-            for (Integer tableId : request.getTableIds()) {
-                try {
-                    // Create order table mapping
-                    OrderTable orderTable = OrderTable.builder()
-                            .orderId(order.getOrderId())
+            // Create order tables mapping and update table status (ghi theo batch khi flush)
+            Integer savedOrderId = order.getOrderId();
+            List<OrderTable> orderTables = request.getTableIds().stream()
+                    .map(tableId -> OrderTable.builder()
+                            .orderId(savedOrderId)
                             .tableId(tableId)
-                            .build();
-                    orderTableRepository.save(orderTable);
-
-                    // Update table status to OCCUPIED
-                    var cafeTable = cafeTableRepository.findById(tableId);
-                    if (cafeTable.isPresent()) {
-                        var table = cafeTable.get();
-                        table.setStatus("OCCUPIED");
-                        cafeTableRepository.save(table);
-                    }
-                } catch (Exception e) {
-                    log.error("Failed to create order table mapping for table {}: {}", tableId, e.getMessage());
-                    throw e;
-                }
+                            .build())
+                    .collect(Collectors.toList());
+            try {
+                orderTableRepository.saveAll(orderTables);
+                updateTableStatuses(request.getTableIds(), "OCCUPIED");
+            } catch (Exception e) {
+                log.error("Failed to create order table mappings for tables {}: {}", request.getTableIds(), e.getMessage());
+                throw e;
             }
 
             // Create order items
+            List<OrderItem> orderItems = new ArrayList<>();
             for (CreatePOSOrderRequest.OrderItemRequest itemRequest : request.getOrderItems()) {
                 try {
                     // Validate quantity
@@ -282,13 +271,17 @@ public class POSService {
                             .notes(itemRequest.getNotes())
                             .build();
 
-                    orderItemRepository.save(orderItem);
+                    orderItems.add(orderItem);
                 } catch (Exception e) {
                     log.error("Failed to create order item for product {}: {}", itemRequest.getProductId(),
                             e.getMessage());
                     throw e;
                 }
             }
+            // Một lần saveAll: Hibernate gom các INSERT order_details thành batch
+            orderItems = orderItemRepository.saveAll(orderItems);
+            salesRollupService.recordCreated(order, orderItems);
+            orderSummaryService.recordCreated(order, orderItems);
 
             // Publish order created event to Kafka for staff notification
             try {
@@ -300,6 +293,12 @@ public class POSService {
             }
 
             return convertToPOSOrderResponse(order);
+        } catch (AppException e) {
+            log.error("Failed to create POS order: {}", e.getMessage(), e);
+            if (DiscountService.isRedemptionFailure(e)) {
+                throw e;
+            }
+            throw new AppException(ErrorCode.ORDER_CREATION_FAILED);
         } catch (Exception e) {
             log.error("Failed to create POS order: {}", e.getMessage(), e);
             throw new AppException(ErrorCode.ORDER_CREATION_FAILED);
@@ -331,30 +330,44 @@ public class POSService {
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new AppException(ErrorCode.ORDER_NOT_FOUND));
 
+        SalesRollupService.OrderSnapshot before = salesRollupService.snapshot(order);
         order.setStatus(status);
         order = orderRepository.save(order);
+        salesRollupService.recordChanged(before, order);
+        orderSummaryService.recordChanged(order);
 
         // Update table status based on order status
-        List<OrderTable> orderTables = orderTableRepository.findByOrderId(orderId);
-        for (OrderTable orderTable : orderTables) {
+        String newTableStatus = getTableStatusFromOrderStatus(status);
+        if (newTableStatus != null) {
+            List<Integer> tableIds = orderTableRepository.findByOrderId(orderId).stream()
+                    .map(OrderTable::getTableId)
+                    .collect(Collectors.toList());
             try {
-                var cafeTable = cafeTableRepository.findById(orderTable.getTableId());
-                if (cafeTable.isPresent()) {
-                    var table = cafeTable.get();
-                    String newTableStatus = getTableStatusFromOrderStatus(status);
-                    if (newTableStatus != null) {
-                        table.setStatus(newTableStatus);
-                        cafeTableRepository.save(table);
-                    }
-                }
+                updateTableStatuses(tableIds, newTableStatus);
             } catch (Exception e) {
-                log.error("Failed to update table {} status: {}", orderTable.getTableId(), e.getMessage());
+                log.error("Failed to update tables {} status: {}", tableIds, e.getMessage());
             }
         }
 
         return convertToPOSOrderResponse(order);
     }
 
+    /**
+     * Đổi trạng thái nhiều bàn: một SELECT ... IN rồi một batch UPDATE khi flush.
+     * Bàn không tồn tại được bỏ qua.
+     */
+    private void updateTableStatuses(List<Integer> tableIds, String status) {
+        if (tableIds == null || tableIds.isEmpty()) {
+            return;
+        }
+        var tables = cafeTableRepository.findAllById(tableIds);
+        tables.forEach(table -> table.setStatus(status));
+        cafeTableRepository.saveAll(tables);
+        tables.stream().map(table -> table.getBranchId()).distinct()
+                .forEach(branchId -> eventPublisher.publishEvent(
+                        new TableAvailabilityChangedEvent(branchId, "pos-table-status")));
+    }
+
     private String getTableStatusFromOrderStatus(String orderStatus) {
         switch (orderStatus.toUpperCase()) {
             case "CREATED":
@@ -384,26 +397,22 @@ public class POSService {
         orderTableRepository.deleteByOrderId(orderId);
 
         // Update table status back to AVAILABLE
-        for (Integer tableId : tableIds) {
-            try {
-                var cafeTable = cafeTableRepository.findById(tableId);
-                if (cafeTable.isPresent()) {
-                    var table = cafeTable.get();
-                    table.setStatus("AVAILABLE");
-                    cafeTableRepository.save(table);
-                }
-            } catch (Exception e) {
-                log.error("Failed to update table {} status: {}", tableId, e.getMessage());
-            }
+        try {
+            updateTableStatuses(tableIds, "AVAILABLE");
+        } catch (Exception e) {
+            log.error("Failed to update tables {} status: {}", tableIds, e.getMessage());
         }
 
         // Delete order items
         List<OrderItem> items = orderItemRepository.findByOrderOrderId(orderId);
+        SalesRollupService.OrderSnapshot before = salesRollupService.snapshot(order, items);
         if (items != null && !items.isEmpty()) {
             orderItemRepository.deleteAll(items);
         }
 
         orderRepository.delete(order);
+        salesRollupService.recordDeleted(before);
+        orderSummaryService.recordDeleted(order.getOrderId());
     }
 
     private POSOrderResponse convertToPOSOrderResponse(Order order) {
@@ -0,0 +1,114 @@
+package orderservice.order_service.service;
+
+import lombok.extern.slf4j.Slf4j;
+import orderservice.order_service.client.CatalogServiceClient;
+import orderservice.order_service.dto.ApiResponse;
+import orderservice.order_service.dto.response.ProductDetailResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Snapshot giá/size của product detail dùng chung cho các bước tạo đơn.
+ * Cache được xoá theo sự kiện "product updated" từ catalog-service; TTL chỉ là lưới an toàn
+ * khi lỡ mất sự kiện.
+ */
+@Service
+@Slf4j
+public class ProductDetailSnapshotCache {
+
+    private final CatalogServiceClient catalogServiceClient;
+    private final Map<Integer, Snapshot> cache = new ConcurrentHashMap<>();
+    // Tăng mỗi lần invalidate để kết quả của lần gọi catalog đang chạy dở không ghi đè dữ liệu mới
+    private final AtomicLong generation = new AtomicLong();
+
+    @Value("${catalog.product-cache.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    public ProductDetailSnapshotCache(CatalogServiceClient catalogServiceClient) {
+        this.catalogServiceClient = catalogServiceClient;
+    }
+
+    /**
+     * Trả về product detail theo id, gọi catalog tối đa một lần cho các id chưa có trong cache.
+     * Id không tồn tại bên catalog sẽ không có trong map kết quả.
+     */
+    public Map<Integer, ProductDetailResponse> getProductDetails(Collection<Integer> productDetailIds) {
+        Map<Integer, ProductDetailResponse> result = new HashMap<>();
+        if (productDetailIds == null || productDetailIds.isEmpty()) {
+            return result;
+        }
+
+        long now = System.currentTimeMillis();
+        Set<Integer> missing = new LinkedHashSet<>();
+        for (Integer id : productDetailIds) {
+            if (id == null) {
+                continue;
+            }
+            Snapshot snapshot = cache.get(id);
+            if (snapshot != null && !snapshot.isExpired(now, ttlSeconds)) {
+                result.put(id, snapshot.detail());
+            } else {
+                missing.add(id);
+            }
+        }
+
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        long generationBeforeLoad = generation.get();
+        ApiResponse<List<ProductDetailResponse>> response = catalogServiceClient
+                .getProductDetailsByIds(new ArrayList<>(missing));
+        if (response == null || response.getResult() == null) {
+            return result;
+        }
+
+        for (ProductDetailResponse detail : response.getResult()) {
+            if (detail == null || detail.getPdId() == null) {
+                continue;
+            }
+            result.put(detail.getPdId(), detail);
+            if (generation.get() == generationBeforeLoad) {
+                cache.put(detail.getPdId(), new Snapshot(detail, now));
+            }
+        }
+        log.debug("Loaded {} product details from catalog ({} requested, {} served from cache)",
+                response.getResult().size(), missing.size(), result.size() - response.getResult().size());
+        return result;
+    }
+
+    public void evict(Collection<Integer> productDetailIds) {
+        generation.incrementAndGet();
+        if (productDetailIds == null || productDetailIds.isEmpty()) {
+            // Sự kiện không kèm danh sách id: xoá toàn bộ cho chắc
+            cache.clear();
+            return;
+        }
+        productDetailIds.forEach(id -> {
+            if (id != null) {
+                cache.remove(id);
+            }
+        });
+    }
+
+    public void evictAll() {
+        generation.incrementAndGet();
+        cache.clear();
+    }
+
+    private record Snapshot(ProductDetailResponse detail, long loadedAtMillis) {
+        boolean isExpired(long now, long ttlSeconds) {
+            return now - loadedAtMillis > ttlSeconds * 1000L;
+        }
+    }
+}
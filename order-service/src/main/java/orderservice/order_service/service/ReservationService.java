@@ -1,9 +1,6 @@
 package orderservice.order_service.service;
 
-import feign.FeignException;
-import orderservice.order_service.client.AuthServiceClient;
 import orderservice.order_service.dto.request.CreateReservationRequest;
-import orderservice.order_service.dto.response.ApiResponse;
 import orderservice.order_service.dto.response.ReservationResponse;
 import orderservice.order_service.dto.response.TableResponse;
 import orderservice.order_service.dto.response.UserResponse;
@@ -12,6 +9,7 @@ import orderservice.order_service.entity.CafeTable;
 import orderservice.order_service.entity.Reservation;
 import orderservice.order_service.entity.ReservationTable;
 import orderservice.order_service.events.ReservationCreatedEvent;
+import orderservice.order_service.events.TableAvailabilityChangedEvent;
 import orderservice.order_service.exception.AppException;
 import orderservice.order_service.exception.ErrorCode;
 import orderservice.order_service.repository.BranchRepository;
@@ -19,6 +17,7 @@ import orderservice.order_service.repository.CafeTableRepository;
 import orderservice.order_service.repository.ReservationRepository;
 import orderservice.order_service.repository.ReservationTableRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import lombok.extern.slf4j.Slf4j;
@@ -37,28 +36,31 @@ public class ReservationService {
     private final BranchRepository branchRepository;
     private final CafeTableRepository cafeTableRepository;
     private final ReservationTableRepository reservationTableRepository;
-    private final AuthServiceClient authServiceClient;
+    private final UserSummaryCache userSummaryCache;
     private final EmailService emailService;
     private final OrderEventProducer orderEventProducer;
     private final BranchClosureService branchClosureService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
     public ReservationService(ReservationRepository reservationRepository,
             BranchRepository branchRepository,
             CafeTableRepository cafeTableRepository,
             ReservationTableRepository reservationTableRepository,
-            AuthServiceClient authServiceClient,
+            UserSummaryCache userSummaryCache,
             EmailService emailService,
             OrderEventProducer orderEventProducer,
-            BranchClosureService branchClosureService) {
+            BranchClosureService branchClosureService,
+            ApplicationEventPublisher eventPublisher) {
         this.reservationRepository = reservationRepository;
         this.branchRepository = branchRepository;
         this.cafeTableRepository = cafeTableRepository;
         this.reservationTableRepository = reservationTableRepository;
-        this.authServiceClient = authServiceClient;
+        this.userSummaryCache = userSummaryCache;
         this.emailService = emailService;
         this.orderEventProducer = orderEventProducer;
         this.branchClosureService = branchClosureService;
+        this.eventPublisher = eventPublisher;
     }
 
     public ReservationResponse createReservation(CreateReservationRequest request, String token) {
@@ -128,52 +130,24 @@ public class ReservationService {
         if (request.getCustomerId() != null) {
             // Authenticated user - get user info from auth service
             log.info("Fetching user info for customerId={}, token present={}", request.getCustomerId(), token != null);
-            try {
-                // Ensure token has "Bearer " prefix if provided
-                String bearerToken = null;
-                if (token != null && !token.trim().isEmpty()) {
-                    bearerToken = token.startsWith("Bearer ") ? token : "Bearer " + token;
-                    log.debug("Token format: {}", bearerToken.substring(0, Math.min(20, bearerToken.length())) + "...");
-                }
-                
-                log.debug("Calling auth-service: GET /users/internal/{}", request.getCustomerId());
-                ApiResponse<UserResponse> response = authServiceClient.getUserById(request.getCustomerId(), bearerToken);
-                
-                log.debug("Auth service response received: {}", response != null);
-                if (response != null) {
-                    log.debug("Response code: {}, message: {}, result: {}", 
-                            response.getCode(), response.getMessage(), response.getResult() != null);
-                }
-                
-                if (response != null && response.getResult() != null) {
-                    UserResponse userInfo = response.getResult();
-                    reservation.setCustomerId(request.getCustomerId());
-                    reservation.setCustomerName(userInfo.getFullname());
-                    reservation.setPhone(userInfo.getPhoneNumber());
-                    reservation.setEmail(userInfo.getEmail());
-                    log.info("User info retrieved successfully: name={}, email={}, phone={}", 
-                            userInfo.getFullname(), userInfo.getEmail(), userInfo.getPhoneNumber());
-                } else {
-                    log.error("User not found or invalid response for customerId={}. Response: {}", 
-                            request.getCustomerId(), response);
-                    throw new AppException(ErrorCode.EMAIL_NOT_EXISTED);
-                }
-            } catch (FeignException.NotFound e) {
-                log.error("User not found in auth-service (404) for customerId={}. Response body: {}", 
-                        request.getCustomerId(), e.contentUTF8());
-                throw new AppException(ErrorCode.EMAIL_NOT_EXISTED);
-            } catch (FeignException e) {
-                log.error("FeignException when calling auth-service for customerId={}. Status: {}, Response: {}", 
-                        request.getCustomerId(), e.status(), e.contentUTF8(), e);
-                throw new AppException(ErrorCode.EMAIL_NOT_EXISTED);
-            } catch (AppException e) {
-                log.error("AppException when fetching user for customerId={}: {}", request.getCustomerId(), e.getMessage());
-                throw e;
-            } catch (Exception e) {
-                log.error("Unexpected exception when fetching user info for customerId={}: {}. Exception type: {}", 
-                        request.getCustomerId(), e.getMessage(), e.getClass().getName(), e);
+            // Ensure token has "Bearer " prefix if provided
+            String bearerToken = null;
+            if (token != null && !token.trim().isEmpty()) {
+                bearerToken = token.startsWith("Bearer ") ? token : "Bearer " + token;
+            }
+
+            // Dùng chung cache user với review; lỗi gọi auth-service cũng trả về rỗng như user không tồn tại
+            UserResponse userInfo = userSummaryCache.get(request.getCustomerId(), bearerToken).orElse(null);
+            if (userInfo == null) {
+                log.error("User not found or auth-service unavailable for customerId={}", request.getCustomerId());
                 throw new AppException(ErrorCode.EMAIL_NOT_EXISTED);
             }
+            reservation.setCustomerId(request.getCustomerId());
+            reservation.setCustomerName(userInfo.getFullname());
+            reservation.setPhone(userInfo.getPhoneNumber());
+            reservation.setEmail(userInfo.getEmail());
+            log.info("User info retrieved successfully: name={}, email={}, phone={}",
+                    userInfo.getFullname(), userInfo.getEmail(), userInfo.getPhoneNumber());
         } else {
             // Non-authenticated user - use provided information
             log.info("Guest reservation: name={}, email={}, phone={}", 
@@ -193,7 +167,7 @@ public class ReservationService {
         Reservation savedReservation = reservationRepository.save(reservation);
         log.info("Reservation saved successfully: reservationId={}", savedReservation.getReservationId());
 
-        // Send confirmation email if we have an email (non-blocking - don't fail reservation if email fails)
+        // Queue confirmation email if we have an email; it commits with the reservation and is sent by EmailDispatcher
         String toEmail = reservation.getEmail();
         if (toEmail != null && !toEmail.trim().isEmpty()) {
             try {
@@ -208,7 +182,7 @@ public class ReservationService {
                         reservation.getNotes(),
                         savedReservation.getReservationId());
             } catch (Exception e) {
-                log.warn("Failed to send reservation confirmation email, but reservation was created successfully: reservationId={}, error={}", 
+                log.warn("Failed to queue reservation confirmation email: reservationId={}, error={}", 
                         savedReservation.getReservationId(), e.getMessage());
                 // Don't throw - email failure should not prevent reservation creation
             }
@@ -281,6 +255,7 @@ public class ReservationService {
         
         log.info("[ReservationService] ✅ Successfully updated reservationId={} status to '{}' (was '{}')", 
                 reservationId, updatedReservation.getStatus(), oldStatus);
+        publishAvailabilityChanged(updatedReservation.getBranchId(), "reservation-" + status);
 
         // Publish event when reservation is confirmed or cancelled
         if (("CONFIRMED".equals(status) || "confirmed".equalsIgnoreCase(status)) && updatedReservation.getCustomerId() != null) {
@@ -347,6 +322,7 @@ public class ReservationService {
         if ("CONFIRMED".equals(reservation.getStatus()) || "PENDING".equals(reservation.getStatus())) {
             reservation.setStatus("CANCELLED");
             Reservation updatedReservation = reservationRepository.save(reservation);
+            publishAvailabilityChanged(updatedReservation.getBranchId(), "reservation-cancelled");
 
             // Publish event when reservation is cancelled
             if (updatedReservation.getCustomerId() != null) {
@@ -384,6 +360,12 @@ public class ReservationService {
         Reservation reservation = reservationRepository.findById(reservationId)
                 .orElseThrow(() -> new AppException(ErrorCode.RESERVATION_NOT_FOUND));
         reservationRepository.delete(reservation);
+        publishAvailabilityChanged(reservation.getBranchId(), "reservation-deleted");
+    }
+
+    // Báo cho TableAvailabilityIndex dựng lại chi nhánh sau khi transaction commit
+    private void publishAvailabilityChanged(Integer branchId, String reason) {
+        eventPublisher.publishEvent(new TableAvailabilityChangedEvent(branchId, reason));
     }
 
     private void validateReservationRequest(CreateReservationRequest request) {
@@ -1,12 +1,16 @@
 package orderservice.order_service.service;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
 
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
@@ -18,13 +22,12 @@ import orderservice.order_service.dto.request.DeleteReviewRequest;
 import orderservice.order_service.dto.response.ReviewResponse;
 import orderservice.order_service.dto.response.BranchResponse;
 import orderservice.order_service.dto.response.UserResponse;
-import orderservice.order_service.dto.response.ApiResponse;
 import orderservice.order_service.entity.Review;
 import orderservice.order_service.entity.Branch;
+import orderservice.order_service.events.AnalyticsDataChangedEvent;
 import orderservice.order_service.mapper.ReviewMapper;
 import orderservice.order_service.mapper.BranchMapper;
 import orderservice.order_service.repository.ReviewRepository;
-import orderservice.order_service.client.AuthServiceClient;
 import orderservice.order_service.util.SecurityUtils;
 
 @Service
@@ -36,7 +39,8 @@ public class ReviewService {
     ReviewMapper reviewMapper;
     BranchService branchService;
     BranchMapper branchMapper;
-    AuthServiceClient authServiceClient;
+    UserSummaryCache userSummaryCache;
+    ApplicationEventPublisher eventPublisher;
 
     @Transactional
     @PreAuthorize("hasRole('CUSTOMER')")
@@ -60,6 +64,7 @@ public class ReviewService {
         Review review = reviewMapper.toReview(request);
         review.setCustomerId(currentUserId);
         review = reviewRepository.save(review);
+        publishReviewChanged(review);
         return populateReviewResponse(review);
     }
 
@@ -73,7 +78,7 @@ public class ReviewService {
             Pageable pageable) {
         Page<Review> reviews = reviewRepository.findReviewsWithFilters(
             productId, branchId, customerId, rating, keyword, pageable);
-        return reviews.map(this::populateReviewResponse);
+        return populateReviewResponses(reviews);
     }
     
     // Update review - chỉ customer sở hữu, trong vòng 24h
@@ -96,6 +101,7 @@ public class ReviewService {
         // Chỉ update comment, không được update rating
         review.setComment(request.getComment());
         review = reviewRepository.save(review);
+        publishReviewChanged(review);
         
         log.info("Review {} updated by customer {}", reviewId, customerId);
         return populateReviewResponse(review);
@@ -115,6 +121,7 @@ public class ReviewService {
         review.setDeletedAt(LocalDateTime.now());
         review.setDeletedBy(customerId);
         reviewRepository.save(review);
+        publishReviewChanged(review);
         
         log.info("Review {} soft deleted by customer {} with reason: {}", reviewId, customerId, request.getReason());
     }
@@ -133,6 +140,7 @@ public class ReviewService {
         review.setDeletedAt(LocalDateTime.now());
         review.setDeletedBy(adminId);
         reviewRepository.save(review);
+        publishReviewChanged(review);
         
         log.info("Review {} soft deleted by admin {} with reason: {}", reviewId, adminId, request.getReason());
     }
@@ -153,6 +161,7 @@ public class ReviewService {
         review.setDeletedAt(null);
         review.setDeletedBy(null);
         review = reviewRepository.save(review);
+        publishReviewChanged(review);
         
         log.info("Review {} restored by admin {}", reviewId, adminId);
         return populateReviewResponse(review);
@@ -169,11 +178,36 @@ public class ReviewService {
             Pageable pageable) {
         Page<Review> reviews = reviewRepository.findAllReviewsWithFilters(
             productId, branchId, customerId, rating, keyword, pageable);
-        return reviews.map(this::populateReviewResponse);
+        return populateReviewResponses(reviews);
     }
     
-    // Populate thông tin chi nhánh và customer cho ReviewResponse
+    // Populate cả trang: lấy thông tin tất cả customer trong trang bằng một lần gọi auth-service
+    private Page<ReviewResponse> populateReviewResponses(Page<Review> reviews) {
+        List<Integer> customerIds = reviews.getContent().stream()
+            .map(Review::getCustomerId)
+            .distinct()
+            .toList();
+        Map<Integer, UserResponse> customers = userSummaryCache.getAll(customerIds);
+        return reviews.map(review -> populateReviewResponse(review, customers));
+    }
+
     private ReviewResponse populateReviewResponse(Review review) {
+        Map<Integer, UserResponse> customers = review.getCustomerId() != null
+            ? userSummaryCache.getAll(List.of(review.getCustomerId()))
+            : Map.of();
+        return populateReviewResponse(review, customers);
+    }
+
+    // Báo AnalyticsResponseCache bỏ các response review metrics của ngày review được tạo
+    private void publishReviewChanged(Review review) {
+        LocalDate date = review.getCreateAt() != null ? review.getCreateAt().toLocalDate() : LocalDate.now();
+        // ±1 ngày vì ngày của review (giờ server) có thể lệch với ngày kinh doanh
+        eventPublisher.publishEvent(new AnalyticsDataChangedEvent(
+                review.getBranchId(), date.minusDays(1), date.plusDays(1), "review"));
+    }
+
+    // Populate thông tin chi nhánh và customer cho ReviewResponse
+    private ReviewResponse populateReviewResponse(Review review, Map<Integer, UserResponse> customers) {
         ReviewResponse response = reviewMapper.toReviewResponse(review);
         
         // Lấy thông tin chi nhánh từ BranchService có sẵn
@@ -185,18 +219,11 @@ public class ReviewService {
             }
         }
         
-        // Lấy thông tin customer từ AuthServiceClient
+        // Thông tin customer đã được lấy sẵn qua UserSummaryCache
         if (review.getCustomerId() != null) {
-            try {
-                // Lấy JWT token từ SecurityContext
-                String token = SecurityUtils.getCurrentJwtToken();
-                
-                ApiResponse<UserResponse> apiResponse = authServiceClient.getUserById(review.getCustomerId(), token);
-                if (apiResponse != null && apiResponse.getResult() != null) {
-                    response.setCustomer(apiResponse.getResult());
-                }
-            } catch (Exception e) {
-                log.warn("Failed to fetch user info for customerId {}: {}", review.getCustomerId(), e.getMessage());
+            UserResponse customer = customers.get(review.getCustomerId());
+            if (customer != null) {
+                response.setCustomer(customer);
             }
         }
         
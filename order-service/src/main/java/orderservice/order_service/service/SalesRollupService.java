@@ -0,0 +1,296 @@
+package orderservice.order_service.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+import orderservice.order_service.configuration.BusinessDateBackfill;
+import orderservice.order_service.entity.Order;
+import orderservice.order_service.entity.OrderItem;
+import orderservice.order_service.events.AnalyticsDataChangedEvent;
+import orderservice.order_service.exception.AppException;
+import orderservice.order_service.exception.ErrorCode;
+import orderservice.order_service.repository.CustomerDailyRollupRepository;
+import orderservice.order_service.repository.OrderItemRepository;
+import orderservice.order_service.repository.OrderRepository;
+import orderservice.order_service.repository.OrderSalesRollupRepository;
+import orderservice.order_service.repository.ProductSalesRollupRepository;
+import orderservice.order_service.util.BusinessTime;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Duy trì các bảng rollup (order_sales_rollup, customer_daily_rollup, product_sales_rollup) mà AnalyticsService đọc.
+ *
+ * Mỗi thay đổi của đơn hàng (tạo / đổi trạng thái / xóa) được ghi thành delta vào bucket tương ứng,
+ * trong cùng transaction với thay đổi đó. Ngày/giờ kinh doanh = create_at + offset (mặc định UTC+7),
+ * giống với các native query theo giờ Việt Nam trong OrderRepository.
+ *
+ * Job reconcile hằng đêm tính lại ngày hôm trước từ bảng orders để sửa các lệch (nếu có),
+ * và lần khởi động đầu tiên sẽ backfill toàn bộ lịch sử khi bảng rollup còn trống.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+@FieldDefaults(level = lombok.AccessLevel.PRIVATE, makeFinal = true)
+public class SalesRollupService {
+
+    OrderRepository orderRepository;
+    OrderItemRepository orderItemRepository;
+    OrderSalesRollupRepository orderSalesRollupRepository;
+    CustomerDailyRollupRepository customerDailyRollupRepository;
+    ProductSalesRollupRepository productSalesRollupRepository;
+    PlatformTransactionManager transactionManager;
+    ApplicationEventPublisher eventPublisher;
+    // Inject để bảo đảm business_date của đơn cũ đã được điền trước khi backfill rollup
+    BusinessDateBackfill businessDateBackfill;
+
+    @NonFinal
+    @Value("${analytics.rollup.backfill-on-startup:true}")
+    boolean backfillOnStartup;
+
+    /**
+     * Những thuộc tính của đơn hàng quyết định bucket rollup. Chụp lại trước khi sửa đơn
+     * để có thể trừ khỏi bucket cũ.
+     */
+    public record OrderSnapshot(Integer branchId, LocalDate businessDate, int businessHour,
+            Integer customerId, String customerName, String status, String paymentStatus,
+            String paymentMethod, BigDecimal totalAmount, List<ProductLine> productLines) {
+
+        boolean completedAndPaid() {
+            return "COMPLETED".equals(status) && "PAID".equals(paymentStatus);
+        }
+    }
+
+    /**
+     * Tổng số lượng / doanh thu của một sản phẩm trong một đơn.
+     */
+    public record ProductLine(Integer productId, BigDecimal quantity, BigDecimal revenue) {
+    }
+
+    public OrderSnapshot snapshot(Order order) {
+        if (order == null || order.getOrderId() == null) {
+            return buildSnapshot(order, List.of());
+        }
+        return snapshot(order, orderItemRepository.findByOrderOrderId(order.getOrderId()));
+    }
+
+    /**
+     * Dùng khi đã có sẵn danh sách dòng của đơn (tránh query lại order_details).
+     */
+    public OrderSnapshot snapshot(Order order, List<OrderItem> items) {
+        return buildSnapshot(order, productLines(items));
+    }
+
+    private OrderSnapshot buildSnapshot(Order order, List<ProductLine> productLines) {
+        if (order == null || order.getBranchId() == null || order.getStatus() == null) {
+            return null;
+        }
+        LocalDateTime createAt = order.getCreateAt() != null ? order.getCreateAt() : LocalDateTime.now();
+        return new OrderSnapshot(
+                order.getBranchId(),
+                order.getBusinessDate() != null ? order.getBusinessDate() : BusinessTime.businessDate(createAt),
+                order.getBusinessHour() != null ? order.getBusinessHour() : BusinessTime.businessHour(createAt),
+                order.getCustomerId(),
+                order.getCustomerName(),
+                order.getStatus(),
+                order.getPaymentStatus(),
+                order.getPaymentMethod(),
+                order.getTotalAmount() != null ? order.getTotalAmount() : BigDecimal.ZERO,
+                productLines);
+    }
+
+    private List<ProductLine> productLines(List<OrderItem> items) {
+        if (items == null || items.isEmpty()) {
+            return List.of();
+        }
+        Map<Integer, ProductLine> byProduct = new TreeMap<>();
+        for (OrderItem item : items) {
+            if (item.getProductId() == null) {
+                continue;
+            }
+            BigDecimal quantity = item.getQuantity() != null ? item.getQuantity() : BigDecimal.ZERO;
+            BigDecimal revenue = item.getTotalPrice() != null ? item.getTotalPrice() : BigDecimal.ZERO;
+            byProduct.merge(item.getProductId(), new ProductLine(item.getProductId(), quantity, revenue),
+                    (a, b) -> new ProductLine(a.productId(), a.quantity().add(b.quantity()), a.revenue().add(b.revenue())));
+        }
+        return new ArrayList<>(byProduct.values());
+    }
+
+    /**
+     * Ghi nhận đơn mới cùng các dòng sản phẩm vừa được lưu.
+     */
+    @Transactional
+    public void recordCreated(Order order, List<OrderItem> items) {
+        apply(snapshot(order, items), 1);
+    }
+
+    /**
+     * Ghi nhận thay đổi của đơn: trừ khỏi bucket cũ và cộng vào bucket mới (nếu khác nhau).
+     */
+    @Transactional
+    public void recordChanged(OrderSnapshot before, Order after) {
+        // Đổi trạng thái không đổi các dòng sản phẩm, dùng lại danh sách đã chụp
+        OrderSnapshot current = before != null ? buildSnapshot(after, before.productLines()) : snapshot(after);
+        if (Objects.equals(before, current)) {
+            return;
+        }
+        apply(before, -1);
+        apply(current, 1);
+    }
+
+    @Transactional
+    public void recordDeleted(OrderSnapshot before) {
+        apply(before, -1);
+    }
+
+    private void apply(OrderSnapshot snapshot, int sign) {
+        if (snapshot == null) {
+            return;
+        }
+        BigDecimal amount = sign < 0 ? snapshot.totalAmount().negate() : snapshot.totalAmount();
+
+        orderSalesRollupRepository.upsertDelta(
+                snapshot.branchId(),
+                snapshot.businessDate(),
+                snapshot.businessHour(),
+                snapshot.status(),
+                snapshot.paymentStatus() != null ? snapshot.paymentStatus() : "",
+                snapshot.paymentMethod() != null ? snapshot.paymentMethod() : "",
+                sign,
+                amount);
+
+        // Khách vãng lai có customer_id = 0; chỉ bỏ qua khi không có customer_id
+        if (snapshot.customerId() != null) {
+            customerDailyRollupRepository.upsertDelta(
+                    snapshot.branchId(),
+                    snapshot.businessDate(),
+                    snapshot.customerId(),
+                    snapshot.customerName(),
+                    sign,
+                    snapshot.completedAndPaid() ? sign : 0,
+                    amount);
+        }
+
+        for (ProductLine line : snapshot.productLines()) {
+            productSalesRollupRepository.upsertDelta(
+                    snapshot.branchId(),
+                    snapshot.businessDate(),
+                    line.productId(),
+                    snapshot.status(),
+                    sign < 0 ? line.quantity().negate() : line.quantity(),
+                    sign < 0 ? line.revenue().negate() : line.revenue(),
+                    sign);
+        }
+
+        // Response analytics đã cache của ngày này hết hiệu lực sau khi commit
+        eventPublisher.publishEvent(new AnalyticsDataChangedEvent(
+                snapshot.branchId(), snapshot.businessDate(), snapshot.businessDate(), "rollup"));
+    }
+
+    /**
+     * Tính lại rollup cho khoảng ngày kinh doanh [fromDate, toDate] từ bảng orders.
+     * Mỗi tháng chạy trong một transaction riêng để tránh giữ lock quá lâu khi backfill lịch sử dài.
+     *
+     * @return số bucket doanh số đã được ghi lại
+     */
+    public int rebuild(LocalDate fromDate, LocalDate toDate) {
+        if (fromDate == null || toDate == null || fromDate.isAfter(toDate)) {
+            throw new AppException(ErrorCode.VALIDATION_FAILED,
+                    "Invalid rollup rebuild range: " + fromDate + " - " + toDate);
+        }
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        int rows = 0;
+        LocalDate chunkStart = fromDate;
+        while (!chunkStart.isAfter(toDate)) {
+            LocalDate chunkEnd = chunkStart.withDayOfMonth(chunkStart.lengthOfMonth());
+            if (chunkEnd.isAfter(toDate)) {
+                chunkEnd = toDate;
+            }
+            final LocalDate start = chunkStart;
+            final LocalDate end = chunkEnd;
+            Integer chunkRows = transactionTemplate.execute(status -> rebuildChunk(start, end));
+            rows += chunkRows != null ? chunkRows : 0;
+            chunkStart = chunkEnd.plusDays(1);
+        }
+
+        log.info("[SalesRollupService] Rebuilt sales rollups from {} to {} ({} buckets)", fromDate, toDate, rows);
+        return rows;
+    }
+
+    private int rebuildChunk(LocalDate fromDate, LocalDate toDate) {
+        orderSalesRollupRepository.deleteByBusinessDateRange(fromDate, toDate);
+        customerDailyRollupRepository.deleteByBusinessDateRange(fromDate, toDate);
+        productSalesRollupRepository.deleteByBusinessDateRange(fromDate, toDate);
+
+        // Lọc / group theo orders.business_date (index idx_orders_business_date), cùng giá trị với rollup tăng dần
+        int rows = orderSalesRollupRepository.rebuildFromOrders(fromDate, toDate);
+        customerDailyRollupRepository.rebuildFromOrders(fromDate, toDate);
+        productSalesRollupRepository.rebuildFromOrders(fromDate, toDate);
+
+        eventPublisher.publishEvent(new AnalyticsDataChangedEvent(null, fromDate, toDate, "rollup-rebuild"));
+        return rows;
+    }
+
+    public LocalDate currentBusinessDate() {
+        return BusinessTime.today();
+    }
+
+    /**
+     * Reconcile hằng đêm: tính lại ngày kinh doanh hôm trước (các đơn được cập nhật muộn,
+     * hoặc thay đổi đi vòng qua service).
+     */
+    @Scheduled(cron = "${analytics.rollup.reconcile-cron:0 30 3 * * *}", zone = "${analytics.rollup.reconcile-zone:Asia/Ho_Chi_Minh}")
+    public void reconcileYesterday() {
+        LocalDate yesterday = currentBusinessDate().minusDays(1);
+        try {
+            rebuild(yesterday, yesterday);
+        } catch (Exception e) {
+            log.error("[SalesRollupService] Failed to reconcile sales rollups for {}", yesterday, e);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (!backfillOnStartup) {
+            return;
+        }
+        try {
+            if (orderSalesRollupRepository.count() > 0) {
+                return;
+            }
+            // Rollup dựng từ business_date: đơn còn NULL sẽ bị bỏ sót, và sau đó count() > 0 chặn backfill lại
+            long missing = businessDateBackfill.countMissing();
+            if (missing > 0) {
+                log.error("[SalesRollupService] {} orders have no business_date yet, skipping rollup backfill", missing);
+                return;
+            }
+            LocalDateTime earliest = orderRepository.findEarliestCreateAt();
+            if (earliest == null) {
+                return;
+            }
+            LocalDate fromDate = BusinessTime.businessDate(earliest);
+            log.info("[SalesRollupService] Sales rollups are empty, backfilling from {}", fromDate);
+            rebuild(fromDate, currentBusinessDate());
+        } catch (Exception e) {
+            log.error("[SalesRollupService] Failed to backfill sales rollups", e);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package orderservice.order_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import orderservice.order_service.events.StaffPermissionChangedEvent;
+import orderservice.order_service.util.StaffPermissionContextCache;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Giữ StaffPermissionContextCache (cache tĩnh của StaffPermissionValidator) đồng bộ với profile-service:
+ * cấu hình TTL, xoá ngữ cảnh của nhân viên khi check-in / check-out / đổi role, và dọn các mục đã hết hạn.
+ */
+@Component
+@Slf4j
+public class StaffPermissionEventListener {
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${staff.permission-cache.ttl-seconds:120}")
+    private long ttlSeconds;
+
+    public StaffPermissionEventListener(@Qualifier("kafkaObjectMapper") ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    private void init() {
+        StaffPermissionContextCache.configure(ttlSeconds);
+    }
+
+    // Mỗi instance dùng group riêng để instance nào cũng nhận được sự kiện và xoá cache của mình
+    @KafkaListener(topics = "${app.kafka.topics.staff-permission-changed:profile.staff.permission-changed}",
+            groupId = "order-staff-permission-cache-${app.kafka.instance-id:order-service}")
+    public void onStaffPermissionChanged(String payload) {
+        try {
+            StaffPermissionChangedEvent event = objectMapper.readValue(payload, StaffPermissionChangedEvent.class);
+            StaffPermissionContextCache.evictUser(event.getUserId());
+            log.debug("[StaffPermissionEventListener] Evicted permission context for staff {} ({})",
+                    event.getUserId(), event.getReason());
+        } catch (Exception e) {
+            log.error("[StaffPermissionEventListener] Failed to handle staff permission event, clearing cache: {}",
+                    e.getMessage());
+            StaffPermissionContextCache.evictAll();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${staff.permission-cache.purge-interval-ms:300000}")
+    public void purgeExpired() {
+        StaffPermissionContextCache.purgeExpired();
+    }
+}
@@ -0,0 +1,324 @@
+package orderservice.order_service.service;
+
+import lombok.extern.slf4j.Slf4j;
+import orderservice.order_service.entity.CafeTable;
+import orderservice.order_service.events.TableAvailabilityChangedEvent;
+import orderservice.order_service.repository.CafeTableRepository;
+import orderservice.order_service.repository.ReservationTableRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Chỉ mục bàn trống trong bộ nhớ cho đặt bàn, thay cho query NOT IN trên reservations.
+ *
+ * Mỗi chi nhánh giữ danh sách bàn và, cho từng bàn, tập thời điểm bắt đầu của các reservation đang giữ bàn
+ * (CONFIRMED / CHECKED_IN) sắp xếp tăng dần. Mọi slot dài đúng slot-minutes nên một slot bắt đầu lúc r
+ * trùng với khung [from, to] khi và chỉ khi r nằm trong [from - slot, to]: chỉ cần một lần tìm kiếm
+ * ceiling trên tập đã sắp xếp, không cần interval tree.
+ *
+ * Snapshot được dựng lại lúc khởi động, định kỳ, và theo từng chi nhánh sau khi bàn / reservation thay đổi
+ * (TableAvailabilityChangedEvent). Chỉ nạp các slot từ mốc horizon trở đi; khung giờ cũ hơn thì
+ * {@link #covers} trả về false để bên gọi dùng query DB. Các CafeTable trả về là bản sao, chỉ được đọc.
+ *
+ * Thay đổi ở instance khác tới qua CacheInvalidationRelay (topic order.cache.invalidated) nên chỉ mục có thể trễ
+ * vài giây; vì vậy nó chỉ dùng để gợi ý bàn. Việc gán bàn (TableManagementService.assignTablesToReservation)
+ * luôn khoá bàn và kiểm tra trùng slot trực tiếp trên DB.
+ */
+@Service
+@Slf4j
+public class TableAvailabilityIndex {
+
+    private static final String STATUS_AVAILABLE = "AVAILABLE";
+    private static final Comparator<CafeTable> TABLE_ORDER = Comparator.comparing(CafeTable::getCapacity)
+            .thenComparing(CafeTable::getLabel, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private final CafeTableRepository cafeTableRepository;
+    private final ReservationTableRepository reservationTableRepository;
+
+    @Value("${reservation.availability.slot-minutes:120}")
+    private long slotMinutes;
+
+    // Nạp thêm slot cũ hơn "bây giờ - slot" bấy nhiêu giờ, để truy vấn trong ngày không phải rơi về DB
+    @Value("${reservation.availability.history-hours:24}")
+    private long historyHours;
+
+    private volatile Map<Integer, BranchState> branches = Map.of();
+    // Tuần tự hoá việc dựng lại / xoá trạng thái chi nhánh trong branches
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    public TableAvailabilityIndex(CafeTableRepository cafeTableRepository,
+            ReservationTableRepository reservationTableRepository) {
+        this.cafeTableRepository = cafeTableRepository;
+        this.reservationTableRepository = reservationTableRepository;
+    }
+
+    private record IndexedTable(CafeTable table, NavigableSet<LocalDateTime> slotStarts) {
+        boolean isFree(LocalDateTime from, LocalDateTime to, Duration slot) {
+            LocalDateTime firstConflicting = slotStarts.ceiling(from.minus(slot));
+            return firstConflicting == null || firstConflicting.isAfter(to);
+        }
+    }
+
+    private record BranchState(LocalDateTime horizon, List<IndexedTable> tables) {
+    }
+
+    /**
+     * Thời lượng một lượt đặt bàn (reservation.availability.slot-minutes).
+     */
+    public Duration slotLength() {
+        return Duration.ofMinutes(Math.max(1, slotMinutes));
+    }
+
+    /**
+     * true nếu chỉ mục có đủ slot để trả lời cho khung giờ bắt đầu từ {@code from}.
+     */
+    public boolean covers(Integer branchId, LocalDateTime from) {
+        return !from.minus(slotLength()).isBefore(stateOf(branchId).horizon());
+    }
+
+    /**
+     * Bàn AVAILABLE đủ chỗ cho partySize và không vướng reservation nào trong [from, to]
+     * (chạm biên cũng tính là trùng, giống query cũ), sắp xếp theo sức chứa rồi label.
+     */
+    public List<CafeTable> findFreeTables(Integer branchId, int partySize, LocalDateTime from, LocalDateTime to) {
+        Duration slot = slotLength();
+        List<CafeTable> result = new ArrayList<>();
+        for (IndexedTable indexed : stateOf(branchId).tables()) {
+            if (indexed.table().getCapacity() >= partySize && indexed.isFree(from, to, slot)) {
+                result.add(indexed.table());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Ghép tối đa maxTables bàn trống trong [from, to] cho nhóm đông: tổng sức chứa >= partySize và
+     * dư ít ghế nhất, cùng số ghế dư thì ít bàn hơn. Trả về danh sách rỗng nếu không ghép được.
+     */
+    public List<CafeTable> suggestCombination(Integer branchId, int partySize, LocalDateTime from, LocalDateTime to,
+            int maxTables) {
+        if (partySize <= 0 || maxTables <= 0) {
+            return List.of();
+        }
+        Duration slot = slotLength();
+        List<CafeTable> free = new ArrayList<>();
+        int totalCapacity = 0;
+        int maxCapacity = 0;
+        for (IndexedTable indexed : stateOf(branchId).tables()) {
+            int capacity = indexed.table().getCapacity();
+            if (capacity > 0 && indexed.isFree(from, to, slot)) {
+                free.add(indexed.table());
+                totalCapacity += capacity;
+                maxCapacity = Math.max(maxCapacity, capacity);
+            }
+        }
+        if (totalCapacity < partySize) {
+            return List.of();
+        }
+        return bestFit(free, partySize, Math.min(totalCapacity, partySize + maxCapacity - 1), maxTables);
+    }
+
+    /**
+     * Knapsack 0/1: minTables[i][c] = số bàn ít nhất trong i bàn đầu có tổng đúng c ghế.
+     * Tổ hợp tối ưu không bao giờ vượt partySize + maxCapacity - 1 (bỏ bớt một bàn vẫn đủ chỗ) nên chặn trên ở đó.
+     */
+    static List<CafeTable> bestFit(List<CafeTable> tables, int partySize, int maxSeats, int maxTables) {
+        int n = tables.size();
+        int unreachable = Integer.MAX_VALUE;
+        int[][] minTables = new int[n + 1][maxSeats + 1];
+        for (int[] row : minTables) {
+            Arrays.fill(row, unreachable);
+        }
+        minTables[0][0] = 0;
+        for (int i = 1; i <= n; i++) {
+            int capacity = tables.get(i - 1).getCapacity();
+            for (int c = 0; c <= maxSeats; c++) {
+                int best = minTables[i - 1][c];
+                if (c >= capacity && minTables[i - 1][c - capacity] != unreachable) {
+                    best = Math.min(best, minTables[i - 1][c - capacity] + 1);
+                }
+                minTables[i][c] = best;
+            }
+        }
+
+        int seats = -1;
+        for (int c = partySize; c <= maxSeats; c++) {
+            if (minTables[n][c] <= maxTables) {
+                seats = c;
+                break;
+            }
+        }
+        if (seats < 0) {
+            return List.of();
+        }
+
+        List<CafeTable> chosen = new ArrayList<>();
+        for (int i = n, c = seats; i > 0 && c > 0; i--) {
+            if (minTables[i][c] != minTables[i - 1][c]) {
+                CafeTable table = tables.get(i - 1);
+                chosen.add(table);
+                c -= table.getCapacity();
+            }
+        }
+        chosen.sort(TABLE_ORDER);
+        return chosen;
+    }
+
+    private BranchState stateOf(Integer branchId) {
+        BranchState state = branches.get(branchId);
+        if (state == null) {
+            state = rebuildBranch(branchId, false);
+        }
+        return state;
+    }
+
+    /**
+     * Dựng lại toàn bộ chỉ mục: 1 query bàn + 1 query slot.
+     */
+    private void rebuildAll() {
+        rebuildLock.lock();
+        try {
+            LocalDateTime horizon = horizon();
+            Map<Integer, List<CafeTable>> tablesByBranch = new HashMap<>();
+            for (CafeTable table : cafeTableRepository.findAll()) {
+                tablesByBranch.computeIfAbsent(table.getBranchId(), k -> new ArrayList<>()).add(table);
+            }
+            Map<Integer, Map<Integer, NavigableSet<LocalDateTime>>> slotsByBranch = new HashMap<>();
+            for (Object[] row : reservationTableRepository.findActiveSlots(horizon)) {
+                slotsByBranch.computeIfAbsent((Integer) row[0], k -> new HashMap<>())
+                        .computeIfAbsent((Integer) row[1], k -> new TreeSet<>())
+                        .add((LocalDateTime) row[2]);
+            }
+
+            Map<Integer, BranchState> rebuilt = new HashMap<>();
+            int slotCount = 0;
+            for (Map.Entry<Integer, List<CafeTable>> entry : tablesByBranch.entrySet()) {
+                Map<Integer, NavigableSet<LocalDateTime>> slots = slotsByBranch.getOrDefault(entry.getKey(), Map.of());
+                rebuilt.put(entry.getKey(), buildState(horizon, entry.getValue(), slots));
+                slotCount += slots.values().stream().mapToInt(NavigableSet::size).sum();
+            }
+            branches = Map.copyOf(rebuilt);
+            log.debug("[TableAvailabilityIndex] Indexed {} branches, {} reservation slots since {}",
+                    rebuilt.size(), slotCount, horizon);
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * force = false: nếu luồng khác vừa nạp chi nhánh trong lúc chờ khoá thì dùng luôn bản đó.
+     */
+    private BranchState rebuildBranch(Integer branchId, boolean force) {
+        rebuildLock.lock();
+        try {
+            BranchState existing = branches.get(branchId);
+            if (!force && existing != null) {
+                return existing;
+            }
+            LocalDateTime horizon = horizon();
+            Map<Integer, NavigableSet<LocalDateTime>> slots = new HashMap<>();
+            for (Object[] row : reservationTableRepository.findActiveSlotsByBranch(branchId, horizon)) {
+                slots.computeIfAbsent((Integer) row[1], k -> new TreeSet<>()).add((LocalDateTime) row[2]);
+            }
+            BranchState state = buildState(horizon, cafeTableRepository.findByBranchId(branchId), slots);
+
+            Map<Integer, BranchState> updated = new HashMap<>(branches);
+            updated.put(branchId, state);
+            branches = Map.copyOf(updated);
+            return state;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private BranchState buildState(LocalDateTime horizon, List<CafeTable> tables,
+            Map<Integer, NavigableSet<LocalDateTime>> slots) {
+        List<IndexedTable> indexed = new ArrayList<>();
+        for (CafeTable table : tables) {
+            if (!STATUS_AVAILABLE.equals(table.getStatus()) || table.getCapacity() == null) {
+                continue;
+            }
+            NavigableSet<LocalDateTime> starts = slots.get(table.getTableId());
+            indexed.add(new IndexedTable(copyOf(table),
+                    starts != null ? Collections.unmodifiableNavigableSet(starts) : Collections.emptyNavigableSet()));
+        }
+        indexed.sort(Comparator.comparing(IndexedTable::table, TABLE_ORDER));
+        return new BranchState(horizon, List.copyOf(indexed));
+    }
+
+    private LocalDateTime horizon() {
+        return LocalDateTime.now().minus(slotLength()).minusHours(Math.max(0, historyHours));
+    }
+
+    private static CafeTable copyOf(CafeTable table) {
+        return CafeTable.builder()
+                .tableId(table.getTableId())
+                .branchId(table.getBranchId())
+                .label(table.getLabel())
+                .capacity(table.getCapacity())
+                .status(table.getStatus())
+                .createAt(table.getCreateAt())
+                .updateAt(table.getUpdateAt())
+                .build();
+    }
+
+    @Scheduled(fixedDelayString = "${reservation.availability.refresh-interval-ms:300000}")
+    public void refresh() {
+        try {
+            rebuildAll();
+        } catch (Exception e) {
+            // Giữ snapshot cũ nếu DB tạm thời lỗi
+            log.error("[TableAvailabilityIndex] Failed to refresh table availability index", e);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        refresh();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTableAvailabilityChanged(TableAvailabilityChangedEvent event) {
+        log.debug("[TableAvailabilityIndex] Availability changed (branch {}, {}), rebuilding",
+                event.getBranchId(), event.getReason());
+        if (event.getBranchId() == null) {
+            refresh();
+            return;
+        }
+        try {
+            rebuildBranch(event.getBranchId(), true);
+        } catch (Exception e) {
+            // Bỏ chi nhánh khỏi snapshot để lần truy vấn sau nạp lại thay vì dùng dữ liệu đã cũ
+            log.error("[TableAvailabilityIndex] Failed to rebuild branch {}", event.getBranchId(), e);
+            evictBranch(event.getBranchId());
+        }
+    }
+
+    private void evictBranch(Integer branchId) {
+        rebuildLock.lock();
+        try {
+            Map<Integer, BranchState> updated = new HashMap<>(branches);
+            updated.remove(branchId);
+            branches = Map.copyOf(updated);
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+}
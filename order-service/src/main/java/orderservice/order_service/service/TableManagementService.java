@@ -12,6 +12,7 @@ import orderservice.order_service.entity.CafeTable;
 import orderservice.order_service.entity.Reservation;
 import orderservice.order_service.entity.ReservationTable;
 import orderservice.order_service.events.ReservationCreatedEvent;
+import orderservice.order_service.events.TableAvailabilityChangedEvent;
 import orderservice.order_service.exception.AppException;
 import orderservice.order_service.exception.ErrorCode;
 import orderservice.order_service.repository.BranchRepository;
@@ -20,12 +21,17 @@ import orderservice.order_service.repository.ReservationRepository;
 import orderservice.order_service.repository.ReservationTableRepository;
 import orderservice.order_service.service.OrderEventProducer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -38,18 +44,27 @@ public class TableManagementService {
     private final ReservationRepository reservationRepository;
     private final BranchRepository branchRepository;
     private final OrderEventProducer orderEventProducer;
+    private final TableAvailabilityIndex tableAvailabilityIndex;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${reservation.availability.max-combined-tables:3}")
+    private int defaultMaxCombinedTables;
 
     @Autowired
     public TableManagementService(CafeTableRepository cafeTableRepository,
             ReservationTableRepository reservationTableRepository,
             ReservationRepository reservationRepository,
             BranchRepository branchRepository,
-            OrderEventProducer orderEventProducer) {
+            OrderEventProducer orderEventProducer,
+            TableAvailabilityIndex tableAvailabilityIndex,
+            ApplicationEventPublisher eventPublisher) {
         this.cafeTableRepository = cafeTableRepository;
         this.reservationTableRepository = reservationTableRepository;
         this.reservationRepository = reservationRepository;
         this.branchRepository = branchRepository;
         this.orderEventProducer = orderEventProducer;
+        this.tableAvailabilityIndex = tableAvailabilityIndex;
+        this.eventPublisher = eventPublisher;
     }
 
     // Create new table
@@ -70,6 +85,7 @@ public class TableManagementService {
         table.setStatus("AVAILABLE");
 
         CafeTable savedTable = cafeTableRepository.save(table);
+        publishAvailabilityChanged(savedTable.getBranchId(), "table-created");
         return convertToTableResponse(savedTable, branch);
     }
 
@@ -86,12 +102,17 @@ public class TableManagementService {
     // Get available tables for reservation
     public List<TableResponse> getAvailableTablesForReservation(Integer branchId, Integer partySize,
             LocalDateTime reservedAt) {
-        // Calculate time window (2 hours before and after reservation time)
-        LocalDateTime startTime = reservedAt.minusHours(2);
-        LocalDateTime endTime = reservedAt.plusHours(2);
-
-        List<CafeTable> availableTables = cafeTableRepository.findAvailableTablesForReservation(
-                branchId, partySize, startTime, endTime);
+        // Reservation chiếm bàn trong [reservedAt, reservedAt + slot]
+        LocalDateTime endTime = reservedAt.plus(tableAvailabilityIndex.slotLength());
+
+        List<CafeTable> availableTables;
+        if (tableAvailabilityIndex.covers(branchId, reservedAt)) {
+            availableTables = tableAvailabilityIndex.findFreeTables(branchId, partySize, reservedAt, endTime);
+        } else {
+            // Khung giờ cũ hơn dữ liệu trong chỉ mục: hỏi thẳng DB (trùng nếu lệch nhau không quá 1 slot)
+            availableTables = cafeTableRepository.findAvailableTablesForReservation(branchId, partySize,
+                    reservedAt.minus(tableAvailabilityIndex.slotLength()), endTime);
+        }
 
         Branch branch = branchRepository.findById(branchId).orElse(null);
 
@@ -100,6 +121,21 @@ public class TableManagementService {
                 .collect(Collectors.toList());
     }
 
+    // Suggest a table combination for large parties (best fit, at most maxTables tables)
+    @Transactional(readOnly = true)
+    public List<TableResponse> suggestTablesForReservation(Integer branchId, Integer partySize,
+            LocalDateTime reservedAt, Integer maxTables) {
+        int limit = maxTables != null && maxTables > 0 ? maxTables : defaultMaxCombinedTables;
+        List<CafeTable> tables = tableAvailabilityIndex.suggestCombination(branchId, partySize, reservedAt,
+                reservedAt.plus(tableAvailabilityIndex.slotLength()), limit);
+
+        Branch branch = tables.isEmpty() ? null : branchRepository.findById(branchId).orElse(null);
+
+        return tables.stream()
+                .map(table -> convertToTableResponse(table, branch))
+                .collect(Collectors.toList());
+    }
+
     // Assign tables to reservation
     public TableAssignmentResponse assignTablesToReservation(AssignTableRequest request) {
         // Validate reservation exists
@@ -111,11 +147,15 @@ public class TableManagementService {
             throw new AppException(ErrorCode.RESERVATION_CANNOT_BE_ASSIGNED);
         }
 
-        // Validate all tables exist and are available
+        // Validate all tables exist and are available (one SELECT ... IN ... FOR UPDATE)
+        Map<Integer, CafeTable> tablesById = cafeTableRepository.findAllByIdForUpdate(request.getTableIds()).stream()
+                .collect(Collectors.toMap(CafeTable::getTableId, Function.identity()));
         List<CafeTable> tables = new ArrayList<>();
         for (Integer tableId : request.getTableIds()) {
-            CafeTable table = cafeTableRepository.findById(tableId)
-                    .orElseThrow(() -> new AppException(ErrorCode.TABLE_NOT_FOUND));
+            CafeTable table = tablesById.get(tableId);
+            if (table == null) {
+                throw new AppException(ErrorCode.TABLE_NOT_FOUND);
+            }
 
             if (!table.getBranchId().equals(reservation.getBranchId())) {
                 throw new AppException(ErrorCode.TABLE_BRANCH_MISMATCH);
@@ -134,21 +174,28 @@ public class TableManagementService {
             throw new AppException(ErrorCode.INSUFFICIENT_TABLE_CAPACITY);
         }
 
+        // Kiểm tra trùng slot trên DB (bàn đã bị khoá ở trên): TableAvailabilityIndex của instance này có thể
+        // chưa nhận thay đổi từ instance khác
+        Duration slot = tableAvailabilityIndex.slotLength();
+        if (!reservationTableRepository.findConflictingTableIds(request.getTableIds(), reservation.getReservationId(),
+                reservation.getReservedAt().minus(slot), reservation.getReservedAt().plus(slot)).isEmpty()) {
+            throw new AppException(ErrorCode.TABLE_NOT_AVAILABLE);
+        }
+
         // Remove existing table assignments
         reservationTableRepository.deleteByReservationId(request.getReservationId());
 
         // Create new table assignments
         List<ReservationTable> assignments = new ArrayList<>();
         for (Integer tableId : request.getTableIds()) {
-            ReservationTable assignment = new ReservationTable(request.getReservationId(), tableId);
-            assignments.add(reservationTableRepository.save(assignment));
+            assignments.add(new ReservationTable(request.getReservationId(), tableId));
         }
+        reservationTableRepository.saveAll(assignments);
 
         // Update table statuses to RESERVED
-        for (CafeTable table : tables) {
-            table.setStatus("RESERVED");
-            cafeTableRepository.save(table);
-        }
+        tables.forEach(table -> table.setStatus("RESERVED"));
+        cafeTableRepository.saveAll(tables);
+        publishAvailabilityChanged(reservation.getBranchId(), "tables-assigned");
 
         // Update reservation status to CONFIRMED if it was PENDING
         if ("PENDING".equals(reservation.getStatus())) {
@@ -211,6 +258,7 @@ public class TableManagementService {
 
         log.info("Table {} status changed from {} to {}",
                 table.getLabel(), oldStatus, request.getStatus());
+        publishAvailabilityChanged(table.getBranchId(), "table-status");
 
         Branch branch = branchRepository.findById(table.getBranchId()).orElse(null);
         return convertToTableResponse(updatedTable, branch);
@@ -250,13 +298,13 @@ public class TableManagementService {
 
         // Update table statuses back to AVAILABLE
         List<CafeTable> tables = cafeTableRepository.findAllById(tableIds);
-        for (CafeTable table : tables) {
-            table.setStatus("AVAILABLE");
-            cafeTableRepository.save(table);
-        }
+        tables.forEach(table -> table.setStatus("AVAILABLE"));
+        cafeTableRepository.saveAll(tables);
 
         // Remove assignments
         reservationTableRepository.deleteByReservationId(reservationId);
+        tables.stream().map(CafeTable::getBranchId).distinct()
+                .forEach(branchId -> publishAvailabilityChanged(branchId, "assignments-removed"));
 
         log.info("Removed table assignments for reservation {}", reservationId);
     }
@@ -273,6 +321,7 @@ public class TableManagementService {
 
         log.info("Table {} updated: label={}, capacity={}",
                 table.getTableId(), request.getLabel(), request.getCapacity());
+        publishAvailabilityChanged(table.getBranchId(), "table-updated");
 
         Branch branch = branchRepository.findById(table.getBranchId()).orElse(null);
         return convertToTableResponse(updatedTable, branch);
@@ -295,6 +344,7 @@ public class TableManagementService {
         cafeTableRepository.delete(table);
 
         log.info("Table {} deleted successfully", tableId);
+        publishAvailabilityChanged(table.getBranchId(), "table-deleted");
     }
 
     // Get table status summary
@@ -307,6 +357,11 @@ public class TableManagementService {
                 .collect(Collectors.toList());
     }
 
+    // Báo cho TableAvailabilityIndex dựng lại chi nhánh sau khi transaction commit
+    private void publishAvailabilityChanged(Integer branchId, String reason) {
+        eventPublisher.publishEvent(new TableAvailabilityChangedEvent(branchId, reason));
+    }
+
     // Helper method to convert entity to response
     private TableResponse convertToTableResponse(CafeTable table, Branch branch) {
         TableResponse response = new TableResponse();
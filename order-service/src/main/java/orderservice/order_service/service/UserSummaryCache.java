@@ -0,0 +1,150 @@
+package orderservice.order_service.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import orderservice.order_service.client.AuthServiceClient;
+import orderservice.order_service.dto.response.ApiResponse;
+import orderservice.order_service.dto.response.UserResponse;
+import orderservice.order_service.util.SecurityUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Cache LRU (giới hạn số phần tử, có TTL) thông tin user lấy từ auth-service.
+ * Các id chưa có trong cache được lấy bằng một lần gọi /users/internal/batch thay vì gọi từng id,
+ * nên một trang review chỉ tốn tối đa một request sang auth-service (hoặc không request nào khi đã cache).
+ * Lỗi khi gọi auth-service không được ném ra: các id không lấy được đơn giản là không có trong kết quả.
+ */
+@Service
+@Slf4j
+public class UserSummaryCache {
+
+    // Giới hạn số id mỗi lần gọi, khớp với giới hạn của auth-service
+    private static final int MAX_IDS_PER_CALL = 200;
+
+    private record Entry(UserResponse user, long expiresAtMillis) {
+    }
+
+    private final AuthServiceClient authServiceClient;
+    private final MeterRegistry meterRegistry;
+    private final Map<Integer, Entry> memory;
+
+    @Value("${auth.user-cache.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${auth.user-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    public UserSummaryCache(AuthServiceClient authServiceClient, MeterRegistry meterRegistry) {
+        this.authServiceClient = authServiceClient;
+        this.meterRegistry = meterRegistry;
+        // accessOrder = true: user ít được dùng nhất bị loại khi vượt giới hạn
+        this.memory = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        meterRegistry.gaugeMapSize("auth.user-cache.size", Tags.empty(), memory);
+    }
+
+    public Optional<UserResponse> get(Integer userId) {
+        return get(userId, SecurityUtils.getCurrentJwtToken());
+    }
+
+    public Optional<UserResponse> get(Integer userId, String token) {
+        if (userId == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(getAll(List.of(userId), token).get(userId));
+    }
+
+    public Map<Integer, UserResponse> getAll(Collection<Integer> userIds) {
+        return getAll(userIds, SecurityUtils.getCurrentJwtToken());
+    }
+
+    /**
+     * Thông tin user theo id. Id không tồn tại hoặc không lấy được (auth-service lỗi) không có trong map.
+     */
+    public Map<Integer, UserResponse> getAll(Collection<Integer> userIds, String token) {
+        Map<Integer, UserResponse> result = new HashMap<>();
+        if (userIds == null || userIds.isEmpty()) {
+            return result;
+        }
+
+        Set<Integer> missing = new LinkedHashSet<>();
+        long now = System.currentTimeMillis();
+        synchronized (memory) {
+            for (Integer userId : userIds) {
+                if (userId == null || result.containsKey(userId)) {
+                    continue;
+                }
+                Entry entry = memory.get(userId);
+                if (entry != null && entry.expiresAtMillis() > now) {
+                    result.put(userId, entry.user());
+                } else {
+                    if (entry != null) {
+                        memory.remove(userId);
+                    }
+                    missing.add(userId);
+                }
+            }
+        }
+        meterRegistry.counter("auth.user-cache.lookups", "result", "hit").increment(result.size());
+        if (missing.isEmpty()) {
+            return result;
+        }
+        meterRegistry.counter("auth.user-cache.lookups", "result", "miss").increment(missing.size());
+
+        List<Integer> pending = new ArrayList<>(missing);
+        for (int from = 0; from < pending.size(); from += MAX_IDS_PER_CALL) {
+            List<Integer> chunk = pending.subList(from, Math.min(from + MAX_IDS_PER_CALL, pending.size()));
+            for (UserResponse user : fetch(chunk, token)) {
+                if (user != null && user.getUser_id() != null) {
+                    result.put(user.getUser_id(), user);
+                    put(user);
+                }
+            }
+        }
+        return result;
+    }
+
+    private List<UserResponse> fetch(List<Integer> userIds, String token) {
+        try {
+            ApiResponse<List<UserResponse>> response = authServiceClient.getUsersByIds(userIds, token);
+            if (response != null && response.getResult() != null) {
+                return response.getResult();
+            }
+        } catch (Exception e) {
+            log.warn("[UserSummaryCache] Failed to fetch {} users from auth-service: {}", userIds.size(), e.getMessage());
+        }
+        return List.of();
+    }
+
+    private void put(UserResponse user) {
+        long expiresAt = System.currentTimeMillis() + ttlSeconds * 1000L;
+        synchronized (memory) {
+            memory.put(user.getUser_id(), new Entry(user, expiresAt));
+        }
+    }
+
+    public void evict(Integer userId) {
+        if (userId == null) {
+            return;
+        }
+        synchronized (memory) {
+            memory.remove(userId);
+        }
+    }
+}
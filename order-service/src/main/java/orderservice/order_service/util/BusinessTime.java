@@ -0,0 +1,35 @@
+package orderservice.order_service.util;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Quy đổi create_at (giờ UTC của server) sang ngày / giờ kinh doanh của chuỗi (UTC+7).
+ * Order lưu sẵn business_date / business_hour lúc ghi bằng các hàm này, để query analytics lọc theo
+ * cột có index thay vì DATE(DATE_ADD(create_at, INTERVAL 7 HOUR)).
+ *
+ * Offset là hằng số: entity callback của Order không có bean Spring nào để đọc cấu hình, và giá trị phải khớp
+ * với BusinessDateBackfill (điền business_date cho đơn cũ). Đổi offset đồng nghĩa phải backfill lại business_date.
+ */
+public final class BusinessTime {
+
+    public static final int UTC_OFFSET_HOURS = 7;
+
+    private BusinessTime() {
+    }
+
+    public static LocalDate businessDate(LocalDateTime createAt) {
+        return createAt.plusHours(UTC_OFFSET_HOURS).toLocalDate();
+    }
+
+    public static int businessHour(LocalDateTime createAt) {
+        return createAt.plusHours(UTC_OFFSET_HOURS).getHour();
+    }
+
+    /**
+     * Ngày kinh doanh hiện tại.
+     */
+    public static LocalDate today() {
+        return businessDate(LocalDateTime.now());
+    }
+}
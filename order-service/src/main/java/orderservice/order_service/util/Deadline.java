@@ -0,0 +1,26 @@
+package orderservice.order_service.util;
+
+import java.time.Duration;
+
+/**
+ * Mốc hết hạn của một thao tác (theo System.nanoTime). Bên gọi tạo một lần từ ngân sách thời gian của request
+ * rồi truyền xuống các bước con, để các lần gọi nối tiếp nhau (vd. geocode địa chỉ gốc rồi địa chỉ chuẩn hoá)
+ * chỉ dùng phần thời gian còn lại thay vì mỗi bước chờ trọn timeout.
+ */
+public record Deadline(long deadlineNanos) {
+
+    public static Deadline after(Duration budget) {
+        return new Deadline(System.nanoTime() + budget.toNanos());
+    }
+
+    /**
+     * Thời gian còn lại, không âm.
+     */
+    public Duration remaining() {
+        return Duration.ofNanos(Math.max(0, deadlineNanos - System.nanoTime()));
+    }
+
+    public boolean isExpired() {
+        return deadlineNanos - System.nanoTime() <= 0;
+    }
+}
@@ -0,0 +1,38 @@
+package orderservice.order_service.util;
+
+import orderservice.order_service.exception.AppException;
+import orderservice.order_service.exception.ErrorCode;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Cursor cho keyset pagination của danh sách đơn: vị trí (orderDate, orderId) của đơn cuối trang trước,
+ * mã hoá base64 url-safe để client truyền lại nguyên văn.
+ */
+public record OrderCursor(LocalDateTime orderDate, Integer orderId) {
+
+    public static String encode(LocalDateTime orderDate, Integer orderId) {
+        String raw = orderDate + "|" + orderId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * null khi không có cursor (trang đầu). Cursor không hợp lệ là lỗi của client (VALIDATION_FAILED).
+     */
+    public static OrderCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+            int sep = raw.lastIndexOf('|');
+            return new OrderCursor(
+                    LocalDateTime.parse(raw.substring(0, sep)),
+                    Integer.parseInt(raw.substring(sep + 1)));
+        } catch (Exception e) {
+            throw new AppException(ErrorCode.VALIDATION_FAILED, "Invalid order cursor: " + cursor);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package orderservice.order_service.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Phép tính tiền của một đơn: thành tiền từng dòng, giảm giá, VAT và tổng.
+ * Dùng chung cho createOrder / createGuestOrder (OrderService), POSService và DiscountService
+ * để các luồng tạo đơn luôn tính giống nhau; không phụ thuộc Spring nên benchmark JMH gọi thẳng được.
+ */
+public final class OrderPricing {
+
+    /** VAT 10%, tính trên số tiền sau giảm giá */
+    public static final BigDecimal VAT_RATE = new BigDecimal("0.10");
+
+    private static final BigDecimal ONE_HUNDRED = BigDecimal.valueOf(100);
+
+    /**
+     * Kết quả sau giảm giá: afterDiscount (không âm), vat (2 chữ số thập phân) và totalAmount = afterDiscount + vat.
+     */
+    public record Totals(BigDecimal afterDiscount, BigDecimal vat, BigDecimal totalAmount) {
+    }
+
+    private OrderPricing() {
+    }
+
+    public static BigDecimal lineTotal(BigDecimal unitPrice, BigDecimal quantity) {
+        return unitPrice.multiply(quantity);
+    }
+
+    public static Totals totals(BigDecimal subtotal, BigDecimal discount) {
+        BigDecimal afterDiscount = subtotal.subtract(discount);
+        // Giảm giá lớn hơn tạm tính thì không để âm
+        if (afterDiscount.compareTo(BigDecimal.ZERO) < 0) {
+            afterDiscount = BigDecimal.ZERO;
+        }
+        BigDecimal vat = afterDiscount.multiply(VAT_RATE).setScale(2, RoundingMode.HALF_UP);
+        return new Totals(afterDiscount, vat, afterDiscount.add(vat));
+    }
+
+    /**
+     * Số tiền giảm của một mã trên orderAmount, chưa áp trần max_discount_amount.
+     *
+     * @param percent true nếu discountValue là phần trăm, false nếu là số tiền cố định
+     */
+    public static BigDecimal discountAmount(boolean percent, BigDecimal discountValue, BigDecimal orderAmount) {
+        if (percent) {
+            return orderAmount.multiply(discountValue).divide(ONE_HUNDRED);
+        }
+        return discountValue;
+    }
+}
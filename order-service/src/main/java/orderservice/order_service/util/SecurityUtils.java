@@ -37,6 +37,18 @@ public class SecurityUtils {
         return null;
     }
     
+    /**
+     * Id của access token hiện tại (claim jti), null nếu không có
+     */
+    public static String getCurrentTokenId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof Jwt) {
+            Jwt jwt = (Jwt) authentication.getPrincipal();
+            return jwt.getId();
+        }
+        return null;
+    }
+    
     public static String getCurrentUserRole() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication != null && authentication.getPrincipal() instanceof Jwt) {
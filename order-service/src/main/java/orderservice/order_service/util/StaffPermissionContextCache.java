@@ -0,0 +1,113 @@
+package orderservice.order_service.util;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Cache ngữ cảnh phân quyền của nhân viên cho StaffPermissionValidator:
+ * business role id (từ staff profile) và trạng thái đang trong ca (active shift).
+ *
+ * Khóa theo user id + jti của token, nên token mới (đăng nhập lại) luôn bắt đầu với ngữ cảnh mới.
+ * Các request đồng thời cùng khóa chỉ gây ra một lần gọi profile-service, các request còn lại chờ kết quả đó.
+ * Kết quả lỗi (null) không được cache: request sau sẽ gọi lại.
+ *
+ * Được xoá theo user khi profile-service báo check-in / check-out / đổi role (StaffPermissionEventListener);
+ * TTL chỉ là lưới an toàn khi mất sự kiện.
+ */
+public final class StaffPermissionContextCache {
+
+    private static final Map<Integer, Map<String, Context>> contexts = new ConcurrentHashMap<>();
+    private static volatile long ttlMillis = 120_000L;
+
+    private StaffPermissionContextCache() {
+    }
+
+    private static final class Context {
+        final long createdAtMillis = System.currentTimeMillis();
+        final AtomicReference<CompletableFuture<List<Integer>>> roleIds = new AtomicReference<>();
+        final AtomicReference<CompletableFuture<Boolean>> activeShift = new AtomicReference<>();
+
+        boolean isExpired(long now) {
+            return now - createdAtMillis > ttlMillis;
+        }
+    }
+
+    public static void configure(long ttlSeconds) {
+        ttlMillis = Math.max(0, ttlSeconds) * 1000L;
+    }
+
+    public static List<Integer> getRoleIds(Integer userId, String tokenId, Supplier<List<Integer>> loader) {
+        if (userId == null || tokenId == null || ttlMillis <= 0) {
+            return loader.get();
+        }
+        return load(contextOf(userId, tokenId).roleIds, loader);
+    }
+
+    public static Boolean getActiveShift(Integer userId, String tokenId, Supplier<Boolean> loader) {
+        if (userId == null || tokenId == null || ttlMillis <= 0) {
+            return loader.get();
+        }
+        return load(contextOf(userId, tokenId).activeShift, loader);
+    }
+
+    private static Context contextOf(Integer userId, String tokenId) {
+        Map<String, Context> byToken = contexts.computeIfAbsent(userId, k -> new ConcurrentHashMap<>());
+        long now = System.currentTimeMillis();
+        return byToken.compute(tokenId, (k, existing) ->
+                existing == null || existing.isExpired(now) ? new Context() : existing);
+    }
+
+    private static <T> T load(AtomicReference<CompletableFuture<T>> slot, Supplier<T> loader) {
+        while (true) {
+            CompletableFuture<T> existing = slot.get();
+            if (existing != null) {
+                // Đang có request khác tải (hoặc đã tải xong): dùng chung kết quả, kể cả khi lỗi
+                return existing.join();
+            }
+            CompletableFuture<T> mine = new CompletableFuture<>();
+            if (!slot.compareAndSet(existing, mine)) {
+                continue;
+            }
+            T value = null;
+            try {
+                value = loader.get();
+                return value;
+            } finally {
+                mine.complete(value);
+                if (value == null) {
+                    slot.compareAndSet(mine, null);
+                }
+            }
+        }
+    }
+
+    /**
+     * Xoá toàn bộ ngữ cảnh của một user (mọi token)
+     */
+    public static void evictUser(Integer userId) {
+        if (userId != null) {
+            contexts.remove(userId);
+        }
+    }
+
+    public static void evictAll() {
+        contexts.clear();
+    }
+
+    /**
+     * Dọn các ngữ cảnh đã hết hạn (token cũ không còn được dùng)
+     */
+    public static void purgeExpired() {
+        long now = System.currentTimeMillis();
+        contexts.forEach((userId, byToken) -> {
+            byToken.values().removeIf(context -> context.isExpired(now));
+            if (byToken.isEmpty()) {
+                contexts.remove(userId, byToken);
+            }
+        });
+    }
+}
@@ -4,6 +4,7 @@ import feign.FeignException;
 import orderservice.order_service.client.AuthServiceClient;
 import orderservice.order_service.client.ProfileServiceClient;
 import orderservice.order_service.dto.response.ApiResponse;
+import orderservice.order_service.dto.response.ManagerProfileResponse;
 import orderservice.order_service.dto.response.RoleResponse;
 import orderservice.order_service.dto.response.ShiftAssignmentResponse;
 import orderservice.order_service.dto.response.StaffProfileResponse;
@@ -17,6 +18,7 @@ import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
@@ -39,8 +41,7 @@ import java.util.stream.Collectors;
 public class StaffPermissionValidator {
     
     // Cache for role ID to role name mapping
-    private static final Map<Integer, String> roleIdToNameCache = new HashMap<>();
-    private static final Object cacheLock = new Object();
+    private static final Map<Integer, String> roleIdToNameCache = new ConcurrentHashMap<>();
     
     // Staff business role names constants
     public static final String CASHIER_STAFF = "CASHIER_STAFF";
@@ -63,6 +64,17 @@ public class StaffPermissionValidator {
             return Collections.emptyList();
         }
         
+        // Cached per user + token; concurrent requests share one profile-service call
+        List<Integer> ids = StaffPermissionContextCache.getRoleIds(userId, SecurityUtils.getCurrentTokenId(),
+                () -> fetchStaffBusinessRoleIds(profileServiceClient, userId));
+        return ids != null ? ids : Collections.emptyList();
+    }
+    
+    /**
+     * Fetch staff business role IDs from profile service.
+     * Returns null (not cached) when the profile cannot be loaded.
+     */
+    private static List<Integer> fetchStaffBusinessRoleIds(ProfileServiceClient profileServiceClient, Integer userId) {
         // Fetch staff profile from profile service
         try {
             String token = SecurityUtils.getCurrentJwtToken();
@@ -83,7 +95,7 @@ public class StaffPermissionValidator {
             }
             
             if (token == null) {
-                return Collections.emptyList();
+                return null;
             }
             
             ApiResponse<StaffProfileResponse> profileResponse = null;
@@ -99,23 +111,23 @@ public class StaffPermissionValidator {
                     log.warn("[StaffPermissionValidator] Response parsing issue for staff profile (status=200): {}", 
                             e.getMessage());
                 }
-                return Collections.emptyList();
+                return null;
             } catch (Exception e) {
                 // Catch other exceptions (not FeignException)
                 log.error("[StaffPermissionValidator] Unexpected exception when fetching staff profile: {}", 
                         e.getMessage(), e);
-                return Collections.emptyList();
+                return null;
             }
             
             if (profileResponse == null) {
                 log.warn("[StaffPermissionValidator] Profile response is null for userId {}", userId);
-                return Collections.emptyList();
+                return null;
             }
             
             if (profileResponse.getResult() == null) {
                 log.warn("[StaffPermissionValidator] Profile response result is null for userId {}. Response code: {}, message: {}", 
                         userId, profileResponse.getCode(), profileResponse.getMessage());
-                return Collections.emptyList();
+                return null;
             }
             
             StaffProfileResponse staffProfile = profileResponse.getResult();
@@ -132,7 +144,7 @@ public class StaffPermissionValidator {
         } catch (Exception e) {
             // Catch any unexpected exceptions from SecurityUtils or RequestContextHolder
             log.error("[StaffPermissionValidator] Exception when fetching staff profile: {}", e.getMessage(), e);
-            return Collections.emptyList();
+            return null;
         }
     }
     
@@ -242,12 +254,10 @@ public class StaffPermissionValidator {
         List<String> roleNames = new ArrayList<>();
         
         // Check cache first
-        synchronized (cacheLock) {
-            for (Integer roleId : roleIds) {
-                String cachedName = roleIdToNameCache.get(roleId);
-                if (cachedName != null) {
-                    roleNames.add(cachedName);
-                }
+        for (Integer roleId : roleIds) {
+            String cachedName = roleId != null ? roleIdToNameCache.get(roleId) : null;
+            if (cachedName != null) {
+                roleNames.add(cachedName);
             }
         }
         
@@ -289,8 +299,8 @@ public class StaffPermissionValidator {
             
             if (rolesResponse != null && rolesResponse.getResult() != null) {
                 // Update cache
-                synchronized (cacheLock) {
-                    for (RoleResponse role : rolesResponse.getResult()) {
+                for (RoleResponse role : rolesResponse.getResult()) {
+                    if (role.getRoleId() != null && role.getName() != null) {
                         roleIdToNameCache.put(role.getRoleId(), role.getName());
                     }
                 }
@@ -298,7 +308,7 @@ public class StaffPermissionValidator {
                 // Build final list - match roleIds with cached names
                 roleNames.clear();
                 for (Integer roleId : roleIds) {
-                    String roleName = roleIdToNameCache.get(roleId);
+                    String roleName = roleId != null ? roleIdToNameCache.get(roleId) : null;
                     if (roleName != null && roleName.endsWith("_STAFF")) {
                         roleNames.add(roleName);
                     }
@@ -493,9 +503,18 @@ public class StaffPermissionValidator {
                 return; // Skip validation if no token
             }
             
-            ApiResponse<ShiftAssignmentResponse> shiftResponse = profileServiceClient.getMyActiveShift(token);
+            // Cached per user + token, invalidated on shift check-in / check-out events
+            String shiftToken = token;
+            Boolean inActiveShift = StaffPermissionContextCache.getActiveShift(SecurityUtils.getCurrentUserId(),
+                    SecurityUtils.getCurrentTokenId(), () -> fetchActiveShift(profileServiceClient, shiftToken));
             
-            if (shiftResponse == null || shiftResponse.getResult() == null) {
+            if (inActiveShift == null) {
+                // Don't block operations if there's an error checking shift status
+                log.warn("[StaffPermissionValidator] Failed to verify active shift, allowing operation to continue");
+                return;
+            }
+            
+            if (!inActiveShift) {
                 log.debug("[StaffPermissionValidator] requireActiveShift FAILED. No active shift found");
                 throw new AppException(
                         ErrorCode.ACCESS_DENIED,
@@ -503,8 +522,7 @@ public class StaffPermissionValidator {
                 );
             }
             
-            log.debug("[StaffPermissionValidator] requireActiveShift PASSED. Active shift found: assignmentId={}", 
-                    shiftResponse.getResult().getAssignmentId());
+            log.debug("[StaffPermissionValidator] requireActiveShift PASSED");
         } catch (AppException e) {
             throw e; // Re-throw AppException as-is
         } catch (Exception e) {
@@ -516,12 +534,77 @@ public class StaffPermissionValidator {
     }
     
     /**
-     * Clear the role ID to name cache (useful for testing or cache invalidation)
+     * Require that the current user belongs to the given branch.
+     * ADMIN may access any branch; MANAGER / STAFF only the branch of their manager / staff profile.
+     * Throws AppException with ACCESS_DENIED otherwise, including when the profile cannot be loaded.
+     *
+     * @param branchId The branch being accessed
+     * @param profileServiceClient Profile service client to fetch the manager / staff profile
+     * @throws AppException if the user does not belong to the branch
      */
-    public static void clearCache() {
-        synchronized (cacheLock) {
-            roleIdToNameCache.clear();
+    public static void requireBranchAccess(Integer branchId, ProfileServiceClient profileServiceClient) {
+        String userRole = SecurityUtils.getCurrentUserRole();
+        if ("ADMIN".equalsIgnoreCase(userRole)) {
+            return;
         }
+
+        Integer userId = SecurityUtils.getCurrentUserId();
+        Integer userBranchId = null;
+        if (branchId != null && userId != null && profileServiceClient != null) {
+            String token = SecurityUtils.getCurrentJwtToken();
+            try {
+                if ("MANAGER".equalsIgnoreCase(userRole)) {
+                    ApiResponse<ManagerProfileResponse> response = profileServiceClient.getManagerProfile(userId, token);
+                    if (response != null && response.getResult() != null && response.getResult().getBranch() != null) {
+                        userBranchId = response.getResult().getBranch().getBranchId();
+                    }
+                } else if ("STAFF".equalsIgnoreCase(userRole)) {
+                    ApiResponse<StaffProfileResponse> response = profileServiceClient.getStaffProfile(userId, token);
+                    if (response != null && response.getResult() != null && response.getResult().getBranch() != null) {
+                        userBranchId = response.getResult().getBranch().getBranchId();
+                    }
+                }
+            } catch (Exception e) {
+                log.error("[StaffPermissionValidator] Failed to fetch branch of user {}: {}", userId, e.getMessage());
+            }
+        }
+
+        if (branchId == null || !branchId.equals(userBranchId)) {
+            log.debug("[StaffPermissionValidator] requireBranchAccess FAILED. branchId = {}, userBranchId = {}",
+                    branchId, userBranchId);
+            throw new AppException(
+                    ErrorCode.ACCESS_DENIED,
+                    String.format("Access denied. You do not belong to branch %s", branchId)
+            );
+        }
+    }
+    
+    /**
+     * Ask profile service whether the current staff has an active shift.
+     * Returns null (not cached) when profile service cannot be reached.
+     */
+    private static Boolean fetchActiveShift(ProfileServiceClient profileServiceClient, String token) {
+        try {
+            ApiResponse<ShiftAssignmentResponse> shiftResponse = profileServiceClient.getMyActiveShift(token);
+            if (shiftResponse == null || shiftResponse.getResult() == null) {
+                return Boolean.FALSE;
+            }
+            log.debug("[StaffPermissionValidator] Active shift found: assignmentId={}",
+                    shiftResponse.getResult().getAssignmentId());
+            return Boolean.TRUE;
+        } catch (Exception e) {
+            log.error("[StaffPermissionValidator] Exception when checking active shift: {}", e.getMessage(), e);
+            return null;
+        }
+    }
+    
+    /**
+     * Clear the role ID to name cache and the per-user permission context cache
+     * (useful for testing or cache invalidation)
+     */
+    public static void clearCache() {
+        roleIdToNameCache.clear();
+        StaffPermissionContextCache.evictAll();
     }
 
 }
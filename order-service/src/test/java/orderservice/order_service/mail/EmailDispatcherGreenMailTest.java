@@ -0,0 +1,76 @@
+package orderservice.order_service.mail;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.GreenMailUtil;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Gửi email_job qua SMTP giả lập (GreenMail) để kiểm tra template và đường gửi theo nhóm của EmailDispatcher.
+ */
+class EmailDispatcherGreenMailTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    private final EmailTemplates templates = new EmailTemplates();
+
+    @Test
+    void sendsChunkThroughSmtpServer() throws Exception {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(greenMail.getSmtp().getPort());
+
+        String body = templates.reservationConfirmation().render(Map.of(
+                "customerName", "<Anh & Em>",
+                "reservationId", 42,
+                "branchName", "Quận 1",
+                "reservedAt", "10/16/2026 19:00",
+                "partySize", 4,
+                "trackingUrl", "http://localhost:3000/track-reservation/42"));
+        List<EmailJob> jobs = List.of(
+                job(1L, 42, "guest1@example.com", body),
+                job(2L, 43, "guest2@example.com", body));
+
+        Map<Long, String> failures = EmailDispatcher.sendChunk(mailSender, "shop@example.com", jobs);
+
+        assertTrue(failures.isEmpty(), () -> "Unexpected failures: " + failures);
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertEquals(2, received.length);
+        assertEquals("Reservation Confirmation - Coffee Shop", received[0].getSubject());
+        String html = GreenMailUtil.getBody(received[0]);
+        assertFalse(html.contains("{{"));
+    }
+
+    @Test
+    void templateEscapesValuesButNotRawPlaceholders() {
+        EmailTemplate template = EmailTemplate.compile("<p>{{name}}</p>{{{html}}}");
+
+        String rendered = template.render(Map.of("name", "<b>\"x\" & y</b>", "html", "<i>ok</i>"));
+
+        assertEquals("<p>&lt;b&gt;&quot;x&quot; &amp; y&lt;/b&gt;</p><i>ok</i>", rendered);
+    }
+
+    private static EmailJob job(Long id, Integer entityId, String recipient, String body) {
+        return EmailJob.builder()
+                .id(id)
+                .type(EmailJob.TYPE_RESERVATION_CONFIRMATION)
+                .entityId(entityId)
+                .recipient(recipient)
+                .subject("Reservation Confirmation - Coffee Shop")
+                .bodyHtml(body)
+                .status("SENDING")
+                .attempts(1)
+                .build();
+    }
+}
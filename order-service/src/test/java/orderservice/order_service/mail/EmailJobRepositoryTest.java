@@ -0,0 +1,57 @@
+package orderservice.order_service.mail;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Chống trùng của hàng đợi email: cùng (type, entity_id) chỉ được thêm một lần.
+ * Chạy trên H2 ở chế độ MySQL (hỗ trợ INSERT IGNORE) thay cho MySQL thật.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:email_job;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+class EmailJobRepositoryTest {
+
+    @Autowired
+    private EmailJobRepository emailJobRepository;
+
+    @Test
+    void enqueueSameKeyTwiceInsertsOnce() {
+        Instant now = Instant.now();
+
+        int first = emailJobRepository.enqueue(EmailJob.TYPE_ORDER_CONFIRMATION, 42, "guest@example.com",
+                "Order Confirmation", "<p>1</p>", now);
+        int second = emailJobRepository.enqueue(EmailJob.TYPE_ORDER_CONFIRMATION, 42, "guest@example.com",
+                "Order Confirmation", "<p>2</p>", now);
+
+        assertEquals(1, first);
+        assertEquals(0, second);
+        assertEquals(1, emailJobRepository.countByStatus("NEW"));
+    }
+
+    @Test
+    void enqueueSameEntityWithDifferentTypeIsNotDuplicate() {
+        Instant now = Instant.now();
+
+        emailJobRepository.enqueue(EmailJob.TYPE_ORDER_CONFIRMATION, 7, "guest@example.com",
+                "Order Confirmation", "<p>order</p>", now);
+        int reservation = emailJobRepository.enqueue(EmailJob.TYPE_RESERVATION_CONFIRMATION, 7, "guest@example.com",
+                "Reservation Confirmation", "<p>reservation</p>", now);
+
+        assertEquals(1, reservation);
+        assertEquals(2, emailJobRepository.countByStatus("NEW"));
+    }
+}
@@ -0,0 +1,75 @@
+package orderservice.order_service.service;
+
+import orderservice.order_service.client.CatalogServiceClient;
+import orderservice.order_service.dto.response.AllBranchesReviewMetricsResponse;
+import orderservice.order_service.entity.Branch;
+import orderservice.order_service.entity.Review;
+import orderservice.order_service.repository.BranchRepository;
+import orderservice.order_service.repository.CustomerDailyRollupRepository;
+import orderservice.order_service.repository.OrderSalesRollupRepository;
+import orderservice.order_service.repository.ProductSalesRollupRepository;
+import orderservice.order_service.repository.ReviewRepository;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+class AnalyticsServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2026, 10, 16);
+
+    private final ReviewRepository reviewRepository = mock(ReviewRepository.class);
+    private final BranchRepository branchRepository = mock(BranchRepository.class);
+    private final OrderSalesRollupRepository orderSalesRollupRepository = mock(OrderSalesRollupRepository.class);
+
+    private final AnalyticsService analyticsService = new AnalyticsService(reviewRepository,
+            mock(CatalogServiceClient.class), branchRepository, orderSalesRollupRepository,
+            mock(CustomerDailyRollupRepository.class), mock(ProductSalesRollupRepository.class),
+            mock(SalesRollupService.class));
+
+    @ParameterizedTest
+    @ValueSource(ints = {50, 200})
+    void allBranchesReviewMetricsUseConstantQueryCount(int branchCount) {
+        List<Branch> branches = new ArrayList<>();
+        List<Object[]> counts = new ArrayList<>();
+        for (int id = 1; id <= branchCount; id++) {
+            branches.add(Branch.builder().branchId(id).name("Branch " + id).build());
+            // Mỗi chi nhánh: 2 review 5 sao, 1 review 2 sao
+            counts.add(new Object[]{id, (byte) 5, 2L});
+            counts.add(new Object[]{id, (byte) 2, 1L});
+        }
+        when(branchRepository.findAll()).thenReturn(branches);
+        when(reviewRepository.countByBranchAndRating(DAY.atStartOfDay(), DAY.plusDays(1).atStartOfDay()))
+                .thenReturn(counts);
+        when(reviewRepository.findRecentBetween(any(), any(), any())).thenReturn(List.of(
+                Review.builder().reviewId(1).branchId(branchCount).rating((byte) 5).createAt(DAY.atTime(9, 0)).build()));
+        when(orderSalesRollupRepository.findByBusinessDate(DAY)).thenReturn(List.of());
+
+        AllBranchesReviewMetricsResponse response = analyticsService.getAllBranchesReviewMetrics(DAY);
+
+        assertEquals(3 * branchCount, response.getTotalReviews());
+        assertEquals(2 * branchCount, response.getTotalPositiveReviews());
+        assertEquals(branchCount, response.getTotalNegativeReviews());
+        assertEquals(new BigDecimal("4.00"), response.getOverallAvgReviewScore());
+        assertEquals(branchCount, response.getBranchReviewStats().size());
+        assertEquals("Branch " + branchCount, response.getRecentReviews().get(0).getBranchName());
+
+        // Cùng 4 query dù có 50 hay 200 chi nhánh
+        verify(branchRepository).findAll();
+        verify(reviewRepository).countByBranchAndRating(any(), any());
+        verify(reviewRepository).findRecentBetween(any(), any(), any());
+        verify(orderSalesRollupRepository).findByBusinessDate(eq(DAY));
+        verifyNoMoreInteractions(branchRepository, reviewRepository, orderSalesRollupRepository);
+    }
+}
@@ -0,0 +1,94 @@
+package orderservice.order_service.service;
+
+import orderservice.order_service.entity.Branch;
+import orderservice.order_service.entity.BranchClosure;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BranchClosureCalendarTest {
+
+    @Test
+    void closureSpanningNewYearSetsBitsInBothYears() {
+        BranchClosureCalendar.Calendar calendar = BranchClosureCalendar.Calendar.build(2026, 2027,
+                List.of(closure(1, "2026-12-30", "2027-01-02")), List.of());
+
+        assertFalse(calendar.isClosed(1, LocalDate.parse("2026-12-29")));
+        assertTrue(calendar.isClosed(1, LocalDate.parse("2026-12-30")));
+        assertTrue(calendar.isClosed(1, LocalDate.parse("2026-12-31")));
+        assertTrue(calendar.isClosed(1, LocalDate.parse("2027-01-01")));
+        assertTrue(calendar.isClosed(1, LocalDate.parse("2027-01-02")));
+        assertFalse(calendar.isClosed(1, LocalDate.parse("2027-01-03")));
+        // Lịch nghỉ của chi nhánh khác không ảnh hưởng
+        assertFalse(calendar.isClosed(2, LocalDate.parse("2026-12-31")));
+        assertFalse(calendar.isClosed(null, LocalDate.parse("2026-12-31")));
+    }
+
+    @Test
+    void globalClosureAppliesToEveryBranch() {
+        BranchClosureCalendar.Calendar calendar = BranchClosureCalendar.Calendar.build(2026, 2026,
+                List.of(closure(null, "2026-05-01", "2026-05-01")), List.of());
+
+        assertTrue(calendar.isClosed(null, LocalDate.parse("2026-05-01")));
+        assertTrue(calendar.isClosed(7, LocalDate.parse("2026-05-01")));
+        assertFalse(calendar.isClosed(7, LocalDate.parse("2026-05-02")));
+    }
+
+    @Test
+    void closuresAreClippedToTheWindow() {
+        BranchClosureCalendar.Calendar calendar = BranchClosureCalendar.Calendar.build(2026, 2026,
+                List.of(closure(1, "2025-12-25", "2026-01-02"), closure(1, "2026-12-31", "2027-01-05")), List.of());
+
+        assertFalse(calendar.covers(LocalDate.parse("2025-12-31")));
+        assertFalse(calendar.covers(LocalDate.parse("2027-01-01")));
+        assertTrue(calendar.isClosed(1, LocalDate.parse("2026-01-01")));
+        assertTrue(calendar.isClosed(1, LocalDate.parse("2026-01-02")));
+        assertFalse(calendar.isClosed(1, LocalDate.parse("2026-01-03")));
+        assertTrue(calendar.isClosed(1, LocalDate.parse("2026-12-31")));
+    }
+
+    @Test
+    void lastDayOfLeapYearUsesBit365() {
+        BranchClosureCalendar.Calendar calendar = BranchClosureCalendar.Calendar.build(2028, 2028,
+                List.of(closure(1, "2028-12-31", "2028-12-31")), List.of());
+
+        assertTrue(calendar.isClosed(1, LocalDate.parse("2028-12-31")));
+        assertFalse(calendar.isClosed(1, LocalDate.parse("2028-12-30")));
+    }
+
+    @Test
+    void isOpenCombinesClosuresWithOpenDays() {
+        Branch weekdays = Branch.builder().branchId(1).openDays("1,2,3,4,5").build();
+        Branch everyDay = Branch.builder().branchId(2).openDays(null).build();
+        BranchClosureCalendar.Calendar calendar = BranchClosureCalendar.Calendar.build(2026, 2026,
+                List.of(closure(2, "2026-10-19", "2026-10-19")), List.of(weekdays, everyDay));
+
+        // 2026-10-17 là thứ Bảy, 2026-10-19 là thứ Hai
+        assertFalse(calendar.isOpen(1, LocalDate.parse("2026-10-17")));
+        assertTrue(calendar.isOpen(1, LocalDate.parse("2026-10-19")));
+        assertTrue(calendar.isOpen(2, LocalDate.parse("2026-10-17")));
+        assertFalse(calendar.isOpen(2, LocalDate.parse("2026-10-19")));
+        // Chi nhánh không có trong danh sách: mở mọi ngày
+        assertTrue(calendar.isOpen(3, LocalDate.parse("2026-10-17")));
+    }
+
+    @Test
+    void openDaysMaskIgnoresInvalidEntries() {
+        assertEquals(BranchClosureCalendar.ALL_DAYS_MASK, BranchClosureCalendar.openDaysMask(null));
+        assertEquals(BranchClosureCalendar.ALL_DAYS_MASK, BranchClosureCalendar.openDaysMask(" "));
+        assertEquals(0b1000001, BranchClosureCalendar.openDaysMask("1, x, 7, 9"));
+    }
+
+    private static BranchClosure closure(Integer branchId, String startDate, String endDate) {
+        return BranchClosure.builder()
+                .branchId(branchId)
+                .startDate(LocalDate.parse(startDate))
+                .endDate(LocalDate.parse(endDate))
+                .build();
+    }
+}
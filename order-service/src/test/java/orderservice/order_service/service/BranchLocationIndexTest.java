@@ -0,0 +1,148 @@
+package orderservice.order_service.service;
+
+import orderservice.order_service.entity.Branch;
+import orderservice.order_service.entity.BranchClosure;
+import orderservice.order_service.repository.BranchClosureRepository;
+import orderservice.order_service.repository.BranchRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BranchLocationIndexTest {
+
+    private static final GeocodingService.Coordinates ORIGIN = new GeocodingService.Coordinates(21.0025, 105.8025);
+
+    private final BranchRepository branchRepository = mock(BranchRepository.class);
+    private final BranchClosureRepository branchClosureRepository = mock(BranchClosureRepository.class);
+    private final BranchClosureService branchClosureService = mock(BranchClosureService.class);
+    private final GeocodingService geocodingService = mock(GeocodingService.class);
+
+    @Test
+    void topKOrdersByDistanceWithinRadius() {
+        BranchLocationIndex index = index(defaultBranches(), List.of(closure(6)));
+
+        // ~0.08 km, ~1.39 km, ~5.56 km; chi nhánh 4 (~33 km) nằm ngoài bán kính
+        assertEquals(List.of(1, 2, 3), ids(index.findTopK(ORIGIN, 10, 10.0)));
+        assertEquals(List.of(1, 2), ids(index.findTopK(ORIGIN, 2, 10.0)));
+        assertEquals(List.of(1, 2, 3, 4), ids(index.findTopK(ORIGIN, 10, null)));
+        assertTrue(index.findTopK(ORIGIN, 0, null).isEmpty());
+    }
+
+    @Test
+    void indexSkipsBranchesWithoutCoordinatesOrClosedToday() {
+        BranchLocationIndex index = index(defaultBranches(), List.of(closure(6)));
+
+        // 5: không có tọa độ, 6: có lịch nghỉ hôm nay, 7: ngoài openDays
+        assertEquals(List.of(1, 2, 3, 4), index.findOpenNow().stream().map(Branch::getBranchId).toList());
+    }
+
+    @Test
+    void globalClosureEmptiesTheIndex() {
+        BranchLocationIndex index = index(defaultBranches(), List.of(closure(null)));
+
+        assertTrue(index.findOpenNow().isEmpty());
+        assertNull(index.findNearest(ORIGIN, null));
+    }
+
+    @Test
+    void smallRadiusOnlyVisitsNearbyCells() {
+        BranchLocationIndex index = index(defaultBranches(), List.of(closure(6)));
+        ReflectionTestUtils.setField(index, "cellSizeDegrees", 0.01);
+        index.refresh();
+
+        // Bán kính 0.5 km phủ 2x2 ô: chỉ chi nhánh 1 được tính khoảng cách
+        assertEquals(List.of(1), ids(index.findTopK(ORIGIN, 10, 0.5)));
+        verify(geocodingService, times(1)).calculateDistance(any(), any());
+    }
+
+    @Test
+    void nearestPrefersLowerIdWhenDistancesTie() {
+        BranchLocationIndex index = index(List.of(
+                branch(12, 21.0100, 105.8025),
+                branch(11, 21.0101, 105.8025),
+                branch(10, 21.0500, 105.8025)), List.of());
+
+        BranchLocationIndex.Candidate nearest = index.findNearest(ORIGIN, 5.0);
+
+        assertEquals(11, nearest.branch().getBranchId());
+        assertNull(index.findNearest(ORIGIN, 0.5));
+    }
+
+    @Test
+    void refreshPicksUpChangedBranches() {
+        List<Branch> branches = new ArrayList<>(defaultBranches());
+        BranchLocationIndex index = index(branches, List.of(closure(6)));
+        assertEquals(1, index.findNearest(ORIGIN, null).branch().getBranchId());
+
+        branches.removeIf(b -> b.getBranchId() == 1);
+        index.refresh();
+
+        assertEquals(2, index.findNearest(ORIGIN, null).branch().getBranchId());
+    }
+
+    @Test
+    void workingHoursSupportOvernightWindows() {
+        Branch day = Branch.builder().openHours(LocalTime.of(8, 0)).endHours(LocalTime.of(22, 0)).build();
+        Branch night = Branch.builder().openHours(LocalTime.of(22, 0)).endHours(LocalTime.of(6, 0)).build();
+
+        assertTrue(BranchLocationIndex.isWithinWorkingHours(day, LocalTime.of(8, 0)));
+        assertFalse(BranchLocationIndex.isWithinWorkingHours(day, LocalTime.of(23, 0)));
+        assertTrue(BranchLocationIndex.isWithinWorkingHours(night, LocalTime.of(23, 0)));
+        assertTrue(BranchLocationIndex.isWithinWorkingHours(night, LocalTime.of(5, 0)));
+        assertFalse(BranchLocationIndex.isWithinWorkingHours(night, LocalTime.of(12, 0)));
+        assertTrue(BranchLocationIndex.isWithinWorkingHours(new Branch(), LocalTime.of(3, 0)));
+    }
+
+    private BranchLocationIndex index(List<Branch> branches, List<BranchClosure> closuresToday) {
+        when(branchRepository.findAll()).thenReturn(branches);
+        when(branchClosureRepository.findByDateOverlap(any(), any())).thenReturn(closuresToday);
+        when(branchClosureService.isBranchOperatingOnDate(any(), any()))
+                .thenAnswer(invocation -> invocation.<Branch>getArgument(0).getBranchId() != 7);
+        when(geocodingService.calculateDistance(any(), any())).thenCallRealMethod();
+        BranchLocationIndex index = new BranchLocationIndex(branchRepository, branchClosureRepository,
+                branchClosureService, geocodingService);
+        ReflectionTestUtils.setField(index, "cellSizeDegrees", 0.05);
+        return index;
+    }
+
+    private static List<Branch> defaultBranches() {
+        return List.of(
+                branch(1, 21.0030, 105.8030),
+                branch(2, 21.0150, 105.8025),
+                branch(3, 21.0525, 105.8025),
+                branch(4, 21.3025, 105.8025),
+                Branch.builder().branchId(5).build(),
+                branch(6, 21.0035, 105.8025),
+                branch(7, 21.0040, 105.8025));
+    }
+
+    private static Branch branch(int branchId, double latitude, double longitude) {
+        return Branch.builder()
+                .branchId(branchId)
+                .latitude(BigDecimal.valueOf(latitude))
+                .longitude(BigDecimal.valueOf(longitude))
+                .build();
+    }
+
+    private static BranchClosure closure(Integer branchId) {
+        return BranchClosure.builder().branchId(branchId).build();
+    }
+
+    private static List<Integer> ids(List<BranchLocationIndex.Candidate> candidates) {
+        return candidates.stream().map(c -> c.branch().getBranchId()).toList();
+    }
+}
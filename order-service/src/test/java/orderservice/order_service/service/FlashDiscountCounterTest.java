@@ -0,0 +1,177 @@
+package orderservice.order_service.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import orderservice.order_service.repository.DiscountRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FlashDiscountCounterTest {
+
+    private static final String CODE = "FLASH50";
+
+    @Test
+    void isFlashMatchesConfiguredCodesIgnoringCase() {
+        FlashDiscountCounter counter = counter(new FakeDiscounts(10), 1, 5);
+
+        assertTrue(counter.isFlash(" flash50 "));
+        assertTrue(counter.isFlash("MIDNIGHT"));
+        assertFalse(counter.isFlash("OTHER"));
+    }
+
+    @Test
+    void redemptionsStopAtUsageLimit() {
+        FakeDiscounts discounts = new FakeDiscounts(25);
+        FlashDiscountCounter counter = counter(discounts, 1, 20);
+
+        for (int i = 0; i < 25; i++) {
+            assertTrue(counter.tryRedeem(CODE), "redeem #" + (i + 1));
+        }
+        assertFalse(counter.tryRedeem(CODE));
+        assertEquals(25, discounts.used.get());
+        // Block 20 đầu tiên, sau đó còn ít hơn một block thì giữ từng lượt một (lần thứ 6 hết lượt)
+        verify(discounts.repository, times(7)).incrementUsedCount(CODE, 20);
+        verify(discounts.repository, times(6)).incrementUsedCount(CODE, 1);
+    }
+
+    @Test
+    void reconcileReturnsUnusedLeases() {
+        FakeDiscounts discounts = new FakeDiscounts(100);
+        FlashDiscountCounter counter = counter(discounts, 1, 20);
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(counter.tryRedeem(CODE));
+        }
+        assertEquals(20, discounts.used.get());
+
+        counter.reconcile();
+
+        verify(discounts.repository).decrementUsedCount(CODE, 17);
+        assertEquals(3, discounts.used.get());
+        // Đã trả hết thì lần reconcile sau không gọi DB nữa
+        counter.reconcile();
+        verify(discounts.repository).decrementUsedCount(eq(CODE), anyInt());
+    }
+
+    @Test
+    void rolledBackRedemptionReturnsToShard() {
+        FakeDiscounts discounts = new FakeDiscounts(1);
+        FlashDiscountCounter counter = counter(discounts, 1, 1);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            assertTrue(counter.tryRedeem(CODE));
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // Lượt trả về shard dùng lại được mà không lease thêm
+        assertTrue(counter.tryRedeem(CODE));
+        assertFalse(counter.tryRedeem(CODE));
+        assertEquals(1, discounts.used.get());
+    }
+
+    @Test
+    void concurrentRedemptionsNeverExceedUsageLimit() throws Exception {
+        FakeDiscounts discounts = new FakeDiscounts(500);
+        FlashDiscountCounter counter = counter(discounts, 8, 20);
+        AtomicInteger redeemed = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 16; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 50; i++) {
+                        if (counter.tryRedeem(CODE)) {
+                            redeemed.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertTrue(redeemed.get() <= 500);
+        counter.reconcile();
+        // Sau khi trả lượt thừa, used_count khớp đúng số lượt đã phát
+        assertEquals(redeemed.get(), discounts.used.get());
+    }
+
+    @Test
+    void exhaustedCodeFallsBackToSingleLeaseThenFails() {
+        FakeDiscounts discounts = new FakeDiscounts(5);
+        discounts.used.set(5);
+        FlashDiscountCounter counter = counter(discounts, 1, 20);
+
+        assertFalse(counter.tryRedeem(CODE));
+        verify(discounts.repository).incrementUsedCount(CODE, 20);
+        verify(discounts.repository).incrementUsedCount(CODE, 1);
+        verify(discounts.repository, never()).decrementUsedCount(eq(CODE), anyInt());
+    }
+
+    private static FlashDiscountCounter counter(FakeDiscounts discounts, int shards, int leaseSize) {
+        FlashDiscountCounter counter = new FlashDiscountCounter(discounts.repository,
+                mock(PlatformTransactionManager.class), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(counter, "flashCodesConfig", CODE + ", midnight,");
+        ReflectionTestUtils.setField(counter, "shardCount", shards);
+        ReflectionTestUtils.setField(counter, "leaseSize", leaseSize);
+        ReflectionTestUtils.setField(counter, "leaseWaitMs", 2000L);
+        ReflectionTestUtils.invokeMethod(counter, "init");
+        return counter;
+    }
+
+    /**
+     * Giả lập UPDATE có điều kiện trên discounts.used_count với usage_limit cố định.
+     */
+    private static final class FakeDiscounts {
+        final AtomicInteger used = new AtomicInteger();
+        final DiscountRepository repository = mock(DiscountRepository.class);
+
+        FakeDiscounts(int usageLimit) {
+            when(repository.incrementUsedCount(eq(CODE), anyInt())).thenAnswer(invocation -> {
+                int amount = invocation.getArgument(1);
+                while (true) {
+                    int current = used.get();
+                    if (current + amount > usageLimit) {
+                        return 0;
+                    }
+                    if (used.compareAndSet(current, current + amount)) {
+                        return 1;
+                    }
+                }
+            });
+            when(repository.decrementUsedCount(eq(CODE), anyInt())).thenAnswer(invocation -> {
+                int amount = invocation.getArgument(1);
+                used.updateAndGet(current -> Math.max(0, current - amount));
+                return 1;
+            });
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package orderservice.order_service.service;
+
+import orderservice.order_service.entity.CafeTable;
+import orderservice.order_service.repository.CafeTableRepository;
+import orderservice.order_service.repository.ReservationTableRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TableAvailabilityIndexTest {
+
+    private static final Integer BRANCH_ID = 1;
+
+    @Test
+    void bestFitPrefersFewerTablesForSameSeats() {
+        List<CafeTable> tables = tables(2, 4, 6);
+
+        assertEquals(List.of(6), capacities(bestFit(tables, 6, 3)));
+    }
+
+    @Test
+    void bestFitMinimisesSpareSeats() {
+        List<CafeTable> tables = tables(4, 4, 6);
+
+        // 4 + 4 = 8 chỗ vừa đủ, tốt hơn 4 + 6 = 10
+        assertEquals(List.of(4, 4), capacities(bestFit(tables, 8, 3)));
+        // Không ghép đúng 4 được thì lấy bàn dư ít nhất
+        assertEquals(List.of(5), capacities(bestFit(tables(3, 5), 4, 2)));
+    }
+
+    @Test
+    void bestFitRespectsMaxTables() {
+        List<CafeTable> tables = tables(2, 2, 2, 2);
+
+        assertTrue(bestFit(tables, 8, 3).isEmpty());
+        assertEquals(List.of(2, 2, 2, 2), capacities(bestFit(tables, 8, 4)));
+    }
+
+    @Test
+    void bestFitFindsExactCombination() {
+        List<CafeTable> chosen = bestFit(tables(2, 3, 4, 5), 7, 2);
+
+        assertEquals(2, chosen.size());
+        assertEquals(7, chosen.stream().mapToInt(CafeTable::getCapacity).sum());
+    }
+
+    @Test
+    void tableIsBusyWhenAnotherSlotTouchesTheWindow() {
+        LocalDateTime booked = LocalDateTime.now().plusDays(1).withHour(18).withMinute(0).withSecond(0).withNano(0);
+        CafeTableRepository cafeTableRepository = mock(CafeTableRepository.class);
+        ReservationTableRepository reservationTableRepository = mock(ReservationTableRepository.class);
+        when(cafeTableRepository.findByBranchId(BRANCH_ID)).thenReturn(tables(4, 4));
+        List<Object[]> slots = new ArrayList<>();
+        slots.add(new Object[]{BRANCH_ID, 1, booked});
+        when(reservationTableRepository.findActiveSlotsByBranch(eq(BRANCH_ID), any())).thenReturn(slots);
+        TableAvailabilityIndex index = new TableAvailabilityIndex(cafeTableRepository, reservationTableRepository);
+        ReflectionTestUtils.setField(index, "slotMinutes", 120L);
+        ReflectionTestUtils.setField(index, "historyHours", 24L);
+
+        // Slot 18:00-20:00 của bàn 1: khung bắt đầu đúng 20:00 vẫn tính là trùng (chạm biên), 20:01 thì không
+        assertEquals(List.of(2), tableIds(index.findFreeTables(BRANCH_ID, 2, booked.plusHours(2), booked.plusHours(4))));
+        assertEquals(List.of(1, 2),
+                tableIds(index.findFreeTables(BRANCH_ID, 2, booked.plusMinutes(121), booked.plusMinutes(241))));
+        assertEquals(List.of(2), tableIds(index.findFreeTables(BRANCH_ID, 2, booked.minusHours(2), booked)));
+    }
+
+    private static List<CafeTable> bestFit(List<CafeTable> tables, int partySize, int maxTables) {
+        int total = tables.stream().mapToInt(CafeTable::getCapacity).sum();
+        int max = tables.stream().mapToInt(CafeTable::getCapacity).max().orElse(0);
+        return TableAvailabilityIndex.bestFit(tables, partySize, Math.min(total, partySize + max - 1), maxTables);
+    }
+
+    private static List<CafeTable> tables(int... capacities) {
+        List<CafeTable> tables = new ArrayList<>();
+        for (int i = 0; i < capacities.length; i++) {
+            tables.add(CafeTable.builder()
+                    .tableId(i + 1)
+                    .branchId(BRANCH_ID)
+                    .label("T" + (i + 1))
+                    .capacity(capacities[i])
+                    .status("AVAILABLE")
+                    .build());
+        }
+        return tables;
+    }
+
+    private static List<Integer> capacities(List<CafeTable> tables) {
+        return tables.stream().map(CafeTable::getCapacity).toList();
+    }
+
+    private static List<Integer> tableIds(List<CafeTable> tables) {
+        return tables.stream().map(CafeTable::getTableId).toList();
+    }
+}
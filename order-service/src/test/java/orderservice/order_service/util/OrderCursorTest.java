@@ -0,0 +1,54 @@
+package orderservice.order_service.util;
+
+import orderservice.order_service.exception.AppException;
+import orderservice.order_service.exception.ErrorCode;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OrderCursorTest {
+
+    @Test
+    void decodeReturnsEncodedPosition() {
+        LocalDateTime orderDate = LocalDateTime.of(2026, 10, 16, 19, 5, 30, 123_000_000);
+
+        String cursor = OrderCursor.encode(orderDate, 4242);
+
+        assertEquals(new OrderCursor(orderDate, 4242), OrderCursor.decode(cursor));
+    }
+
+    @Test
+    void encodedCursorIsUrlSafe() {
+        String cursor = OrderCursor.encode(LocalDateTime.of(2026, 1, 1, 0, 0), Integer.MAX_VALUE);
+
+        assertFalse(cursor.contains("+") || cursor.contains("/") || cursor.contains("="), cursor);
+    }
+
+    @Test
+    void blankCursorMeansFirstPage() {
+        assertNull(OrderCursor.decode(null));
+        assertNull(OrderCursor.decode(""));
+        assertNull(OrderCursor.decode("   "));
+    }
+
+    @Test
+    void malformedCursorIsValidationError() {
+        String notBase64 = "***";
+        String missingSeparator = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("2026-10-16T19:05".getBytes(StandardCharsets.UTF_8));
+        String badId = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("2026-10-16T19:05|abc".getBytes(StandardCharsets.UTF_8));
+
+        for (String cursor : new String[]{notBase64, missingSeparator, badId}) {
+            AppException e = assertThrows(AppException.class, () -> OrderCursor.decode(cursor));
+            assertEquals(ErrorCode.VALIDATION_FAILED, e.getErrorCode());
+        }
+    }
+}
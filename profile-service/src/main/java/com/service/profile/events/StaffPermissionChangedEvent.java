@@ -0,0 +1,23 @@
+package com.service.profile.events;
+
+import java.time.Instant;
+
+/**
+ * Published after commit when something that affects a staff member's authorization changed
+ * (shift check-in / check-out, business roles, profile removed). Consumers drop cached permissions.
+ */
+public class StaffPermissionChangedEvent {
+    public Integer userId;
+    // SHIFT_CHECKED_IN, SHIFT_CHECKED_OUT, SHIFT_NO_SHOW, ROLES_CHANGED, PROFILE_DELETED
+    public String reason;
+    public Instant occurredAt;
+
+    public StaffPermissionChangedEvent() {
+    }
+
+    public StaffPermissionChangedEvent(Integer userId, String reason) {
+        this.userId = userId;
+        this.reason = reason;
+        this.occurredAt = Instant.now();
+    }
+}
@@ -0,0 +1,51 @@
+package com.service.profile.messaging;
+
+import com.service.profile.events.StaffPermissionChangedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StaffPermissionEventProducer {
+
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+
+    @Value("${app.kafka.topics.staff-permission-changed:profile.staff.permission-changed}")
+    private String staffPermissionChangedTopic;
+
+    /**
+     * Publish after the current transaction commits so consumers never reload the old state.
+     */
+    public void publishAfterCommit(Integer userId, String reason) {
+        if (userId == null) {
+            return;
+        }
+        StaffPermissionChangedEvent event = new StaffPermissionChangedEvent(userId, reason);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish(event);
+                }
+            });
+        } else {
+            publish(event);
+        }
+    }
+
+    private void publish(StaffPermissionChangedEvent event) {
+        try {
+            kafkaTemplate.send(staffPermissionChangedTopic, String.valueOf(event.userId), event);
+            log.debug("[StaffPermissionEventProducer] Published {} for staff {}", event.reason, event.userId);
+        } catch (Exception ex) {
+            // Consumers still expire their cache by TTL
+            log.error("[StaffPermissionEventProducer] Failed to publish {} for staff {}", event.reason, event.userId, ex);
+        }
+    }
+}
@@ -24,6 +24,31 @@ public interface BranchClosureClient {
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
     );
     
+    /**
+     * Ngày nghỉ / ngày mở cửa của chi nhánh trong [from, to] (tối đa 366 ngày), một lần gọi cho cả khoảng
+     */
+    @GetMapping(value = "/branch-closures/calendar", produces = MediaType.APPLICATION_JSON_VALUE)
+    ApiResponse<BranchCalendarResponse> getCalendar(
+            @RequestParam(required = false) Integer branchId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+    );
+
+    class BranchCalendarResponse {
+        private Integer branchId;
+        private List<LocalDate> closedDates;
+        private List<LocalDate> openDates;
+
+        public Integer getBranchId() { return branchId; }
+        public void setBranchId(Integer branchId) { this.branchId = branchId; }
+
+        public List<LocalDate> getClosedDates() { return closedDates; }
+        public void setClosedDates(List<LocalDate> closedDates) { this.closedDates = closedDates; }
+
+        public List<LocalDate> getOpenDates() { return openDates; }
+        public void setOpenDates(List<LocalDate> openDates) { this.openDates = openDates; }
+    }
+
     // Inner class for response
     class BranchClosureResponse {
         private Integer id;
@@ -3,6 +3,7 @@ package com.service.profile.scheduled;
 import com.service.profile.entity.Shift;
 import com.service.profile.entity.ShiftAssignment;
 import com.service.profile.event.StaffAbsentEvent;
+import com.service.profile.messaging.StaffPermissionEventProducer;
 import com.service.profile.repository.ShiftAssignmentRepository;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
@@ -31,6 +32,7 @@ public class ShiftAssignmentAutoStatusJob {
 
     ShiftAssignmentRepository assignmentRepository;
     ApplicationEventPublisher eventPublisher;
+    StaffPermissionEventProducer staffPermissionEventProducer;
 
     /**
      * Process assignments for completed shifts
@@ -98,6 +100,7 @@ public class ShiftAssignmentAutoStatusJob {
                             assignment.setNotes(existingNotes + (existingNotes.isEmpty() ? "" : "\n") +
                                     "Auto-checked out: Shift ended more than 5 minutes ago (shift ended at " + shiftEnd + ")");
                             assignmentRepository.save(assignment);
+                            staffPermissionEventProducer.publishAfterCommit(assignment.getStaffUserId(), "SHIFT_CHECKED_OUT");
                             autoCheckoutCount++;
                         }
                     }
@@ -25,6 +25,7 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.YearMonth;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -477,8 +478,8 @@ public class PayrollService {
         BigDecimal totalOvertimePay = BigDecimal.ZERO;
         LocalDate currentDate = startDate;
 
-        // Cache closures per day to avoid N remote calls
-        final Map<LocalDate, Boolean> closedCache = new HashMap<>();
+        // Ngày nghỉ của cả tháng lấy bằng một lần gọi order-service
+        final Map<LocalDate, Boolean> closedCache = loadClosedDays(branchId, startDate, endDate);
         
         while (!currentDate.isAfter(endDate)) {
             BigDecimal dayOvertimeHours = calculateOvertimeHoursForDay(userId, currentDate);
@@ -1055,12 +1056,34 @@ public class PayrollService {
         return baseRate; // defaultOvertimeRate (1.5x)
     }
 
+    /**
+     * Đánh dấu nghỉ / không nghỉ cho mọi ngày trong [from, to] từ lịch nghỉ của order-service.
+     * Lỗi thì trả map rỗng, từng ngày sẽ được hỏi lại qua isBranchClosedOnDate.
+     */
+    private Map<LocalDate, Boolean> loadClosedDays(Integer branchId, LocalDate from, LocalDate to) {
+        Map<LocalDate, Boolean> closedDays = new HashMap<>();
+        try {
+            var resp = branchClosureClient.getCalendar(branchId, from, to);
+            var calendar = resp != null ? resp.getResult() : null;
+            if (calendar == null || calendar.getClosedDates() == null) {
+                return closedDays;
+            }
+            Set<LocalDate> closed = new HashSet<>(calendar.getClosedDates());
+            for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+                closedDays.put(day, closed.contains(day));
+            }
+        } catch (Exception e) {
+            log.warn("Failed to load branch calendar for branchId={} {}..{}: {}", branchId, from, to, e.getMessage());
+        }
+        return closedDays;
+    }
+
     private boolean isBranchClosedOnDate(Integer branchId, LocalDate date) {
         if (date == null) return false;
         try {
-            var resp = branchClosureClient.listClosures(branchId, date, date);
-            var closures = resp != null ? resp.getResult() : null;
-            return closures != null && !closures.isEmpty();
+            var resp = branchClosureClient.getCalendar(branchId, date, date);
+            var calendar = resp != null ? resp.getResult() : null;
+            return calendar != null && calendar.getClosedDates() != null && calendar.getClosedDates().contains(date);
         } catch (Exception e) {
             // Fail-open: don't break payroll calculation if order-service is temporarily unavailable
             log.warn("Failed to check branch closures for branchId={} date={}: {}", branchId, date, e.getMessage());
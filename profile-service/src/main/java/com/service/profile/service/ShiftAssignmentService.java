@@ -8,6 +8,7 @@ import com.service.profile.dto.response.StaffWithUserResponse;
 import com.service.profile.entity.*;
 import com.service.profile.exception.AppException;
 import com.service.profile.exception.ErrorCode;
+import com.service.profile.messaging.StaffPermissionEventProducer;
 import com.service.profile.repository.*;
 import com.service.profile.repository.http_client.AuthClient;
 import lombok.AccessLevel;
@@ -42,6 +43,7 @@ public class ShiftAssignmentService {
     org.springframework.context.ApplicationEventPublisher eventPublisher; // For publishing events
     com.service.profile.service.PenaltyService penaltyService; // For canceling auto penalty
     com.service.profile.repository.PayrollRepository payrollRepository; // For checking payroll status
+    StaffPermissionEventProducer staffPermissionEventProducer; // Invalidates cached permissions in order-service
 
     /**
      * Get available shifts for staff to register
@@ -1051,6 +1053,7 @@ public class ShiftAssignmentService {
 
         log.info("Staff {} checked in for assignment {} (shift {})", 
                 staffUserId, assignmentId, shift.getShiftId());
+        staffPermissionEventProducer.publishAfterCommit(assignment.getStaffUserId(), "SHIFT_CHECKED_IN");
 
         // Notify staff and manager about check-in
         try {
@@ -1183,6 +1186,7 @@ public class ShiftAssignmentService {
 
         log.info("Staff {} checked out for assignment {} (shift {}). Actual hours: {}", 
                 staffUserId, assignmentId, shift.getShiftId(), actualHours);
+        staffPermissionEventProducer.publishAfterCommit(assignment.getStaffUserId(), "SHIFT_CHECKED_OUT");
 
         // Notify staff and manager about check-out
         try {
@@ -1235,6 +1239,7 @@ public class ShiftAssignmentService {
         assignment.setNotes(existingNotes + (existingNotes.isEmpty() ? "" : "\n") +
                 "Marked as NO_SHOW by manager " + managerUserId + " at " + java.time.LocalDateTime.now());
         assignment = assignmentRepository.save(assignment);
+        staffPermissionEventProducer.publishAfterCommit(assignment.getStaffUserId(), "SHIFT_NO_SHOW");
 
         log.info("Manager {} marked assignment {} as NO_SHOW for shift {}", 
                 managerUserId, assignmentId, shift.getShiftId());
@@ -889,9 +889,9 @@ public class ShiftService {
 
     private boolean isBranchClosedOnDate(Integer branchId, LocalDate date) {
         try {
-            var resp = branchClosureClient.listClosures(branchId, date, date);
-            var closures = resp != null ? resp.getResult() : null;
-            return closures != null && !closures.isEmpty();
+            var resp = branchClosureClient.getCalendar(branchId, date, date);
+            var calendar = resp != null ? resp.getResult() : null;
+            return calendar != null && calendar.getClosedDates() != null && calendar.getClosedDates().contains(date);
         } catch (Exception e) {
             // Fail-open: avoid blocking shift flows if order-service is temporarily unavailable.
             log.warn("Failed to check branch closures for branchId={} date={}: {}", branchId, date, e.getMessage());
@@ -12,6 +12,7 @@ import com.service.profile.entity.StaffRoleAssignment;
 import com.service.profile.exception.AppException;
 import com.service.profile.exception.ErrorCode;
 import com.service.profile.mapper.StaffProfileMapper;
+import com.service.profile.messaging.StaffPermissionEventProducer;
 import com.service.profile.repository.StaffProfileRepository;
 import com.service.profile.repository.StaffRoleAssignmentRepository;
 import com.service.profile.repository.http_client.AuthClient;
@@ -43,6 +44,7 @@ public class StaffProfileService {
     BranchClient branchClient;
     AuthClient authClient;
     StaffRoleAssignmentRepository staffRoleAssignmentRepository;
+    StaffPermissionEventProducer staffPermissionEventProducer;
 
     @Transactional
     @PreAuthorize("hasRole('MANAGER')")
@@ -172,6 +174,7 @@ public class StaffProfileService {
         staffRoleAssignmentRepository.deleteByStaffUserId(userId);
         // Sau đó xoá staff_profile
         staffProfileRepository.delete(staffProfile);
+        staffPermissionEventProducer.publishAfterCommit(userId, "PROFILE_DELETED");
     }
 
     @PreAuthorize("hasRole('MANAGER')")
@@ -245,6 +248,7 @@ public class StaffProfileService {
                     staffRoleAssignmentRepository.save(assignment);
                 });
             }
+            staffPermissionEventProducer.publishAfterCommit(userId, "ROLES_CHANGED");
         }
     }
 
@@ -118,6 +118,25 @@ ALTER TABLE orders
 ADD COLUMN staff_id INT DEFAULT NULL AFTER reservation_id,
 ADD KEY idx_orders_staff_id (staff_id);
 
+-- Loại đơn (pos, dine-in, takeaway, online) và các index cho danh sách đơn / keyset pagination
+ALTER TABLE orders
+ADD COLUMN order_type VARCHAR(20) DEFAULT NULL AFTER staff_id,
+ADD KEY idx_orders_branch_create_status (branch_id, create_at, status),
+ADD KEY idx_orders_branch_order_date (branch_id, order_date, order_id),
+ADD KEY idx_orders_branch_type_order_date (branch_id, order_type, order_date),
+ADD KEY idx_orders_order_date (order_date, order_id);
+
+-- Index cho job auto-cancel (lọc theo trạng thái + thời điểm tạo)
+ALTER TABLE orders
+ADD KEY idx_orders_status_create_at (status, create_at);
+
+-- Ngày / giờ kinh doanh (create_at theo giờ Việt Nam UTC+7) để query analytics dùng được index
+ALTER TABLE orders
+ADD COLUMN business_date DATE DEFAULT NULL AFTER create_at,
+ADD COLUMN business_hour TINYINT DEFAULT NULL AFTER business_date,
+ADD KEY idx_orders_branch_business_date (branch_id, business_date, status, business_hour),
+ADD KEY idx_orders_business_date (business_date, branch_id);
+
 -- Order details (line items)
 DROP TABLE IF EXISTS order_details;
 CREATE TABLE order_details (
@@ -251,6 +270,139 @@ CREATE TABLE order_tables (
   UNIQUE KEY uq_order_table (order_id, table_id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
+-- Bộ sinh id theo block cho order_details / order_tables (Hibernate @TableGenerator, allocationSize = 50)
+-- để INSERT các dòng con được gom batch; next_val phải luôn lớn hơn MAX(id) hiện có
+CREATE TABLE id_generators (
+  gen_name VARCHAR(64) NOT NULL,
+  next_val BIGINT NOT NULL,
+  PRIMARY KEY (gen_name)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+INSERT INTO id_generators (gen_name, next_val)
+SELECT 'order_details', COALESCE(MAX(id), 0) + 100 FROM order_details;
+INSERT INTO id_generators (gen_name, next_val)
+SELECT 'order_tables', COALESCE(MAX(id), 0) + 100 FROM order_tables;
+
+-- Bảng rollup doanh số theo chi nhánh / ngày / giờ (giờ Việt Nam) / trạng thái / thanh toán
+-- Được order-service cập nhật tăng dần khi đơn thay đổi; dùng cho /analytics/metrics
+CREATE TABLE order_sales_rollup (
+  id BIGINT PRIMARY KEY AUTO_INCREMENT,
+  branch_id INT NOT NULL,
+  business_date DATE NOT NULL,
+  business_hour INT NOT NULL,
+  status VARCHAR(50) NOT NULL,
+  payment_status VARCHAR(50) NOT NULL DEFAULT '',
+  payment_method VARCHAR(50) NOT NULL DEFAULT '',
+  order_count BIGINT NOT NULL DEFAULT 0,
+  total_amount DECIMAL(14,2) NOT NULL DEFAULT 0.00,
+  update_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  UNIQUE KEY uk_order_sales_rollup_bucket (branch_id, business_date, business_hour, status, payment_status, payment_method),
+  KEY idx_order_sales_rollup_date (business_date, branch_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Bảng rollup khách hàng theo chi nhánh / ngày (customer_id = 0 là khách vãng lai)
+CREATE TABLE customer_daily_rollup (
+  id BIGINT PRIMARY KEY AUTO_INCREMENT,
+  branch_id INT NOT NULL,
+  business_date DATE NOT NULL,
+  customer_id INT NOT NULL,
+  customer_name VARCHAR(50) DEFAULT NULL,
+  order_count BIGINT NOT NULL DEFAULT 0,
+  completed_paid_count BIGINT NOT NULL DEFAULT 0,
+  total_amount DECIMAL(14,2) NOT NULL DEFAULT 0.00,
+  update_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  UNIQUE KEY uk_customer_daily_rollup_bucket (branch_id, business_date, customer_id),
+  KEY idx_customer_daily_rollup_date (business_date, branch_id),
+  KEY idx_customer_daily_rollup_customer (customer_id, business_date)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Bảng rollup sản phẩm theo chi nhánh / ngày (giờ Việt Nam) / trạng thái đơn
+CREATE TABLE product_sales_rollup (
+  id BIGINT PRIMARY KEY AUTO_INCREMENT,
+  branch_id INT NOT NULL,
+  business_date DATE NOT NULL,
+  product_id INT NOT NULL,
+  status VARCHAR(50) NOT NULL,
+  quantity DECIMAL(14,2) NOT NULL DEFAULT 0.00,
+  revenue DECIMAL(14,2) NOT NULL DEFAULT 0.00,
+  order_count BIGINT NOT NULL DEFAULT 0,
+  update_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  UNIQUE KEY uk_product_sales_rollup_bucket (branch_id, business_date, product_id, status),
+  KEY idx_product_sales_rollup_date (business_date, branch_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Tóm tắt đơn hàng (một dòng mỗi đơn: số món, món đầu tiên) cho danh sách đơn phân trang theo cursor
+-- Được order-service cập nhật khi đơn được tạo / đổi trạng thái / xoá
+CREATE TABLE order_summaries (
+  order_id INT PRIMARY KEY,
+  customer_id INT DEFAULT NULL,
+  customer_name VARCHAR(50) DEFAULT NULL,
+  branch_id INT NOT NULL,
+  status VARCHAR(50) DEFAULT NULL,
+  payment_status VARCHAR(50) DEFAULT NULL,
+  payment_method VARCHAR(50) DEFAULT NULL,
+  order_type VARCHAR(20) DEFAULT NULL,
+  total_amount DECIMAL(12,2) NOT NULL DEFAULT 0.00,
+  item_count INT NOT NULL DEFAULT 0,
+  total_quantity DECIMAL(12,2) NOT NULL DEFAULT 0.00,
+  first_item_product_id INT DEFAULT NULL,
+  first_item_quantity DECIMAL(12,2) DEFAULT NULL,
+  order_date DATETIME NOT NULL,
+  update_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  KEY idx_order_summaries_customer (customer_id, order_date, order_id),
+  KEY idx_order_summaries_branch (branch_id, order_date, order_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Cache kết quả geocoding theo địa chỉ chuẩn hóa (resolved = 0: địa chỉ không tìm được tọa độ)
+CREATE TABLE geocode_cache (
+  id BIGINT PRIMARY KEY AUTO_INCREMENT,
+  address_key VARCHAR(500) NOT NULL,
+  latitude DOUBLE DEFAULT NULL,
+  longitude DOUBLE DEFAULT NULL,
+  resolved BOOLEAN NOT NULL,
+  expires_at DATETIME NOT NULL,
+  update_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  UNIQUE KEY uk_geocode_cache_address_key (address_key),
+  KEY idx_geocode_cache_expires_at (expires_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Transactional outbox cho sự kiện Kafka (order.*, reservation.*)
+CREATE TABLE outbox_event (
+  id VARCHAR(36) PRIMARY KEY,
+  aggregate_type VARCHAR(50) NOT NULL,
+  aggregate_id VARCHAR(50) DEFAULT NULL,
+  type VARCHAR(100) NOT NULL,
+  topic VARCHAR(100) NOT NULL,
+  payload LONGTEXT NOT NULL,
+  status VARCHAR(20) NOT NULL DEFAULT 'NEW',
+  attempts INT NOT NULL DEFAULT 0,
+  last_error VARCHAR(500) DEFAULT NULL,
+  next_attempt_at DATETIME(6) DEFAULT NULL,
+  created_at DATETIME(6) NOT NULL,
+  published_at DATETIME(6) DEFAULT NULL,
+  KEY idx_outbox_event_status_created (status, created_at),
+  KEY idx_outbox_event_created (created_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Hàng đợi email xác nhận đơn hàng / đặt bàn (mỗi type + entity_id một dòng)
+CREATE TABLE email_job (
+  id BIGINT AUTO_INCREMENT PRIMARY KEY,
+  type VARCHAR(50) NOT NULL,
+  entity_id INT NOT NULL,
+  recipient VARCHAR(255) NOT NULL,
+  subject VARCHAR(255) NOT NULL,
+  body_html MEDIUMTEXT NOT NULL,
+  status VARCHAR(20) NOT NULL DEFAULT 'NEW',
+  attempts INT NOT NULL DEFAULT 0,
+  last_error VARCHAR(500) DEFAULT NULL,
+  next_attempt_at DATETIME(6) DEFAULT NULL,
+  created_at DATETIME(6) NOT NULL,
+  sent_at DATETIME(6) DEFAULT NULL,
+  UNIQUE KEY ux_email_job_type_entity (type, entity_id),
+  KEY idx_email_job_status_next_attempt (status, next_attempt_at),
+  KEY idx_email_job_created (created_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
 INSERT INTO branch_closures (branch_id, start_date, end_date, user_id, reason) VALUES
 (NULL, '2026-01-01', '2026-01-01', NULL, 'Tết Dương lịch'),
 (NULL, '2026-02-17', '2026-02-19', NULL, 'Tết Nguyên Đán (Mùng 1-3)'),